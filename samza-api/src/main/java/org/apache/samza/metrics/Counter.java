@@ -19,47 +19,95 @@
 
 package org.apache.samza.metrics;
 
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * A counter is a {@link org.apache.samza.metrics.Metric} that represents a cumulative value.
  * For example, the number of messages processed since the container was started.
+ *
+ * <p>
+ * Counters are updated from many threads for every message, so the count is kept in a {@link LongAdder}: concurrent
+ * updates go to separate cells and are only summed when the count is read. {@link #increment()},
+ * {@link #increment(long)}, {@link #decrement()} and {@link #decrement(long)} don't return the count, so they never
+ * pay for summing the cells and should be used on hot paths. {@link #inc()}, {@link #inc(long)}, {@link #dec()} and
+ * {@link #dec(long)} return the new count, which sums the cells on every update.
+ * </p>
  */
 public class Counter implements Metric {
   private final String name;
-  private final AtomicLong count;
+  private final LongAdder count;
 
   public Counter(String name) {
     this.name = name;
-    this.count = new AtomicLong(0);
+    this.count = new LongAdder();
   }
 
+  /**
+   * Adds 1 and returns the new count, which sums the cells. Use {@link #increment()}
+   * when the count isn't needed.
+   */
   public long inc() {
     return inc(1);
   }
 
+  /**
+   * Adds n and returns the new count, which sums the cells. Use {@link #increment(long)}
+   * when the count isn't needed.
+   */
   public long inc(long n) {
-    return count.addAndGet(n);
+    count.add(n);
+    return count.sum();
   }
 
+  /**
+   * Subtracts 1 and returns the new count, which sums the cells. Use {@link #decrement()}
+   * when the count isn't needed.
+   */
   public long dec() {
     return dec(1);
   }
 
+  /**
+   * Subtracts n and returns the new count, which sums the cells. Use {@link #decrement(long)}
+   * when the count isn't needed.
+   */
   public long dec(long n) {
-    return count.addAndGet(0 - n);
+    count.add(0 - n);
+    return count.sum();
+  }
+
+  public void increment() {
+    count.increment();
+  }
+
+  public void increment(long n) {
+    count.add(n);
   }
-  
+
+  public void decrement() {
+    count.decrement();
+  }
+
+  public void decrement(long n) {
+    count.add(0 - n);
+  }
+
+  /**
+   * Set the count. Not atomic with respect to concurrent updates, which may be lost.
+   *
+   * @param n the new count
+   */
   public void set(long n) {
-    count.set(n);
+    count.reset();
+    count.add(n);
   }
 
   public void clear() {
-    count.set(0);
+    count.reset();
   }
 
   public long getCount() {
-    return count.get();
+    return count.sum();
   }
 
   public String getName() {
@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.samza.util.Clock;
+
+/**
+ * A {@link Reservoir} that counts values in fixed, log-linear buckets instead of storing them, so an
+ * {@link #update} is a few uncontended atomic increments and the memory used doesn't depend on the update rate.
+ * Each power of two is split into 32 buckets, so percentiles are accurate to about 3%. The count, sum, minimum
+ * and maximum are exact.
+ *
+ * <p>
+ * Values are recorded into one of two intervals. When a snapshot is taken and at least half of the window has
+ * passed since the intervals were last swapped, the older interval is cleared and becomes the one being
+ * recorded into. A snapshot covers both intervals, so it includes at least the values of the last half window.
+ * Taking a snapshot doesn't reset the reservoir, so it can be shared by several reporters.
+ * </p>
+ *
+ * <p>
+ * The values themselves are not kept, so {@link Snapshot#getValues()} is empty for a snapshot of this reservoir.
+ * A snapshot only copies the buckets that hold values, so its size depends on the spread of the values rather
+ * than on the number of buckets.
+ * </p>
+ */
+public class HistogramReservoir implements Reservoir {
+
+  /**
+   * default window size
+   */
+  private static final long DEFAULT_WINDOW_SIZE_MS = 300000;
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * Values at or above 2^40 (about 18 minutes in nanoseconds) share the last bucket.
+   */
+  private static final int MAX_MAGNITUDE = 40;
+  private static final int BUCKET_COUNT = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+  /**
+   * The number of non-empty buckets a snapshot makes room for before it has to grow.
+   */
+  private static final int INITIAL_SNAPSHOT_BUCKETS = 16;
+
+  private final long swapIntervalMs;
+  private final Clock clock;
+  private final AtomicLong nextSwapMs;
+  private volatile Intervals intervals;
+
+  /**
+   * Default constructor using default window size
+   */
+  public HistogramReservoir() {
+    this(DEFAULT_WINDOW_SIZE_MS, new Clock() {
+      public long currentTimeMillis() {
+        return System.currentTimeMillis();
+      }
+    });
+  }
+
+  /**
+   * Construct the HistogramReservoir with window size
+   *
+   * @param windowMs the size of the window. unit is millisecond.
+   * @param clock the clock used to decide when to swap intervals
+   */
+  public HistogramReservoir(long windowMs, Clock clock) {
+    this.swapIntervalMs = Math.max(1, windowMs / 2);
+    this.clock = clock;
+    this.nextSwapMs = new AtomicLong(clock.currentTimeMillis() + swapIntervalMs);
+    this.intervals = new Intervals(new Interval(), new Interval());
+  }
+
+  @Override
+  public int size() {
+    maybeSwapIntervals();
+
+    Intervals intervals = this.intervals;
+    long count = intervals.current.count.sum() + intervals.previous.count.sum();
+    return (int) Math.min(count, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public void update(long value) {
+    intervals.current.record(value);
+  }
+
+  @Override
+  public Snapshot getSnapshot() {
+    maybeSwapIntervals();
+
+    Intervals intervals = this.intervals;
+    Buckets buckets = new Buckets(intervals.current, intervals.previous);
+    long sum = intervals.current.sum.sum() + intervals.previous.sum.sum();
+    long min = Math.min(intervals.current.min.get(), intervals.previous.min.get());
+    long max = Math.max(intervals.current.max.get(), intervals.previous.max.get());
+
+    return new Snapshot((int) Math.min(buckets.count, Integer.MAX_VALUE), min, max, sum,
+        percentile -> buckets.getValueAtPercentile(min, max, percentile));
+  }
+
+  private void maybeSwapIntervals() {
+    long now = clock.currentTimeMillis();
+    long nextSwap = nextSwapMs.get();
+    if (now >= nextSwap && nextSwapMs.compareAndSet(nextSwap, now + swapIntervalMs)) {
+      Intervals intervals = this.intervals;
+      // A writer that still holds the old intervals may record into the cleared interval, which only moves its
+      // value into the next interval.
+      intervals.previous.reset();
+      this.intervals = new Intervals(intervals.previous, intervals.current);
+    }
+  }
+
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) Math.max(value, 0);
+    }
+    int magnitude = 63 - Long.numberOfLeadingZeros(value);
+    if (magnitude >= MAX_MAGNITUDE) {
+      return BUCKET_COUNT - 1;
+    }
+    int shift = magnitude - SUB_BUCKET_BITS;
+    return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) - SUB_BUCKET_COUNT);
+  }
+
+  static long highestValueInBucket(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = (index >> SUB_BUCKET_BITS) - 1;
+    long subBucket = (index & (SUB_BUCKET_COUNT - 1)) + SUB_BUCKET_COUNT;
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+  /**
+   * The interval being recorded into and the interval before it.
+   */
+  private static class Intervals {
+    private final Interval current;
+    private final Interval previous;
+
+    Intervals(Interval current, Interval previous) {
+      this.current = current;
+      this.previous = previous;
+    }
+  }
+
+  /**
+   * The non-empty buckets of two intervals, in bucket order.
+   */
+  private static class Buckets {
+    private int[] indexes = new int[INITIAL_SNAPSHOT_BUCKETS];
+    private long[] counts = new long[INITIAL_SNAPSHOT_BUCKETS];
+    private int size = 0;
+    private long count = 0;
+
+    Buckets(Interval current, Interval previous) {
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        long bucketCount = current.counts.get(i) + previous.counts.get(i);
+        if (bucketCount != 0) {
+          add(i, bucketCount);
+        }
+      }
+    }
+
+    private void add(int index, long bucketCount) {
+      if (size == indexes.length) {
+        indexes = Arrays.copyOf(indexes, size * 2);
+        counts = Arrays.copyOf(counts, size * 2);
+      }
+      indexes[size] = index;
+      counts[size] = bucketCount;
+      size++;
+      count += bucketCount;
+    }
+
+    long getValueAtPercentile(long min, long max, double percentile) {
+      long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+      long seen = 0;
+      for (int i = 0; i < size; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return Math.max(min, Math.min(max, highestValueInBucket(indexes[i])));
+        }
+      }
+      return max;
+    }
+  }
+
+  private static class Interval {
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    void record(long value) {
+      counts.incrementAndGet(bucketIndex(value));
+      count.increment();
+      sum.add(value);
+      min.accumulate(value);
+      max.accumulate(value);
+    }
+
+    void reset() {
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        counts.set(i, 0);
+      }
+      count.reset();
+      sum.reset();
+      min.reset();
+      max.reset();
+    }
+  }
+}
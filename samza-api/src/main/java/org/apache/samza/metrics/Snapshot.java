@@ -21,6 +21,8 @@ package org.apache.samza.metrics;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.function.DoubleToLongFunction;
 
 /**
  * A statistical snapshot of a collection of values
@@ -31,6 +33,26 @@ public class Snapshot {
   private final long max;
   private final double sum;
   private final int size;
+  private final DoubleToLongFunction percentiles;
+
+  /**
+   * Construct a snapshot of values that were summarized by a {@link Reservoir}, rather than kept individually.
+   * {@link #getValues()} is empty for such a snapshot.
+   *
+   * @param size the number of values
+   * @param min the minimum value
+   * @param max the maximum value
+   * @param sum the sum of the values
+   * @param percentiles function from a percentile in [0, 100] to the value at that percentile
+   */
+  Snapshot(int size, long min, long max, double sum, DoubleToLongFunction percentiles) {
+    this.values = new ArrayList<>();
+    this.size = size;
+    this.min = size == 0 ? 0 : min;
+    this.max = size == 0 ? 0 : max;
+    this.sum = sum;
+    this.percentiles = percentiles;
+  }
 
   Snapshot(Collection<Long> values) {
     this.values = new ArrayList<>(values.size());
@@ -62,6 +84,7 @@ public class Snapshot {
       this.max = max;
       this.min = min;
     }
+    this.percentiles = null;
   }
 
   /**
@@ -110,7 +133,33 @@ public class Snapshot {
   }
 
   /**
-   * Return the entire list of values
+   * Get the value at the given percentile of the collection, e.g. 99 for the 99th percentile. The value of a
+   * snapshot taken from a {@link HistogramReservoir} is accurate to the precision of its buckets.
+   *
+   * @param percentile the percentile, between 0 and 100
+   * @return the value at the percentile, or 0 if the collection is empty
+   */
+  public long getPercentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+    }
+    if (size == 0) {
+      return 0;
+    }
+    if (percentiles != null) {
+      return percentiles.applyAsLong(percentile);
+    }
+
+    ArrayList<Long> sortedValues = getValues();
+    Collections.sort(sortedValues);
+    int rank = (int) Math.ceil(percentile / 100 * size);
+    return sortedValues.get(Math.max(rank, 1) - 1);
+  }
+
+  /**
+   * Return the entire list of values. The list is empty for a snapshot of a reservoir that summarizes the values
+   * instead of keeping them, such as the {@link HistogramReservoir} of a {@link Timer} created with
+   * {@link Timer#Timer(String)}. Use {@link #getPercentile(double)} and the other statistics for such snapshots.
    *
    * @return the list of values
    */
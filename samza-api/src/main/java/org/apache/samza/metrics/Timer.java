@@ -31,13 +31,15 @@ public class Timer implements Metric {
   private final Reservoir reservoir;
 
   /**
-   * Default constructor. It uses {@link SlidingTimeWindowReservoir} as the
-   * default reservoir.
+   * Default constructor. It uses {@link HistogramReservoir} as the
+   * default reservoir. The reservoir does not keep the durations, so
+   * {@link Snapshot#getValues()} of its snapshots is empty. Use one of the
+   * windowed constructors to keep them.
    *
    * @param name name of this timer
    */
   public Timer(String name) {
-    this(name, new SlidingTimeWindowReservoir());
+    this(name, new HistogramReservoir());
   }
 
   /**
@@ -155,6 +155,40 @@ public interface MessageStream<M> {
       Serde<K> keySerde, Serde<M> messageSerde, Serde<OM> otherMessageSerde,
       Duration ttl, String id);
 
+  /**
+   * Joins this {@link MessageStream} with another {@link MessageStream} using the provided
+   * pairwise {@link JoinFunction}, emitting a result for every pair of messages with the same key
+   * that arrive within {@code window} of each other.
+   * <p>
+   * Unlike {@link #join(MessageStream, JoinFunction, Serde, Serde, Serde, Duration, String)}, which only retains
+   * the latest message for each key, every message in each stream is retained for the {@code window}, so keys
+   * with many messages on both sides produce all of their matches. State is bounded by the {@code window}
+   * rather than by the number of keys.
+   * <p>
+   * Both inputs being joined must have the same number of partitions, and should be partitioned by the join key.
+   * <p>
+   * The {@code id} must be unique for each operator in this application. It is used as part of the unique ID
+   * for any state stores and streams created by this operator (the full ID also contains the job name, job id and
+   * operator type). If the application logic is changed, this ID must be reused in the new operator to retain
+   * state from the previous version, and changed for the new operator to discard the state from the previous version.
+   *
+   * @param otherStream the other {@link MessageStream} to be joined with
+   * @param joinFn the function to join messages from this and the other {@link MessageStream}
+   * @param keySerde the serde for the join key
+   * @param messageSerde the serde for messages in this stream
+   * @param otherMessageSerde the serde for messages in the other stream
+   * @param window the maximum time between two messages for them to be joined
+   * @param id the unique id of this operator in this application
+   * @param <K> the type of join key
+   * @param <OM> the type of messages in the other stream
+   * @param <JM> the type of messages resulting from the {@code joinFn}
+   * @return the joined {@link MessageStream}
+   */
+  <K, OM, JM> MessageStream<JM> windowedJoin(MessageStream<OM> otherStream,
+      JoinFunction<? extends K, ? super M, ? super OM, ? extends JM> joinFn,
+      Serde<K> keySerde, Serde<M> messageSerde, Serde<OM> otherMessageSerde,
+      Duration window, String id);
+
   /**
    * Joins this {@link MessageStream} with another {@link Table} using the provided
    * pairwise {@link StreamTableJoinFunction}.
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.operators.functions;
+
+import java.io.Serializable;
+import org.apache.samza.annotation.InterfaceStability;
+
+
+/**
+ * Merges two aggregated values into one. Main usage is in hopping {@link org.apache.samza.operators.windows.Window}s,
+ * which aggregate messages per slice with a {@link FoldLeftFunction} and combine the slices of a window when it
+ * is emitted.
+ *
+ * <p>The function may merge {@code otherValue} into {@code value} and return it, but must not change
+ * {@code otherValue}, which is typically the value of a slice that is still held by the window's store.
+ *
+ * @param <WV> the type of the aggregated value
+ */
+@InterfaceStability.Unstable
+@FunctionalInterface
+public interface CombineFunction<WV> extends InitableFunction, ClosableFunction, Serializable {
+
+  /**
+   * Merges two aggregated values.
+   *
+   * @param value the aggregated value to merge into
+   * @param otherValue the aggregated value being merged
+   * @return the merged value
+   */
+  WV apply(WV value, WV otherValue);
+}
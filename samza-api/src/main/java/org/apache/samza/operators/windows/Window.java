@@ -105,4 +105,16 @@ public interface Window<M, K, WV> extends Serializable {
    * @return the {@link Window} function with {@code mode} set as its {@link AccumulationMode}.
    */
   Window<M, K, WV> setAccumulationMode(AccumulationMode mode);
+
+  /**
+   * Specify whether the deadlines of the default triggers of this {@link Window} should be persisted.
+   * <p> The pending windows of processing time {@link Window}s are tracked in memory by their triggers. When enabled,
+   * the deadline of the default trigger of each pending window is persisted to a changelog-backed store, so that its
+   * pane is still emitted after a restart instead of its state being left behind. Event time and hopping windows
+   * already rebuild their pending windows from their state, so this has no effect on them.
+   *
+   * @param persistTriggers whether to persist the deadlines of the default triggers
+   * @return the {@link Window} function with the trigger persistence set
+   */
+  Window<M, K, WV> setPersistTriggers(boolean persistTriggers);
 }
@@ -20,6 +20,7 @@
 package org.apache.samza.operators.windows;
 
 import org.apache.samza.annotation.InterfaceStability;
+import org.apache.samza.operators.functions.CombineFunction;
 import org.apache.samza.operators.functions.FoldLeftFunction;
 import org.apache.samza.operators.functions.MapFunction;
 import org.apache.samza.operators.functions.SupplierFunction;
@@ -74,6 +75,13 @@ import java.util.Collection;
  *   <li>
  *     Tumbling Window: A tumbling window defines a series of non-overlapping, fixed size, contiguous intervals.
  *   <li>
+ *     Event Time Tumbling Window: A tumbling window whose intervals are assigned from a timestamp in each message
+ *     rather than from processing time. Its panes are emitted as the watermark passes the end of each interval.
+ *   <li>
+ *     Hopping Window: A hopping window defines a series of overlapping, fixed size intervals that start every
+ *     {@code hop}. Messages are aggregated once per hop-sized slice, and the slices of a window are combined when
+ *     it is emitted.
+ *   <li>
  *     Session Window: A session window groups a {@link org.apache.samza.operators.MessageStream} into sessions.
  *     A <i>session</i> captures some period of activity over a {@link org.apache.samza.operators.MessageStream}.
  *     The boundary for a session is defined by a {@code sessionGap}. All messages that that arrive within
@@ -224,6 +232,204 @@ public final class Windows {
         WindowType.TUMBLING, null, null, msgSerde);
   }
 
+  /**
+   * Creates a {@link Window} that groups incoming messages into fixed-size, non-overlapping event time based
+   * windows based on the provided keyFn and applies the provided fold function to them.
+   *
+   * <p>Each message is assigned to a window using the timestamp returned by {@code eventTimeFn}. The pane for a
+   * window is emitted when the watermark passes the end of the window, so replaying a stream produces the same
+   * panes as processing it live. Messages that arrive within {@code allowedLateness} after that are added to the
+   * window and emit a {@link org.apache.samza.operators.triggers.FiringType#LATE} pane. Later messages are dropped.
+   *
+   * <p>The below example counts the clicks per-key over fixed size 1 minute windows of click time.
+   *
+   * <pre> {@code
+   *    MessageStream<UserClick> stream = ...;
+   *    MapFunction<UserClick, String> keyFn = ...;
+   *    MapFunction<UserClick, Long> eventTimeFn = click -> click.getClickTimeMs();
+   *    MessageStream<WindowPane<String, Integer>> windowedStream = stream.window(
+   *        Windows.keyedEventTimeTumblingWindow(keyFn, eventTimeFn, Duration.ofMinutes(1), Duration.ofMinutes(5),
+   *            () -> 0, (m, c) -> c + 1, new StringSerde(), new IntegerSerde()));
+   * }
+   * </pre>
+   *
+   * @param keyFn the function to extract the window key from a message
+   * @param eventTimeFn the function to extract the event time in milliseconds from a message
+   * @param interval the duration in event time
+   * @param allowedLateness the duration in event time after the end of a window during which late messages are
+   *                        still added to it
+   * @param initialValue the initial value supplier for the aggregator. Invoked when a new window is created.
+   * @param aggregator the function to incrementally update the window value. Invoked when a new message
+   *                   arrives for the window.
+   * @param keySerde the serde for the window key
+   * @param windowValueSerde the serde for the window value
+   * @param <M> the type of the input message
+   * @param <WV> the type of the {@link WindowPane} output value
+   * @param <K> the type of the key in the {@link Window}
+   * @return the created {@link Window} function.
+   */
+  public static <M, K, WV> Window<M, K, WV> keyedEventTimeTumblingWindow(MapFunction<? super M, ? extends K> keyFn,
+      MapFunction<? super M, Long> eventTimeFn, Duration interval, Duration allowedLateness,
+      SupplierFunction<? extends WV> initialValue, FoldLeftFunction<? super M, WV> aggregator, Serde<K> keySerde,
+      Serde<WV> windowValueSerde) {
+
+    Trigger<M> defaultTrigger = new TimeTrigger<>(interval);
+    return new WindowInternal<>(defaultTrigger, (SupplierFunction<WV>) initialValue, (FoldLeftFunction<M, WV>) aggregator,
+        (MapFunction<M, K>) keyFn, (MapFunction<M, Long>) eventTimeFn, allowedLateness.toMillis(), WindowType.TUMBLING,
+        keySerde, windowValueSerde, null);
+  }
+
+  /**
+   * Creates a {@link Window} that groups incoming messages into fixed-size, non-overlapping event time based
+   * windows using the provided keyFn.
+   *
+   * <p>See {@link #keyedEventTimeTumblingWindow(MapFunction, MapFunction, Duration, Duration, SupplierFunction,
+   * FoldLeftFunction, Serde, Serde)} for how messages are assigned to windows and when panes are emitted.
+   *
+   * @param keyFn the function to extract the window key from a message
+   * @param eventTimeFn the function to extract the event time in milliseconds from a message
+   * @param interval the duration in event time
+   * @param allowedLateness the duration in event time after the end of a window during which late messages are
+   *                        still added to it
+   * @param keySerde the serde for the window key
+   * @param msgSerde the serde for the input message
+   * @param <M> the type of the input message
+   * @param <K> the type of the key in the {@link Window}
+   * @return the created {@link Window} function
+   */
+  public static <M, K> Window<M, K, Collection<M>> keyedEventTimeTumblingWindow(MapFunction<? super M, ? extends K> keyFn,
+      MapFunction<? super M, Long> eventTimeFn, Duration interval, Duration allowedLateness, Serde<K> keySerde,
+      Serde<M> msgSerde) {
+
+    Trigger<M> defaultTrigger = new TimeTrigger<>(interval);
+    return new WindowInternal<>(defaultTrigger, null, null, (MapFunction<M, K>) keyFn,
+        (MapFunction<M, Long>) eventTimeFn, allowedLateness.toMillis(), WindowType.TUMBLING, keySerde, null, msgSerde);
+  }
+
+  /**
+   * Creates a {@link Window} that groups incoming messages into fixed-size, overlapping processing time based
+   * windows that start every {@code hop}, based on the provided keyFn, and applies the provided fold function to them.
+   *
+   * <p>Each message is folded into the aggregate for the hop-sized slice of time it arrives in, so its cost does
+   * not depend on how many windows overlap it. Every {@code hop}, a pane is emitted for each key with the value of
+   * its latest window, computed by merging the aggregates of the slices in the window with {@code combiner}.
+   *
+   * <p>The below example counts the clicks per-key over the last 10 minutes, every 10 seconds.
+   *
+   * <pre> {@code
+   *    MessageStream<UserClick> stream = ...;
+   *    MapFunction<UserClick, String> keyFn = ...;
+   *    MessageStream<WindowPane<String, Integer>> windowedStream = stream.window(
+   *        Windows.keyedHoppingWindow(keyFn, Duration.ofMinutes(10), Duration.ofSeconds(10),
+   *            () -> 0, (m, c) -> c + 1, (c1, c2) -> c1 + c2, new StringSerde(), new IntegerSerde()));
+   * }
+   * </pre>
+   *
+   * @param keyFn the function to extract the window key from a message
+   * @param size the duration of each window in processing time. Must be a multiple of {@code hop}.
+   * @param hop the duration in processing time between the starts of consecutive windows
+   * @param initialValue the initial value supplier for the aggregator. Invoked when a new slice is created, and
+   *                     for the value the slices of a window are combined into, so combining a value with it
+   *                     must leave the value unchanged.
+   * @param aggregator the function to incrementally update the slice value. Invoked when a new message
+   *                   arrives for the slice.
+   * @param combiner the function to merge the values of two slices. It may update and return its first argument.
+   * @param keySerde the serde for the window key
+   * @param windowValueSerde the serde for the window value
+   * @param <M> the type of the input message
+   * @param <WV> the type of the {@link WindowPane} output value
+   * @param <K> the type of the key in the {@link Window}
+   * @return the created {@link Window} function.
+   */
+  public static <M, K, WV> Window<M, K, WV> keyedHoppingWindow(MapFunction<? super M, ? extends K> keyFn,
+      Duration size, Duration hop, SupplierFunction<? extends WV> initialValue,
+      FoldLeftFunction<? super M, WV> aggregator, CombineFunction<WV> combiner, Serde<K> keySerde,
+      Serde<WV> windowValueSerde) {
+    return keyedHoppingWindow(keyFn, size, hop, initialValue, aggregator, combiner, null, keySerde, windowValueSerde);
+  }
+
+  /**
+   * Creates a {@link Window} that groups incoming messages into fixed-size, overlapping processing time based
+   * windows that start every {@code hop}, based on the provided keyFn, and applies the provided fold function to them.
+   *
+   * <p>Same as {@link #keyedHoppingWindow(MapFunction, Duration, Duration, SupplierFunction, FoldLeftFunction,
+   * CombineFunction, Serde, Serde)}, but the value of each window is updated from the value of the previous one by
+   * combining the slice that entered it and subtracting the slice that left it with {@code subtractor}. This makes
+   * the cost of each hop independent of the number of slices in a window.
+   *
+   * <p>The below example sums the click durations per-key over the last 10 minutes, every 10 seconds.
+   *
+   * <pre> {@code
+   *    MessageStream<UserClick> stream = ...;
+   *    MapFunction<UserClick, String> keyFn = ...;
+   *    MessageStream<WindowPane<String, Long>> windowedStream = stream.window(
+   *        Windows.keyedHoppingWindow(keyFn, Duration.ofMinutes(10), Duration.ofSeconds(10),
+   *            () -> 0L, (m, s) -> s + m.getDurationMs(), (s1, s2) -> s1 + s2, (s1, s2) -> s1 - s2,
+   *            new StringSerde(), new LongSerde()));
+   * }
+   * </pre>
+   *
+   * @param keyFn the function to extract the window key from a message
+   * @param size the duration of each window in processing time. Must be a multiple of {@code hop}.
+   * @param hop the duration in processing time between the starts of consecutive windows
+   * @param initialValue the initial value supplier for the aggregator. Invoked when a new slice is created, and
+   *                     for the value the slices of a window are combined into, so combining a value with it
+   *                     must leave the value unchanged.
+   * @param aggregator the function to incrementally update the slice value. Invoked when a new message
+   *                   arrives for the slice.
+   * @param combiner the function to merge the values of two slices. If {@code subtractor} is set, the value of a
+   *                 window is carried over to the next window after it is emitted, so both functions must return
+   *                 a new value rather than update their first argument.
+   * @param subtractor the inverse of {@code combiner} that removes the value of a slice from the value of a window,
+   *                   or null to combine all slices of a window every time it is emitted
+   * @param keySerde the serde for the window key
+   * @param windowValueSerde the serde for the window value
+   * @param <M> the type of the input message
+   * @param <WV> the type of the {@link WindowPane} output value
+   * @param <K> the type of the key in the {@link Window}
+   * @return the created {@link Window} function.
+   */
+  public static <M, K, WV> Window<M, K, WV> keyedHoppingWindow(MapFunction<? super M, ? extends K> keyFn,
+      Duration size, Duration hop, SupplierFunction<? extends WV> initialValue,
+      FoldLeftFunction<? super M, WV> aggregator, CombineFunction<WV> combiner, CombineFunction<WV> subtractor,
+      Serde<K> keySerde, Serde<WV> windowValueSerde) {
+
+    if (hop.toMillis() <= 0 || size.toMillis() < hop.toMillis() || size.toMillis() % hop.toMillis() != 0) {
+      throw new IllegalArgumentException(
+          String.format("The size %s of a hopping window must be a multiple of its hop %s", size, hop));
+    }
+    Trigger<M> defaultTrigger = new TimeTrigger<>(hop);
+    return new WindowInternal<>(defaultTrigger, (SupplierFunction<WV>) initialValue, (FoldLeftFunction<M, WV>) aggregator,
+        combiner, subtractor, (MapFunction<M, K>) keyFn, null, 0, size.toMillis(), WindowType.HOPPING, keySerde,
+        windowValueSerde, null);
+  }
+
+  /**
+   * Creates a {@link Window} that groups incoming messages into fixed-size, overlapping processing time based
+   * windows that start every {@code hop}, and applies the provided fold function to them.
+   *
+   * <p>See {@link #keyedHoppingWindow(MapFunction, Duration, Duration, SupplierFunction, FoldLeftFunction,
+   * CombineFunction, Serde, Serde)} for how the windows are aggregated and emitted.
+   *
+   * @param size the duration of each window in processing time. Must be a multiple of {@code hop}.
+   * @param hop the duration in processing time between the starts of consecutive windows
+   * @param initialValue the initial value supplier for the aggregator. Invoked when a new slice is created, and
+   *                     for the value the slices of a window are combined into, so combining a value with it
+   *                     must leave the value unchanged.
+   * @param aggregator the function to incrementally update the slice value. Invoked when a new message
+   *                   arrives for the slice.
+   * @param combiner the function to merge the values of two slices. It may update and return its first argument.
+   * @param windowValueSerde the serde for the window value
+   * @param <M> the type of the input message
+   * @param <WV> the type of the {@link WindowPane} output value
+   * @return the created {@link Window} function
+   */
+  public static <M, WV> Window<M, Void, WV> hoppingWindow(Duration size, Duration hop,
+      SupplierFunction<? extends WV> initialValue, FoldLeftFunction<? super M, WV> aggregator,
+      CombineFunction<WV> combiner, Serde<WV> windowValueSerde) {
+    return keyedHoppingWindow(null, size, hop, initialValue, aggregator, combiner, null, null, windowValueSerde);
+  }
+
   /**
    * Creates a {@link Window} that groups incoming messages into sessions per-key based on the provided
    * {@code sessionGap} and applies the provided fold function to them.
@@ -18,6 +18,7 @@
  */
 package org.apache.samza.operators.windows.internal;
 import org.apache.samza.annotation.InterfaceStability;
+import org.apache.samza.operators.functions.CombineFunction;
 import org.apache.samza.operators.functions.MapFunction;
 import org.apache.samza.operators.functions.SupplierFunction;
 import org.apache.samza.operators.functions.FoldLeftFunction;
@@ -52,6 +53,17 @@ public final class WindowInternal<M, WK, WV> implements Window<M, WK, WV> {
    */
   private final FoldLeftFunction<M, WV> foldLeftFunction;
 
+  /*
+   * For hopping windows, the function that merges the aggregated values of two slices of a window.
+   */
+  private final CombineFunction<WV> combineFunction;
+
+  /*
+   * For hopping windows, the optional inverse of the {@link #combineFunction} that removes the aggregated value of
+   * a slice from the value of a window.
+   */
+  private final CombineFunction<WV> subtractFunction;
+
   /*
    * The function that extracts the key from a {@link MessageEnvelope}
    */
@@ -63,13 +75,25 @@ public final class WindowInternal<M, WK, WV> implements Window<M, WK, WV> {
   private final MapFunction<M, Long> eventTimeExtractor;
 
   /**
-   * The type of this window. Tumbling and Session windows are supported for now.
+   * The type of this window. Tumbling, Session and Hopping windows are supported for now.
    */
   private final WindowType windowType;
 
+  /**
+   * For hopping windows, the size of each window. The default trigger fires once per hop.
+   */
+  private final long windowSizeMs;
+
+  /**
+   * For event time windows, how long after the watermark passes the end of a window late messages are still
+   * added to it. Messages that arrive later are dropped.
+   */
+  private final long allowedLatenessMs;
+
   private Trigger<M> earlyTrigger;
   private Trigger<M> lateTrigger;
   private AccumulationMode mode;
+  private boolean persistTriggers;
 
   /**
    * The following {@link Serde}s are serialized by the ExecutionPlanner when generating the store configs, and deserialized
@@ -82,12 +106,31 @@ public final class WindowInternal<M, WK, WV> implements Window<M, WK, WV> {
   public WindowInternal(Trigger<M> defaultTrigger, SupplierFunction<WV> initializer, FoldLeftFunction<M, WV> foldLeftFunction,
       MapFunction<M, WK> keyExtractor, MapFunction<M, Long> eventTimeExtractor, WindowType windowType, Serde<WK> keySerde,
       Serde<WV> windowValueSerde, Serde<M> msgSerde) {
+    this(defaultTrigger, initializer, foldLeftFunction, keyExtractor, eventTimeExtractor, 0, windowType, keySerde,
+        windowValueSerde, msgSerde);
+  }
+
+  public WindowInternal(Trigger<M> defaultTrigger, SupplierFunction<WV> initializer, FoldLeftFunction<M, WV> foldLeftFunction,
+      MapFunction<M, WK> keyExtractor, MapFunction<M, Long> eventTimeExtractor, long allowedLatenessMs,
+      WindowType windowType, Serde<WK> keySerde, Serde<WV> windowValueSerde, Serde<M> msgSerde) {
+    this(defaultTrigger, initializer, foldLeftFunction, null, null, keyExtractor, eventTimeExtractor, allowedLatenessMs,
+        0, windowType, keySerde, windowValueSerde, msgSerde);
+  }
+
+  public WindowInternal(Trigger<M> defaultTrigger, SupplierFunction<WV> initializer, FoldLeftFunction<M, WV> foldLeftFunction,
+      CombineFunction<WV> combineFunction, CombineFunction<WV> subtractFunction, MapFunction<M, WK> keyExtractor,
+      MapFunction<M, Long> eventTimeExtractor, long allowedLatenessMs, long windowSizeMs, WindowType windowType,
+      Serde<WK> keySerde, Serde<WV> windowValueSerde, Serde<M> msgSerde) {
     this.defaultTrigger = defaultTrigger;
     this.initializer = initializer;
     this.foldLeftFunction = foldLeftFunction;
+    this.combineFunction = combineFunction;
+    this.subtractFunction = subtractFunction;
     this.eventTimeExtractor = eventTimeExtractor;
     this.keyExtractor = keyExtractor;
+    this.allowedLatenessMs = allowedLatenessMs;
     this.windowType = windowType;
+    this.windowSizeMs = windowSizeMs;
     this.keySerde = keySerde;
     this.windowValSerde = windowValueSerde;
     this.msgSerde = msgSerde;
@@ -111,6 +154,18 @@ public final class WindowInternal<M, WK, WV> implements Window<M, WK, WV> {
     if (foldLeftFunction == null && initializer != null) {
       throw new IllegalArgumentException("A window without a provided FoldLeftFunction must not have an initializer");
     }
+
+    if (allowedLatenessMs < 0) {
+      throw new IllegalArgumentException("A window must not have a negative allowed lateness");
+    }
+
+    if (windowType == WindowType.HOPPING && (foldLeftFunction == null || combineFunction == null)) {
+      throw new IllegalArgumentException("A hopping window must have a FoldLeftFunction and a CombineFunction");
+    }
+
+    if (windowType == WindowType.HOPPING && eventTimeExtractor != null) {
+      throw new IllegalArgumentException("A hopping window must not have an eventTimeExtractor");
+    }
   }
 
   public Trigger<M> getDefaultTrigger() {
@@ -141,6 +196,22 @@ public final class WindowInternal<M, WK, WV> implements Window<M, WK, WV> {
     return eventTimeExtractor;
   }
 
+  public long getAllowedLatenessMs() {
+    return allowedLatenessMs;
+  }
+
+  public CombineFunction<WV> getCombineFunction() {
+    return combineFunction;
+  }
+
+  public CombineFunction<WV> getSubtractFunction() {
+    return subtractFunction;
+  }
+
+  public long getWindowSizeMs() {
+    return windowSizeMs;
+  }
+
   public WindowType getWindowType() {
     return windowType;
   }
@@ -165,6 +236,10 @@ public final class WindowInternal<M, WK, WV> implements Window<M, WK, WV> {
     return mode;
   }
 
+  public boolean shouldPersistTriggers() {
+    return persistTriggers;
+  }
+
   @Override
   public Window<M, WK, WV> setEarlyTrigger(Trigger<M> trigger) {
     this.earlyTrigger = trigger;
@@ -182,4 +257,10 @@ public final class WindowInternal<M, WK, WV> implements Window<M, WK, WV> {
     this.mode = mode;
     return this;
   }
+
+  @Override
+  public Window<M, WK, WV> setPersistTriggers(boolean persistTriggers) {
+    this.persistTriggers = persistTriggers;
+    return this;
+  }
 }
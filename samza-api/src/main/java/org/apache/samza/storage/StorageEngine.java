@@ -19,6 +19,7 @@
 
 package org.apache.samza.storage;
 
+import java.io.File;
 import java.util.Iterator;
 
 import org.apache.samza.system.IncomingMessageEnvelope;
@@ -51,6 +52,20 @@ public interface StorageEngine {
    */
   void flush();
 
+  /**
+   * Create a consistent, point-in-time copy of the contents of this StorageEngine on local disk,
+   * which can later be used in place of the store directory to restore it without replaying the
+   * whole changelog.
+   *
+   * @param checkpointDir
+   *          the directory to create the checkpoint in. It must not exist yet.
+   * @return true if a checkpoint was created, false if this StorageEngine does not
+   *         support checkpoints.
+   */
+  default boolean checkpoint(File checkpointDir) {
+    return false;
+  }
+
   /**
    * Close the storage engine
    */
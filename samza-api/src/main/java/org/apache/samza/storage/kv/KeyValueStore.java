@@ -110,6 +110,38 @@ public interface KeyValueStore<K, V> {
    */
   KeyValueIterator<K, V> range(K from, K to);
 
+  /**
+   * Returns an iterator for the keys of a sorted range of entries specified by [{@code from}, {@code to}).
+   *
+   * <p>Stores that serialize their values should override this so that values are not read or deserialized
+   * when only the keys are needed.
+   *
+   * <p><b>API Note:</b> The returned iterator MUST be closed after use. Keys are ordered as in {@link #range(Object, Object)}.</p>
+   * @param from the key specifying the low endpoint (inclusive) of the keys in the returned range.
+   * @param to the key specifying the high endpoint (exclusive) of the keys in the returned range.
+   * @return an iterator for the keys in the specified key range.
+   * @throws NullPointerException if null is used for {@code from} or {@code to}.
+   */
+  default ClosableIterator<K> rangeKeys(K from, K to) {
+    KeyValueIterator<K, V> range = range(from, to);
+    return new ClosableIterator<K>() {
+      @Override
+      public void close() {
+        range.close();
+      }
+
+      @Override
+      public boolean hasNext() {
+        return range.hasNext();
+      }
+
+      @Override
+      public K next() {
+        return range.next().getKey();
+      }
+    };
+  }
+
   /**
    * Returns a snapshot of this store for a sorted range of entries specified by [{@code from}, {@code to}).
    * The snapshot is immutable - ie., any mutations to the store are not reflected in the snapshot after it is created.
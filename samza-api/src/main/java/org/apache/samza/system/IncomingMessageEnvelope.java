@@ -32,7 +32,9 @@ public class IncomingMessageEnvelope {
   public static final String END_OF_STREAM_OFFSET = new String(END_OF_STREAM_BYTES, Charset.defaultCharset());
 
   private final SystemStreamPartition systemStreamPartition;
-  private final String offset;
+  private final boolean hasNumericOffset;
+  private final long numericOffset;
+  private String offset;
   private final Object key;
   private final Object message;
   private final int size;
@@ -62,6 +64,8 @@ public class IncomingMessageEnvelope {
   public IncomingMessageEnvelope(SystemStreamPartition systemStreamPartition, String offset,
       Object key, Object message, int size, long timestamp) {
     this.systemStreamPartition = systemStreamPartition;
+    this.hasNumericOffset = false;
+    this.numericOffset = -1;
     this.offset = offset;
     this.key = key;
     this.message = message;
@@ -69,6 +73,27 @@ public class IncomingMessageEnvelope {
     this.timestamp = timestamp;
   }
 
+  /**
+   * Constructs a new IncomingMessageEnvelope for a system whose offsets are numeric. The offset is kept as a
+   * primitive so that the framework can track it without converting it to a String for every message.
+   * @param systemStreamPartition The aggregate object representing the incoming stream name, the name of the cluster
+   * from which the stream came, and the partition of the stream from which the message was received.
+   * @param offset The numeric offset in the partition that the message was received from.
+   * @param key A deserialized key received from the partition offset.
+   * @param message A deserialized message received from the partition offset.
+   * @param size size of the message and key in bytes.
+   */
+  public IncomingMessageEnvelope(SystemStreamPartition systemStreamPartition, long offset,
+      Object key, Object message, int size, long timestamp) {
+    this.systemStreamPartition = systemStreamPartition;
+    this.hasNumericOffset = true;
+    this.numericOffset = offset;
+    this.key = key;
+    this.message = message;
+    this.size = size;
+    this.timestamp = timestamp;
+  }
+
   public long getTimestamp() {
     return timestamp;
   }
@@ -78,9 +103,28 @@ public class IncomingMessageEnvelope {
   }
 
   public String getOffset() {
+    String offset = this.offset;
+    if (offset == null && hasNumericOffset) {
+      offset = String.valueOf(numericOffset);
+      this.offset = offset;
+    }
     return offset;
   }
 
+  /**
+   * @return true if this envelope was created with a numeric offset, see {@link #getNumericOffset()}.
+   */
+  public boolean hasNumericOffset() {
+    return hasNumericOffset;
+  }
+
+  /**
+   * @return the numeric offset of this envelope. Only meaningful if {@link #hasNumericOffset()} is true.
+   */
+  public long getNumericOffset() {
+    return numericOffset;
+  }
+
   public Object getKey() {
     return key;
   }
@@ -94,7 +138,7 @@ public class IncomingMessageEnvelope {
   }
 
   public boolean isEndOfStream() {
-    return END_OF_STREAM_OFFSET.equals(offset);
+    return !hasNumericOffset && END_OF_STREAM_OFFSET.equals(offset);
   }
 
   /**
@@ -117,6 +161,7 @@ public class IncomingMessageEnvelope {
     int result = 1;
     result = prime * result + ((key == null) ? 0 : key.hashCode());
     result = prime * result + ((message == null) ? 0 : message.hashCode());
+    String offset = getOffset();
     result = prime * result + ((offset == null) ? 0 : offset.hashCode());
     result = prime * result + ((systemStreamPartition == null) ? 0 : systemStreamPartition.hashCode());
     return result;
@@ -141,10 +186,11 @@ public class IncomingMessageEnvelope {
         return false;
     } else if (!message.equals(other.message))
       return false;
+    String offset = getOffset();
     if (offset == null) {
-      if (other.offset != null)
+      if (other.getOffset() != null)
         return false;
-    } else if (!offset.equals(other.offset))
+    } else if (!offset.equals(other.getOffset()))
       return false;
     if (systemStreamPartition == null) {
       if (other.systemStreamPartition != null)
@@ -156,6 +202,6 @@ public class IncomingMessageEnvelope {
 
   @Override
   public String toString() {
-    return "IncomingMessageEnvelope [systemStreamPartition=" + systemStreamPartition + ", offset=" + offset + ", key=" + key + ", message=" + message + "]";
+    return "IncomingMessageEnvelope [systemStreamPartition=" + systemStreamPartition + ", offset=" + getOffset() + ", key=" + key + ", message=" + message + "]";
   }
 }
@@ -127,4 +127,23 @@ public interface MessageChooser {
    *         messages or doesn't want to process any at the moment.
    */
   IncomingMessageEnvelope choose();
+
+  /**
+   * Called after start, to ask whether envelopes of the given
+   * SystemStreamPartition may be processed without being given to the
+   * chooser, right after an envelope of the SystemStreamPartition that the
+   * chooser did choose. This lets the container process the envelopes that
+   * are already buffered for a SystemStreamPartition as a batch. Choosers
+   * that need to see every envelope of a SystemStreamPartition, for example
+   * to track how far a stream has been read, or that would choose envelopes
+   * of other SystemStreamPartitions first, must return false for it.
+   *
+   * @param systemStreamPartition
+   *          A registered SystemStreamPartition.
+   * @return True if envelopes of the SystemStreamPartition may bypass the
+   *         chooser. False by default.
+   */
+  default boolean isDrainable(SystemStreamPartition systemStreamPartition) {
+    return false;
+  }
 }
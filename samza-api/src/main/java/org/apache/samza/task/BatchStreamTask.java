@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.task;
+
+import java.util.Collections;
+import java.util.List;
+import org.apache.samza.system.IncomingMessageEnvelope;
+
+/**
+ * A BatchStreamTask is an {@link AsyncStreamTask} that can receive several messages of the same
+ * {@link org.apache.samza.system.SystemStreamPartition} in a single call. This lets tasks that batch their own work,
+ * such as remote lookups or store writes, skip the per-message callback, timeout and offset bookkeeping of the engine.
+ *
+ * The envelopes of a batch are contiguous messages of one partition, in offset order. The batch is completed with a
+ * single callback, and the offset of its last envelope is checkpointed once the callback completes. The maximum
+ * number of envelopes in a batch is configured by task.process.batch.size. Messages that cannot be batched, e.g. of
+ * a partition consumed by several tasks, are passed in batches of one through {@link #processAsync}.
+ *
+ * The same invariants as for {@link AsyncStreamTask#processAsync} hold for processBatch, with each batch taking the
+ * place of a single message.
+ */
+public interface BatchStreamTask extends AsyncStreamTask {
+  /**
+   * Called once for each batch of messages that this BatchStreamTask receives.
+   * @param envelopes Contains the received deserialized messages of a single partition, in offset order. The list is
+   * not empty, and must not be used after the callback is triggered.
+   * @param collector Contains the means of sending message envelopes to the output stream. The collector must only
+   * be used during the current call to the process method; you should not reuse the collector between invocations
+   * of this method.
+   * @param coordinator Manages execution of tasks.
+   * @param callback Triggers the completion of the process of the whole batch.
+   */
+  void processBatch(List<IncomingMessageEnvelope> envelopes, MessageCollector collector, TaskCoordinator coordinator,
+      TaskCallback callback);
+
+  @Override
+  default void processAsync(IncomingMessageEnvelope envelope, MessageCollector collector, TaskCoordinator coordinator,
+      TaskCallback callback) {
+    processBatch(Collections.singletonList(envelope), collector, coordinator, callback);
+  }
+}
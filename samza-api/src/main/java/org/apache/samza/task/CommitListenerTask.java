@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.task;
+
+/**
+ *
+ * The CommitListenerTask augments {@link StreamTask} allowing the method implementor to specify code to be
+ * executed when the task is committed.
+ *
+ * Tasks that buffer updates to their stores in memory can use it to write them to the stores, so that they are
+ * included in the state that is flushed along with the checkpoint.
+ *
+ */
+public interface CommitListenerTask {
+
+  /**
+   * Invoked on every commit of this task, after the offsets to checkpoint are taken and before its producers and
+   * stores are flushed.
+   *
+   * @throws Exception Any exception types encountered while handling the commit.
+   */
+  void onCommit() throws Exception;
+}
@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.util;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ * An unbounded {@link BlockingQueue} backed by a growable array ring. It is the
+ * default queue of {@link BlockingEnvelopeMap}, where any number of fetcher threads
+ * put messages for a SystemStreamPartition and a single run loop thread drains them.
+ * </p>
+ *
+ * <p>
+ * Unlike a {@link java.util.concurrent.LinkedBlockingQueue}, adding an element does not
+ * allocate a node, and {@link #drainTo(Collection)} hands over the whole ring under a
+ * single lock acquisition. The ring only grows, so a queue sized by its busiest burst
+ * stays allocation free afterwards. Capacity is left to the caller, which for
+ * BlockingEnvelopeMap is its byte budget.
+ * </p>
+ *
+ * <p>
+ * The iterator works on a snapshot of the queue and does not support removal.
+ * </p>
+ *
+ * @param <E> the type of the elements in the queue
+ */
+public class ArrayRingBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+  private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private Object[] elements;
+  private int head;
+  private int count;
+
+  public ArrayRingBlockingQueue() {
+    this(DEFAULT_INITIAL_CAPACITY);
+  }
+
+  /**
+   * @param initialCapacity the size of the ring before it first has to grow
+   */
+  public ArrayRingBlockingQueue(int initialCapacity) {
+    if (initialCapacity < 1) {
+      throw new IllegalArgumentException("Initial capacity must be positive, but was " + initialCapacity);
+    }
+    this.elements = new Object[initialCapacity];
+  }
+
+  @Override
+  public boolean offer(E e) {
+    if (e == null) {
+      throw new NullPointerException();
+    }
+    lock.lock();
+    try {
+      if (count == elements.length) {
+        grow();
+      }
+      elements[(head + count) % elements.length] = e;
+      count++;
+      notEmpty.signal();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void put(E e) {
+    offer(e);
+  }
+
+  @Override
+  public boolean offer(E e, long timeout, TimeUnit unit) {
+    return offer(e);
+  }
+
+  @Override
+  public E poll() {
+    lock.lock();
+    try {
+      return count == 0 ? null : dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (count == 0) {
+        if (nanos <= 0) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+      return dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public E take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (count == 0) {
+        notEmpty.await();
+      }
+      return dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public E peek() {
+    lock.lock();
+    try {
+      return count == 0 ? null : (E) elements[head];
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int remainingCapacity() {
+    return Integer.MAX_VALUE;
+  }
+
+  @Override
+  public int drainTo(Collection<? super E> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(Collection<? super E> c, int maxElements) {
+    if (c == null) {
+      throw new NullPointerException();
+    }
+    if (c == this) {
+      throw new IllegalArgumentException();
+    }
+    lock.lock();
+    try {
+      int drained = Math.min(count, maxElements);
+      for (int i = 0; i < drained; i++) {
+        c.add(dequeue());
+      }
+      return drained;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      while (count > 0) {
+        dequeue();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Iterator<E> iterator() {
+    lock.lock();
+    try {
+      ArrayList<E> snapshot = new ArrayList<E>(count);
+      for (int i = 0; i < count; i++) {
+        snapshot.add((E) elements[(head + i) % elements.length]);
+      }
+      return Collections.unmodifiableList(snapshot).iterator();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private E dequeue() {
+    E e = (E) elements[head];
+    elements[head] = null;
+    head = (head + 1) % elements.length;
+    count--;
+    return e;
+  }
+
+  private void grow() {
+    Object[] grown = new Object[elements.length * 2];
+    for (int i = 0; i < count; i++) {
+      grown[i] = elements[(head + i) % elements.length];
+    }
+    elements = grown;
+    head = 0;
+  }
+}
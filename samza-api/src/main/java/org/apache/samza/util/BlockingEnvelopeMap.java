@@ -27,7 +27,6 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.samza.metrics.Counter;
@@ -37,6 +36,7 @@ import org.apache.samza.system.IncomingMessageEnvelope;
 import org.apache.samza.system.SystemConsumer;
 import org.apache.samza.system.SystemStreamPartition;
 
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -61,13 +61,34 @@ import java.util.concurrent.atomic.AtomicLong;
  * </p>
  * The BlockingEnvelopeMap is backed by a concurrent map, which allows concurrent
  * put or putAll calls to be thread safe without external synchronization.
+ *
+ * <p>
+ * The bytes buffered by a BlockingEnvelopeMap can be bounded per
+ * SystemStreamPartition and in total, see
+ * {@link #BlockingEnvelopeMap(MetricsRegistry, Clock, String, long, long)}.
+ * put and putAll never block on a budget. Instead, SystemConsumers check
+ * {@link #hasBufferSpace(SystemStreamPartition)} and stop fetching a
+ * SystemStreamPartition while its buffer is full, so a fetcher shared by many
+ * SystemStreamPartitions keeps serving the ones the container is waiting on.
+ * SystemConsumers that read each SystemStreamPartition on its own thread can
+ * instead wait with {@link #awaitBufferSpace(SystemStreamPartition)} before
+ * they put. The size of a message is taken from
+ * {@link IncomingMessageEnvelope#getSize()}, so SystemConsumers using a byte
+ * budget should set it on the envelopes they create.
+ * </p>
  */
 public abstract class BlockingEnvelopeMap implements SystemConsumer {
+  private static final long BUFFER_SPACE_WAIT_MS = 10;
+
   private final BlockingEnvelopeMapMetrics metrics;
   private final ConcurrentHashMap<SystemStreamPartition, BlockingQueue<IncomingMessageEnvelope>> bufferedMessages;
   private final ConcurrentHashMap<SystemStreamPartition, AtomicLong> bufferedMessagesSize;  // size in bytes per SystemStreamPartition
+  private final AtomicLong totalBufferedMessagesSize = new AtomicLong(0);
+  private final ConcurrentHashMap<SystemStreamPartition, AtomicBoolean> bufferFull;  // whether the last check found the buffer full
   private final Map<SystemStreamPartition, Boolean> noMoreMessage;
   private final Clock clock;
+  private final long maxBufferedBytesPerPartition;
+  private final long maxBufferedBytes;
 
   public BlockingEnvelopeMap() {
     this(new NoOpMetricsRegistry());
@@ -86,12 +107,30 @@ public abstract class BlockingEnvelopeMap implements SystemConsumer {
   }
 
   public BlockingEnvelopeMap(MetricsRegistry metricsRegistry, Clock clock, String metricsGroupName) {
+    this(metricsRegistry, clock, metricsGroupName, Long.MAX_VALUE, Long.MAX_VALUE);
+  }
+
+  /**
+   * @param metricsRegistry the registry for the buffer metrics
+   * @param clock the clock used to time blocking polls
+   * @param metricsGroupName the group of the buffer metrics, or null to use the class name
+   * @param maxBufferedBytesPerPartition the number of bytes that may be buffered for a single
+   *                                     SystemStreamPartition before it has no buffer space
+   * @param maxBufferedBytes the number of bytes that may be buffered across all
+   *                         SystemStreamPartitions before no SystemStreamPartition with
+   *                         buffered messages has buffer space
+   */
+  public BlockingEnvelopeMap(MetricsRegistry metricsRegistry, Clock clock, String metricsGroupName,
+      long maxBufferedBytesPerPartition, long maxBufferedBytes) {
     metricsGroupName = (metricsGroupName == null) ? this.getClass().getName() : metricsGroupName;
     this.metrics = new BlockingEnvelopeMapMetrics(metricsGroupName, metricsRegistry);
     this.bufferedMessages = new ConcurrentHashMap<SystemStreamPartition, BlockingQueue<IncomingMessageEnvelope>>();
     this.noMoreMessage = new ConcurrentHashMap<SystemStreamPartition, Boolean>();
     this.clock = clock;
     this.bufferedMessagesSize = new ConcurrentHashMap<SystemStreamPartition, AtomicLong>();
+    this.bufferFull = new ConcurrentHashMap<SystemStreamPartition, AtomicBoolean>();
+    this.maxBufferedBytesPerPartition = maxBufferedBytesPerPartition;
+    this.maxBufferedBytes = maxBufferedBytes;
   }
 
   /**
@@ -101,10 +140,11 @@ public abstract class BlockingEnvelopeMap implements SystemConsumer {
     metrics.initMetrics(systemStreamPartition);
     bufferedMessages.putIfAbsent(systemStreamPartition, newBlockingQueue());
     bufferedMessagesSize.putIfAbsent(systemStreamPartition, new AtomicLong(0));
+    bufferFull.putIfAbsent(systemStreamPartition, new AtomicBoolean(false));
   }
 
   protected BlockingQueue<IncomingMessageEnvelope> newBlockingQueue() {
-    return new LinkedBlockingQueue<IncomingMessageEnvelope>();
+    return new ArrayRingBlockingQueue<IncomingMessageEnvelope>();
   }
 
   /**
@@ -118,9 +158,11 @@ public abstract class BlockingEnvelopeMap implements SystemConsumer {
 
     for (SystemStreamPartition systemStreamPartition : systemStreamPartitions) {
       BlockingQueue<IncomingMessageEnvelope> queue = bufferedMessages.get(systemStreamPartition);
-      List<IncomingMessageEnvelope> outgoingList = new ArrayList<IncomingMessageEnvelope>(queue.size());
+      List<IncomingMessageEnvelope> outgoingList = null;
+      int queueSize = queue.size();
 
-      if (queue.size() > 0) {
+      if (queueSize > 0) {
+        outgoingList = new ArrayList<IncomingMessageEnvelope>(queueSize);
         queue.drainTo(outgoingList);
       } else if (timeout != 0) {
         IncomingMessageEnvelope envelope = null;
@@ -143,13 +185,14 @@ public abstract class BlockingEnvelopeMap implements SystemConsumer {
 
         // If we got a message, add it.
         if (envelope != null) {
+          outgoingList = new ArrayList<IncomingMessageEnvelope>(queue.size() + 1);
           outgoingList.add(envelope);
           // Drain any remaining messages without blocking.
           queue.drainTo(outgoingList);
         }
       }
 
-      if (outgoingList.size() > 0) {
+      if (outgoingList != null && outgoingList.size() > 0) {
         messagesToReturn.put(systemStreamPartition, outgoingList);
         subtractSizeOnQDrain(systemStreamPartition, outgoingList);
       }
@@ -164,7 +207,65 @@ public abstract class BlockingEnvelopeMap implements SystemConsumer {
       outgoingListBytes += envelope.getSize();
     }
     // subtract the size of the messages dequeued.
-    bufferedMessagesSize.get(systemStreamPartition).addAndGet(-1 * outgoingListBytes);
+    addBufferedBytes(bufferedMessagesSize.get(systemStreamPartition), -1 * outgoingListBytes);
+  }
+
+  private void addBufferedBytes(AtomicLong sizeInBytes, long bytes) {
+    if (bytes != 0) {
+      sizeInBytes.addAndGet(bytes);
+      totalBufferedMessagesSize.addAndGet(bytes);
+    }
+  }
+
+  private boolean isBufferFull(AtomicLong sizeInBytes) {
+    long bufferedBytes = sizeInBytes.get();
+    return bufferedBytes > 0
+        && (bufferedBytes >= maxBufferedBytesPerPartition || totalBufferedMessagesSize.get() >= maxBufferedBytes);
+  }
+
+  /**
+   * Checks whether the byte budgets have room for more messages for the SystemStreamPartition. Messages are
+   * always accepted for a SystemStreamPartition with an empty buffer, so a partition the container is waiting
+   * on is never starved by the total budget, and a single message larger than a budget still gets through.
+   * <p>
+   * This never blocks. A fetcher should skip the SystemStreamPartition while this returns false and fetch it
+   * again once poll has drained its buffer. The buffer full metric counts the checks that find the buffer full
+   * after the previous check found space, not every failed check.
+   * </p>
+   *
+   * @param systemStreamPartition the SystemStreamPartition to check
+   * @return true if messages for the SystemStreamPartition may be put without exceeding a budget
+   */
+  protected boolean hasBufferSpace(SystemStreamPartition systemStreamPartition) {
+    AtomicBoolean wasFull = bufferFull.get(systemStreamPartition);
+    if (!isBufferFull(bufferedMessagesSize.get(systemStreamPartition))) {
+      if (wasFull.get()) {
+        wasFull.set(false);
+      }
+      return true;
+    }
+    if (wasFull.compareAndSet(false, true)) {
+      metrics.incBufferFull(systemStreamPartition);
+    }
+    return false;
+  }
+
+  /**
+   * Waits until {@link #hasBufferSpace(SystemStreamPartition)} is true. Only SystemConsumers that read the
+   * SystemStreamPartition on a thread of its own should call this; a thread shared by several
+   * SystemStreamPartitions must use hasBufferSpace instead, or a full partition would stop the others.
+   *
+   * @param systemStreamPartition the SystemStreamPartition to wait for
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  protected void awaitBufferSpace(SystemStreamPartition systemStreamPartition) throws InterruptedException {
+    if (hasBufferSpace(systemStreamPartition)) {
+      return;
+    }
+    AtomicLong sizeInBytes = bufferedMessagesSize.get(systemStreamPartition);
+    while (isBufferFull(sizeInBytes)) {
+      Thread.sleep(BUFFER_SPACE_WAIT_MS);
+    }
   }
 
   /**
@@ -177,7 +278,7 @@ public abstract class BlockingEnvelopeMap implements SystemConsumer {
    */
   protected void put(SystemStreamPartition systemStreamPartition, IncomingMessageEnvelope envelope) throws InterruptedException {
     bufferedMessages.get(systemStreamPartition).put(envelope);
-    bufferedMessagesSize.get(systemStreamPartition).addAndGet(envelope.getSize());
+    addBufferedBytes(bufferedMessagesSize.get(systemStreamPartition), envelope.getSize());
   }
 
   /**
@@ -194,10 +295,12 @@ public abstract class BlockingEnvelopeMap implements SystemConsumer {
    */
   protected void putAll(SystemStreamPartition systemStreamPartition, List<IncomingMessageEnvelope> envelopes) throws InterruptedException {
     BlockingQueue<IncomingMessageEnvelope> queue = bufferedMessages.get(systemStreamPartition);
-
+    long envelopesBytes = 0;
     for (IncomingMessageEnvelope envelope : envelopes) {
       queue.put(envelope);
+      envelopesBytes += envelope.getSize();
     }
+    addBufferedBytes(bufferedMessagesSize.get(systemStreamPartition), envelopesBytes);
   }
 
   public int getNumMessagesInQueue(SystemStreamPartition systemStreamPartition) {
@@ -237,6 +340,7 @@ public abstract class BlockingEnvelopeMap implements SystemConsumer {
     private final ConcurrentHashMap<SystemStreamPartition, Gauge<Boolean>> noMoreMessageGaugeMap;
     private final ConcurrentHashMap<SystemStreamPartition, Counter> blockingPollCountMap;
     private final ConcurrentHashMap<SystemStreamPartition, Counter> blockingPollTimeoutCountMap;
+    private final ConcurrentHashMap<SystemStreamPartition, Counter> bufferFullCountMap;
     private final Counter pollCount;
 
     public BlockingEnvelopeMapMetrics(String group, MetricsRegistry metricsRegistry) {
@@ -245,13 +349,17 @@ public abstract class BlockingEnvelopeMap implements SystemConsumer {
       this.noMoreMessageGaugeMap = new ConcurrentHashMap<SystemStreamPartition, Gauge<Boolean>>();
       this.blockingPollCountMap = new ConcurrentHashMap<SystemStreamPartition, Counter>();
       this.blockingPollTimeoutCountMap = new ConcurrentHashMap<SystemStreamPartition, Counter>();
+      this.bufferFullCountMap = new ConcurrentHashMap<SystemStreamPartition, Counter>();
       this.pollCount = metricsRegistry.newCounter(group, "poll-count");
+
+      metricsRegistry.<Long>newGauge(group, new TotalBufferSizeGauge("buffered-message-size"));
     }
 
     public void initMetrics(SystemStreamPartition systemStreamPartition) {
       this.noMoreMessageGaugeMap.putIfAbsent(systemStreamPartition, metricsRegistry.<Boolean>newGauge(group, "no-more-messages-" + systemStreamPartition, false));
       this.blockingPollCountMap.putIfAbsent(systemStreamPartition, metricsRegistry.newCounter(group, "blocking-poll-count-" + systemStreamPartition));
       this.blockingPollTimeoutCountMap.putIfAbsent(systemStreamPartition, metricsRegistry.newCounter(group, "blocking-poll-timeout-count-" + systemStreamPartition));
+      this.bufferFullCountMap.putIfAbsent(systemStreamPartition, metricsRegistry.newCounter(group, "buffer-full-count-" + systemStreamPartition));
 
       metricsRegistry.<Integer>newGauge(group, new BufferGauge(systemStreamPartition, "buffered-message-count-" + systemStreamPartition));
       metricsRegistry.<Long>newGauge(group, new BufferSizeGauge(systemStreamPartition, "buffered-message-size-" + systemStreamPartition));
@@ -262,15 +370,19 @@ public abstract class BlockingEnvelopeMap implements SystemConsumer {
     }
 
     public void incBlockingPoll(SystemStreamPartition systemStreamPartition) {
-      this.blockingPollCountMap.get(systemStreamPartition).inc();
+      this.blockingPollCountMap.get(systemStreamPartition).increment();
     }
 
     public void incBlockingTimeoutPoll(SystemStreamPartition systemStreamPartition) {
-      this.blockingPollTimeoutCountMap.get(systemStreamPartition).inc();
+      this.blockingPollTimeoutCountMap.get(systemStreamPartition).increment();
+    }
+
+    public void incBufferFull(SystemStreamPartition systemStreamPartition) {
+      this.bufferFullCountMap.get(systemStreamPartition).increment();
     }
 
     public void incPoll() {
-      this.pollCount.inc();
+      this.pollCount.increment();
     }
   }
 
@@ -315,4 +427,15 @@ public abstract class BlockingEnvelopeMap implements SystemConsumer {
       return sizeInBytes.get();
     }
   }
+
+  public class TotalBufferSizeGauge extends Gauge<Long> {
+    public TotalBufferSizeGauge(String name) {
+      super(name, 0L);
+    }
+
+    @Override
+    public Long getValue() {
+      return totalBufferedMessagesSize.get();
+    }
+  }
 }
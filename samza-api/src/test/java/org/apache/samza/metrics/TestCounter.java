@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.metrics;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestCounter {
+
+  @Test
+  public void testIncDecSetClear() {
+    Counter counter = new Counter("counter");
+    assertEquals(1, counter.inc());
+    assertEquals(6, counter.inc(5));
+    assertEquals(5, counter.dec());
+    assertEquals(2, counter.dec(3));
+    assertEquals(2, counter.getCount());
+
+    counter.set(10);
+    assertEquals(10, counter.getCount());
+    assertEquals("10", counter.toString());
+
+    counter.clear();
+    assertEquals(0, counter.getCount());
+  }
+
+  @Test
+  public void testIncrementDecrement() {
+    Counter counter = new Counter("counter");
+    counter.increment();
+    assertEquals(1, counter.getCount());
+    counter.increment(5);
+    assertEquals(6, counter.getCount());
+    counter.decrement();
+    assertEquals(5, counter.getCount());
+    counter.decrement(3);
+    assertEquals(2, counter.getCount());
+  }
+
+  @Test
+  public void testConcurrentInc() throws InterruptedException {
+    Counter counter = new Counter("counter");
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      Thread thread = new Thread(() -> {
+          for (int j = 0; j < 10000; j++) {
+            counter.increment();
+          }
+        });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(80000, counter.getCount());
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.metrics;
+
+import static org.mockito.Mockito.*;
+import static org.junit.Assert.*;
+
+import org.apache.samza.util.Clock;
+import org.junit.Test;
+
+public class TestHistogramReservoir {
+
+  private final Clock clock = mock(Clock.class);
+
+  @Test
+  public void testExactCountSumMinMax() {
+    when(clock.currentTimeMillis()).thenReturn(0L);
+    HistogramReservoir reservoir = new HistogramReservoir(300, clock);
+    assertEquals(0, reservoir.size());
+    assertEquals(0, reservoir.getSnapshot().getMax());
+    assertEquals(0, reservoir.getSnapshot().getPercentile(99));
+
+    reservoir.update(1L);
+    reservoir.update(1000L);
+    reservoir.update(123456789L);
+
+    Snapshot snapshot = reservoir.getSnapshot();
+    assertEquals(3, snapshot.getSize());
+    assertEquals(1, snapshot.getMin());
+    assertEquals(123456789L, snapshot.getMax());
+    assertEquals(123457790L, snapshot.getSum(), 0);
+    assertEquals(123457790L / 3.0, snapshot.getAverage(), 0.001);
+    assertTrue(snapshot.getValues().isEmpty());
+  }
+
+  @Test
+  public void testPercentiles() {
+    when(clock.currentTimeMillis()).thenReturn(0L);
+    HistogramReservoir reservoir = new HistogramReservoir(300, clock);
+    for (long i = 1; i <= 100000; i++) {
+      reservoir.update(i * 1000);
+    }
+
+    Snapshot snapshot = reservoir.getSnapshot();
+    assertPercentile(50000000L, snapshot.getPercentile(50));
+    assertPercentile(99000000L, snapshot.getPercentile(99));
+    assertPercentile(99900000L, snapshot.getPercentile(99.9));
+    assertEquals(100000000L, snapshot.getPercentile(100));
+    assertPercentile(1000L, snapshot.getPercentile(0));
+  }
+
+  @Test
+  public void testSmallValuesAreExact() {
+    when(clock.currentTimeMillis()).thenReturn(0L);
+    HistogramReservoir reservoir = new HistogramReservoir(300, clock);
+    for (long i = 0; i < 32; i++) {
+      reservoir.update(i);
+    }
+    assertEquals(15, reservoir.getSnapshot().getPercentile(50));
+  }
+
+  @Test
+  public void testBuckets() {
+    assertEquals(31, HistogramReservoir.bucketIndex(31));
+    for (long value : new long[] {32, 33, 63, 64, 1000, 123456789L, 1L << 39}) {
+      int index = HistogramReservoir.bucketIndex(value);
+      assertTrue(HistogramReservoir.highestValueInBucket(index) >= value);
+      assertTrue(HistogramReservoir.highestValueInBucket(index - 1) < value);
+    }
+    assertEquals(HistogramReservoir.bucketIndex(1L << 40), HistogramReservoir.bucketIndex(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testIntervalSwap() {
+    when(clock.currentTimeMillis()).thenReturn(0L);
+    HistogramReservoir reservoir = new HistogramReservoir(300, clock);
+    reservoir.update(1L);
+
+    // the first swap keeps the values recorded so far in the previous interval
+    when(clock.currentTimeMillis()).thenReturn(150L);
+    assertEquals(1, reservoir.size());
+    reservoir.update(2L);
+    reservoir.update(3L);
+
+    // the second swap drops the values recorded before the first swap
+    when(clock.currentTimeMillis()).thenReturn(300L);
+    Snapshot snapshot = reservoir.getSnapshot();
+    assertEquals(2, snapshot.getSize());
+    assertEquals(2, snapshot.getMin());
+    assertEquals(3, snapshot.getMax());
+
+    when(clock.currentTimeMillis()).thenReturn(450L);
+    assertEquals(0, reservoir.size());
+  }
+
+  private static void assertPercentile(long expected, long actual) {
+    assertEquals(expected, actual, expected / 32.0);
+  }
+}
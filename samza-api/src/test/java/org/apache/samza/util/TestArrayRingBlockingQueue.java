@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestArrayRingBlockingQueue {
+  @Test
+  public void testKeepsOrderWhenGrowingAfterWrapAround() {
+    ArrayRingBlockingQueue<Integer> queue = new ArrayRingBlockingQueue<Integer>(4);
+    queue.offer(0);
+    queue.offer(1);
+    queue.offer(2);
+    assertEquals(Integer.valueOf(0), queue.poll());
+    assertEquals(Integer.valueOf(1), queue.poll());
+
+    // 2 sits at the end of the ring, so these wrap around before the ring has to grow.
+    for (int i = 3; i < 10; i++) {
+      queue.offer(i);
+    }
+
+    List<Integer> drained = new ArrayList<Integer>();
+    assertEquals(8, queue.drainTo(drained));
+    for (int i = 0; i < 8; i++) {
+      assertEquals(Integer.valueOf(i + 2), drained.get(i));
+    }
+    assertEquals(0, queue.size());
+    assertNull(queue.poll());
+  }
+
+  @Test
+  public void testDrainToHonorsMaxElements() {
+    ArrayRingBlockingQueue<Integer> queue = new ArrayRingBlockingQueue<Integer>();
+    for (int i = 0; i < 5; i++) {
+      queue.offer(i);
+    }
+
+    List<Integer> drained = new ArrayList<Integer>();
+    assertEquals(3, queue.drainTo(drained, 3));
+    assertEquals(2, queue.size());
+    assertEquals(Integer.valueOf(3), queue.peek());
+  }
+
+  @Test
+  public void testPollTimesOutWhenEmpty() throws InterruptedException {
+    ArrayRingBlockingQueue<Integer> queue = new ArrayRingBlockingQueue<Integer>();
+    long now = System.currentTimeMillis();
+    assertNull(queue.poll(100, TimeUnit.MILLISECONDS));
+    assertTrue(System.currentTimeMillis() - now >= 100);
+  }
+
+  @Test
+  public void testPollIsWokenByConcurrentProducers() throws InterruptedException {
+    final ArrayRingBlockingQueue<Integer> queue = new ArrayRingBlockingQueue<Integer>(1);
+    final int producers = 4;
+    final int messagesPerProducer = 1000;
+    final CountDownLatch start = new CountDownLatch(1);
+
+    for (int p = 0; p < producers; p++) {
+      Thread t = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+          for (int i = 0; i < messagesPerProducer; i++) {
+            queue.offer(i);
+          }
+        }
+      });
+      t.setDaemon(true);
+      t.start();
+    }
+
+    start.countDown();
+    int received = 0;
+    while (received < producers * messagesPerProducer) {
+      Integer message = queue.poll(60, TimeUnit.SECONDS);
+      assertTrue(message != null);
+      received++;
+    }
+    assertEquals(0, queue.size());
+  }
+}
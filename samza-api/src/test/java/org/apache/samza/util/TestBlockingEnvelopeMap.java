@@ -23,6 +23,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -33,14 +35,16 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.samza.Partition;
+import org.apache.samza.metrics.Counter;
+import org.apache.samza.metrics.MetricsRegistry;
 import org.apache.samza.system.IncomingMessageEnvelope;
 import org.apache.samza.system.SystemStreamPartition;
 import org.junit.Test;
 
 public class TestBlockingEnvelopeMap {
   private static final SystemStreamPartition SSP = new SystemStreamPartition("test", "test", new Partition(0));
-  private static final IncomingMessageEnvelope ENVELOPE = new IncomingMessageEnvelope(SSP, null, null, null);
-  private static final IncomingMessageEnvelope ENVELOPE_WITH_SIZE = new IncomingMessageEnvelope(SSP, null, null, null, 100);
+  private static final IncomingMessageEnvelope ENVELOPE = new IncomingMessageEnvelope(SSP, null, null, null, 0L);
+  private static final IncomingMessageEnvelope ENVELOPE_WITH_SIZE = new IncomingMessageEnvelope(SSP, null, null, null, 100, 0L);
   private static final Set<SystemStreamPartition> FETCH = new HashSet<SystemStreamPartition>();
   private static final Clock CLOCK = new Clock() {
     public long currentTimeMillis() {
@@ -115,6 +119,106 @@ public class TestBlockingEnvelopeMap {
     assertEquals(0, map.getMessagesSizeInQueue(SSP));
   }
 
+  @Test
+  public void testPutAllSizeComputation() throws InterruptedException {
+    BlockingEnvelopeMap map = new MockBlockingEnvelopeMap(true);
+    map.register(SSP, "0");
+    map.putAll(SSP, Arrays.asList(ENVELOPE_WITH_SIZE, ENVELOPE_WITH_SIZE, ENVELOPE_WITH_SIZE));
+
+    assertEquals(300, map.getMessagesSizeInQueue(SSP));
+
+    map.poll(FETCH, 0);
+    assertEquals(0, map.getMessagesSizeInQueue(SSP));
+  }
+
+  @Test
+  public void testPutDoesNotBlockWhenBufferIsFull() throws InterruptedException {
+    BlockingEnvelopeMap map = new MockBlockingEnvelopeMap(150, Long.MAX_VALUE);
+    map.register(SSP, "0");
+    map.put(SSP, ENVELOPE_WITH_SIZE);
+    assertTrue(map.hasBufferSpace(SSP));
+    map.put(SSP, ENVELOPE_WITH_SIZE);
+    assertFalse(map.hasBufferSpace(SSP));
+
+    // The budget is enforced by the fetcher checking hasBufferSpace, so put itself still goes through.
+    map.put(SSP, ENVELOPE_WITH_SIZE);
+    assertEquals(300, map.getMessagesSizeInQueue(SSP));
+
+    assertEquals(3, map.poll(FETCH, 0).get(SSP).size());
+    assertTrue(map.hasBufferSpace(SSP));
+  }
+
+  @Test
+  public void testTotalBudgetDoesNotStarveEmptyPartition() throws InterruptedException {
+    SystemStreamPartition otherSsp = new SystemStreamPartition("test", "test", new Partition(1));
+    BlockingEnvelopeMap map = new MockBlockingEnvelopeMap(Long.MAX_VALUE, 150);
+    map.register(SSP, "0");
+    map.register(otherSsp, "0");
+    map.put(SSP, ENVELOPE_WITH_SIZE);
+    map.put(SSP, ENVELOPE_WITH_SIZE);
+
+    assertFalse(map.hasBufferSpace(SSP));
+    assertTrue(map.hasBufferSpace(otherSsp));
+  }
+
+  @Test
+  public void testBufferFullIsCountedOncePerTransition() throws InterruptedException {
+    final Map<String, Counter> counters = new HashMap<String, Counter>();
+    MetricsRegistry registry = new NoOpMetricsRegistry() {
+      @Override
+      public Counter newCounter(String group, String name) {
+        Counter counter = super.newCounter(group, name);
+        counters.put(name, counter);
+        return counter;
+      }
+    };
+    BlockingEnvelopeMap map = new MockBlockingEnvelopeMap(registry, 150, Long.MAX_VALUE);
+    map.register(SSP, "0");
+    Counter bufferFull = counters.get("buffer-full-count-" + SSP);
+    map.put(SSP, ENVELOPE_WITH_SIZE);
+    map.put(SSP, ENVELOPE_WITH_SIZE);
+
+    assertFalse(map.hasBufferSpace(SSP));
+    assertFalse(map.hasBufferSpace(SSP));
+    assertFalse(map.hasBufferSpace(SSP));
+    assertEquals(1, bufferFull.getCount());
+
+    map.poll(FETCH, 0);
+    assertTrue(map.hasBufferSpace(SSP));
+    map.put(SSP, ENVELOPE_WITH_SIZE);
+    map.put(SSP, ENVELOPE_WITH_SIZE);
+    assertFalse(map.hasBufferSpace(SSP));
+    assertEquals(2, bufferFull.getCount());
+  }
+
+  @Test
+  public void testAwaitBufferSpaceReturnsOncePolled() throws InterruptedException {
+    final BlockingEnvelopeMap map = new MockBlockingEnvelopeMap(150, Long.MAX_VALUE);
+    map.register(SSP, "0");
+    map.put(SSP, ENVELOPE_WITH_SIZE);
+    map.put(SSP, ENVELOPE_WITH_SIZE);
+
+    final CountDownLatch awaitDone = new CountDownLatch(1);
+    Thread t = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          map.awaitBufferSpace(SSP);
+          awaitDone.countDown();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+
+    t.setDaemon(true);
+    t.start();
+    assertFalse(awaitDone.await(200, TimeUnit.MILLISECONDS));
+
+    assertEquals(2, map.poll(FETCH, 0).get(SSP).size());
+    assertTrue(awaitDone.await(60, TimeUnit.SECONDS));
+  }
+
   @Test
   public void testShouldBlockWhenNotAtHead() throws InterruptedException {
     MockQueue q = new MockQueue();
@@ -217,6 +321,16 @@ public class TestBlockingEnvelopeMap {
       injectedQueue = new MockQueue();
     }
 
+    public MockBlockingEnvelopeMap(long maxBufferedBytesPerPartition, long maxBufferedBytes) {
+      this(new NoOpMetricsRegistry(), maxBufferedBytesPerPartition, maxBufferedBytes);
+    }
+
+    public MockBlockingEnvelopeMap(MetricsRegistry metricsRegistry, long maxBufferedBytesPerPartition,
+        long maxBufferedBytes) {
+      super(metricsRegistry, CLOCK, null, maxBufferedBytesPerPartition, maxBufferedBytes);
+      injectedQueue = null;
+    }
+
     public MockBlockingEnvelopeMap(BlockingQueue<IncomingMessageEnvelope> injectedQueue) {
       this(injectedQueue, CLOCK);
     }
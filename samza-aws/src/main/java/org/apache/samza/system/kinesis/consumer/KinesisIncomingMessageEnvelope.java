@@ -35,7 +35,12 @@ public class KinesisIncomingMessageEnvelope extends IncomingMessageEnvelope {
 
   public KinesisIncomingMessageEnvelope(SystemStreamPartition systemStreamPartition, String offset, Object key,
       Object message, String shardId, String sequenceNumber, Date approximateArrivalTimestamp) {
-    super(systemStreamPartition, offset, key, message, 0);
+    this(systemStreamPartition, offset, key, message, 0, shardId, sequenceNumber, approximateArrivalTimestamp);
+  }
+
+  public KinesisIncomingMessageEnvelope(SystemStreamPartition systemStreamPartition, String offset, Object key,
+      Object message, int size, String shardId, String sequenceNumber, Date approximateArrivalTimestamp) {
+    super(systemStreamPartition, offset, key, message, size, 0);
     this.shardId = shardId;
     this.sequenceNumber = sequenceNumber;
     this.approximateArrivalTimestamp = approximateArrivalTimestamp;
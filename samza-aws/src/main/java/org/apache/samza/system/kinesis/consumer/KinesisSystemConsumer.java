@@ -34,6 +34,7 @@ import java.util.concurrent.ThreadFactory;
 import org.apache.commons.lang.Validate;
 import org.apache.samza.SamzaException;
 import org.apache.samza.checkpoint.CheckpointListener;
+import org.apache.samza.config.JavaSystemConfig;
 import org.apache.samza.config.JobConfig;
 import org.apache.samza.metrics.MetricsRegistry;
 import org.apache.samza.system.IncomingMessageEnvelope;
@@ -107,7 +108,14 @@ public class KinesisSystemConsumer extends BlockingEnvelopeMap implements Checkp
   private volatile Exception callbackException;
 
   public KinesisSystemConsumer(String systemName, KinesisConfig kConfig, MetricsRegistry registry) {
-    super(registry, System::currentTimeMillis, null);
+    this(systemName, kConfig, new JavaSystemConfig(kConfig), registry);
+  }
+
+  private KinesisSystemConsumer(String systemName, KinesisConfig kConfig, JavaSystemConfig systemConfig,
+      MetricsRegistry registry) {
+    super(registry, System::currentTimeMillis, null,
+        systemConfig.getConsumerBufferMaxBytesPerPartition(systemName),
+        systemConfig.getConsumerBufferMaxBytes(systemName));
     this.system = systemName;
     this.kConfig = kConfig;
     this.metrics = new KinesisSystemConsumerMetrics(registry);
@@ -233,6 +241,14 @@ public class KinesisSystemConsumer extends BlockingEnvelopeMap implements Checkp
   @Override
   public void onReceiveRecords(SystemStreamPartition ssp, List<Record> records, long millisBehindLatest) {
     metrics.updateMillisBehindLatest(ssp.getStream(), millisBehindLatest);
+    // KCL calls the record processor of every shard on a thread of its own, so waiting here only holds back this ssp.
+    try {
+      awaitBufferSpace(ssp);
+    } catch (InterruptedException e) {
+      LOG.error("Interrupted while waiting for buffer space. Shutting down SystemStream {}", ssp.getSystemStream(), e);
+      Thread.currentThread().interrupt();
+      return;
+    }
     records.forEach(record -> put(ssp, translate(ssp, record)));
   }
 
@@ -250,7 +266,7 @@ public class KinesisSystemConsumer extends BlockingEnvelopeMap implements Checkp
     record.getData().get(payload);
     KinesisSystemConsumerOffset offset = new KinesisSystemConsumerOffset(shardId, record.getSequenceNumber());
     return new KinesisIncomingMessageEnvelope(ssp, offset.toString(), record.getPartitionKey(),
-        payload, shardId, record.getSequenceNumber(), record.getApproximateArrivalTimestamp());
+        payload, payload.length, shardId, record.getSequenceNumber(), record.getApproximateArrivalTimestamp());
   }
 
 }
@@ -92,12 +92,12 @@ public class KinesisSystemConsumerMetrics {
   }
 
   public void updateMetrics(String stream, Record record) {
-    eventReadRates.get(stream).inc();
-    aggEventReadRate.inc();
+    eventReadRates.get(stream).increment();
+    aggEventReadRate.increment();
 
     long recordSize = record.getData().array().length + record.getPartitionKey().length();
-    eventByteReadRates.get(stream).inc(recordSize);
-    aggEventByteReadRate.inc(recordSize);
+    eventByteReadRates.get(stream).increment(recordSize);
+    aggEventByteReadRate.increment(recordSize);
 
     long latencyMs = Duration.between(Instant.now(), record.getApproximateArrivalTimestamp().toInstant()).toMillis();
     readLatencies.get(stream).update(latencyMs);
@@ -31,7 +31,12 @@ public class EventHubIncomingMessageEnvelope extends IncomingMessageEnvelope {
 
   public EventHubIncomingMessageEnvelope(SystemStreamPartition systemStreamPartition, String offset, Object key,
                                          Object message, EventData eventData) {
-    super(systemStreamPartition, offset, key, message, 0);
+    this(systemStreamPartition, offset, key, message, eventData, 0);
+  }
+
+  public EventHubIncomingMessageEnvelope(SystemStreamPartition systemStreamPartition, String offset, Object key,
+                                         Object message, EventData eventData, int size) {
+    super(systemStreamPartition, offset, key, message, size, 0);
 
     this.eventData = eventData;
   }
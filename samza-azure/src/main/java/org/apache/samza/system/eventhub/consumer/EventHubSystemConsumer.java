@@ -45,6 +45,7 @@ import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.Validate;
 import org.apache.samza.SamzaException;
+import org.apache.samza.config.JavaSystemConfig;
 import org.apache.samza.metrics.Counter;
 import org.apache.samza.metrics.MetricsRegistry;
 import org.apache.samza.metrics.SlidingTimeWindowReservoir;
@@ -165,7 +166,15 @@ public class EventHubSystemConsumer extends BlockingEnvelopeMap {
   EventHubSystemConsumer(EventHubConfig config, String systemName,
       EventHubClientManagerFactory eventHubClientManagerFactory, Map<String, Interceptor> interceptors,
       MetricsRegistry registry, Clock clock) {
-    super(registry, clock);
+    this(config, new JavaSystemConfig(config), systemName, eventHubClientManagerFactory, interceptors, registry, clock);
+  }
+
+  private EventHubSystemConsumer(EventHubConfig config, JavaSystemConfig systemConfig, String systemName,
+      EventHubClientManagerFactory eventHubClientManagerFactory, Map<String, Interceptor> interceptors,
+      MetricsRegistry registry, Clock clock) {
+    super(registry, clock, null,
+        systemConfig.getConsumerBufferMaxBytesPerPartition(systemName),
+        systemConfig.getConsumerBufferMaxBytes(systemName));
 
     this.config = config;
     this.clock = clock;
@@ -482,7 +491,8 @@ public class EventHubSystemConsumer extends BlockingEnvelopeMap {
               updateMetrics(event);
 
               // note that the partition key can be null
-              put(ssp, new EventHubIncomingMessageEnvelope(ssp, offset, partitionKey, eventDataBody, event));
+              put(ssp, new EventHubIncomingMessageEnvelope(ssp, offset, partitionKey, eventDataBody, event,
+                  eventDataBody == null ? 0 : eventDataBody.length));
             } catch (InterruptedException e) {
               String msg = String.format("Interrupted while adding the event from ssp %s to dispatch queue.", ssp);
               LOG.error(msg, e);
@@ -497,10 +507,10 @@ public class EventHubSystemConsumer extends BlockingEnvelopeMap {
 
     private void updateMetrics(EventData event) {
       int eventDataLength = event.getBytes() == null ? 0 : event.getBytes().length;
-      eventReadRate.inc();
-      aggEventReadRate.inc();
-      eventByteReadRate.inc(eventDataLength);
-      aggEventByteReadRate.inc(eventDataLength);
+      eventReadRate.increment();
+      aggEventReadRate.increment();
+      eventByteReadRate.increment(eventDataLength);
+      aggEventByteReadRate.increment(eventDataLength);
 
       long latencyMs = Duration.between(event.getSystemProperties().getEnqueuedTime(), Instant.now()).toMillis();
       readLatency.update(latencyMs);
@@ -509,8 +519,8 @@ public class EventHubSystemConsumer extends BlockingEnvelopeMap {
 
     @Override
     public void onError(Throwable throwable) {
-      errorRate.inc();
-      aggReadErrors.inc();
+      errorRate.increment();
+      aggReadErrors.increment();
 
       if (throwable instanceof EventHubException) {
         EventHubException busException = (EventHubException) throwable;
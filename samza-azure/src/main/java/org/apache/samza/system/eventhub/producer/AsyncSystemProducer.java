@@ -144,8 +144,8 @@ public abstract class AsyncSystemProducer implements SystemProducer {
         sendCallbackLatency.get(streamId).update(callbackLatencyMs);
         aggSendCallbackLatency.update(callbackLatencyMs);
         if (throwable != null) {
-          sendErrors.get(streamId).inc();
-          aggSendErrors.inc();
+          sendErrors.get(streamId).increment();
+          aggSendErrors.increment();
           LOG.error("Send message to event hub: {} failed with exception: ", streamId, throwable);
           sendExceptionOnCallback.compareAndSet(null, throwable);
         }
@@ -275,15 +275,15 @@ public class EventHubSystemProducer extends AsyncSystemProducer {
     if (this.maxMessageSize > 0 && eventDataLength > this.maxMessageSize) {
       LOG.info("Received a message with size {} > maxMessageSize configured {(}), Skipping it", eventDataLength,
           this.maxMessageSize);
-      eventSkipRate.get(streamId).inc();
-      aggEventSkipRate.inc();
+      eventSkipRate.get(streamId).increment();
+      aggEventSkipRate.increment();
       return CompletableFuture.completedFuture(null);
     }
 
-    eventWriteRate.get(streamId).inc();
-    aggEventWriteRate.inc();
-    eventByteWriteRate.get(streamId).inc(eventDataLength);
-    aggEventByteWriteRate.inc(eventDataLength);
+    eventWriteRate.get(streamId).increment();
+    aggEventWriteRate.increment();
+    eventByteWriteRate.get(streamId).increment(eventDataLength);
+    aggEventByteWriteRate.increment(eventDataLength);
     EventHubClientManager ehClient = perStreamEventHubClientManagers.get(streamId);
 
     // Async send call
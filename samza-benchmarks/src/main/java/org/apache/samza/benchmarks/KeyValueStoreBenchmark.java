@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.samza.config.MapConfig;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.apache.samza.storage.kv.CachedStore;
+import org.apache.samza.storage.kv.CachedStoreMetrics;
+import org.apache.samza.storage.kv.KeyValueIterator;
+import org.apache.samza.storage.kv.KeyValueStore;
+import org.apache.samza.storage.kv.KeyValueStoreMetrics;
+import org.apache.samza.storage.kv.RocksDbKeyValueStore;
+import org.apache.samza.storage.kv.inmemory.InMemoryKeyValueStore;
+import org.apache.samza.util.FileUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rocksdb.FlushOptions;
+import org.rocksdb.Options;
+import org.rocksdb.WriteOptions;
+
+/**
+ * Measures point reads, writes and short range scans on the key-value stores, with {@code cached-rocksdb} being a
+ * {@link CachedStore} in front of RocksDB as tasks usually configure it. Keys are 8 byte big-endian longs, so a range
+ * of {@code rangeSize} consecutive keys holds that many entries.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class KeyValueStoreBenchmark {
+  private static final int VALUE_SIZE = 100;
+
+  @Param({"inmemory", "rocksdb", "cached-rocksdb"})
+  public String storeType;
+
+  @Param({"100000"})
+  public int keyCount;
+
+  @Param({"100"})
+  public int rangeSize;
+
+  private File storeDir;
+  private KeyValueStore<byte[], byte[]> store;
+  private byte[][] keys;
+  private byte[] value;
+  private int nextKey;
+
+  @Setup
+  public void setUp() throws IOException {
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    switch (storeType) {
+      case "inmemory":
+        store = new InMemoryKeyValueStore(new KeyValueStoreMetrics("benchmark", registry));
+        break;
+      case "rocksdb":
+        store = newRocksDbStore(registry);
+        break;
+      case "cached-rocksdb":
+        store = new CachedStore<>(newRocksDbStore(registry), 1000, 100, new CachedStoreMetrics("benchmark", registry),
+            null, null);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown store type: " + storeType);
+    }
+
+    keys = new byte[keyCount][];
+    for (int i = 0; i < keyCount; i++) {
+      keys[i] = ByteBuffer.allocate(8).putLong(i).array();
+    }
+    // visit the keys in a fixed random order, so that reads don't just hit the same few blocks or cache entries
+    Collections.shuffle(Arrays.asList(keys), new Random(0));
+    value = new byte[VALUE_SIZE];
+    for (byte[] key : keys) {
+      store.put(key, value);
+    }
+    store.flush();
+  }
+
+  @TearDown
+  public void tearDown() {
+    store.close();
+    if (storeDir != null) {
+      FileUtil.rm(storeDir);
+    }
+  }
+
+  @Benchmark
+  public byte[] get() {
+    return store.get(nextKey());
+  }
+
+  @Benchmark
+  public void put() {
+    store.put(nextKey(), value);
+  }
+
+  @Benchmark
+  public int range() {
+    byte[] from = nextKey();
+    byte[] to = ByteBuffer.allocate(8).putLong(ByteBuffer.wrap(from).getLong() + rangeSize).array();
+    int count = 0;
+    KeyValueIterator<byte[], byte[]> iterator = store.range(from, to);
+    try {
+      while (iterator.hasNext()) {
+        iterator.next();
+        count++;
+      }
+    } finally {
+      iterator.close();
+    }
+    return count;
+  }
+
+  private byte[] nextKey() {
+    byte[] key = keys[nextKey];
+    nextKey = nextKey + 1 == keyCount ? 0 : nextKey + 1;
+    return key;
+  }
+
+  private KeyValueStore<byte[], byte[]> newRocksDbStore(MetricsRegistryMap registry) throws IOException {
+    storeDir = Files.createTempDirectory("samza-benchmark-rocksdb").toFile();
+    Options options = new Options();
+    options.setCreateIfMissing(true);
+    return new RocksDbKeyValueStore(storeDir, options, new MapConfig(), false, "benchmark", new WriteOptions(),
+        new FlushOptions(), new KeyValueStoreMetrics("benchmark", registry));
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.samza.Partition;
+import org.apache.samza.config.MapConfig;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.apache.samza.system.IncomingMessageEnvelope;
+import org.apache.samza.system.SystemAdmins;
+import org.apache.samza.system.SystemStream;
+import org.apache.samza.system.SystemStreamMetadata;
+import org.apache.samza.system.SystemStreamPartition;
+import org.apache.samza.system.chooser.BatchingChooser;
+import org.apache.samza.system.chooser.BatchingChooserMetrics;
+import org.apache.samza.system.chooser.BootstrappingChooser;
+import org.apache.samza.system.chooser.BootstrappingChooserMetrics;
+import org.apache.samza.system.chooser.DefaultChooser;
+import org.apache.samza.system.chooser.MessageChooser;
+import org.apache.samza.system.chooser.RoundRobinChooser;
+import org.apache.samza.system.chooser.RoundRobinChooserMetrics;
+import org.apache.samza.system.chooser.TieredPriorityChooser;
+import org.apache.samza.system.inmemory.InMemorySystemFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import scala.Option;
+
+/**
+ * Measures a choose and the update that refills the chosen partition, which is what {@code SystemConsumers} does for
+ * every message, for each {@link MessageChooser}. Half of the partitions belong to a high priority stream and half to
+ * a low priority stream; the bootstrapping chooser treats both streams as bootstrap streams that never catch up.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MessageChooserBenchmark {
+  private static final String SYSTEM = "benchmark";
+
+  @Param({"round-robin", "batching", "tiered-priority", "bootstrapping", "default"})
+  public String chooserType;
+
+  @Param({"8", "128"})
+  public int partitionCount;
+
+  private MessageChooser chooser;
+
+  @Setup
+  public void setUp() {
+    SystemStream highPriorityStream = new SystemStream(SYSTEM, "high");
+    SystemStream lowPriorityStream = new SystemStream(SYSTEM, "low");
+    List<IncomingMessageEnvelope> envelopes = new ArrayList<>();
+    for (int i = 0; i < partitionCount; i++) {
+      SystemStream stream = i % 2 == 0 ? highPriorityStream : lowPriorityStream;
+      SystemStreamPartition ssp = new SystemStreamPartition(stream, new Partition(i / 2));
+      envelopes.add(new IncomingMessageEnvelope(ssp, 0L, null, "message", 0, 0L));
+    }
+
+    Map<SystemStream, Object> priorities = new HashMap<>();
+    priorities.put(highPriorityStream, 1);
+    priorities.put(lowPriorityStream, 0);
+    Map<SystemStream, SystemStreamMetadata> bootstrapMetadata = new HashMap<>();
+    bootstrapMetadata.put(highPriorityStream, laggingMetadata(highPriorityStream, partitionCount / 2));
+    bootstrapMetadata.put(lowPriorityStream, laggingMetadata(lowPriorityStream, partitionCount / 2));
+
+    Map<String, String> config = new HashMap<>();
+    config.put(String.format("systems.%s.samza.factory", SYSTEM), InMemorySystemFactory.class.getName());
+    SystemAdmins systemAdmins = new SystemAdmins(new MapConfig(config));
+
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    switch (chooserType) {
+      case "round-robin":
+        chooser = newRoundRobinChooser(registry);
+        break;
+      case "batching":
+        chooser = new BatchingChooser(newRoundRobinChooser(registry), 100, new BatchingChooserMetrics(registry));
+        break;
+      case "tiered-priority":
+        chooser = new TieredPriorityChooser(ScalaConversions.toScalaMap(priorities),
+            ScalaConversions.toScalaMap(tieredChoosers(registry)), null);
+        break;
+      case "bootstrapping":
+        chooser = new BootstrappingChooser(newRoundRobinChooser(registry), ScalaConversions.toScalaMap(bootstrapMetadata),
+            new BootstrappingChooserMetrics(registry), systemAdmins);
+        break;
+      case "default":
+        chooser = new DefaultChooser(newRoundRobinChooser(registry), Option.<Object>apply(100),
+            ScalaConversions.toScalaMap(priorities), ScalaConversions.toScalaMap(tieredChoosers(registry)),
+            ScalaConversions.<SystemStream, SystemStreamMetadata>emptyScalaMap(), registry, systemAdmins);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown chooser type: " + chooserType);
+    }
+
+    for (IncomingMessageEnvelope envelope : envelopes) {
+      chooser.register(envelope.getSystemStreamPartition(), "0");
+    }
+    chooser.start();
+    for (IncomingMessageEnvelope envelope : envelopes) {
+      chooser.update(envelope);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    chooser.stop();
+  }
+
+  @Benchmark
+  public IncomingMessageEnvelope chooseAndUpdate() {
+    IncomingMessageEnvelope envelope = chooser.choose();
+    chooser.update(envelope);
+    return envelope;
+  }
+
+  private static MessageChooser newRoundRobinChooser(MetricsRegistryMap registry) {
+    return new RoundRobinChooser(new RoundRobinChooserMetrics(registry));
+  }
+
+  private static Map<Object, MessageChooser> tieredChoosers(MetricsRegistryMap registry) {
+    Map<Object, MessageChooser> choosers = new HashMap<>();
+    choosers.put(1, newRoundRobinChooser(registry));
+    choosers.put(0, newRoundRobinChooser(registry));
+    return choosers;
+  }
+
+  /**
+   * Metadata whose newest offset is never reached, so the stream keeps bootstrapping.
+   */
+  private static SystemStreamMetadata laggingMetadata(SystemStream stream, int partitionCount) {
+    String newestOffset = String.valueOf(Integer.MAX_VALUE);
+    Map<Partition, SystemStreamMetadata.SystemStreamPartitionMetadata> partitionMetadata = new HashMap<>();
+    for (int i = 0; i < partitionCount; i++) {
+      partitionMetadata.put(new Partition(i),
+          new SystemStreamMetadata.SystemStreamPartitionMetadata("0", newestOffset, newestOffset));
+    }
+    return new SystemStreamMetadata(stream.getStream(), partitionMetadata);
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.samza.metrics.Counter;
+import org.apache.samza.metrics.HistogramReservoir;
+import org.apache.samza.metrics.SlidingTimeWindowReservoir;
+import org.apache.samza.metrics.Timer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Updates the same metric from several threads, the way the container thread pool updates the container and
+ * operator metrics for every message. Use the JMH {@code -t} option to change the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(8)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MetricsBenchmark {
+  private final Counter counter = new Counter("counter");
+  private final AtomicLong atomicCounter = new AtomicLong();
+  private final Timer histogramTimer = new Timer("histogram-timer", new HistogramReservoir());
+  private final Timer slidingWindowTimer = new Timer("sliding-window-timer", new SlidingTimeWindowReservoir());
+
+  @Benchmark
+  public void counterIncrement() {
+    counter.increment();
+  }
+
+  /**
+   * {@link Counter#inc()}, which also returns the count.
+   */
+  @Benchmark
+  public long counterInc() {
+    return counter.inc();
+  }
+
+  /**
+   * The {@link AtomicLong} that {@link Counter} used to be backed by, as a baseline.
+   */
+  @Benchmark
+  public long atomicLongInc() {
+    return atomicCounter.incrementAndGet();
+  }
+
+  @Benchmark
+  public void histogramTimerUpdate() {
+    histogramTimer.update(System.nanoTime() & 0xFFFFF);
+  }
+
+  @Benchmark
+  public void slidingWindowTimerUpdate() {
+    slidingWindowTimer.update(System.nanoTime() & 0xFFFFF);
+  }
+}
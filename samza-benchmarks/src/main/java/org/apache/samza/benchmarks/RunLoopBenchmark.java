@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.benchmarks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.samza.config.JobConfig;
+import org.apache.samza.serializers.NoOpSerde;
+import org.apache.samza.system.IncomingMessageEnvelope;
+import org.apache.samza.task.AsyncStreamTask;
+import org.apache.samza.task.MessageCollector;
+import org.apache.samza.task.TaskCallback;
+import org.apache.samza.task.TaskCoordinator;
+import org.apache.samza.test.framework.TestRunner;
+import org.apache.samza.test.framework.system.descriptors.InMemoryInputDescriptor;
+import org.apache.samza.test.framework.system.descriptors.InMemorySystemDescriptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs an {@link AsyncStreamTask} that completes every message immediately over {@code messageCount} messages of an
+ * in-memory stream until it reaches end-of-stream, with {@link TestRunner}. Since the task does no work, this measures
+ * the dispatch overhead of the run loop: choosing messages, invoking tasks, handling callbacks and updating offsets.
+ * There is one task per partition. Each run includes starting and stopping the job, so compare results for the same
+ * message count.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class RunLoopBenchmark {
+  private static final String SYSTEM = "benchmark";
+
+  @Param({"1", "8"})
+  public int partitionCount;
+
+  @Param({"1", "4"})
+  public int maxConcurrency;
+
+  @Param({"0", "8"})
+  public int threadPoolSize;
+
+  @Param({"100000"})
+  public int messageCount;
+
+  private TestRunner runner;
+
+  @Setup(Level.Invocation)
+  public void setUp() {
+    InMemoryInputDescriptor<Integer> input =
+        new InMemorySystemDescriptor(SYSTEM).getInputDescriptor("input", new NoOpSerde<>());
+    Map<Integer, List<Integer>> messages = new HashMap<>();
+    for (int partition = 0; partition < partitionCount; partition++) {
+      messages.put(partition, new ArrayList<>(messageCount / partitionCount));
+    }
+    for (int i = 0; i < messageCount; i++) {
+      messages.get(i % partitionCount).add(i);
+    }
+
+    runner = TestRunner
+        .of(NoOpAsyncStreamTask.class)
+        .addConfig("splitPart", "0")
+        .addConfig(JobConfig.JOB_JMX_ENABLED(), "false")
+        .addConfig("task.max.concurrency", String.valueOf(maxConcurrency))
+        .addConfig("job.container.thread.pool.size", String.valueOf(threadPoolSize))
+        .addInputStream(input, messages);
+  }
+
+  @Benchmark
+  public void run() {
+    runner.run(Duration.ofMinutes(10));
+  }
+
+  public static class NoOpAsyncStreamTask implements AsyncStreamTask {
+    @Override
+    public void processAsync(IncomingMessageEnvelope envelope, MessageCollector collector,
+        TaskCoordinator coordinator, TaskCallback callback) {
+      callback.complete();
+    }
+  }
+}
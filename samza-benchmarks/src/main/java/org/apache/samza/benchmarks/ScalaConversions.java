@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.benchmarks;
+
+import java.util.Map;
+import scala.Predef;
+import scala.Tuple2;
+import scala.collection.JavaConverters;
+
+/**
+ * Helpers to call the Scala constructors of the classes under benchmark from Java.
+ */
+final class ScalaConversions {
+  private ScalaConversions() {
+  }
+
+  static <K, V> scala.collection.immutable.Map<K, V> toScalaMap(Map<K, V> map) {
+    return JavaConverters.mapAsScalaMapConverter(map).asScala().toMap(Predef.<Tuple2<K, V>>$conforms());
+  }
+
+  static <K, V> scala.collection.immutable.Map<K, V> emptyScalaMap() {
+    return scala.collection.immutable.Map$.MODULE$.empty();
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> scala.collection.immutable.Set<T> emptyScalaSet() {
+    return (scala.collection.immutable.Set<T>) scala.collection.immutable.Set$.MODULE$.empty();
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.apache.samza.serializers.ByteBufferSerde;
+import org.apache.samza.serializers.DoubleSerde;
+import org.apache.samza.serializers.IntegerSerde;
+import org.apache.samza.serializers.IntermediateMessageSerde;
+import org.apache.samza.serializers.JsonSerdeV2;
+import org.apache.samza.serializers.LongSerde;
+import org.apache.samza.serializers.Serde;
+import org.apache.samza.serializers.StringSerde;
+import org.apache.samza.serializers.UUIDSerde;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serializes and deserializes a typical value with each of the built-in serdes. {@code json} serializes a small map,
+ * and {@code intermediate} wraps the json serde the way messages on intermediate streams are.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SerdeBenchmark {
+  @Param({"string", "integer", "long", "double", "uuid", "bytebuffer", "json", "intermediate"})
+  public String serdeType;
+
+  private Serde<Object> serde;
+  private Object value;
+  private byte[] bytes;
+
+  @Setup
+  public void setUp() {
+    switch (serdeType) {
+      case "string":
+        setUp(new StringSerde("UTF-8"), "a page view key of typical length");
+        break;
+      case "integer":
+        setUp(new IntegerSerde(), 123456);
+        break;
+      case "long":
+        setUp(new LongSerde(), 1234567890123L);
+        break;
+      case "double":
+        setUp(new DoubleSerde(), 12345.678);
+        break;
+      case "uuid":
+        setUp(new UUIDSerde(), UUID.randomUUID());
+        break;
+      case "bytebuffer":
+        setUp(new ByteBufferSerde(), ByteBuffer.wrap(new byte[100]));
+        break;
+      case "json":
+        setUp(new JsonSerdeV2<>(), jsonValue());
+        break;
+      case "intermediate":
+        setUp(new IntermediateMessageSerde(new JsonSerdeV2<>()), jsonValue());
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown serde type: " + serdeType);
+    }
+  }
+
+  @Benchmark
+  public byte[] serialize() {
+    return serde.toBytes(value);
+  }
+
+  @Benchmark
+  public Object deserialize() {
+    return serde.fromBytes(bytes);
+  }
+
+  @Benchmark
+  public Object roundTrip() {
+    return serde.fromBytes(serde.toBytes(value));
+  }
+
+  @SuppressWarnings("unchecked")
+  private void setUp(Serde<?> serde, Object value) {
+    this.serde = (Serde<Object>) serde;
+    this.value = value;
+    this.bytes = this.serde.toBytes(value);
+  }
+
+  private static Map<String, Object> jsonValue() {
+    Map<String, Object> value = new LinkedHashMap<>();
+    value.put("memberId", 12345);
+    value.put("pageKey", "inbox");
+    value.put("timestamp", 1546300800000L);
+    value.put("referrer", "https://www.example.com/home");
+    return value;
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.benchmarks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.samza.application.StreamApplication;
+import org.apache.samza.application.descriptors.StreamApplicationDescriptor;
+import org.apache.samza.config.JobConfig;
+import org.apache.samza.operators.MessageStream;
+import org.apache.samza.operators.OutputStream;
+import org.apache.samza.operators.functions.JoinFunction;
+import org.apache.samza.operators.windows.Windows;
+import org.apache.samza.serializers.IntegerSerde;
+import org.apache.samza.serializers.NoOpSerde;
+import org.apache.samza.test.framework.TestRunner;
+import org.apache.samza.test.framework.system.descriptors.InMemoryInputDescriptor;
+import org.apache.samza.test.framework.system.descriptors.InMemoryOutputDescriptor;
+import org.apache.samza.test.framework.system.descriptors.InMemorySystemDescriptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs a high level application over {@code messageCount} messages of an in-memory stream until it reaches
+ * end-of-stream, with {@link TestRunner}. {@code chain} is a chain of stateless operators, which mostly measures the
+ * traversal of the operator graph, {@code window} is a keyed tumbling window and {@code join} a stream-stream join
+ * of two streams, both backed by RocksDB stores. The results are filtered out before they are sent to the output
+ * stream, so that producing them doesn't dominate. Each run includes starting and stopping the job, so compare
+ * results for the same message count.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class StreamApplicationBenchmark {
+  private static final String SYSTEM = "benchmark";
+  private static final int KEY_COUNT = 1000;
+
+  @Param({"chain", "window", "join"})
+  public String application;
+
+  @Param({"100000"})
+  public int messageCount;
+
+  private TestRunner runner;
+
+  @Setup(Level.Invocation)
+  public void setUp() {
+    InMemorySystemDescriptor systemDescriptor = new InMemorySystemDescriptor(SYSTEM);
+    InMemoryInputDescriptor<Integer> input = systemDescriptor.getInputDescriptor("input", new NoOpSerde<>());
+    InMemoryInputDescriptor<Integer> otherInput = systemDescriptor.getInputDescriptor("other", new NoOpSerde<>());
+    InMemoryOutputDescriptor<Integer> output = systemDescriptor.getOutputDescriptor("output", new NoOpSerde<>());
+    List<Integer> messages = new ArrayList<>(messageCount);
+    for (int i = 0; i < messageCount; i++) {
+      messages.add(i);
+    }
+
+    runner = TestRunner
+        .of(new BenchmarkApplication(application, input, otherInput, output))
+        // run the whole application as a single job
+        .addConfig("splitPart", "0")
+        .addConfig(JobConfig.JOB_JMX_ENABLED(), "false")
+        .addInputStream(input, messages)
+        .addOutputStream(output, 1);
+    if (application.equals("join")) {
+      runner.addInputStream(otherInput, messages);
+    }
+  }
+
+  @Benchmark
+  public void run() {
+    runner.run(Duration.ofMinutes(10));
+  }
+
+  private static class BenchmarkApplication implements StreamApplication {
+    private final String application;
+    private final InMemoryInputDescriptor<Integer> input;
+    private final InMemoryInputDescriptor<Integer> otherInput;
+    private final InMemoryOutputDescriptor<Integer> output;
+
+    BenchmarkApplication(String application, InMemoryInputDescriptor<Integer> input,
+        InMemoryInputDescriptor<Integer> otherInput, InMemoryOutputDescriptor<Integer> output) {
+      this.application = application;
+      this.input = input;
+      this.otherInput = otherInput;
+      this.output = output;
+    }
+
+    @Override
+    public void describe(StreamApplicationDescriptor appDescriptor) {
+      MessageStream<Integer> inputStream = appDescriptor.getInputStream(input);
+      OutputStream<Integer> outputStream = appDescriptor.getOutputStream(output);
+      MessageStream<Integer> results;
+      switch (application) {
+        case "chain":
+          results = inputStream
+              .map(m -> m + 1)
+              .filter(m -> m >= 0)
+              .flatMap(Collections::singletonList)
+              .map(m -> m % KEY_COUNT);
+          break;
+        case "window":
+          results = inputStream
+              .window(Windows.keyedTumblingWindow(m -> m % KEY_COUNT, Duration.ofMinutes(1), () -> 0,
+                  (m, count) -> count + 1, new IntegerSerde(), new IntegerSerde()), "window")
+              .map(pane -> pane.getMessage());
+          break;
+        case "join":
+          results = inputStream
+              .join(appDescriptor.getInputStream(otherInput), new KeyJoinFunction(), new IntegerSerde(),
+                  new IntegerSerde(), new IntegerSerde(), Duration.ofMinutes(1), "join");
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown application: " + application);
+      }
+      results
+          .filter(m -> m < 0)
+          .sendTo(outputStream);
+    }
+  }
+
+  private static class KeyJoinFunction implements JoinFunction<Integer, Integer, Integer, Integer> {
+    @Override
+    public Integer apply(Integer message, Integer otherMessage) {
+      return message + otherMessage;
+    }
+
+    @Override
+    public Integer getFirstKey(Integer message) {
+      return message % KEY_COUNT;
+    }
+
+    @Override
+    public Integer getSecondKey(Integer message) {
+      return message % KEY_COUNT;
+    }
+  }
+}
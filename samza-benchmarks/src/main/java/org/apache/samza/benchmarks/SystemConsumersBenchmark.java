@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.apache.samza.Partition;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.apache.samza.serializers.SerdeManager;
+import org.apache.samza.system.IncomingMessageEnvelope;
+import org.apache.samza.system.SystemConsumer;
+import org.apache.samza.system.SystemConsumers;
+import org.apache.samza.system.SystemConsumersMetrics;
+import org.apache.samza.system.SystemStreamPartition;
+import org.apache.samza.system.chooser.RoundRobinChooser;
+import org.apache.samza.system.chooser.RoundRobinChooserMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import scala.runtime.AbstractFunction0;
+
+/**
+ * Measures {@link SystemConsumers#choose}, including the polls that refill its buffers, against a consumer that
+ * always has a batch of messages for every partition.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SystemConsumersBenchmark {
+  private static final String SYSTEM = "benchmark";
+
+  @Param({"1", "16", "256"})
+  public int partitionCount;
+
+  @Param({"100"})
+  public int pollBatchSize;
+
+  private SystemConsumers consumers;
+
+  @Setup
+  public void setUp() {
+    List<SystemStreamPartition> ssps = new ArrayList<>();
+    for (int i = 0; i < partitionCount; i++) {
+      ssps.add(new SystemStreamPartition(SYSTEM, "stream", new Partition(i)));
+    }
+
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    consumers = new SystemConsumers(
+        new RoundRobinChooser(new RoundRobinChooserMetrics(registry)),
+        ScalaConversions.toScalaMap(Collections.<String, SystemConsumer>singletonMap(SYSTEM,
+            new BatchSystemConsumer(pollBatchSize))),
+        new SerdeManager(ScalaConversions.emptyScalaMap(), ScalaConversions.emptyScalaMap(),
+            ScalaConversions.emptyScalaMap(), ScalaConversions.emptyScalaMap(), ScalaConversions.emptyScalaMap(),
+            ScalaConversions.emptyScalaSet(), ScalaConversions.emptyScalaMap(),
+            ScalaConversions.emptyScalaMap()),
+        new SystemConsumersMetrics(registry),
+        SystemConsumers.DEFAULT_NO_NEW_MESSAGES_TIMEOUT(),
+        SystemConsumers.DEFAULT_DROP_SERIALIZATION_ERROR(),
+        SystemConsumers.DEFAULT_POLL_INTERVAL_MS(),
+        new AbstractFunction0<Object>() {
+          @Override
+          public Object apply() {
+            return System.nanoTime();
+          }
+        });
+    for (SystemStreamPartition ssp : ssps) {
+      consumers.register(ssp, "0");
+    }
+    consumers.start();
+  }
+
+  @TearDown
+  public void tearDown() {
+    consumers.stop();
+  }
+
+  @Benchmark
+  public IncomingMessageEnvelope choose() {
+    return consumers.choose(true);
+  }
+
+  /**
+   * A {@link SystemConsumer} that returns the same batch of messages for every partition it is polled for.
+   */
+  private static class BatchSystemConsumer implements SystemConsumer {
+    private final int batchSize;
+    private final Map<SystemStreamPartition, List<IncomingMessageEnvelope>> batches = new HashMap<>();
+
+    BatchSystemConsumer(int batchSize) {
+      this.batchSize = batchSize;
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    @Override
+    public void register(SystemStreamPartition systemStreamPartition, String offset) {
+      List<IncomingMessageEnvelope> batch = new ArrayList<>(batchSize);
+      for (int i = 0; i < batchSize; i++) {
+        batch.add(new IncomingMessageEnvelope(systemStreamPartition, i, null, "message", 0, 0L));
+      }
+      batches.put(systemStreamPartition, Collections.unmodifiableList(batch));
+    }
+
+    @Override
+    public Map<SystemStreamPartition, List<IncomingMessageEnvelope>> poll(
+        Set<SystemStreamPartition> systemStreamPartitions, long timeout) {
+      Map<SystemStreamPartition, List<IncomingMessageEnvelope>> polled = new HashMap<>();
+      for (SystemStreamPartition ssp : systemStreamPartitions) {
+        polled.put(ssp, batches.get(ssp));
+      }
+      return polled;
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.apache.samza.config.MapConfig;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.apache.samza.operators.impl.store.TimeSeriesKey;
+import org.apache.samza.operators.impl.store.TimeSeriesKeySerde;
+import org.apache.samza.operators.impl.store.TimeSeriesStore;
+import org.apache.samza.operators.impl.store.TimeSeriesStoreImpl;
+import org.apache.samza.serializers.ByteSerde;
+import org.apache.samza.serializers.StringSerde;
+import org.apache.samza.storage.kv.ClosableIterator;
+import org.apache.samza.storage.kv.KeyValueStore;
+import org.apache.samza.storage.kv.KeyValueStoreMetrics;
+import org.apache.samza.storage.kv.RocksDbKeyValueStore;
+import org.apache.samza.storage.kv.SerializedKeyValueStore;
+import org.apache.samza.storage.kv.SerializedKeyValueStoreMetrics;
+import org.apache.samza.storage.kv.inmemory.InMemoryKeyValueStore;
+import org.apache.samza.util.FileUtil;
+import org.apache.samza.util.TimestampedValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rocksdb.FlushOptions;
+import org.rocksdb.Options;
+import org.rocksdb.WriteOptions;
+
+/**
+ * Measures the {@link TimeSeriesStore} operations that window and join operators perform: scanning all values of a
+ * key, scanning a short time range of a key, and writing a value. The store holds {@code valuesPerKey} values, one
+ * per millisecond, for each of {@code keyCount} keys. It is not in append mode, so writes overwrite existing values
+ * and the store doesn't grow during the benchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TimeSeriesStoreBenchmark {
+  private static final int VALUE_SIZE = 100;
+
+  @Param({"inmemory", "rocksdb"})
+  public String storeType;
+
+  @Param({"100"})
+  public int keyCount;
+
+  @Param({"100", "1000"})
+  public int valuesPerKey;
+
+  @Param({"10"})
+  public int rangeSize;
+
+  private File storeDir;
+  private TimeSeriesStore<String, byte[]> store;
+  private String[] keys;
+  private byte[] value;
+  private int nextKey;
+  private long nextTimestamp;
+
+  @Setup
+  public void setUp() throws IOException {
+    MetricsRegistryMap registry = new MetricsRegistryMap();
+    KeyValueStore<byte[], byte[]> bytesStore;
+    switch (storeType) {
+      case "inmemory":
+        bytesStore = new InMemoryKeyValueStore(new KeyValueStoreMetrics("benchmark", registry));
+        break;
+      case "rocksdb":
+        storeDir = Files.createTempDirectory("samza-benchmark-rocksdb").toFile();
+        Options options = new Options();
+        options.setCreateIfMissing(true);
+        bytesStore = new RocksDbKeyValueStore(storeDir, options, new MapConfig(), false, "benchmark",
+            new WriteOptions(), new FlushOptions(), new KeyValueStoreMetrics("benchmark", registry));
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown store type: " + storeType);
+    }
+    KeyValueStore<TimeSeriesKey<String>, byte[]> kvStore = new SerializedKeyValueStore<>(bytesStore,
+        new TimeSeriesKeySerde<>(new StringSerde("UTF-8")), new ByteSerde(),
+        new SerializedKeyValueStoreMetrics("benchmark", registry));
+    store = new TimeSeriesStoreImpl<>(kvStore, false);
+
+    keys = new String[keyCount];
+    value = new byte[VALUE_SIZE];
+    for (int i = 0; i < keyCount; i++) {
+      keys[i] = "key-" + i;
+      for (long timestamp = 0; timestamp < valuesPerKey; timestamp++) {
+        store.put(keys[i], value, timestamp);
+      }
+    }
+    store.flush();
+  }
+
+  @TearDown
+  public void tearDown() {
+    store.close();
+    if (storeDir != null) {
+      FileUtil.rm(storeDir);
+    }
+  }
+
+  @Benchmark
+  public int scanKey() {
+    return count(store.get(nextKey(), 0, valuesPerKey));
+  }
+
+  @Benchmark
+  public int scanRange() {
+    long startTimestamp = nextTimestamp(valuesPerKey - rangeSize);
+    return count(store.get(nextKey(), startTimestamp, startTimestamp + rangeSize));
+  }
+
+  @Benchmark
+  public void put() {
+    store.put(nextKey(), value, nextTimestamp(valuesPerKey));
+  }
+
+  private static int count(ClosableIterator<TimestampedValue<byte[]>> iterator) {
+    int count = 0;
+    try {
+      while (iterator.hasNext()) {
+        iterator.next();
+        count++;
+      }
+    } finally {
+      iterator.close();
+    }
+    return count;
+  }
+
+  private String nextKey() {
+    String key = keys[nextKey];
+    nextKey = nextKey + 1 == keyCount ? 0 : nextKey + 1;
+    return key;
+  }
+
+  private long nextTimestamp(long bound) {
+    nextTimestamp = (nextTimestamp + 7919) % bound;
+    return nextTimestamp;
+  }
+}
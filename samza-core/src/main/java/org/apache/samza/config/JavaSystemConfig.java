@@ -38,6 +38,9 @@ public class JavaSystemConfig extends MapConfig {
   public static final String SYSTEM_FACTORY_SUFFIX = ".samza.factory";
   public static final String SYSTEM_FACTORY_FORMAT = SYSTEM_PREFIX + "%s" + SYSTEM_FACTORY_SUFFIX;
   private static final String SYSTEM_DEFAULT_STREAMS_PREFIX_FORMAT = SYSTEM_PREFIX + "%s" + ".default.stream.";
+  public static final String CONSUMER_BUFFER_MAX_BYTES_FORMAT = SYSTEM_PREFIX + "%s.samza.consumer.buffer.max.bytes";
+  public static final String CONSUMER_BUFFER_MAX_BYTES_PER_PARTITION_FORMAT =
+      SYSTEM_PREFIX + "%s.samza.consumer.buffer.max.bytes.per.partition";
   private static final String EMPTY = "";
 
   public JavaSystemConfig(Config config) {
@@ -113,6 +116,28 @@ public class JavaSystemConfig extends MapConfig {
     return systemFactories;
   }
 
+  /**
+   * Get the number of bytes a consumer of the system may buffer across all its partitions before it stops
+   * fetching. Only applies to consumers built on {@link org.apache.samza.util.BlockingEnvelopeMap}.
+   *
+   * @param systemName System name
+   * @return the byte budget, or Long.MAX_VALUE if the buffer is unbounded
+   */
+  public long getConsumerBufferMaxBytes(String systemName) {
+    return getLong(String.format(CONSUMER_BUFFER_MAX_BYTES_FORMAT, systemName), Long.MAX_VALUE);
+  }
+
+  /**
+   * Get the number of bytes a consumer of the system may buffer for a single partition before it stops
+   * fetching it. Only applies to consumers built on {@link org.apache.samza.util.BlockingEnvelopeMap}.
+   *
+   * @param systemName System name
+   * @return the byte budget, or Long.MAX_VALUE if the buffer is unbounded
+   */
+  public long getConsumerBufferMaxBytesPerPartition(String systemName) {
+    return getLong(String.format(CONSUMER_BUFFER_MAX_BYTES_PER_PARTITION_FORMAT, systemName), Long.MAX_VALUE);
+  }
+
   /**
    * Gets the system-wide defaults for streams.
    *
@@ -49,6 +49,10 @@ public class TaskConfigJava extends MapConfig {
   private static final String BROADCAST_STREAM_PATTERN = "^[\\d]+$";
   private static final String BROADCAST_STREAM_RANGE_PATTERN = "^\\[[\\d]+\\-[\\d]+\\]$";
 
+  // maximum number of window values each aggregating window operator buffers in memory between writes to its store
+  public static final String WINDOW_AGGREGATION_BUFFER_SIZE = "task.window.aggregation.buffer.size";
+  public static final int DEFAULT_WINDOW_AGGREGATION_BUFFER_SIZE = 0;
+
   // class name to use when sending offset checkpoints
   public static final String CHECKPOINT_MANAGER_FACTORY = "task.checkpoint.factory";
 
@@ -156,6 +160,16 @@ public class TaskConfigJava extends MapConfig {
     return Collections.unmodifiableSet(allInputSS);
   }
 
+  /**
+   * Get the maximum number of window values each aggregating window operator buffers in memory. Buffered values are
+   * written to the store when they are evicted, and on every commit. A value of 0 disables the buffer.
+   *
+   * @return the size of the window aggregation buffer
+   */
+  public int getWindowAggregationBufferSize() {
+    return getInt(WINDOW_AGGREGATION_BUFFER_SIZE, DEFAULT_WINDOW_AGGREGATION_BUFFER_SIZE);
+  }
+
   /**
    * Returns a value indicating how long to wait for the tasks to shutdown
    * If the value is not defined in the config or if does not parse correctly, we return the default value -
@@ -95,6 +95,14 @@ public class RunLoopFactory {
 
       log.info("Got maxIdleMs: {}.", maxIdleMs);
 
+      int batchSize = config.getRunLoopBatchSize();
+
+      log.info("Got run loop batch size: {}.", batchSize);
+
+      int processBatchSize = config.getProcessBatchSize();
+
+      log.info("Got process batch size: {}.", processBatchSize);
+
       log.info("Run loop in asynchronous mode.");
 
       return new AsyncRunLoop(
@@ -107,6 +115,8 @@ public class RunLoopFactory {
         callbackTimeout,
         maxThrottlingDelayMs,
         maxIdleMs,
+        batchSize,
+        processBatchSize,
         containerMetrics,
         clock,
         isAsyncCommitEnabled);
@@ -18,6 +18,7 @@
  */
 package org.apache.samza.operators.functions;
 
+import org.apache.samza.operators.impl.store.TimeSeriesStore;
 import org.apache.samza.util.TimestampedValue;
 import org.apache.samza.storage.kv.KeyValueStore;
 
@@ -50,4 +51,11 @@ public interface PartialJoinFunction<K, M, OM, JM> extends InitableFunction, Clo
    */
   KeyValueStore<K, TimestampedValue<M>> getState();
 
+  /**
+   * Gets the state associated with this stream for a windowed join, which retains every message in the window.
+   *
+   * @return the time series store containing the state for this stream
+   */
+  TimeSeriesStore<K, M> getTimeSeriesState();
+
 }
@@ -57,7 +57,7 @@ import java.util.Set;
  */
 public abstract class OperatorImpl<M, RM> {
   private static final Logger LOG = LoggerFactory.getLogger(OperatorImpl.class);
-  private static final String METRICS_GROUP = OperatorImpl.class.getName();
+  static final String METRICS_GROUP = OperatorImpl.class.getName();
 
   private boolean initialized;
   private boolean closed;
@@ -166,7 +166,7 @@ public abstract class OperatorImpl<M, RM> {
    * @param coordinator  the {@link TaskCoordinator} for this message
    */
   public final void onMessage(M message, MessageCollector collector, TaskCoordinator coordinator) {
-    this.numMessage.inc();
+    this.numMessage.increment();
     long startNs = this.highResClock.nanoTime();
     Collection<RM> results;
     try {
@@ -463,6 +463,22 @@ public abstract class OperatorImpl<M, RM> {
     };
   }
 
+  /**
+   * Handle a commit of the task for this {@link OperatorImpl}.
+   * <p>
+   * Delegates to {@link #handleCommit()} to write any state buffered in memory to the stores of this operator,
+   * before they are flushed along with the checkpoint.
+   */
+  public final void onCommit() {
+    handleCommit();
+  }
+
+  /**
+   * Write any state this {@link OperatorImpl} buffers in memory to its stores.
+   */
+  protected void handleCommit() {
+  }
+
   public void close() {
     if (closed) {
       throw new IllegalStateException(
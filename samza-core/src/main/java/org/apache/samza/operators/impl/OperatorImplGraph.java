@@ -31,6 +31,9 @@ import org.apache.samza.operators.OperatorSpecGraph;
 import org.apache.samza.operators.Scheduler;
 import org.apache.samza.operators.functions.JoinFunction;
 import org.apache.samza.operators.functions.PartialJoinFunction;
+import org.apache.samza.operators.impl.store.TimeSeriesKey;
+import org.apache.samza.operators.impl.store.TimeSeriesStore;
+import org.apache.samza.operators.impl.store.TimeSeriesStoreImpl;
 import org.apache.samza.operators.spec.BroadcastOperatorSpec;
 import org.apache.samza.operators.spec.InputOperatorSpec;
 import org.apache.samza.operators.spec.JoinOperatorSpec;
@@ -135,6 +138,13 @@ public class OperatorImplGraph {
     return this.inputOperators.get(systemStream);
   }
 
+  /**
+   * Notifies all {@link OperatorImpl}s in the graph that the task is being committed.
+   */
+  public void onCommit() {
+    operatorImpls.values().forEach(OperatorImpl::onCommit);
+  }
+
   public void close() {
     List<OperatorImpl> initializationOrder = new ArrayList<>(operatorImpls.values());
     List<OperatorImpl> finalizationOrder = Lists.reverse(initializationOrder);
@@ -264,6 +274,7 @@ public class OperatorImplGraph {
     return new PartialJoinFunction<Object, Object, Object, Object>() {
       private final JoinFunction joinFn = joinOpSpec.getJoinFn();
       private KeyValueStore<Object, TimestampedValue<Object>> leftStreamState;
+      private TimeSeriesStore<Object, Object> leftStreamTimeSeriesState;
 
       @Override
       public Object apply(Object m, Object om) {
@@ -280,11 +291,21 @@ public class OperatorImplGraph {
         return leftStreamState;
       }
 
+      @Override
+      public TimeSeriesStore<Object, Object> getTimeSeriesState() {
+        return leftStreamTimeSeriesState;
+      }
+
       @Override
       public void init(Context context) {
         String leftStoreName = joinOpSpec.getLeftOpId();
-        leftStreamState =
-            (KeyValueStore<Object, TimestampedValue<Object>>) context.getTaskContext().getStore(leftStoreName);
+        if (joinOpSpec.isWindowed()) {
+          leftStreamTimeSeriesState = new TimeSeriesStoreImpl<>(
+              (KeyValueStore<TimeSeriesKey<Object>, Object>) context.getTaskContext().getStore(leftStoreName), true);
+        } else {
+          leftStreamState =
+              (KeyValueStore<Object, TimestampedValue<Object>>) context.getTaskContext().getStore(leftStoreName);
+        }
 
         // user-defined joinFn should only be initialized once, so we do it only in left partial join function.
         joinFn.init(context);
@@ -302,6 +323,7 @@ public class OperatorImplGraph {
     return new PartialJoinFunction<Object, Object, Object, Object>() {
       private final JoinFunction joinFn = joinOpSpec.getJoinFn();
       private KeyValueStore<Object, TimestampedValue<Object>> rightStreamState;
+      private TimeSeriesStore<Object, Object> rightStreamTimeSeriesState;
 
       @Override
       public Object apply(Object m, Object om) {
@@ -316,8 +338,13 @@ public class OperatorImplGraph {
       @Override
       public void init(Context context) {
         String rightStoreName = joinOpSpec.getRightOpId();
-        rightStreamState =
-            (KeyValueStore<Object, TimestampedValue<Object>>) context.getTaskContext().getStore(rightStoreName);
+        if (joinOpSpec.isWindowed()) {
+          rightStreamTimeSeriesState = new TimeSeriesStoreImpl<>(
+              (KeyValueStore<TimeSeriesKey<Object>, Object>) context.getTaskContext().getStore(rightStoreName), true);
+        } else {
+          rightStreamState =
+              (KeyValueStore<Object, TimestampedValue<Object>>) context.getTaskContext().getStore(rightStoreName);
+        }
 
         // user-defined joinFn should only be initialized once,
         // so we do it only in left partial join function and not here again.
@@ -327,6 +354,11 @@ public class OperatorImplGraph {
       public KeyValueStore<Object, TimestampedValue<Object>> getState() {
         return rightStreamState;
       }
+
+      @Override
+      public TimeSeriesStore<Object, Object> getTimeSeriesState() {
+        return rightStreamTimeSeriesState;
+      }
     };
   }
 
@@ -21,20 +21,28 @@ package org.apache.samza.operators.impl;
 import org.apache.samza.SamzaException;
 import org.apache.samza.context.Context;
 import org.apache.samza.operators.functions.PartialJoinFunction;
+import org.apache.samza.operators.impl.store.TimeSeriesStore;
 import org.apache.samza.operators.spec.JoinOperatorSpec;
 import org.apache.samza.operators.spec.OperatorSpec;
+import org.apache.samza.storage.kv.ClosableIterator;
 import org.apache.samza.storage.kv.KeyValueStore;
 import org.apache.samza.task.MessageCollector;
 import org.apache.samza.task.TaskCoordinator;
 import org.apache.samza.util.Clock;
 import org.apache.samza.util.TimestampedValue;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 /**
  * Implementation of one side of a {@link JoinOperatorSpec} that buffers and joins its input messages of
  * type {@code M} with buffered input messages of type {@code OM} in the paired {@link PartialJoinOperatorImpl}.
+ * <p>
+ * For a windowed join, every message is retained in a {@link TimeSeriesStore}, and a message is joined with all
+ * messages for its key in the other stream that arrived within the ttl. Expired messages are purged from the store
+ * on timer ticks and watermarks, at most once per ttl.
  *
  * @param <K> the type of join key
  * @param <M> the type of input messages on this side of the join
@@ -49,6 +57,7 @@ class PartialJoinOperatorImpl<K, M, OM, JM> extends OperatorImpl<M, JM> {
   private final PartialJoinFunction<K, OM, M, JM> otherPartialJoinFn;
   private final long ttlMs;
   private final Clock clock;
+  private long lastPurgeMs = 0;
 
   PartialJoinOperatorImpl(JoinOperatorSpec<K, M, OM, JM> joinOpSpec, boolean isLeftSide,
       PartialJoinFunction<K, M, OM, JM> thisPartialJoinFn,
@@ -70,6 +79,10 @@ class PartialJoinOperatorImpl<K, M, OM, JM> extends OperatorImpl<M, JM> {
   @Override
   public Collection<JM> handleMessage(M message, MessageCollector collector, TaskCoordinator coordinator) {
     try {
+      if (joinOpSpec.isWindowed()) {
+        return handleWindowedMessage(message);
+      }
+
       KeyValueStore<K, TimestampedValue<M>> thisState = thisPartialJoinFn.getState();
       KeyValueStore<K, TimestampedValue<OM>> otherState = otherPartialJoinFn.getState();
 
@@ -88,6 +101,53 @@ class PartialJoinOperatorImpl<K, M, OM, JM> extends OperatorImpl<M, JM> {
     return Collections.emptyList();
   }
 
+  private Collection<JM> handleWindowedMessage(M message) {
+    TimeSeriesStore<K, M> thisState = thisPartialJoinFn.getTimeSeriesState();
+    TimeSeriesStore<K, OM> otherState = otherPartialJoinFn.getTimeSeriesState();
+
+    K key = thisPartialJoinFn.getKey(message);
+    long now = clock.currentTimeMillis();
+    thisState.put(key, message, now);
+
+    // expired messages may not have been purged yet, so only probe the range that is still within the ttl
+    List<JM> joinResults = new ArrayList<>();
+    ClosableIterator<TimestampedValue<OM>> otherMessages =
+        otherState.get(key, Math.max(0, now - ttlMs + 1), now + 1);
+    try {
+      while (otherMessages.hasNext()) {
+        joinResults.add(thisPartialJoinFn.apply(message, otherMessages.next().getValue()));
+      }
+    } finally {
+      otherMessages.close();
+    }
+    return joinResults;
+  }
+
+  @Override
+  protected Collection<JM> handleTimer(MessageCollector collector, TaskCoordinator coordinator) {
+    purgeExpiredMessages();
+    return Collections.emptyList();
+  }
+
+  @Override
+  protected Collection<JM> handleWatermark(long inputWatermark, MessageCollector collector,
+      TaskCoordinator coordinator) {
+    purgeExpiredMessages();
+    return Collections.emptyList();
+  }
+
+  private void purgeExpiredMessages() {
+    long now = clock.currentTimeMillis();
+    if (!joinOpSpec.isWindowed() || now - lastPurgeMs < ttlMs) {
+      return;
+    }
+    lastPurgeMs = now;
+    long expiryTimestamp = now - ttlMs + 1;
+    if (expiryTimestamp > 0) {
+      thisPartialJoinFn.getTimeSeriesState().removeBefore(expiryTimestamp);
+    }
+  }
+
   @Override
   protected void handleClose() {
     this.thisPartialJoinFn.close();
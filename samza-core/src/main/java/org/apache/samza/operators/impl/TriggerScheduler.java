@@ -19,28 +19,50 @@
 
 package org.apache.samza.operators.impl;
 
+import org.apache.samza.operators.impl.store.TimeSeriesKey;
 import org.apache.samza.operators.triggers.Cancellable;
+import org.apache.samza.operators.triggers.FiringType;
+import org.apache.samza.storage.kv.KeyValueStore;
 import org.apache.samza.util.Clock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.PriorityQueue;
 
 /**
  * Allows to schedule and cancel callbacks for triggers.
+ *
+ * <p> Pending callbacks are kept in a binary heap ordered by their scheduled time, and by the order they were
+ * scheduled in for the same time. Every callback tracks its position in the heap, so that both scheduling and
+ * cancelling a callback take O(log n) time in the number of pending callbacks.
+ *
+ * <p> If a deadline store is provided, the scheduled time of every pending callback for a {@link FiringType#DEFAULT}
+ * trigger is also persisted to it, keyed by the key and timestamp of its {@link TriggerKey}, and removed once the
+ * callback runs or is cancelled.
  */
 public class TriggerScheduler<WK> {
 
   private static final Logger LOG = LoggerFactory.getLogger(TriggerScheduler.class);
 
-  private final PriorityQueue<TriggerCallbackState<WK>> pendingCallbacks;
+  private final List<TriggerCallbackState> pendingCallbacks = new ArrayList<>();
   private final Clock clock;
+  private final KeyValueStore<TimeSeriesKey<WK>, Long> deadlineStore;
+  private long nextSeqNum = 0;
 
   public TriggerScheduler(Clock clock) {
-    this.pendingCallbacks = new PriorityQueue<>();
+    this(clock, null);
+  }
+
+  /**
+   * Creates a {@link TriggerScheduler} that persists the deadlines of default triggers to the provided store.
+   *
+   * @param clock the clock to run pending callbacks by
+   * @param deadlineStore the store to persist deadlines to, or null to keep them only in memory
+   */
+  public TriggerScheduler(Clock clock, KeyValueStore<TimeSeriesKey<WK>, Long> deadlineStore) {
     this.clock = clock;
+    this.deadlineStore = deadlineStore;
   }
 
   /**
@@ -51,8 +73,11 @@ public class TriggerScheduler<WK> {
    * @return a {@link Cancellable} that can be used to cancel the execution of this runnable.
    */
   public Cancellable scheduleCallback(Runnable runnable, long scheduledTimeMs, TriggerKey<WK> triggerKey) {
-    TriggerCallbackState<WK> timerState = new TriggerCallbackState(triggerKey, runnable, scheduledTimeMs);
-    pendingCallbacks.add(timerState);
+    TriggerCallbackState timerState = new TriggerCallbackState(triggerKey, runnable, scheduledTimeMs, nextSeqNum++);
+    add(timerState);
+    if (isPersisted(triggerKey)) {
+      deadlineStore.put(toStoreKey(triggerKey), scheduledTimeMs);
+    }
     LOG.trace("Scheduled a new callback: {} at {} for triggerKey {}", new Object[] {runnable, scheduledTimeMs, triggerKey});
     return timerState;
   }
@@ -64,12 +89,12 @@ public class TriggerScheduler<WK> {
    * @return the list of {@link TriggerKey}s corresponding to the callbacks that were run.
    */
   public List<TriggerKey<WK>> runPendingCallbacks() {
-    TriggerCallbackState<WK> state;
+    TriggerCallbackState state;
     List<TriggerKey<WK>> keys = new ArrayList<>();
     long now = clock.currentTimeMillis();
 
-    while ((state = pendingCallbacks.peek()) != null && state.getScheduledTimeMs() <= now) {
-      pendingCallbacks.remove();
+    while (!pendingCallbacks.isEmpty() && (state = pendingCallbacks.get(0)).getScheduledTimeMs() <= now) {
+      remove(state);
       state.getCallback().run();
       TriggerKey<WK> key = state.getTriggerKey();
       keys.add(key);
@@ -77,10 +102,82 @@ public class TriggerScheduler<WK> {
     return keys;
   }
 
+  /* package private for testing */
+  int getPendingCallbackCount() {
+    return pendingCallbacks.size();
+  }
+
+  private boolean isPersisted(TriggerKey<WK> triggerKey) {
+    return deadlineStore != null && triggerKey.getType() == FiringType.DEFAULT;
+  }
+
+  private TimeSeriesKey<WK> toStoreKey(TriggerKey<WK> triggerKey) {
+    return new TimeSeriesKey<>(triggerKey.getKey(), triggerKey.getTimestamp(), 0);
+  }
+
+  private void add(TriggerCallbackState state) {
+    state.index = pendingCallbacks.size();
+    pendingCallbacks.add(state);
+    siftUp(state.index);
+  }
+
+  /**
+   * Removes a pending callback from the heap, and its deadline from the store if it is persisted.
+   */
+  private void remove(TriggerCallbackState state) {
+    int index = state.index;
+    TriggerCallbackState last = pendingCallbacks.remove(pendingCallbacks.size() - 1);
+    if (last != state) {
+      set(index, last);
+      siftDown(index);
+      siftUp(last.index);
+    }
+    state.index = -1;
+
+    if (isPersisted(state.getTriggerKey())) {
+      deadlineStore.delete(toStoreKey(state.getTriggerKey()));
+    }
+  }
+
+  private void siftUp(int index) {
+    TriggerCallbackState state = pendingCallbacks.get(index);
+    while (index > 0) {
+      int parent = (index - 1) / 2;
+      if (pendingCallbacks.get(parent).compareTo(state) <= 0) {
+        break;
+      }
+      set(index, pendingCallbacks.get(parent));
+      index = parent;
+    }
+    set(index, state);
+  }
+
+  private void siftDown(int index) {
+    TriggerCallbackState state = pendingCallbacks.get(index);
+    int size = pendingCallbacks.size();
+    while (2 * index + 1 < size) {
+      int child = 2 * index + 1;
+      if (child + 1 < size && pendingCallbacks.get(child + 1).compareTo(pendingCallbacks.get(child)) < 0) {
+        child++;
+      }
+      if (state.compareTo(pendingCallbacks.get(child)) <= 0) {
+        break;
+      }
+      set(index, pendingCallbacks.get(child));
+      index = child;
+    }
+    set(index, state);
+  }
+
+  private void set(int index, TriggerCallbackState state) {
+    pendingCallbacks.set(index, state);
+    state.index = index;
+  }
+
   /**
    * State corresponding to pending timer callbacks scheduled by various triggers.
    */
-  private class TriggerCallbackState<WK> implements Comparable<TriggerCallbackState<WK>>, Cancellable {
+  private class TriggerCallbackState implements Comparable<TriggerCallbackState>, Cancellable {
 
     private final TriggerKey<WK> triggerKey;
     private final Runnable callback;
@@ -88,10 +185,17 @@ public class TriggerScheduler<WK> {
     // the time at which the callback should trigger
     private final long scheduledTimeMs;
 
-    private TriggerCallbackState(TriggerKey<WK> triggerKey, Runnable callback, long scheduledTimeMs) {
+    // the order in which the callback was scheduled, to run callbacks for the same time in that order
+    private final long seqNum;
+
+    // the position of the callback in the heap, or -1 once it has run or has been cancelled
+    private int index = -1;
+
+    private TriggerCallbackState(TriggerKey<WK> triggerKey, Runnable callback, long scheduledTimeMs, long seqNum) {
       this.triggerKey = triggerKey;
       this.callback = callback;
       this.scheduledTimeMs = scheduledTimeMs;
+      this.seqNum = seqNum;
     }
 
     private Runnable getCallback() {
@@ -107,14 +211,19 @@ public class TriggerScheduler<WK> {
     }
 
     @Override
-    public int compareTo(TriggerCallbackState<WK> other) {
-      return Long.compare(this.scheduledTimeMs, other.scheduledTimeMs);
+    public int compareTo(TriggerCallbackState other) {
+      int result = Long.compare(this.scheduledTimeMs, other.scheduledTimeMs);
+      return result != 0 ? result : Long.compare(this.seqNum, other.seqNum);
     }
 
     @Override
     public boolean cancel() {
       LOG.trace("Cancelled a callback: {} at {} for triggerKey {}", new Object[] {callback, scheduledTimeMs, triggerKey});
-      return pendingCallbacks.remove(this);
+      if (index < 0) {
+        return false;
+      }
+      TriggerScheduler.this.remove(this);
+      return true;
     }
   }
 }
@@ -21,15 +21,22 @@
 package org.apache.samza.operators.impl;
 
 import com.google.common.base.Preconditions;
+import org.apache.samza.config.Config;
+import org.apache.samza.config.TaskConfig;
+import org.apache.samza.config.TaskConfigJava;
 import org.apache.samza.context.Context;
+import org.apache.samza.metrics.Counter;
+import org.apache.samza.operators.functions.CombineFunction;
 import org.apache.samza.operators.functions.FoldLeftFunction;
 import org.apache.samza.operators.functions.MapFunction;
 import org.apache.samza.operators.functions.SupplierFunction;
+import org.apache.samza.operators.impl.store.BufferedTimeSeriesStore;
 import org.apache.samza.operators.impl.store.TimeSeriesKey;
 import org.apache.samza.operators.impl.store.TimeSeriesStore;
 import org.apache.samza.operators.impl.store.TimeSeriesStoreImpl;
 import org.apache.samza.operators.spec.OperatorSpec;
 import org.apache.samza.operators.spec.WindowOperatorSpec;
+import org.apache.samza.operators.triggers.Cancellable;
 import org.apache.samza.operators.triggers.FiringType;
 import org.apache.samza.operators.triggers.RepeatingTriggerImpl;
 import org.apache.samza.operators.triggers.TimeTrigger;
@@ -42,6 +49,8 @@ import org.apache.samza.operators.windows.WindowPane;
 import org.apache.samza.operators.windows.internal.WindowInternal;
 import org.apache.samza.operators.windows.internal.WindowType;
 import org.apache.samza.storage.kv.ClosableIterator;
+import org.apache.samza.storage.kv.Entry;
+import org.apache.samza.storage.kv.KeyValueIterator;
 import org.apache.samza.storage.kv.KeyValueStore;
 import org.apache.samza.task.MessageCollector;
 import org.apache.samza.task.TaskCoordinator;
@@ -55,10 +64,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 /**
@@ -80,6 +91,25 @@ import java.util.stream.Collectors;
  *
  * The {@link WindowOperatorImpl} checks if the trigger fired and returns the result of the firing.
  *
+ * <p> Windows with an event time extractor are assigned from the timestamp in each message instead of the clock.
+ * Their default panes are not scheduled through the {@link TriggerScheduler}. Instead, they are emitted in
+ * {@link #handleWatermark} once the watermark passes the end of the window. State for a window is retained until
+ * the watermark also passes its allowed lateness, and late messages within it emit {@link FiringType#LATE} panes.
+ * The open windows are tracked in memory and rebuilt from the store on init.
+ *
+ * <p> Hopping windows are not tracked per window either. Messages are folded into one aggregate per hop-sized slice
+ * in the store, and on every hop a pane is emitted for each key by combining the slices of its latest window. With
+ * a subtract function, the value of the previous window is kept in memory and only the slices that entered and left
+ * it are applied. Slices are removed from the store once they leave the latest window.
+ *
+ * <p> If {@link TaskConfigJava#WINDOW_AGGREGATION_BUFFER_SIZE} is set, the values of aggregating tumbling and hopping
+ * windows are buffered in a {@link BufferedTimeSeriesStore}, and only written to the store on eviction, on range
+ * reads and in {@link #handleCommit()}.
+ *
+ * <p> If {@link WindowInternal#shouldPersistTriggers()} is set, the {@link TriggerScheduler} persists the deadlines of
+ * default triggers to a separate store. On init, a trigger is created for every persisted deadline, and its window is
+ * emitted once the deadline passes, unless a new message for the window schedules the trigger again first.
+ *
  * @param <M> the type of the incoming message
  * @param <K> the type of the key in the incoming message
  *
@@ -94,10 +124,31 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
   private final FoldLeftFunction<M, Object> foldLeftFn;
   private final SupplierFunction<Object> initializer;
   private final MapFunction<M, K> keyFn;
-
-  private final TriggerScheduler<K> triggerScheduler;
+  private final MapFunction<M, Long> eventTimeFn;
+  private final CombineFunction<Object> combineFn;
+  private final CombineFunction<Object> subtractFn;
+  private final long windowSizeMs;
+  private final long hopMs;
+  private final long allowedLatenessMs;
+  private final boolean isEventTimeWindow;
+  private final boolean isHoppingWindow;
+
+  private TriggerScheduler<K> triggerScheduler;
   private final Map<TriggerKey<K>, TriggerImplHandler> triggers = new HashMap<>();
   private TimeSeriesStore<K, Object> timeSeriesStore;
+  // write-back buffer for the values of aggregating windows, if enabled
+  private BufferedTimeSeriesStore<K, Object> aggregationBuffer;
+
+  // window start -> keys, for event time windows whose default pane has not been emitted yet
+  private final TreeMap<Long, Set<K>> pendingWindows = new TreeMap<>();
+  // window start -> keys, for event time windows whose state is retained for late messages
+  private final TreeMap<Long, Set<K>> firedWindows = new TreeMap<>();
+  private Counter droppedLateMessages;
+
+  // key -> state of its hopping windows, for keys with a slice in the latest or a later window
+  private final Map<K, HoppingWindowState> hoppingWindows = new HashMap<>();
+  // end of the next hopping window to emit
+  private long nextHopEndMs;
 
   public WindowOperatorImpl(WindowOperatorSpec<M, K, Object> windowOpSpec, Clock clock) {
     this.windowOpSpec = windowOpSpec;
@@ -106,6 +157,15 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
     this.foldLeftFn = window.getFoldLeftFunction();
     this.initializer = window.getInitializer();
     this.keyFn = window.getKeyExtractor();
+    this.eventTimeFn = window.getEventTimeExtractor();
+    this.combineFn = window.getCombineFunction();
+    this.subtractFn = window.getSubtractFunction();
+    this.isHoppingWindow = window.getWindowType() == WindowType.HOPPING;
+    this.hopMs = isHoppingWindow ? ((TimeTrigger<M>) window.getDefaultTrigger()).getDuration().toMillis() : 0;
+    this.windowSizeMs = window.getWindowType() == WindowType.TUMBLING
+        ? ((TimeTrigger<M>) window.getDefaultTrigger()).getDuration().toMillis() : window.getWindowSizeMs();
+    this.allowedLatenessMs = window.getAllowedLatenessMs();
+    this.isEventTimeWindow = eventTimeFn != null && window.getWindowType() == WindowType.TUMBLING;
     this.triggerScheduler= new TriggerScheduler(clock);
   }
 
@@ -128,9 +188,110 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
     if (foldLeftFn != null) {
       foldLeftFn.init(context);
       timeSeriesStore = new TimeSeriesStoreImpl(store, false);
+
+      // Session windows look up the earliest value of a key with a range read for every message, which would write
+      // back the buffer each time, so only the other window types use it. The buffer is not thread-safe, and with
+      // async commit the commit that writes it back runs concurrently with process, so it is not used then either.
+      Config config = context.getJobContext().getConfig();
+      int bufferSize = new TaskConfigJava(config).getWindowAggregationBufferSize();
+      if (bufferSize > 0 && window.getWindowType() != WindowType.SESSION && !new TaskConfig(config).getAsyncCommit()) {
+        aggregationBuffer = new BufferedTimeSeriesStore<>(timeSeriesStore, bufferSize);
+        timeSeriesStore = aggregationBuffer;
+      }
     } else {
       timeSeriesStore = new TimeSeriesStoreImpl(store, true);
     }
+
+    if (eventTimeFn != null) {
+      eventTimeFn.init(context);
+    }
+
+    if (combineFn != null) {
+      combineFn.init(context);
+    }
+
+    if (subtractFn != null) {
+      subtractFn.init(context);
+    }
+
+    if (isHoppingWindow) {
+      restoreHoppingWindows(store);
+    }
+
+    if (isEventTimeWindow) {
+      droppedLateMessages = context.getTaskContext().getTaskMetricsRegistry()
+          .newCounter(METRICS_GROUP, getOpImplId() + "-dropped-late-messages");
+      restorePendingWindows(store);
+    }
+
+    if (windowOpSpec.shouldPersistTriggers()) {
+      KeyValueStore<TimeSeriesKey<K>, Long> triggerStore =
+          (KeyValueStore<TimeSeriesKey<K>, Long>) context.getTaskContext().getStore(windowOpSpec.getTriggerStoreName());
+      triggerScheduler = new TriggerScheduler<>(clock, triggerStore);
+      restoreTriggers(triggerStore);
+    }
+  }
+
+  /**
+   * Creates the default trigger of every window with a persisted deadline, and schedules it to fire at that deadline.
+   */
+  private void restoreTriggers(KeyValueStore<TimeSeriesKey<K>, Long> triggerStore) {
+    Map<TriggerKey<K>, Long> deadlines = new HashMap<>();
+    KeyValueIterator<TimeSeriesKey<K>, Long> iterator = triggerStore.all();
+    try {
+      while (iterator.hasNext()) {
+        Entry<TimeSeriesKey<K>, Long> entry = iterator.next();
+        TimeSeriesKey<K> timeSeriesKey = entry.getKey();
+        deadlines.put(new TriggerKey<>(FiringType.DEFAULT, timeSeriesKey.getKey(), timeSeriesKey.getTimestamp()),
+            entry.getValue());
+      }
+    } finally {
+      iterator.close();
+    }
+
+    // restoring a trigger persists its deadline again, so the store is not updated while it is iterated
+    deadlines.forEach((triggerKey, deadlineMs) ->
+        getOrCreateTriggerImplHandler(triggerKey, window.getDefaultTrigger()).restore(triggerKey, deadlineMs));
+    LOG.info("Restored {} triggers", deadlines.size());
+  }
+
+  /**
+   * Removes the slices that are older than the next hopping window to emit, and tracks the keys of the remaining
+   * ones so that they are emitted after a restart.
+   */
+  private void restoreHoppingWindows(KeyValueStore<TimeSeriesKey<K>, Object> store) {
+    long now = clock.currentTimeMillis();
+    nextHopEndMs = now - now % hopMs + hopMs;
+    timeSeriesStore.removeBefore(Math.max(0, nextHopEndMs - windowSizeMs));
+
+    KeyValueIterator<TimeSeriesKey<K>, Object> iterator = store.all();
+    try {
+      while (iterator.hasNext()) {
+        TimeSeriesKey<K> timeSeriesKey = iterator.next().getKey();
+        HoppingWindowState state = hoppingWindows.computeIfAbsent(timeSeriesKey.getKey(), k -> new HoppingWindowState());
+        state.lastSliceMs = Math.max(state.lastSliceMs, timeSeriesKey.getTimestamp());
+      }
+    } finally {
+      iterator.close();
+    }
+    LOG.info("Restored hopping windows for {} keys", hoppingWindows.size());
+  }
+
+  /**
+   * Rebuilds the open event time windows from the keys in the store, so that their panes are emitted once the
+   * watermark passes them after a restart.
+   */
+  private void restorePendingWindows(KeyValueStore<TimeSeriesKey<K>, Object> store) {
+    KeyValueIterator<TimeSeriesKey<K>, Object> iterator = store.all();
+    try {
+      while (iterator.hasNext()) {
+        TimeSeriesKey<K> timeSeriesKey = iterator.next().getKey();
+        pendingWindows.computeIfAbsent(timeSeriesKey.getTimestamp(), t -> new HashSet<>()).add(timeSeriesKey.getKey());
+      }
+    } finally {
+      iterator.close();
+    }
+    LOG.info("Restored {} pending event time windows", pendingWindows.size());
   }
 
   @Override
@@ -142,6 +303,13 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
     K key = (keyFn != null) ? keyFn.apply(message) : null;
     long timestamp = getWindowTimestamp(message);
 
+    if (isEventTimeWindow && isPastAllowedLateness(timestamp)) {
+      LOG.trace("Dropping message for window {} that is past its allowed lateness", timestamp);
+      droppedLateMessages.increment();
+      return results;
+    }
+    boolean isLate = isEventTimeWindow && isPastWindowEnd(timestamp);
+
     // For aggregating windows, we only store the aggregated window value.
     // For non-aggregating windows, we store all messages in the window.
     if (foldLeftFn == null) {
@@ -161,7 +329,7 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
       timeSeriesStore.put(key, aggregatedValue, timestamp); // store is in over-write mode
     }
 
-    if (window.getEarlyTrigger() != null) {
+    if (window.getEarlyTrigger() != null && !isLate && !isHoppingWindow) {
       TriggerKey<K> triggerKey = new TriggerKey<>(FiringType.EARLY, key, timestamp);
       TriggerImplHandler triggerImplHandler = getOrCreateTriggerImplHandler(triggerKey, window.getEarlyTrigger());
       Optional<WindowPane<K, Object>> maybeTriggeredPane =
@@ -169,7 +337,17 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
       maybeTriggeredPane.ifPresent(results::add);
     }
 
-    if (window.getDefaultTrigger() != null) {
+    if (isHoppingWindow) {
+      HoppingWindowState state = hoppingWindows.computeIfAbsent(key, k -> new HoppingWindowState());
+      state.lastSliceMs = Math.max(state.lastSliceMs, timestamp);
+    } else if (isEventTimeWindow) {
+      if (isLate) {
+        // the default pane was already emitted, so emit an updated pane right away
+        fireEventTimePane(FiringType.LATE, key, timestamp).ifPresent(results::add);
+      } else {
+        pendingWindows.computeIfAbsent(timestamp, t -> new HashSet<>()).add(key);
+      }
+    } else if (window.getDefaultTrigger() != null) {
       TriggerKey<K> triggerKey = new TriggerKey<>(FiringType.DEFAULT, key, timestamp);
       TriggerImplHandler triggerImplHandler = getOrCreateTriggerImplHandler(triggerKey, window.getDefaultTrigger());
       Optional<WindowPane<K, Object>> maybeTriggeredPane =
@@ -193,10 +371,23 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
         maybeTriggeredPane.ifPresent(results::add);
       }
     }
+    if (isHoppingWindow) {
+      results.addAll(slideHoppingWindows(clock.currentTimeMillis()));
+    }
     LOG.trace("Triggered panes: " + results.size());
     return results;
   }
 
+  @Override
+  protected Collection<WindowPane<K, Object>> handleWatermark(long inputWatermark, MessageCollector collector,
+      TaskCoordinator coordinator) {
+    if (!isEventTimeWindow) {
+      return Collections.emptyList();
+    }
+    LOG.trace("Processing event time windows for watermark {}", inputWatermark);
+    return fireEventTimeWindows(inputWatermark);
+  }
+
   @Override
   protected OperatorSpec<M, WindowPane<K, Object>> getOperatorSpec() {
     return windowOpSpec;
@@ -210,9 +401,23 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
       Optional<WindowPane<K, Object>> triggerResult = onTriggerFired(triggerKey, collector, coordinator);
       triggerResult.ifPresent(results::add);
     }
+    if (isEventTimeWindow) {
+      results.addAll(fireEventTimeWindows(Long.MAX_VALUE));
+    }
+    if (isHoppingWindow) {
+      results.addAll(fireHoppingWindows(nextHopEndMs));
+      nextHopEndMs += hopMs;
+    }
     return results;
   }
 
+  @Override
+  protected void handleCommit() {
+    if (aggregationBuffer != null) {
+      aggregationBuffer.writeBack();
+    }
+  }
+
   @Override
   protected void handleClose() {
     if (foldLeftFn != null) {
@@ -227,6 +432,15 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
     if (keyFn != null) {
       keyFn.close();
     }
+    if (eventTimeFn != null) {
+      eventTimeFn.close();
+    }
+    if (combineFn != null) {
+      combineFn.close();
+    }
+    if (subtractFn != null) {
+      subtractFn.close();
+    }
   }
 
   private TriggerImplHandler getOrCreateTriggerImplHandler(TriggerKey<K> triggerKey, Trigger<M> trigger) {
@@ -259,6 +473,11 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
 
     if (existingState == null || existingState.size() == 0) {
       LOG.trace("No state found for triggerKey: {}", triggerKey);
+      if (triggerKey.getType() == FiringType.DEFAULT) {
+        // the window is done, so its triggers must not be retained
+        cancelTrigger(triggerKey, true);
+        cancelTrigger(new TriggerKey<>(FiringType.EARLY, key, timestamp), true);
+      }
       return Optional.empty();
     }
 
@@ -295,6 +514,144 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
     return Optional.of(paneOutput);
   }
 
+  /**
+   * Emits the default pane for every event time window that ends at or before the {@code watermark}, and removes the
+   * state for windows that are also past their allowed lateness.
+   */
+  private List<WindowPane<K, Object>> fireEventTimeWindows(long watermark) {
+    List<WindowPane<K, Object>> results = new ArrayList<>();
+    while (!pendingWindows.isEmpty() && pendingWindows.firstKey() <= watermark - windowSizeMs) {
+      Map.Entry<Long, Set<K>> pendingWindow = pendingWindows.pollFirstEntry();
+      for (K key : pendingWindow.getValue()) {
+        fireEventTimePane(FiringType.DEFAULT, key, pendingWindow.getKey()).ifPresent(results::add);
+      }
+    }
+
+    while (!firedWindows.isEmpty() && isPastAllowedLateness(firedWindows.firstKey(), watermark)) {
+      Map.Entry<Long, Set<K>> firedWindow = firedWindows.pollFirstEntry();
+      LOG.trace("Clearing state for {} keys in window {}", firedWindow.getValue().size(), firedWindow.getKey());
+      for (K key : firedWindow.getValue()) {
+        timeSeriesStore.remove(key, firedWindow.getKey());
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Emits a pane for an event time window. State is retained for late messages in the accumulating mode with a
+   * non-zero allowed lateness, and removed otherwise.
+   */
+  private Optional<WindowPane<K, Object>> fireEventTimePane(FiringType firingType, K key, long timestamp) {
+    if (firingType == FiringType.DEFAULT) {
+      cancelTrigger(new TriggerKey<>(FiringType.EARLY, key, timestamp), true);
+    }
+
+    List<Object> existingState = getValues(key, timestamp);
+    if (existingState.isEmpty()) {
+      LOG.trace("No state found for key {} in window {}", key, timestamp);
+      return Optional.empty();
+    }
+
+    Object windowVal = foldLeftFn == null ? existingState : existingState.get(0);
+    WindowPane<K, Object> paneOutput = computePaneOutput(new TriggerKey<>(firingType, key, timestamp), windowVal);
+
+    if (window.getAccumulationMode() == AccumulationMode.DISCARDING || allowedLatenessMs == 0) {
+      timeSeriesStore.remove(key, timestamp);
+    } else {
+      firedWindows.computeIfAbsent(timestamp, t -> new HashSet<>()).add(key);
+    }
+    return Optional.of(paneOutput);
+  }
+
+  /**
+   * Emits the hopping windows for every hop that ended at or before {@code now}.
+   */
+  private List<WindowPane<K, Object>> slideHoppingWindows(long now) {
+    List<WindowPane<K, Object>> results = new ArrayList<>();
+    while (nextHopEndMs <= now) {
+      if (hoppingWindows.isEmpty()) {
+        // nothing to emit, skip ahead to the next hop
+        nextHopEndMs = now - now % hopMs + hopMs;
+        break;
+      }
+      results.addAll(fireHoppingWindows(nextHopEndMs));
+      nextHopEndMs += hopMs;
+    }
+    return results;
+  }
+
+  /**
+   * Emits the pane for the hopping window of every key that ends at {@code windowEndMs}, and removes the slice that
+   * left the window since the previous hop.
+   */
+  private List<WindowPane<K, Object>> fireHoppingWindows(long windowEndMs) {
+    List<WindowPane<K, Object>> results = new ArrayList<>();
+    long windowStartMs = windowEndMs - windowSizeMs;
+    long leavingSliceMs = windowStartMs - hopMs;
+
+    Iterator<Map.Entry<K, HoppingWindowState>> iterator = hoppingWindows.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<K, HoppingWindowState> entry = iterator.next();
+      K key = entry.getKey();
+      HoppingWindowState state = entry.getValue();
+
+      if (subtractFn != null && state.value != null) {
+        for (Object slice : getValues(key, windowEndMs - hopMs)) {
+          state.value = combineFn.apply(state.value, slice);
+          state.sliceCount++;
+        }
+        if (leavingSliceMs >= 0) {
+          for (Object slice : getValues(key, leavingSliceMs)) {
+            state.value = subtractFn.apply(state.value, slice);
+            state.sliceCount--;
+          }
+        }
+      } else {
+        // start from a new initial value rather than the first slice, which is the object held by the store and
+        // must not be changed by a combiner that merges into its first argument
+        state.value = initializer.get();
+        state.sliceCount = 0;
+        long firstSliceMs = Math.max(0, windowStartMs);
+        for (TimestampedValue<Object> slice : toList(timeSeriesStore.get(key, firstSliceMs, windowEndMs))) {
+          state.value = combineFn.apply(state.value, slice.getValue());
+          state.sliceCount++;
+        }
+      }
+      if (leavingSliceMs >= 0) {
+        timeSeriesStore.remove(key, leavingSliceMs);
+      }
+
+      if (state.sliceCount > 0) {
+        results.add(computePaneOutput(new TriggerKey<>(FiringType.DEFAULT, key, windowStartMs), state.value));
+      }
+      if (subtractFn == null || state.sliceCount == 0) {
+        state.value = null;
+      }
+
+      if (state.lastSliceMs < windowStartMs + hopMs) {
+        // none of the slices of the key are in the next window
+        LOG.trace("Clearing hopping window state for key {}", key);
+        if (windowStartMs >= 0) {
+          timeSeriesStore.remove(key, windowStartMs);
+        }
+        iterator.remove();
+      }
+    }
+    return results;
+  }
+
+  private boolean isPastWindowEnd(long timestamp) {
+    return timestamp <= getInputWatermark() - windowSizeMs;
+  }
+
+  private boolean isPastAllowedLateness(long timestamp) {
+    return isPastAllowedLateness(timestamp, getInputWatermark());
+  }
+
+  private boolean isPastAllowedLateness(long timestamp, long watermark) {
+    return timestamp <= watermark - windowSizeMs - allowedLatenessMs;
+  }
+
   /**
    * Computes the pane output corresponding to a {@link TriggerKey} that fired.
    */
@@ -324,7 +681,11 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
    *
    * In the case of tumbling windows, timestamp of a window is defined as the start timestamp of its corresponding window
    * interval. For instance, if the tumbling interval is 10 seconds, all messages that arrive between [1000, 1010]
-   * are assigned to the window with timestamp "1000"
+   * are assigned to the window with timestamp "1000". For event time windows, the event time of the message is used
+   * instead of its arrival time.
+   *
+   * In the case of hopping windows, timestamp is defined as the start timestamp of the hop-sized slice the message
+   * arrives in. A slice is part of every window that overlaps it.
    *
    * In the case of session windows, timestamp is defined as the timestamp of the earliest message in the window.
    * For instance, if the session gap is 10 seconds, and the first message in the window arrives at "1002" seconds,
@@ -335,11 +696,14 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
    */
   private long getWindowTimestamp(M message) {
     if (window.getWindowType() == WindowType.TUMBLING) {
-      long triggerDurationMs = ((TimeTrigger<M>) window.getDefaultTrigger()).getDuration().toMillis();
-      final long now = clock.currentTimeMillis();
+      final long now = eventTimeFn != null ? eventTimeFn.apply(message) : clock.currentTimeMillis();
       // assign timestamp to be the start timestamp of the window boundary
-      long timestamp = now - now % triggerDurationMs;
+      long timestamp = now - now % windowSizeMs;
       return timestamp;
+    } else if (isHoppingWindow) {
+      final long now = clock.currentTimeMillis();
+      // assign timestamp to be the start timestamp of the slice boundary
+      return now - now % hopMs;
     } else {
       K key = keyFn.apply(message);
       // get the value with the earliest timestamp for the provided key.
@@ -392,6 +756,17 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
     return Collections.unmodifiableList(values);
   }
 
+  /**
+   * In-memory state for the hopping windows of a key.
+   */
+  private static class HoppingWindowState {
+    // start timestamp of the latest slice of the key
+    private long lastSliceMs = Long.MIN_VALUE;
+    // value of the latest emitted window and the number of slices in it, retained when there is a subtract function
+    private Object value;
+    private int sliceCount;
+  }
+
   /**
    * State corresponding to a created {@link TriggerImpl} instance.
    */
@@ -400,6 +775,9 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
     private final TriggerImpl<M, K> impl;
     // Guard to ensure that we don't invoke onMessage or onTimer on already cancelled triggers
     private boolean isCancelled = false;
+    // The callback for the persisted deadline this trigger was restored with, until a message schedules it again
+    private Cancellable restoredCallback = null;
+    private boolean isRestoredDeadlinePassed = false;
 
     public TriggerImplHandler(TriggerKey<K> key, TriggerImpl<M, K> impl) {
       this.impl = impl;
@@ -409,6 +787,10 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
         MessageCollector collector, TaskCoordinator coordinator) {
       if (!isCancelled) {
         LOG.trace("Forwarding callbacks for {}", message);
+        if (restoredCallback != null) {
+          restoredCallback.cancel();
+          restoredCallback = null;
+        }
         impl.onMessage(message, triggerScheduler);
 
         if (impl.shouldFire()) {
@@ -424,7 +806,7 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
 
     public Optional<WindowPane<K, Object>> onTimer(TriggerKey<K> key, MessageCollector collector,
         TaskCoordinator coordinator) {
-      if (impl.shouldFire() && !isCancelled) {
+      if ((impl.shouldFire() || isRestoredDeadlinePassed) && !isCancelled) {
         LOG.trace("Triggering timer triggers");
 
         // repeating trigger can trigger multiple times, So, clear the trigger to allow future triggerings.
@@ -436,8 +818,18 @@ public class WindowOperatorImpl<M, K> extends OperatorImpl<M, WindowPane<K, Obje
       return Optional.empty();
     }
 
+    public void restore(TriggerKey<K> key, long deadlineMs) {
+      restoredCallback = triggerScheduler.scheduleCallback(() -> {
+          LOG.trace("Restored trigger deadline passed");
+          isRestoredDeadlinePassed = true;
+        }, deadlineMs, key);
+    }
+
     public void cancel() {
       impl.cancel();
+      if (restoredCallback != null) {
+        restoredCallback.cancel();
+      }
       isCancelled = true;
     }
 
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.operators.impl.store;
+
+import org.apache.samza.storage.kv.ClosableIterator;
+import org.apache.samza.util.TimestampedValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A write-back buffer on top of a {@link TimeSeriesStore} in overwrite mode, for state that is read and updated
+ * for the same key and timestamp many times in a row, like the aggregated value of a window.
+ *
+ * <p>
+ * The most recently used values are kept in memory keyed by their key and timestamp. Point lookups for a buffered
+ * value are served from memory, and updates to it are not written to the underlying store until it is evicted to
+ * make room for another value, or until {@link #writeBack()} is called. Range reads, range removals and
+ * {@link #flush()} write back all buffered values first, so they always see the latest state.
+ *
+ * <p> This class is not thread-safe. {@link #writeBack()} must be called before the underlying store is flushed for
+ * a commit, so that the committed state includes all buffered updates.
+ *
+ * @param <K> the type of key in the store
+ * @param <V> the type of value in the store
+ */
+public class BufferedTimeSeriesStore<K, V> implements TimeSeriesStore<K, V> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BufferedTimeSeriesStore.class);
+
+  private final TimeSeriesStore<K, V> store;
+  private final LinkedHashMap<TimeSeriesKey<K>, V> buffer;
+
+  /**
+   * Creates a {@link BufferedTimeSeriesStore}
+   *
+   * @param store the underlying store, which must be in overwrite mode
+   * @param maxSize the maximum number of values to buffer
+   */
+  public BufferedTimeSeriesStore(TimeSeriesStore<K, V> store, int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("The buffer size must be positive, but was " + maxSize);
+    }
+    this.store = store;
+    this.buffer = new LinkedHashMap<TimeSeriesKey<K>, V>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<TimeSeriesKey<K>, V> eldest) {
+        if (size() > maxSize) {
+          TimeSeriesKey<K> timeSeriesKey = eldest.getKey();
+          store.put(timeSeriesKey.getKey(), eldest.getValue(), timeSeriesKey.getTimestamp());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  @Override
+  public void put(K key, V val, long timestamp) {
+    buffer.put(new TimeSeriesKey<>(key, timestamp, 0), val);
+  }
+
+  @Override
+  public ClosableIterator<TimestampedValue<V>> get(K key, long startTimestamp, long endTimestamp) {
+    writeBack();
+    return store.get(key, startTimestamp, endTimestamp);
+  }
+
+  @Override
+  public ClosableIterator<TimestampedValue<V>> get(K key, long startTimestamp, long endTimestamp, int maxMessages) {
+    writeBack();
+    return store.get(key, startTimestamp, endTimestamp, maxMessages);
+  }
+
+  @Override
+  public ClosableIterator<TimestampedValue<V>> get(K key, long timestamp) {
+    V val = buffer.get(new TimeSeriesKey<>(key, timestamp, 0));
+    if (val != null) {
+      return new SingleValueIterator<>(new TimestampedValue<>(val, timestamp));
+    }
+    return store.get(key, timestamp);
+  }
+
+  @Override
+  public void remove(K key, long startTimestamp, long endTimeStamp) {
+    writeBack();
+    store.remove(key, startTimestamp, endTimeStamp);
+  }
+
+  @Override
+  public void remove(K key, long timestamp) {
+    buffer.remove(new TimeSeriesKey<>(key, timestamp, 0));
+    store.remove(key, timestamp);
+  }
+
+  @Override
+  public void removeBefore(long endTimestamp) {
+    writeBack();
+    store.removeBefore(endTimestamp);
+  }
+
+  /**
+   * Writes all buffered values to the underlying store and clears the buffer, without flushing the store.
+   */
+  public void writeBack() {
+    if (buffer.isEmpty()) {
+      return;
+    }
+    LOG.trace("Writing back {} buffered values", buffer.size());
+    for (Map.Entry<TimeSeriesKey<K>, V> entry : buffer.entrySet()) {
+      store.put(entry.getKey().getKey(), entry.getValue(), entry.getKey().getTimestamp());
+    }
+    buffer.clear();
+  }
+
+  @Override
+  public void flush() {
+    writeBack();
+    store.flush();
+  }
+
+  @Override
+  public void close() {
+    writeBack();
+    store.close();
+  }
+
+  /* package private for testing */
+  int getBufferedSize() {
+    return buffer.size();
+  }
+
+  private static class SingleValueIterator<T> implements ClosableIterator<T> {
+    private final Iterator<T> iterator;
+
+    SingleValueIterator(T value) {
+      this.iterator = Collections.singletonList(value).iterator();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public boolean hasNext() {
+      return iterator.hasNext();
+    }
+
+    @Override
+    public T next() {
+      return iterator.next();
+    }
+  }
+}
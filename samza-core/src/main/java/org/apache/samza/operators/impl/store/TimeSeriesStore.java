@@ -105,6 +105,17 @@ public interface TimeSeriesStore<K, V> {
    */
   void remove(K key, long timestamp);
 
+  /**
+   * Removes all values, for all keys, with a timestamp earlier than {@code endTimestamp}.
+   *
+   * <p> Unlike {@link #remove(Object, long, long)}, this scans the entire store and should only be used
+   * periodically to purge expired entries.
+   *
+   * @param endTimestamp the timestamp before which values are removed, exclusive
+   * @throws IllegalArgumentException when the provided timestamp is negative
+   */
+  void removeBefore(long endTimestamp);
+
   /**
    * Flushes this time series store, if applicable.
    */
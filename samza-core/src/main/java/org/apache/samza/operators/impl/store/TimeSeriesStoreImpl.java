@@ -27,6 +27,7 @@ import org.apache.samza.util.TimestampedValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -153,13 +154,13 @@ public class TimeSeriesStoreImpl<K, V> implements TimeSeriesStore<K, V> {
 
     List<TimeSeriesKey<K>> keysToDelete = new LinkedList<>();
 
-    KeyValueIterator<TimeSeriesKey<K>, V> range = kvStore.range(fromKey, toKey);
+    ClosableIterator<TimeSeriesKey<K>> keys = kvStore.rangeKeys(fromKey, toKey);
     try {
-      while (range.hasNext()) {
-        keysToDelete.add(range.next().getKey());
+      while (keys.hasNext()) {
+        keysToDelete.add(keys.next());
       }
     } finally {
-      range.close();
+      keys.close();
     }
     kvStore.deleteAll(keysToDelete);
   }
@@ -169,6 +170,27 @@ public class TimeSeriesStoreImpl<K, V> implements TimeSeriesStore<K, V> {
     remove(key, timestamp, timestamp + 1);
   }
 
+  @Override
+  public void removeBefore(long endTimestamp) {
+    validateRange(0, endTimestamp);
+    List<TimeSeriesKey<K>> keysToDelete = new ArrayList<>();
+
+    KeyValueIterator<TimeSeriesKey<K>, V> entries = kvStore.all();
+    try {
+      while (entries.hasNext()) {
+        TimeSeriesKey<K> timeSeriesKey = entries.next().getKey();
+        if (timeSeriesKey.getTimestamp() < endTimestamp) {
+          keysToDelete.add(timeSeriesKey);
+        }
+      }
+    } finally {
+      entries.close();
+    }
+
+    LOG.trace("Removing {} entries from the store before {}", keysToDelete.size(), endTimestamp);
+    kvStore.deleteAll(keysToDelete);
+  }
+
   @Override
   public void flush() {
     kvStore.flush();
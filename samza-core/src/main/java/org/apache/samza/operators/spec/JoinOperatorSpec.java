@@ -22,8 +22,8 @@ import com.google.common.collect.ImmutableMap;
 import org.apache.samza.operators.functions.JoinFunction;
 import org.apache.samza.operators.functions.ScheduledFunction;
 import org.apache.samza.operators.functions.WatermarkFunction;
+import org.apache.samza.operators.impl.store.TimeSeriesKeySerde;
 import org.apache.samza.operators.impl.store.TimestampedValueSerde;
-import org.apache.samza.util.TimestampedValue;
 import org.apache.samza.serializers.Serde;
 
 import java.util.Arrays;
@@ -44,6 +44,7 @@ public class JoinOperatorSpec<K, M, OM, JM> extends OperatorSpec<Object, JM> imp
 
   private final JoinFunction<K, M, OM, JM> joinFn;
   private final long ttlMs;
+  private final boolean windowed;
 
   private final OperatorSpec<?, M> leftInputOpSpec;
   private final OperatorSpec<?, OM> rightInputOpSpec;
@@ -53,11 +54,11 @@ public class JoinOperatorSpec<K, M, OM, JM> extends OperatorSpec<Object, JM> imp
    * deserialized once during startup in SamzaContainer. They don't need to be deserialized here on a per-task basis
    */
   private transient final Serde<K> keySerde;
-  private transient final Serde<TimestampedValue<M>> messageSerde;
-  private transient final Serde<TimestampedValue<OM>> otherMessageSerde;
+  private transient final Serde<M> messageSerde;
+  private transient final Serde<OM> otherMessageSerde;
 
   /**
-   * Default constructor for a {@link JoinOperatorSpec}.
+   * Constructor for a {@link JoinOperatorSpec} that retains only the latest message per key in each stream.
    *
    * @param leftInputOpSpec  the operator spec for the stream on the left side of the join
    * @param rightInputOpSpec  the operator spec for the stream on the right side of the join
@@ -68,14 +69,31 @@ public class JoinOperatorSpec<K, M, OM, JM> extends OperatorSpec<Object, JM> imp
   JoinOperatorSpec(OperatorSpec<?, M> leftInputOpSpec, OperatorSpec<?, OM> rightInputOpSpec,
       JoinFunction<K, M, OM, JM> joinFn, Serde<K> keySerde, Serde<M> messageSerde, Serde<OM> otherMessageSerde,
       long ttlMs, String opId) {
+    this(leftInputOpSpec, rightInputOpSpec, joinFn, keySerde, messageSerde, otherMessageSerde, ttlMs, false, opId);
+  }
+
+  /**
+   * Default constructor for a {@link JoinOperatorSpec}.
+   *
+   * @param leftInputOpSpec  the operator spec for the stream on the left side of the join
+   * @param rightInputOpSpec  the operator spec for the stream on the right side of the join
+   * @param joinFn  the user-defined join function to get join keys and results
+   * @param ttlMs  the ttl in ms for retaining messages in each stream
+   * @param windowed  whether every message within {@code ttlMs} is retained, instead of only the latest one per key
+   * @param opId  the unique ID for this operator
+   */
+  JoinOperatorSpec(OperatorSpec<?, M> leftInputOpSpec, OperatorSpec<?, OM> rightInputOpSpec,
+      JoinFunction<K, M, OM, JM> joinFn, Serde<K> keySerde, Serde<M> messageSerde, Serde<OM> otherMessageSerde,
+      long ttlMs, boolean windowed, String opId) {
     super(OpCode.JOIN, opId);
     this.leftInputOpSpec = leftInputOpSpec;
     this.rightInputOpSpec = rightInputOpSpec;
     this.joinFn = joinFn;
     this.keySerde = keySerde;
-    this.messageSerde = new TimestampedValueSerde<>(messageSerde);
-    this.otherMessageSerde = new TimestampedValueSerde<>(otherMessageSerde);
+    this.messageSerde = messageSerde;
+    this.otherMessageSerde = otherMessageSerde;
     this.ttlMs = ttlMs;
+    this.windowed = windowed;
   }
 
   @Override
@@ -83,22 +101,34 @@ public class JoinOperatorSpec<K, M, OM, JM> extends OperatorSpec<Object, JM> imp
     String rocksDBStoreFactory = "org.apache.samza.storage.kv.RocksDbKeyValueStorageEngineFactory";
     String leftStoreName = getLeftOpId();
     String rightStoreName = getRightOpId();
-    Map<String, String> leftStoreCustomProps = ImmutableMap.of(
-        String.format("stores.%s.rocksdb.ttl.ms", leftStoreName), Long.toString(ttlMs),
-        String.format("stores.%s.changelog.kafka.cleanup.policy", leftStoreName), "delete",
-        String.format("stores.%s.changelog.kafka.retention.ms", leftStoreName), Long.toString(ttlMs));
-    Map<String, String> rightStoreCustomProps = ImmutableMap.of(
-        String.format("stores.%s.rocksdb.ttl.ms", rightStoreName), Long.toString(ttlMs),
-        String.format("stores.%s.changelog.kafka.cleanup.policy", rightStoreName), "delete",
-        String.format("stores.%s.changelog.kafka.retention.ms", rightStoreName), Long.toString(ttlMs));
+    Map<String, String> leftStoreCustomProps = getStoreCustomProps(leftStoreName);
+    Map<String, String> rightStoreCustomProps = getStoreCustomProps(rightStoreName);
+
+    // windowed joins retain every message in a time series store, and purge expired ranges themselves
+    Serde leftKeySerde = windowed ? new TimeSeriesKeySerde<>(this.keySerde) : this.keySerde;
+    Serde rightKeySerde = windowed ? new TimeSeriesKeySerde<>(this.keySerde) : this.keySerde;
+    Serde leftValueSerde = windowed ? this.messageSerde : new TimestampedValueSerde<>(this.messageSerde);
+    Serde rightValueSerde = windowed ? this.otherMessageSerde : new TimestampedValueSerde<>(this.otherMessageSerde);
 
     return Arrays.asList(
-        new StoreDescriptor(leftStoreName, rocksDBStoreFactory, this.keySerde, this.messageSerde,
+        new StoreDescriptor(leftStoreName, rocksDBStoreFactory, leftKeySerde, leftValueSerde,
             leftStoreName, leftStoreCustomProps),
-        new StoreDescriptor(rightStoreName, rocksDBStoreFactory, this.keySerde, this.otherMessageSerde,
+        new StoreDescriptor(rightStoreName, rocksDBStoreFactory, rightKeySerde, rightValueSerde,
             rightStoreName, rightStoreCustomProps));
   }
 
+  private Map<String, String> getStoreCustomProps(String storeName) {
+    if (windowed) {
+      return ImmutableMap.of(
+          String.format("stores.%s.changelog.kafka.cleanup.policy", storeName), "delete",
+          String.format("stores.%s.changelog.kafka.retention.ms", storeName), Long.toString(ttlMs));
+    }
+    return ImmutableMap.of(
+        String.format("stores.%s.rocksdb.ttl.ms", storeName), Long.toString(ttlMs),
+        String.format("stores.%s.changelog.kafka.cleanup.policy", storeName), "delete",
+        String.format("stores.%s.changelog.kafka.retention.ms", storeName), Long.toString(ttlMs));
+  }
+
   @Override
   public WatermarkFunction getWatermarkFn() {
     return joinFn instanceof WatermarkFunction ? (WatermarkFunction) joinFn : null;
@@ -133,4 +163,8 @@ public class JoinOperatorSpec<K, M, OM, JM> extends OperatorSpec<Object, JM> imp
     return ttlMs;
   }
 
+  public boolean isWindowed() {
+    return windowed;
+  }
+
 }
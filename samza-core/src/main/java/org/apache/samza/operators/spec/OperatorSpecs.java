@@ -189,6 +189,30 @@ public class OperatorSpecs {
     return new MergeOperatorSpec<>(opId);
   }
 
+  /**
+   * Creates a windowed {@link JoinOperatorSpec} that retains every message within {@code windowMs} in each stream.
+   *
+   * @param leftInputOpSpec  the operator spec for the stream on the left side of the join
+   * @param rightInputOpSpec  the operator spec for the stream on the right side of the join
+   * @param joinFn  the user-defined join function to get join keys and results
+   * @param keySerde  the serde for the join key
+   * @param messageSerde  the serde for messages in the stream on the left side of the join
+   * @param otherMessageSerde  the serde for messages in the stream on the right side of the join
+   * @param windowMs  the size of the join window in ms
+   * @param opId  the unique ID of the operator
+   * @param <K>  the type of join key
+   * @param <M>  the type of input message
+   * @param <OM>  the type of message in the other stream
+   * @param <JM>  the type of join result
+   * @return  the {@link JoinOperatorSpec}
+   */
+  public static <K, M, OM, JM> JoinOperatorSpec<K, M, OM, JM> createWindowedJoinOperatorSpec(
+      OperatorSpec<?, M> leftInputOpSpec, OperatorSpec<?, OM> rightInputOpSpec, JoinFunction<K, M, OM, JM> joinFn,
+      Serde<K> keySerde, Serde<M> messageSerde, Serde<OM> otherMessageSerde, long windowMs, String opId) {
+    return new JoinOperatorSpec<>(leftInputOpSpec, rightInputOpSpec, joinFn,
+        keySerde, messageSerde, otherMessageSerde, windowMs, true, opId);
+  }
+
   /**
    * Creates a {@link StreamTableJoinOperatorSpec} with a join function.
    *
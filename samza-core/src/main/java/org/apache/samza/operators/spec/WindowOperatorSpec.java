@@ -30,11 +30,14 @@ import org.apache.samza.operators.triggers.Trigger;
 import org.apache.samza.util.MathUtil;
 import org.apache.samza.operators.windows.WindowPane;
 import org.apache.samza.operators.windows.internal.WindowInternal;
+import org.apache.samza.operators.windows.internal.WindowType;
+import org.apache.samza.serializers.LongSerde;
 import org.apache.samza.serializers.Serde;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -79,6 +82,23 @@ public class WindowOperatorSpec<M, WK, WV> extends OperatorSpec<M, WindowPane<WK
     return window;
   }
 
+  /**
+   * Whether the deadlines of the default triggers of this window are persisted. Event time tumbling windows and
+   * hopping windows emit their default panes without triggers, so they never persist them.
+   *
+   * @return true if the deadlines of the default triggers are persisted to the store named by
+   *         {@link #getTriggerStoreName()}, false otherwise
+   */
+  public boolean shouldPersistTriggers() {
+    boolean hasTriggeredDefaultPanes = window.getWindowType() == WindowType.SESSION
+        || window.getWindowType() == WindowType.TUMBLING && window.getEventTimeExtractor() == null;
+    return window.shouldPersistTriggers() && hasTriggeredDefaultPanes;
+  }
+
+  public String getTriggerStoreName() {
+    return getOpId() + "-triggers";
+  }
+
   /**
    * Get the default triggering interval for this {@link WindowOperatorSpec}
    *
@@ -150,6 +170,14 @@ public class WindowOperatorSpec<M, WK, WV> extends OperatorSpec<M, WindowPane<WK
 
     StoreDescriptor descriptor = new StoreDescriptor(storeName, storeFactory, storeKeySerde, storeValSerde, storeName,
         Collections.emptyMap());
-    return Collections.singletonList(descriptor);
+    if (!shouldPersistTriggers()) {
+      return Collections.singletonList(descriptor);
+    }
+
+    // trigger deadlines are keyed by the key and start of their window, like the window state
+    String triggerStoreName = getTriggerStoreName();
+    StoreDescriptor triggerDescriptor = new StoreDescriptor(triggerStoreName, storeFactory,
+        new TimeSeriesKeySerde<>(window.getKeySerde()), new LongSerde(), triggerStoreName, Collections.emptyMap());
+    return Arrays.asList(descriptor, triggerDescriptor);
   }
 }
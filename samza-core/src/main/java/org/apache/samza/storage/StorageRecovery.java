@@ -251,7 +251,8 @@ public class StorageRecovery extends CommandLine {
             taskModel.getChangelogPartition(),
             systemAdmins,
             new StorageConfig(jobConfig).getChangeLogDeleteRetentionsInMs(),
-            new SystemClock());
+            new SystemClock(),
+            new StorageConfig(jobConfig).getLocalCheckpointsRetained());
 
         taskStorageManagers.add(taskStorageManager);
       }
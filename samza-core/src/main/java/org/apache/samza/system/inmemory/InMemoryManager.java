@@ -62,13 +62,13 @@ class InMemoryManager {
    */
   void put(SystemStreamPartition ssp, Object key, Object message) {
     List<IncomingMessageEnvelope> messages = bufferedMessages.get(ssp);
-    String offset = String.valueOf(messages.size());
 
+    IncomingMessageEnvelope messageEnvelope;
     if (message instanceof EndOfStreamMessage) {
-      offset = IncomingMessageEnvelope.END_OF_STREAM_OFFSET;
+      messageEnvelope = new IncomingMessageEnvelope(ssp, IncomingMessageEnvelope.END_OF_STREAM_OFFSET, key, message, 0);
+    } else {
+      messageEnvelope = new IncomingMessageEnvelope(ssp, (long) messages.size(), key, message, 0, 0);
     }
-
-    IncomingMessageEnvelope messageEnvelope = new IncomingMessageEnvelope(ssp, offset, key, message, 0);
     bufferedMessages.get(ssp)
         .add(messageEnvelope);
   }
@@ -128,7 +128,7 @@ public class CachingTable<K, V> implements ReadWriteTable<K, V> {
 
   @Override
   public CompletableFuture<V> getAsync(K key) {
-    readMetrics.numGets.inc();
+    readMetrics.numGets.increment();
     V value = cache.get(key);
     if (value != null) {
       hitCount.incrementAndGet();
@@ -164,7 +164,7 @@ public class CachingTable<K, V> implements ReadWriteTable<K, V> {
 
   @Override
   public CompletableFuture<Map<K, V>> getAllAsync(List<K> keys) {
-    readMetrics.numGetAlls.inc();
+    readMetrics.numGetAlls.increment();
     // Make a copy of entries which might be immutable
     Map<K, V> getAllResult = new HashMap<>();
     List<K> missingKeys = lookupCache(keys, getAllResult);
@@ -203,7 +203,7 @@ public class CachingTable<K, V> implements ReadWriteTable<K, V> {
 
   @Override
   public CompletableFuture<Void> putAsync(K key, V value) {
-    writeMetrics.numPuts.inc();
+    writeMetrics.numPuts.increment();
     Preconditions.checkNotNull(rwTable, "Cannot write to a read-only table: " + rdTable);
 
     long startNs = System.nanoTime();
@@ -235,7 +235,7 @@ public class CachingTable<K, V> implements ReadWriteTable<K, V> {
 
   @Override
   public CompletableFuture<Void> putAllAsync(List<Entry<K, V>> records) {
-    writeMetrics.numPutAlls.inc();
+    writeMetrics.numPutAlls.increment();
     long startNs = System.nanoTime();
     Preconditions.checkNotNull(rwTable, "Cannot write to a read-only table: " + rdTable);
     return rwTable.putAllAsync(records).handle((result, e) -> {
@@ -263,7 +263,7 @@ public class CachingTable<K, V> implements ReadWriteTable<K, V> {
 
   @Override
   public CompletableFuture<Void> deleteAsync(K key) {
-    writeMetrics.numDeletes.inc();
+    writeMetrics.numDeletes.increment();
     long startNs = System.nanoTime();
     Preconditions.checkNotNull(rwTable, "Cannot delete from a read-only table: " + rdTable);
     return rwTable.deleteAsync(key).handle((result, e) -> {
@@ -288,7 +288,7 @@ public class CachingTable<K, V> implements ReadWriteTable<K, V> {
 
   @Override
   public CompletableFuture<Void> deleteAllAsync(List<K> keys) {
-    writeMetrics.numDeleteAlls.inc();
+    writeMetrics.numDeleteAlls.increment();
     long startNs = System.nanoTime();
     Preconditions.checkNotNull(rwTable, "Cannot delete from a read-only table: " + rdTable);
     return rwTable.deleteAllAsync(keys).handle((result, e) -> {
@@ -304,7 +304,7 @@ public class CachingTable<K, V> implements ReadWriteTable<K, V> {
 
   @Override
   public synchronized void flush() {
-    writeMetrics.numFlushes.inc();
+    writeMetrics.numFlushes.increment();
     long startNs = System.nanoTime();
     Preconditions.checkNotNull(rwTable, "Cannot flush a read-only table: " + rdTable);
     rwTable.flush();
@@ -89,7 +89,7 @@ public class RemoteReadWriteTable<K, V> extends RemoteReadableTable<K, V> implem
       return deleteAsync(key);
     }
 
-    writeMetrics.numPuts.inc();
+    writeMetrics.numPuts.increment();
     return execute(writeRateLimiter, key, value, writeFn::putAsync, writeMetrics.putNs)
         .exceptionally(e -> {
             throw new SamzaException("Failed to put a record with key=" + key, (Throwable) e);
@@ -118,7 +118,7 @@ public class RemoteReadWriteTable<K, V> extends RemoteReadableTable<K, V> implem
       return CompletableFuture.completedFuture(null);
     }
 
-    writeMetrics.numPutAlls.inc();
+    writeMetrics.numPutAlls.increment();
 
     List<K> deleteKeys = records.stream()
         .filter(e -> e.getValue() == null).map(Entry::getKey).collect(Collectors.toList());
@@ -157,7 +157,7 @@ public class RemoteReadWriteTable<K, V> extends RemoteReadableTable<K, V> implem
   @Override
   public CompletableFuture<Void> deleteAsync(K key) {
     Preconditions.checkNotNull(key);
-    writeMetrics.numDeletes.inc();
+    writeMetrics.numDeletes.increment();
     return execute(writeRateLimiter, key, writeFn::deleteAsync, writeMetrics.deleteNs)
         .exceptionally(e -> {
             throw new SamzaException(String.format("Failed to delete the record for " + key), (Throwable) e);
@@ -186,7 +186,7 @@ public class RemoteReadWriteTable<K, V> extends RemoteReadableTable<K, V> implem
       return CompletableFuture.completedFuture(null);
     }
 
-    writeMetrics.numDeleteAlls.inc();
+    writeMetrics.numDeleteAlls.increment();
     return execute(writeRateLimiter, keys, writeFn::deleteAllAsync, writeMetrics.deleteAllNs)
         .exceptionally(e -> {
             throw new SamzaException(String.format("Failed to delete records for " + keys), (Throwable) e);
@@ -199,7 +199,7 @@ public class RemoteReadWriteTable<K, V> extends RemoteReadableTable<K, V> implem
   @Override
   public void flush() {
     try {
-      writeMetrics.numFlushes.inc();
+      writeMetrics.numFlushes.increment();
       long startNs = System.nanoTime();
       writeFn.flush();
       writeMetrics.flushNs.update(System.nanoTime() - startNs);
@@ -127,7 +127,7 @@ public class RemoteReadableTable<K, V> implements ReadableTable<K, V> {
   @Override
   public CompletableFuture<V> getAsync(K key) {
     Preconditions.checkNotNull(key);
-    readMetrics.numGets.inc();
+    readMetrics.numGets.increment();
     return execute(readRateLimiter, key, readFn::getAsync, readMetrics.getNs)
         .exceptionally(e -> {
             throw new SamzaException("Failed to get the record for " + key, e);
@@ -139,7 +139,7 @@ public class RemoteReadableTable<K, V> implements ReadableTable<K, V> {
    */
   @Override
   public Map<K, V> getAll(List<K> keys) {
-    readMetrics.numGetAlls.inc();
+    readMetrics.numGetAlls.increment();
     try {
       return getAllAsync(keys).get();
     } catch (Exception e) {
@@ -153,7 +153,7 @@ public class RemoteReadableTable<K, V> implements ReadableTable<K, V> {
     if (keys.isEmpty()) {
       return CompletableFuture.completedFuture(Collections.EMPTY_MAP);
     }
-    readMetrics.numGetAlls.inc();
+    readMetrics.numGetAlls.increment();
     return execute(readRateLimiter, keys, readFn::getAllAsync, readMetrics.getAllNs)
         .handle((result, e) -> {
             if (e != null) {
@@ -87,16 +87,16 @@ class FailsafeAdapter {
   static AsyncFailsafe<?> failsafe(RetryPolicy retryPolicy, RetryMetrics metrics, ScheduledExecutorService retryExec) {
     long startMs = System.currentTimeMillis();
     return Failsafe.with(retryPolicy).with(retryExec)
-        .onRetry(e -> metrics.retryCount.inc())
+        .onRetry(e -> metrics.retryCount.increment())
         .onRetriesExceeded(e -> {
             metrics.retryTimer.update(System.currentTimeMillis() - startMs);
-            metrics.permFailureCount.inc();
+            metrics.permFailureCount.increment();
           })
         .onSuccess((e, ctx) -> {
             if (ctx.getExecutions() > 1) {
               metrics.retryTimer.update(System.currentTimeMillis() - startMs);
             } else {
-              metrics.successCount.inc();
+              metrics.successCount.increment();
             }
           });
   }
@@ -27,11 +27,14 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.apache.samza.SamzaException;
 import org.apache.samza.container.SamzaContainerMetrics;
@@ -67,6 +70,8 @@ public class AsyncRunLoop implements Runnable, Throttleable {
   private final long commitMs;
   private final long callbackTimeoutMs;
   private final long maxIdleMs;
+  private final int batchSize;
+  private final int processBatchSize;
   private final SamzaContainerMetrics containerMetrics;
   private final ScheduledExecutorService workerTimer;
   private final ScheduledExecutorService callbackTimer;
@@ -76,6 +81,14 @@ public class AsyncRunLoop implements Runnable, Throttleable {
   private final HighResolutionClock clock;
   private final boolean isAsyncCommitEnabled;
   private volatile boolean runLoopResumedSinceLastChecked;
+  // Set when task workers that did not signal themselves may have become ready, i.e. on start and when a task requests
+  // a commit of all tasks. Only used in batch mode, see runTasks(List).
+  private volatile boolean allWorkersNeedRun = true;
+  // The task workers that signalled they may have become ready, e.g. a callback completed or window/commit is due.
+  // Only used in batch mode, see runTasks(List).
+  private final ConcurrentLinkedQueue<AsyncTaskWorker> readyWorkers = new ConcurrentLinkedQueue<>();
+  // Reused by runTasks(List) for the workers to run in an iteration. Only used by the run loop thread.
+  private final List<AsyncTaskWorker> workersToRun = new ArrayList<>();
 
   public AsyncRunLoop(Map<TaskName, TaskInstance> taskInstances,
       ExecutorService threadPool,
@@ -89,6 +102,31 @@ public class AsyncRunLoop implements Runnable, Throttleable {
       SamzaContainerMetrics containerMetrics,
       HighResolutionClock clock,
       boolean isAsyncCommitEnabled) {
+    this(taskInstances, threadPool, consumerMultiplexer, maxConcurrency, windowMs, commitMs, callbackTimeoutMs,
+        maxThrottlingDelayMs, maxIdleMs, 1, 1, containerMetrics, clock, isAsyncCommitEnabled);
+  }
+
+  public AsyncRunLoop(Map<TaskName, TaskInstance> taskInstances,
+      ExecutorService threadPool,
+      SystemConsumers consumerMultiplexer,
+      int maxConcurrency,
+      long windowMs,
+      long commitMs,
+      long callbackTimeoutMs,
+      long maxThrottlingDelayMs,
+      long maxIdleMs,
+      int batchSize,
+      int processBatchSize,
+      SamzaContainerMetrics containerMetrics,
+      HighResolutionClock clock,
+      boolean isAsyncCommitEnabled) {
+
+    if (batchSize < 1) {
+      throw new SamzaException("Run loop batch size must be at least 1, but was " + batchSize);
+    }
+    if (processBatchSize < 1) {
+      throw new SamzaException("Process batch size must be at least 1, but was " + processBatchSize);
+    }
 
     this.threadPool = threadPool;
     this.consumerMultiplexer = consumerMultiplexer;
@@ -98,6 +136,8 @@ public class AsyncRunLoop implements Runnable, Throttleable {
     this.maxConcurrency = maxConcurrency;
     this.callbackTimeoutMs = callbackTimeoutMs;
     this.maxIdleMs = maxIdleMs;
+    this.batchSize = batchSize;
+    this.processBatchSize = processBatchSize;
     this.callbackTimer = (callbackTimeoutMs > 0) ? Executors.newSingleThreadScheduledExecutor() : null;
     this.callbackExecutor = new ThrottlingScheduler(maxThrottlingDelayMs);
     this.coordinatorRequests = new CoordinatorRequests(taskInstances.keySet());
@@ -150,6 +190,9 @@ public class AsyncRunLoop implements Runnable, Throttleable {
       int tuples = 0;
       long latency = 0;
 
+      long iterations = 0;
+      List<IncomingMessageEnvelope> batch = new ArrayList<>(batchSize);
+
       while (!shutdownNow) {
         if (throwable != null) {
           log.error("Caught throwable and stopping run loop", throwable);
@@ -158,27 +201,54 @@ public class AsyncRunLoop implements Runnable, Throttleable {
 
         long startNs = clock.nanoTime();
 
-        IncomingMessageEnvelope envelope = chooseEnvelope();
+        int chosen;
+        if (batchSize == 1) {
+          IncomingMessageEnvelope envelope = chooseEnvelope();
+          batch.clear();
+          if (envelope != null) {
+            batch.add(envelope);
+          }
+          chosen = batch.size();
+
+          long chooseNs = clock.nanoTime();
+          containerMetrics.chooseNs().update(chooseNs - startNs);
+
+          blockIfBusyOrNoNewWork(chosen > 0);
 
-        long chooseNs = clock.nanoTime();
-        containerMetrics.chooseNs().update(chooseNs - startNs);
+          long blockNs = clock.nanoTime();
+          containerMetrics.blockNs().update(blockNs - chooseNs);
+          startNs = blockNs;
 
-        blockIfBusyOrNoNewWork(envelope);
+          runTasks(envelope);
+        } else {
+          chosen = chooseEnvelopes(batch);
 
-        long blockNs = clock.nanoTime();
-        containerMetrics.blockNs().update(blockNs - chooseNs);
+          long chooseNs = clock.nanoTime();
+          containerMetrics.chooseNs().update(chooseNs - startNs);
 
-        runTasks(envelope);
+          blockIfBusyOrNoNewWork(chosen > 0 || !readyWorkers.isEmpty());
+
+          long blockNs = clock.nanoTime();
+          containerMetrics.blockNs().update(blockNs - chooseNs);
+          startNs = blockNs;
+
+          runTasks(batch);
+        }
 
         long currentNs = clock.nanoTime();
-        long activeNs = currentNs - blockNs;
+        long activeNs = currentNs - startNs;
         long totalNs = currentNs - prevNs;
         prevNs = currentNs;
 
-        if (envelope != null) {
-          tuples++;
-          // ground truth computation
-          latency += System.currentTimeMillis() - envelope.getTimestamp();
+        iterations++;
+        if (chosen > 0) {
+          containerMetrics.dispatchNs().update(activeNs / chosen);
+          tuples += chosen;
+          long nowMs = System.currentTimeMillis();
+          for (int i = 0; i < chosen; i++) {
+            // ground truth computation
+            latency += nowMs - batch.get(i).getTimestamp();
+          }
         }
 
 
@@ -204,12 +274,14 @@ public class AsyncRunLoop implements Runnable, Throttleable {
           containerMetrics.avgUtilization().set(utilization);
           containerMetrics.serviceRate().set(serviceRate);
           containerMetrics.latency().set(avgLatency);
+          containerMetrics.envelopesPerIteration().set(iterations == 0 ? 0.0 : (double) tuples / iterations);
 
           start = currentNs;
           processTime = 0;
           timeInterval = 0;
           tuples = 0;
           latency = 0;
+          iterations = 0;
         }
       }
     } finally {
@@ -246,14 +318,41 @@ public class AsyncRunLoop implements Runnable, Throttleable {
     if (envelope != null) {
       log.trace("Choose envelope ssp {} offset {} for processing",
           envelope.getSystemStreamPartition(), envelope.getOffset());
-      containerMetrics.envelopes().inc();
+      containerMetrics.envelopes().increment();
     } else {
       log.trace("No envelope is available");
-      containerMetrics.nullEnvelopes().inc();
+      containerMetrics.nullEnvelopes().increment();
     }
     return envelope;
   }
 
+  /**
+   * Chooses up to batchSize envelopes from the SystemConsumers, see {@link #chooseEnvelope()}. Since the chooser is
+   * not updated until an envelope is fetched for processing, the batch contains at most one envelope per SSP.
+   * @param batch the list to fill with the chosen envelopes. It is cleared first.
+   * @return the number of envelopes chosen
+   */
+  private int chooseEnvelopes(List<IncomingMessageEnvelope> batch) {
+    batch.clear();
+    while (batch.size() < batchSize) {
+      IncomingMessageEnvelope envelope = consumerMultiplexer.choose(false);
+      if (envelope == null) {
+        break;
+      }
+      log.trace("Choose envelope ssp {} offset {} for processing",
+          envelope.getSystemStreamPartition(), envelope.getOffset());
+      batch.add(envelope);
+    }
+
+    if (batch.isEmpty()) {
+      log.trace("No envelope is available");
+      containerMetrics.nullEnvelopes().increment();
+    } else {
+      containerMetrics.envelopes().increment(batch.size());
+    }
+    return batch.size();
+  }
+
   /**
    * Insert the envelope into the task pending queues and run all the tasks
    */
@@ -270,6 +369,67 @@ public class AsyncRunLoop implements Runnable, Throttleable {
     }
   }
 
+  /**
+   * Insert the envelopes into the task pending queues and run the tasks that received any of them, plus the tasks that
+   * signalled through {@link AsyncTaskWorker#signalReady()} that they may have become ready. A task that is still ready
+   * and has pending envelopes after it ran is signalled again, so that it runs in the next iteration. All the tasks are
+   * only run on start and when a task requested a commit of all tasks.
+   */
+  private void runTasks(List<IncomingMessageEnvelope> batch) {
+    boolean runAll = allWorkersNeedRun;
+    if (runAll) {
+      // cleared before the workers run, so that a request raised while they run causes another full run
+      allWorkersNeedRun = false;
+    }
+
+    AsyncTaskWorker readyWorker;
+    while ((readyWorker = readyWorkers.poll()) != null) {
+      // cleared before the worker runs, so that a signal raised while it runs queues it again
+      readyWorker.signalledReady.set(false);
+      scheduleToRun(readyWorker, runAll);
+    }
+
+    for (IncomingMessageEnvelope envelope : batch) {
+      PendingEnvelope pendingEnvelope = new PendingEnvelope(envelope);
+      for (AsyncTaskWorker worker : sspToTaskWorkerMapping.get(envelope.getSystemStreamPartition())) {
+        worker.state.insertEnvelope(pendingEnvelope);
+        scheduleToRun(worker, runAll);
+      }
+    }
+
+    List<AsyncTaskWorker> workers = runAll ? taskWorkers : workersToRun;
+    for (AsyncTaskWorker worker : workers) {
+      worker.scheduledToRun = false;
+      worker.run();
+      if (worker.state.hasPendingEnvelopes() && worker.state.isReady()) {
+        worker.signalReady();
+      }
+    }
+    if (!workers.isEmpty()) {
+      containerMetrics.workerRuns().increment(workers.size());
+    }
+    workersToRun.clear();
+  }
+
+  private void scheduleToRun(AsyncTaskWorker worker, boolean runAll) {
+    if (!runAll && !worker.scheduledToRun) {
+      worker.scheduledToRun = true;
+      workersToRun.add(worker);
+    }
+  }
+
+  /**
+   * Updates the coordinator requests with the requests made through the coordinator. In batch mode, a commit request for
+   * all tasks also makes the run loop run all the tasks, since only the requesting task signalled that it is ready.
+   * The flag is set after the update, so that the full run sees the request.
+   */
+  private void updateCoordinatorRequests(ReadableCoordinator coordinator) {
+    coordinatorRequests.update(coordinator);
+    if (coordinator.requestedCommitAll()) {
+      allWorkersNeedRun = true;
+    }
+  }
+
 
   /**
    * Block the runloop thread if all tasks are busy. When a task worker finishes or window/commit completes,
@@ -281,14 +441,14 @@ public class AsyncRunLoop implements Runnable, Throttleable {
    * the AsyncRunLoop thread immediately. That event may allow a task worker to start processing a message that has already
    * been chosen.  In any event it should only delay for a short time.  It needs to periodically check for new messages.
    */
-  private void blockIfBusyOrNoNewWork(IncomingMessageEnvelope envelope) {
+  private void blockIfBusyOrNoNewWork(boolean hasNewWork) {
     synchronized (latch) {
 
       // First check to see if we should delay the run loop for a short time.  The runLoopResumedSinceLastChecked boolean
       // is used to ensure we don't delay if there may already be a task ready to dequeue a previously chosen/pending
       // message. It is better to occasionally make one additional loop when there is no work to do then delay the
       // runloop when there is work that could be started immediately.
-      if ((envelope == null) && !runLoopResumedSinceLastChecked) {
+      if (!hasNewWork && !runLoopResumedSinceLastChecked) {
         try {
           log.trace("Start no work wait");
           latch.wait(maxIdleMs);
@@ -331,6 +491,14 @@ public class AsyncRunLoop implements Runnable, Throttleable {
     }
   }
 
+  /**
+   * Resume the runloop thread like {@link #resume()}, after signalling that the worker may have become ready.
+   */
+  private void resume(AsyncTaskWorker worker) {
+    worker.signalReady();
+    resume();
+  }
+
   /**
    * Set the throwable and abort run loop. The throwable will be thrown from the run loop thread
    * @param t throwable
@@ -378,13 +546,22 @@ public class AsyncRunLoop implements Runnable, Throttleable {
   private class AsyncTaskWorker implements TaskCallbackListener {
     private final TaskInstance task;
     private final TaskCallbackManager callbackManager;
+    // created once, since it is invoked for every completed callback
+    private final Consumer<TaskCallbackImpl> offsetUpdater = this::updateOffset;
     private volatile AsyncTaskState state;
+    // whether the worker was already added to the workers to run in the current batch. Only used by the run loop thread.
+    private boolean scheduledToRun = false;
+    // whether the worker is in readyWorkers. Set by the thread that signals the worker, and cleared by the run loop
+    // thread when it takes the worker from the queue.
+    private final AtomicBoolean signalledReady = new AtomicBoolean(false);
 
     AsyncTaskWorker(TaskInstance task) {
       this.task = task;
-      this.callbackManager = new TaskCallbackManager(this, callbackTimer, callbackTimeoutMs, maxConcurrency, clock);
+      this.callbackManager = new TaskCallbackManager(this, callbackTimer, callbackTimeoutMs, maxConcurrency, clock,
+          task.metrics().asyncCallbackTimeouts());
       Set<SystemStreamPartition> sspSet = getWorkingSSPSet(task);
-      this.state = new AsyncTaskState(task.taskName(), task.metrics(), sspSet, task.intermediateStreams().nonEmpty());
+      this.state = new AsyncTaskState(task.taskName(), task.metrics(), sspSet, task.intermediateStreams().nonEmpty(),
+          callbackManager);
     }
 
     private void init() {
@@ -395,7 +572,7 @@ public class AsyncRunLoop implements Runnable, Throttleable {
           public void run() {
             log.trace("Task {} need window", task.taskName());
             state.needWindow();
-            resume();
+            resume(AsyncTaskWorker.this);
           }
         }, windowMs, windowMs, TimeUnit.MILLISECONDS);
       }
@@ -406,7 +583,7 @@ public class AsyncRunLoop implements Runnable, Throttleable {
           public void run() {
             log.trace("Task {} need commit", task.taskName());
             state.needCommit();
-            resume();
+            resume(AsyncTaskWorker.this);
           }
         }, commitMs, commitMs, TimeUnit.MILLISECONDS);
       }
@@ -415,10 +592,21 @@ public class AsyncRunLoop implements Runnable, Throttleable {
       if (epochTimeScheduler != null) {
         epochTimeScheduler.registerListener(() -> {
             state.needScheduler();
+            signalReady();
           });
       }
     }
 
+    /**
+     * Queues the worker to run in the next iteration of the run loop in batch mode, unless it is already queued.
+     * Called from any thread once the worker may have become ready.
+     */
+    private void signalReady() {
+      if (batchSize > 1 && signalledReady.compareAndSet(false, true)) {
+        readyWorkers.add(this);
+      }
+    }
+
     /**
      * Returns those partitions for the task for which we have not received end-of-stream from the consumer.
      * @param task
@@ -469,7 +657,7 @@ public class AsyncRunLoop implements Runnable, Throttleable {
         task.endOfStream(coordinator);
         // issue a request for shutdown of the task
         coordinator.shutdown(TaskCoordinator.RequestScope.CURRENT_TASK);
-        coordinatorRequests.update(coordinator);
+        updateCoordinatorRequests(coordinator);
 
         // invoke commit on the task - if the endOfStream callback had requested a final commit.
         boolean needFinalCommit = coordinatorRequests.commitRequests().remove(task.taskName());
@@ -477,7 +665,7 @@ public class AsyncRunLoop implements Runnable, Throttleable {
           task.commit();
         }
       } finally {
-        resume();
+        resume(this);
       }
 
     }
@@ -486,6 +674,11 @@ public class AsyncRunLoop implements Runnable, Throttleable {
      * Process asynchronously. The callback needs to be fired once the processing is done.
      */
     private void process() {
+      if (processBatchSize > 1 && task.isBatchTask()) {
+        processBatch();
+        return;
+      }
+
       final IncomingMessageEnvelope envelope = state.fetchEnvelope();
       log.trace("Process ssp {} offset {}", envelope.getSystemStreamPartition(), envelope.getOffset());
 
@@ -494,7 +687,7 @@ public class AsyncRunLoop implements Runnable, Throttleable {
         @Override
         public TaskCallback createCallback() {
           state.startProcess();
-          containerMetrics.processes().inc();
+          containerMetrics.processes().increment();
           return callbackManager.createCallback(task.taskName(), envelope, coordinator);
         }
       };
@@ -502,6 +695,33 @@ public class AsyncRunLoop implements Runnable, Throttleable {
       task.process(envelope, coordinator, callbackFactory);
     }
 
+    /**
+     * Process a batch of envelopes of the same SSP asynchronously with a single callback. The callback carries the
+     * last envelope of the batch, so the offset is updated once for the whole batch when it completes.
+     */
+    private void processBatch() {
+      final List<IncomingMessageEnvelope> envelopes = state.fetchEnvelopes(processBatchSize);
+      final IncomingMessageEnvelope lastEnvelope = envelopes.get(envelopes.size() - 1);
+      log.trace("Process batch of {} envelopes of ssp {} up to offset {}",
+          new Object[]{envelopes.size(), lastEnvelope.getSystemStreamPartition(), lastEnvelope.getOffset()});
+
+      final ReadableCoordinator coordinator = new ReadableCoordinator(task.taskName());
+      TaskCallbackFactory callbackFactory = new TaskCallbackFactory() {
+        @Override
+        public TaskCallback createCallback() {
+          state.startProcess();
+          containerMetrics.processes().increment();
+          return callbackManager.createCallback(task.taskName(), lastEnvelope, coordinator);
+        }
+      };
+
+      if (envelopes.size() == 1) {
+        task.process(lastEnvelope, coordinator, callbackFactory);
+      } else {
+        task.processBatch(envelopes, coordinator, callbackFactory);
+      }
+    }
+
     /**
      * Invoke window. Run window in thread pool if not the single thread mode.
      */
@@ -511,7 +731,7 @@ public class AsyncRunLoop implements Runnable, Throttleable {
         @Override
         public void run() {
           try {
-            containerMetrics.windows().inc();
+            containerMetrics.windows().increment();
 
             ReadableCoordinator coordinator = new ReadableCoordinator(task.taskName());
             long startTime = clock.nanoTime();
@@ -531,7 +751,7 @@ public class AsyncRunLoop implements Runnable, Throttleable {
                   new Object[]{averageWindowMs, windowMs, averageWindowMs});
             }
 
-            coordinatorRequests.update(coordinator);
+            updateCoordinatorRequests(coordinator);
 
             state.doneWindow();
           } catch (Throwable t) {
@@ -539,7 +759,7 @@ public class AsyncRunLoop implements Runnable, Throttleable {
             abort(t);
           } finally {
             log.trace("Task {} window completed", task.taskName());
-            resume();
+            resume(AsyncTaskWorker.this);
           }
         }
       };
@@ -562,7 +782,7 @@ public class AsyncRunLoop implements Runnable, Throttleable {
         @Override
         public void run() {
           try {
-            containerMetrics.commits().inc();
+            containerMetrics.commits().increment();
 
             long startTime = clock.nanoTime();
             task.commit();
@@ -574,7 +794,7 @@ public class AsyncRunLoop implements Runnable, Throttleable {
             abort(t);
           } finally {
             log.trace("Task {} commit completed", task.taskName());
-            resume();
+            resume(AsyncTaskWorker.this);
           }
         }
       };
@@ -600,14 +820,14 @@ public class AsyncRunLoop implements Runnable, Throttleable {
             task.scheduler(coordinator);
             containerMetrics.timerNs().update(clock.nanoTime() - startTime);
 
-            coordinatorRequests.update(coordinator);
+            updateCoordinatorRequests(coordinator);
             state.doneScheduler();
           } catch (Throwable t) {
             log.error("Task {} scheduler failed", task.taskName(), t);
             abort(t);
           } finally {
             log.trace("Task {} scheduler completed", task.taskName());
-            resume();
+            resume(AsyncTaskWorker.this);
           }
         }
       };
@@ -634,33 +854,43 @@ public class AsyncRunLoop implements Runnable, Throttleable {
         public void run() {
           try {
             state.doneProcess();
-            state.taskMetrics.asyncCallbackCompleted().inc();
+            state.taskMetrics.asyncCallbackCompleted().increment();
             TaskCallbackImpl callbackImpl = (TaskCallbackImpl) callback;
             containerMetrics.processNs().update(clock.nanoTime() - callbackImpl.timeCreatedNs);
             log.trace("Got callback complete for task {}, ssp {}",
                 callbackImpl.taskName, callbackImpl.envelope.getSystemStreamPartition());
 
-            List<TaskCallbackImpl> callbacksToUpdate = callbackManager.updateCallback(callbackImpl);
-            for (TaskCallbackImpl callbackToUpdate : callbacksToUpdate) {
-              IncomingMessageEnvelope envelope = callbackToUpdate.envelope;
-              log.trace("Update offset for ssp {}, offset {}", envelope.getSystemStreamPartition(), envelope.getOffset());
-
-              // update offset
-              task.offsetManager().update(task.taskName(), envelope.getSystemStreamPartition(), envelope.getOffset());
-
-              // update coordinator
-              coordinatorRequests.update(callbackToUpdate.coordinator);
-            }
+            callbackManager.updateCallback(callbackImpl, offsetUpdater);
           } catch (Throwable t) {
             log.error("Error marking process as complete.", t);
             abort(t);
           } finally {
-            resume();
+            resume(AsyncTaskWorker.this);
           }
         }
       }, workNanos);
     }
 
+    /**
+     * Updates the offset and the coordinator requests for a callback whose offset can be checkpointed.
+     */
+    private void updateOffset(TaskCallbackImpl callbackToUpdate) {
+      IncomingMessageEnvelope envelope = callbackToUpdate.envelope;
+      if (log.isTraceEnabled()) {
+        log.trace("Update offset for ssp {}, offset {}", envelope.getSystemStreamPartition(), envelope.getOffset());
+      }
+
+      // update offset
+      if (envelope.hasNumericOffset()) {
+        task.offsetManager().update(task.taskName(), envelope.getSystemStreamPartition(), envelope.getNumericOffset());
+      } else {
+        task.offsetManager().update(task.taskName(), envelope.getSystemStreamPartition(), envelope.getOffset());
+      }
+
+      // update coordinator
+      updateCoordinatorRequests(callbackToUpdate.coordinator);
+    }
+
     /**
      * Task process fails. Trigger the listener indicating failure.
      * @param callback AsyncSteamTask.processAsync callback
@@ -677,7 +907,7 @@ public class AsyncRunLoop implements Runnable, Throttleable {
       } catch (Throwable e) {
         log.error("Error marking process as failed.", e);
       } finally {
-        resume();
+        resume(this);
       }
     }
   }
@@ -706,8 +936,11 @@ public class AsyncRunLoop implements Runnable, Throttleable {
     private final TaskName taskName;
     private final TaskInstanceMetrics taskMetrics;
     private final boolean hasIntermediateStreams;
+    private final TaskCallbackManager callbackManager;
 
-    AsyncTaskState(TaskName taskName, TaskInstanceMetrics taskMetrics, Set<SystemStreamPartition> sspSet, boolean hasIntermediateStreams) {
+    AsyncTaskState(TaskName taskName, TaskInstanceMetrics taskMetrics, Set<SystemStreamPartition> sspSet,
+        boolean hasIntermediateStreams, TaskCallbackManager callbackManager) {
+      this.callbackManager = callbackManager;
       this.taskName = taskName;
       this.taskMetrics = taskMetrics;
       this.pendingEnvelopeQueue = new ArrayDeque<>();
@@ -759,12 +992,13 @@ public class AsyncRunLoop implements Runnable, Throttleable {
         return messagesInFlight.get() == 0 && !opInFlight;
       } else {
         /*
-         * A task is ready to process new message, when number of task.process calls in progress < task.max.concurrency
-         * and either of the following conditions are true.
+         * A task is ready to process new message, when number of task.process calls in progress < task.max.concurrency,
+         * the callback manager can take another out-of-order completion, and either of the following conditions are true.
          * a) When window, commit and scheduler are not in progress.
          * b) When task.async.commit is true and window and scheduler are not in progress.
          */
-        return messagesInFlight.get() < maxConcurrency && !windowInFlight && !schedulerInFlight && (isAsyncCommitEnabled || !commitInFlight);
+        return messagesInFlight.get() < maxConcurrency && callbackManager.hasCapacity() && !windowInFlight
+            && !schedulerInFlight && (isAsyncCommitEnabled || !commitInFlight);
       }
     }
 
@@ -785,6 +1019,10 @@ public class AsyncRunLoop implements Runnable, Throttleable {
       return WorkerOp.NO_OP;
     }
 
+    private boolean hasPendingEnvelopes() {
+      return !pendingEnvelopeQueue.isEmpty();
+    }
+
     private void needWindow() {
       needWindow = true;
     }
@@ -860,12 +1098,7 @@ public class AsyncRunLoop implements Runnable, Throttleable {
      * @return
      */
     private IncomingMessageEnvelope fetchEnvelope() {
-      PendingEnvelope pendingEnvelope = pendingEnvelopeQueue.remove();
-      int queueSize = pendingEnvelopeQueue.size();
-      taskMetrics.pendingMessages().set(queueSize);
-      log.trace("fetch envelope ssp {} offset {} to process.",
-          pendingEnvelope.envelope.getSystemStreamPartition(), pendingEnvelope.envelope.getOffset());
-      log.debug("Task {} pending envelopes count is {} after fetching.", taskName, queueSize);
+      PendingEnvelope pendingEnvelope = removePendingEnvelope();
 
       if (pendingEnvelope.markProcessed()) {
         SystemStreamPartition partition = pendingEnvelope.envelope.getSystemStreamPartition();
@@ -874,5 +1107,41 @@ public class AsyncRunLoop implements Runnable, Throttleable {
       }
       return pendingEnvelope.envelope;
     }
+
+    /**
+     * Fetch the pending envelope like {@link #fetchEnvelope()}, and extend it with up to maxBatchSize - 1 of the
+     * envelopes that follow it in the SystemConsumers buffer of its SSP. The batch is only extended if this task is
+     * the only one consuming the SSP, since the buffered envelopes are not passed to any other task, and only if the
+     * chooser lets envelopes of the SSP bypass it. The chooser is updated only after the batch has been taken from the
+     * buffer.
+     * The function will be called in the run loop thread so no synchronization.
+     * @return the envelopes to process, in offset order
+     */
+    private List<IncomingMessageEnvelope> fetchEnvelopes(int maxBatchSize) {
+      PendingEnvelope pendingEnvelope = removePendingEnvelope();
+      List<IncomingMessageEnvelope> envelopes = new ArrayList<>();
+      envelopes.add(pendingEnvelope.envelope);
+
+      if (pendingEnvelope.markProcessed()) {
+        SystemStreamPartition partition = pendingEnvelope.envelope.getSystemStreamPartition();
+        if (!pendingEnvelope.envelope.isEndOfStream() && sspToTaskWorkerMapping.get(partition).size() == 1) {
+          int drained = consumerMultiplexer.drainBuffered(partition, maxBatchSize - 1, envelopes);
+          containerMetrics.envelopes().increment(drained);
+        }
+        consumerMultiplexer.tryUpdate(partition);
+        log.debug("Update chooser for {}", partition);
+      }
+      return envelopes;
+    }
+
+    private PendingEnvelope removePendingEnvelope() {
+      PendingEnvelope pendingEnvelope = pendingEnvelopeQueue.remove();
+      int queueSize = pendingEnvelopeQueue.size();
+      taskMetrics.pendingMessages().set(queueSize);
+      log.trace("fetch envelope ssp {} offset {} to process.",
+          pendingEnvelope.envelope.getSystemStreamPartition(), pendingEnvelope.envelope.getOffset());
+      log.debug("Task {} pending envelopes count is {} after fetching.", taskName, queueSize);
+      return pendingEnvelope;
+    }
   }
 }
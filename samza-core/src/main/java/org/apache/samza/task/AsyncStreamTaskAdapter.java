@@ -19,6 +19,7 @@
 
 package org.apache.samza.task;
 
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import org.apache.samza.context.Context;
 import org.apache.samza.system.IncomingMessageEnvelope;
@@ -29,8 +30,11 @@ import org.apache.samza.system.IncomingMessageEnvelope;
  * uses the build-in thread pool to invoke StreamTask.process and triggers
  * the callbacks once it's done. If the thread pool is null, it follows the legacy
  * synchronous model to execute the tasks on the run loop thread.
+ * Batches of messages are processed by a single thread pool invocation with a single callback. The operator graph of
+ * a {@link StreamOperatorTask} receives them through {@link StreamOperatorTask#processBatch}.
  */
-public class AsyncStreamTaskAdapter implements AsyncStreamTask, InitableTask, WindowableTask, ClosableTask, EndOfStreamListenerTask {
+public class AsyncStreamTaskAdapter implements BatchStreamTask, InitableTask, WindowableTask, ClosableTask, EndOfStreamListenerTask,
+    CommitListenerTask {
   private final StreamTask wrappedTask;
   private final ExecutorService executor;
 
@@ -64,6 +68,42 @@ public class AsyncStreamTaskAdapter implements AsyncStreamTask, InitableTask, Wi
     }
   }
 
+  @Override
+  public void processBatch(final List<IncomingMessageEnvelope> envelopes,
+      final MessageCollector collector,
+      final TaskCoordinator coordinator,
+      final TaskCallback callback) {
+    if (executor != null) {
+      executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          process(envelopes, collector, coordinator, callback);
+        }
+      });
+    } else {
+      // legacy mode: running all tasks in the runloop thread
+      process(envelopes, collector, coordinator, callback);
+    }
+  }
+
+  private void process(List<IncomingMessageEnvelope> envelopes,
+      MessageCollector collector,
+      TaskCoordinator coordinator,
+      TaskCallback callback) {
+    try {
+      if (wrappedTask instanceof StreamOperatorTask) {
+        ((StreamOperatorTask) wrappedTask).processBatch(envelopes, collector, coordinator);
+      } else {
+        for (IncomingMessageEnvelope envelope : envelopes) {
+          wrappedTask.process(envelope, collector, coordinator);
+        }
+      }
+      callback.complete();
+    } catch (Throwable t) {
+      callback.failure(t);
+    }
+  }
+
   private void process(IncomingMessageEnvelope envelope,
       MessageCollector collector,
       TaskCoordinator coordinator,
@@ -96,4 +136,11 @@ public class AsyncStreamTaskAdapter implements AsyncStreamTask, InitableTask, Wi
       ((EndOfStreamListenerTask) wrappedTask).onEndOfStream(collector, coordinator);
     }
   }
+
+  @Override
+  public void onCommit() throws Exception {
+    if (wrappedTask instanceof CommitListenerTask) {
+      ((CommitListenerTask) wrappedTask).onCommit();
+    }
+  }
 }
@@ -18,6 +18,7 @@
  */
 package org.apache.samza.task;
 
+import java.util.List;
 import org.apache.samza.context.Context;
 import org.apache.samza.operators.OperatorSpecGraph;
 import org.apache.samza.operators.impl.InputOperatorImpl;
@@ -37,7 +38,7 @@ import org.slf4j.LoggerFactory;
  * A {@link StreamTask} implementation that brings all the operator API implementation components together and
  * feeds the input messages into the user-defined transformation chains in {@link OperatorSpecGraph}.
  */
-public class StreamOperatorTask implements StreamTask, InitableTask, WindowableTask, ClosableTask {
+public class StreamOperatorTask implements StreamTask, InitableTask, WindowableTask, ClosableTask, CommitListenerTask {
   private static final Logger LOG = LoggerFactory.getLogger(StreamOperatorTask.class);
 
   private final OperatorSpecGraph specGraph;
@@ -96,30 +97,69 @@ public class StreamOperatorTask implements StreamTask, InitableTask, WindowableT
     SystemStream systemStream = ime.getSystemStreamPartition().getSystemStream();
     InputOperatorImpl inputOpImpl = operatorImplGraph.getInputOperator(systemStream);
     if (inputOpImpl != null) {
-      switch (MessageType.of(ime.getMessage())) {
-        case USER_MESSAGE:
-          inputOpImpl.onMessage(ime, collector, coordinator);
-          break;
-
-        case END_OF_STREAM:
-          EndOfStreamMessage eosMessage = (EndOfStreamMessage) ime.getMessage();
-          inputOpImpl.aggregateEndOfStream(eosMessage, ime.getSystemStreamPartition(), collector, coordinator);
-          break;
-
-        case WATERMARK:
-          WatermarkMessage watermarkMessage = (WatermarkMessage) ime.getMessage();
-          inputOpImpl.aggregateWatermark(watermarkMessage, ime.getSystemStreamPartition(), collector, coordinator);
-          break;
+      process(inputOpImpl, ime, collector, coordinator);
+    }
+  }
+
+  /**
+   * Passes a batch of incoming message envelopes of the same {@link org.apache.samza.system.SystemStreamPartition}
+   * along to the {@link InputOperatorImpl} node for their input {@link SystemStream}, in order. The input operator
+   * is only looked up once per batch.
+   *
+   * @param envelopes incoming message envelopes of a single partition to process
+   * @param collector the collector to send messages with
+   * @param coordinator the coordinator to request commits or shutdown
+   */
+  public final void processBatch(List<IncomingMessageEnvelope> envelopes, MessageCollector collector,
+      TaskCoordinator coordinator) {
+    if (envelopes.isEmpty()) {
+      return;
+    }
+
+    SystemStream systemStream = envelopes.get(0).getSystemStreamPartition().getSystemStream();
+    InputOperatorImpl inputOpImpl = operatorImplGraph.getInputOperator(systemStream);
+    if (inputOpImpl != null) {
+      for (IncomingMessageEnvelope ime : envelopes) {
+        process(inputOpImpl, ime, collector, coordinator);
       }
     }
   }
 
+  private void process(InputOperatorImpl inputOpImpl, IncomingMessageEnvelope ime, MessageCollector collector,
+      TaskCoordinator coordinator) {
+    switch (MessageType.of(ime.getMessage())) {
+      case USER_MESSAGE:
+        inputOpImpl.onMessage(ime, collector, coordinator);
+        break;
+
+      case END_OF_STREAM:
+        EndOfStreamMessage eosMessage = (EndOfStreamMessage) ime.getMessage();
+        inputOpImpl.aggregateEndOfStream(eosMessage, ime.getSystemStreamPartition(), collector, coordinator);
+        break;
+
+      case WATERMARK:
+        WatermarkMessage watermarkMessage = (WatermarkMessage) ime.getMessage();
+        inputOpImpl.aggregateWatermark(watermarkMessage, ime.getSystemStreamPartition(), collector, coordinator);
+        break;
+    }
+  }
+
   @Override
   public final void window(MessageCollector collector, TaskCoordinator coordinator)  {
     operatorImplGraph.getAllInputOperators()
         .forEach(inputOperator -> inputOperator.onTimer(collector, coordinator));
   }
 
+  /**
+   * Lets every operator write the state it buffers in memory to its stores before they are flushed for the commit.
+   */
+  @Override
+  public final void onCommit() {
+    if (operatorImplGraph != null) {
+      operatorImplGraph.onCommit();
+    }
+  }
+
   @Override
   public void close() throws Exception {
     if (operatorImplGraph != null) {
@@ -19,7 +19,6 @@
 
 package org.apache.samza.task;
 
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.samza.SamzaException;
@@ -43,7 +42,8 @@ class TaskCallbackImpl implements TaskCallback, Comparable<TaskCallbackImpl> {
   final long timeCreatedNs;
   private final AtomicBoolean isComplete = new AtomicBoolean(false);
   private final TaskCallbackListener listener;
-  private ScheduledFuture scheduledFuture = null;
+  // System.nanoTime after which the callback times out, if a timeout is set
+  private long deadlineNs = 0L;
   private final long seqNum;
 
   public TaskCallbackImpl(TaskCallbackListener listener,
@@ -62,9 +62,6 @@ class TaskCallbackImpl implements TaskCallback, Comparable<TaskCallbackImpl> {
 
   @Override
   public void complete() {
-    if (scheduledFuture != null) {
-      scheduledFuture.cancel(true);
-    }
     log.trace("Callback complete for task {}, ssp {}, offset {}.",
         new Object[] {taskName, envelope.getSystemStreamPartition(), envelope.getOffset()});
 
@@ -79,10 +76,6 @@ class TaskCallbackImpl implements TaskCallback, Comparable<TaskCallbackImpl> {
 
   @Override
   public void failure(Throwable t) {
-    if (scheduledFuture != null) {
-      scheduledFuture.cancel(true);
-    }
-
     if (isComplete.compareAndSet(false, true)) {
       String msg = String.format("Callback failed for task %s, ssp %s, offset %s.",
           taskName, envelope.getSystemStreamPartition(), envelope.getOffset());
@@ -94,8 +87,16 @@ class TaskCallbackImpl implements TaskCallback, Comparable<TaskCallbackImpl> {
     }
   }
 
-  void setScheduledFuture(ScheduledFuture scheduledFuture) {
-    this.scheduledFuture = scheduledFuture;
+  void setDeadlineNs(long deadlineNs) {
+    this.deadlineNs = deadlineNs;
+  }
+
+  long getDeadlineNs() {
+    return deadlineNs;
+  }
+
+  boolean isComplete() {
+    return isComplete.get();
   }
 
   @Override
@@ -103,6 +104,10 @@ class TaskCallbackImpl implements TaskCallback, Comparable<TaskCallbackImpl> {
     return Long.compare(this.seqNum, callback.seqNum);
   }
 
+  long getSeqNum() {
+    return seqNum;
+  }
+
   boolean matchSeqNum(long seqNum) {
     return this.seqNum == seqNum;
   }
@@ -19,17 +19,20 @@
 
 package org.apache.samza.task;
 
-import com.google.common.collect.ImmutableList;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.PriorityQueue;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
 
 import org.apache.samza.SamzaException;
 import org.apache.samza.container.TaskName;
+import org.apache.samza.metrics.Counter;
 import org.apache.samza.system.IncomingMessageEnvelope;
 import org.apache.samza.util.HighResolutionClock;
 import org.apache.samza.util.Util;
@@ -37,59 +40,131 @@ import org.apache.samza.util.Util;
 
 /**
  * TaskCallbackManager manages the life cycle of {@link AsyncStreamTask} callbacks,
- * including creation, update and status. Internally it maintains a PriorityQueue
+ * including creation, update and status. Internally it maintains a reorder window
  * for the callbacks based on the sequence number, and updates the offsets for checkpointing
  * by always moving forward to the latest contiguous callback (uses the high watermark).
+ *
+ * If a timeout is set, the outstanding callbacks are kept in a queue in creation order. Since all callbacks have the
+ * same timeout, this is also the order of their deadlines. A periodic check on the timer fails the callbacks that
+ * have passed their deadline, and drops the ones that have completed, so creating and completing a callback does not
+ * schedule or cancel anything on the timer.
  */
 class TaskCallbackManager {
+  // upper bound of the period of the timeout check, so that timeouts fire at most this late
+  private static final long MAX_TIMEOUT_CHECK_PERIOD_MS = 100;
 
+  /**
+   * A reorder window of completed callbacks, indexed by sequence number in a ring buffer. Completion threads publish
+   * callbacks into their slot without locking. Whichever thread wins the drain flag then collects the contiguous run
+   * of completed callbacks that follows the last collected one. The window is bounded: callbacks must only be created
+   * while {@link #hasCapacity(long)} holds for their sequence number.
+   */
   private static final class TaskCallbacks {
-    private final Queue<TaskCallbackImpl> callbacks = new PriorityQueue<>();
-    private final Object lock = new Object();
-    private long nextSeqNum = 0L;
+    private final AtomicReferenceArray<TaskCallbackImpl> ring;
+    private final int mask;
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    // the sequence number of the next callback to collect. Only written by the thread holding the drain flag.
+    private volatile long nextSeqNum = 0L;
+
+    TaskCallbacks(int capacity) {
+      int size = Integer.highestOneBit(Math.max(capacity, 1) - 1) << 1;
+      this.ring = new AtomicReferenceArray<>(Math.max(size, 1));
+      this.mask = ring.length() - 1;
+    }
+
+    boolean hasCapacity(long seqNum) {
+      return seqNum - nextSeqNum < ring.length();
+    }
 
     /**
-     * Adding the newly complete callback to the callback queue
-     * Move the queue to the last contiguous callback to commit offset
+     * Adding the newly complete callback to the reorder window.
+     * Move the window to the last contiguous callback to commit offset
      * @param cb new callback completed
-     * @return list of callbacks to be committed
+     * @param consumer receives the callbacks to be committed, in order
      */
-    List<TaskCallbackImpl> update(TaskCallbackImpl cb) {
-      synchronized (lock) {
-        callbacks.add(cb);
-        List<TaskCallbackImpl> callbacksToUpdate = new ArrayList<>();
-        // look for the last contiguous callback
-        while (!callbacks.isEmpty() && callbacks.peek().matchSeqNum(nextSeqNum)) {
-          ++nextSeqNum;
-          TaskCallbackImpl callback = callbacks.poll();
-          callbacksToUpdate.add(callback);
-          if (callback.coordinator.commitRequest().isDefined()) {
-            break;
+    void update(TaskCallbackImpl cb, Consumer<TaskCallbackImpl> consumer) {
+      if (!hasCapacity(cb.getSeqNum())) {
+        throw new IllegalStateException(String.format("Callback %d is outside of the reorder window [%d, %d).",
+            cb.getSeqNum(), nextSeqNum, nextSeqNum + ring.length()));
+      }
+      ring.set(slot(cb.getSeqNum()), cb);
+
+      // If another thread holds the drain flag, it checks the slot of nextSeqNum again after releasing the flag,
+      // so a callback published meanwhile is still collected.
+      while (draining.compareAndSet(false, true)) {
+        boolean commitRequested = false;
+        try {
+          // look for the last contiguous callback
+          TaskCallbackImpl callback;
+          while (!commitRequested && (callback = ring.get(slot(nextSeqNum))) != null
+              && callback.matchSeqNum(nextSeqNum)) {
+            ring.set(slot(nextSeqNum), null);
+            nextSeqNum++;
+            commitRequested = callback.coordinator.commitRequest().isDefined();
+            consumer.accept(callback);
           }
+        } finally {
+          draining.set(false);
+        }
+
+        // The callbacks after a commit request are collected with the next update, after the commit.
+        TaskCallbackImpl next = ring.get(slot(nextSeqNum));
+        if (commitRequested || next == null || !next.matchSeqNum(nextSeqNum)) {
+          return;
         }
-        return callbacksToUpdate;
       }
     }
+
+    private int slot(long seqNum) {
+      return (int) (seqNum & mask);
+    }
   }
 
   private long seqNum = 0L;
-  private final TaskCallbacks completedCallbacks = new TaskCallbacks();
+  private final TaskCallbacks completedCallbacks;
   private final ScheduledExecutorService timer;
   private final TaskCallbackListener listener;
   private final long timeout;
   private final int maxConcurrency;
   private final HighResolutionClock clock;
+  private final Counter timedOutCallbacks;
+  // callbacks that may not have completed yet, in the order of their deadlines. Only used if the timer is set.
+  private final Queue<TaskCallbackImpl> outstandingCallbacks = new ConcurrentLinkedQueue<>();
+  private final long timeoutNs;
 
   public TaskCallbackManager(TaskCallbackListener listener,
       ScheduledExecutorService timer,
       long timeout,
       int maxConcurrency,
       HighResolutionClock clock) {
+    this(listener, timer, timeout, maxConcurrency, clock, null);
+  }
+
+  public TaskCallbackManager(TaskCallbackListener listener,
+      ScheduledExecutorService timer,
+      long timeout,
+      int maxConcurrency,
+      HighResolutionClock clock,
+      Counter timedOutCallbacks) {
     this.listener = listener;
     this.timer = timer;
     this.timeout = timeout;
+    this.timeoutNs = TimeUnit.MILLISECONDS.toNanos(timeout);
     this.maxConcurrency = maxConcurrency;
+    // Leave room for callbacks that complete while an earlier one is still in flight
+    this.completedCallbacks = new TaskCallbacks(2 * maxConcurrency);
     this.clock = clock;
+    this.timedOutCallbacks = timedOutCallbacks;
+
+    if (timer != null) {
+      long checkPeriodMs = Math.max(1, Math.min(timeout / 10, MAX_TIMEOUT_CHECK_PERIOD_MS));
+      timer.scheduleAtFixedRate(new Runnable() {
+        @Override
+        public void run() {
+          checkTimeouts(System.nanoTime());
+        }
+      }, checkPeriodMs, checkPeriodMs, TimeUnit.MILLISECONDS);
+    }
   }
 
   public TaskCallbackImpl createCallback(TaskName taskName,
@@ -98,21 +173,37 @@ class TaskCallbackManager {
     final TaskCallbackImpl callback =
         new TaskCallbackImpl(listener, taskName, envelope, coordinator, seqNum++, clock.nanoTime());
     if (timer != null) {
-      Runnable timerTask = new Runnable() {
-        @Override
-        public void run() {
-          Util.logThreadDump("Thread dump at task callback timeout");
-          String msg = "Callback for task {} " + callback.taskName + " timed out after " + timeout + " ms.";
-          callback.failure(new SamzaException(msg));
-        }
-      };
-      ScheduledFuture scheduledFuture = timer.schedule(timerTask, timeout, TimeUnit.MILLISECONDS);
-      callback.setScheduledFuture(scheduledFuture);
+      // the HighResolutionClock may be disabled along with the timer metrics, so it can't be used for the deadline
+      callback.setDeadlineNs(System.nanoTime() + timeoutNs);
+      outstandingCallbacks.add(callback);
     }
 
     return callback;
   }
 
+  /**
+   * Fails the outstanding callbacks whose deadline has passed, and removes the completed ones from the outstanding
+   * callbacks. Called periodically on the timer thread.
+   * @param nowNs the current time of System.nanoTime
+   */
+  void checkTimeouts(long nowNs) {
+    Iterator<TaskCallbackImpl> iterator = outstandingCallbacks.iterator();
+    while (iterator.hasNext()) {
+      TaskCallbackImpl callback = iterator.next();
+      if (callback.isComplete()) {
+        iterator.remove();
+      } else if (nowNs - callback.getDeadlineNs() >= 0) {
+        iterator.remove();
+        if (timedOutCallbacks != null) {
+          timedOutCallbacks.increment();
+        }
+        Util.logThreadDump("Thread dump at task callback timeout");
+        String msg = "Callback for task {} " + callback.taskName + " timed out after " + timeout + " ms.";
+        callback.failure(new SamzaException(msg));
+      }
+    }
+  }
+
   /**
    * Update the task callbacks with the new callback completed.
    * It uses a high-watermark model to roll the callbacks for checkpointing.
@@ -120,11 +211,31 @@ class TaskCallbackManager {
    * @return the list of callbacks for checkpointing
    */
   public List<TaskCallbackImpl> updateCallback(TaskCallbackImpl callback) {
+    List<TaskCallbackImpl> callbacksToUpdate = new ArrayList<>();
+    updateCallback(callback, callbacksToUpdate::add);
+    return callbacksToUpdate;
+  }
+
+  /**
+   * Update the task callbacks with the new callback completed, like {@link #updateCallback(TaskCallbackImpl)},
+   * passing the callbacks for checkpointing to the consumer in order instead of collecting them.
+   * @param callback new completed callback
+   * @param consumer receives the callbacks for checkpointing
+   */
+  public void updateCallback(TaskCallbackImpl callback, Consumer<TaskCallbackImpl> consumer) {
     if (maxConcurrency > 1) {
-      // Use the completedCallbacks queue to handle the out-of-order case when max concurrency is larger than 1
-      return completedCallbacks.update(callback);
+      // Use the completedCallbacks window to handle the out-of-order case when max concurrency is larger than 1
+      completedCallbacks.update(callback, consumer);
     } else {
-      return ImmutableList.of(callback);
+      consumer.accept(callback);
     }
   }
+
+  /**
+   * Returns whether a new callback can be created without overflowing the window of completed callbacks that wait
+   * for an earlier callback to complete. Called by the run loop thread before processing a message.
+   */
+  public boolean hasCapacity() {
+    return maxConcurrency <= 1 || completedCallbacks.hasCapacity(seqNum);
+  }
 }
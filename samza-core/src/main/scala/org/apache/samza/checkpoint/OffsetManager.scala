@@ -156,9 +156,11 @@ class OffsetManager(
   val offsetManagerMetrics: OffsetManagerMetrics = new OffsetManagerMetrics) extends Logging {
 
   /**
-   * Last offsets processed for each SystemStreamPartition.
+   * Last offsets processed for each SystemStreamPartition. A slot is
+   * allocated for every registered SystemStreamPartition when the offset
+   * manager starts, so per-message updates never allocate.
    */
-  val lastProcessedOffsets = new ConcurrentHashMap[TaskName, ConcurrentHashMap[SystemStreamPartition, String]]()
+  val lastProcessedOffsets = new ConcurrentHashMap[TaskName, ConcurrentHashMap[SystemStreamPartition, LastProcessedOffset]]()
 
   /**
    * Offsets to start reading from for each SystemStreamPartition. This
@@ -185,6 +187,7 @@ class OffsetManager(
     stripResetStreams
     loadStartingOffsets
     loadDefaults
+    allocateLastProcessedOffsets
 
     info("Successfully loaded last processed offsets: %s" format lastProcessedOffsets)
     info("Successfully loaded starting offsets: %s" format startingOffsets)
@@ -194,17 +197,29 @@ class OffsetManager(
    * Set the last processed offset for a given SystemStreamPartition.
    */
   def update(taskName: TaskName, systemStreamPartition: SystemStreamPartition, offset: String) {
-    lastProcessedOffsets.putIfAbsent(taskName, new ConcurrentHashMap[SystemStreamPartition, String]())
-    if (offset != null && !offset.equals(IncomingMessageEnvelope.END_OF_STREAM_OFFSET)) {
-      lastProcessedOffsets.get(taskName).put(systemStreamPartition, offset)
+    if (offset != null
+      && !(offset eq IncomingMessageEnvelope.END_OF_STREAM_OFFSET)
+      && !offset.equals(IncomingMessageEnvelope.END_OF_STREAM_OFFSET)) {
+      getOrCreateLastProcessedOffset(taskName, systemStreamPartition).set(offset)
     }
   }
 
+  /**
+   * Set the last processed offset for a SystemStreamPartition whose system
+   * uses numeric offsets. The offset is kept as a primitive and is only
+   * converted to a String when a checkpoint is built.
+   */
+  def update(taskName: TaskName, systemStreamPartition: SystemStreamPartition, offset: Long) {
+    getOrCreateLastProcessedOffset(taskName, systemStreamPartition).set(offset)
+  }
+
   /**
    * Get the last processed offset for a SystemStreamPartition.
    */
   def getLastProcessedOffset(taskName: TaskName, systemStreamPartition: SystemStreamPartition): Option[String] = {
-    Option(lastProcessedOffsets.get(taskName)).map(_.get(systemStreamPartition))
+    Option(lastProcessedOffsets.get(taskName))
+      .flatMap(sspToOffsets => Option(sspToOffsets.get(systemStreamPartition)))
+      .flatMap(lastProcessedOffset => Option(lastProcessedOffset.get))
   }
 
   /**
@@ -234,15 +249,21 @@ class OffsetManager(
       val sspsForTaskName = systemStreamPartitions.getOrElse(taskName, throw new SamzaException("No SSPs registered for task: " + taskName)).toSet
       val sspToOffsets = lastProcessedOffsets.get(taskName)
 
-      val partitionOffsets = if (sspToOffsets != null) {
+      val partitionOffsets = new HashMap[SystemStreamPartition, String]() // Copy into new Map to prevent mutation
+      if (sspToOffsets != null) {
         // Filter the offsets in case the task model changed since the last checkpoint was written.
-        sspToOffsets.asScala.filterKeys(sspsForTaskName.contains)
+        sspToOffsets.asScala.foreach {
+          case (systemStreamPartition, lastProcessedOffset) =>
+            val offset = lastProcessedOffset.get
+            if (offset != null && sspsForTaskName.contains(systemStreamPartition)) {
+              partitionOffsets.put(systemStreamPartition, offset)
+            }
+        }
       } else {
         warn(taskName + " is not found... ")
-        Map[SystemStreamPartition, String]()
       }
 
-      new Checkpoint(new HashMap(partitionOffsets.asJava)) // Copy into new Map to prevent mutation
+      new Checkpoint(partitionOffsets)
     } else {
       debug("Returning null checkpoint for taskName %s because no checkpoint manager/callback is defined." format taskName)
       null
@@ -312,15 +333,19 @@ class OffsetManager(
         .flatMap(restoreOffsetsFromCheckpoint(_))
         .toMap
       result.map { case (taskName, sspToOffset) => {
-          lastProcessedOffsets.put(taskName, new ConcurrentHashMap[SystemStreamPartition, String](sspToOffset.filter {
+          val sspToLastProcessedOffset = new ConcurrentHashMap[SystemStreamPartition, LastProcessedOffset]()
+          sspToOffset.foreach {
             case (systemStreamPartition, offset) =>
               val shouldKeep = offsetSettings.contains(systemStreamPartition.getSystemStream)
               if (!shouldKeep) {
                 info("Ignoring previously checkpointed offset %s for %s since the offset is for a stream that is not currently an input stream." format (offset, systemStreamPartition))
               }
               info("Checkpointed offset is currently %s for %s" format (offset, systemStreamPartition))
-              shouldKeep
-          }.asJava))
+              if (shouldKeep) {
+                sspToLastProcessedOffset.put(systemStreamPartition, new LastProcessedOffset(offset))
+              }
+          }
+          lastProcessedOffsets.put(taskName, sspToLastProcessedOffset)
         }
       }
     } else {
@@ -372,7 +397,7 @@ class OffsetManager(
   /**
    * Returns a map of all SystemStreamPartitions in lastProcessedOffsets that need to be reset
    */
-  private def getSystemStreamPartitionsToReset(taskNameTosystemStreamPartitions: ConcurrentHashMap[TaskName, ConcurrentHashMap[SystemStreamPartition, String]]): Map[TaskName, Set[SystemStreamPartition]] = {
+  private def getSystemStreamPartitionsToReset(taskNameTosystemStreamPartitions: ConcurrentHashMap[TaskName, ConcurrentHashMap[SystemStreamPartition, LastProcessedOffset]]): Map[TaskName, Set[SystemStreamPartition]] = {
     taskNameTosystemStreamPartitions.asScala.map {
       case (taskName, sspToOffsets) => {
         taskName -> (sspToOffsets.asScala.filter {
@@ -395,7 +420,7 @@ class OffsetManager(
     startingOffsets = lastProcessedOffsets.asScala.map {
       case (taskName, sspToOffsets) => {
         taskName -> {
-          sspToOffsets.asScala.groupBy(_._1.getSystem).flatMap {
+          sspToOffsets.asScala.map { case (ssp, lastProcessedOffset) => ssp -> lastProcessedOffset.get }.groupBy(_._1.getSystem).flatMap {
             case (systemName, systemStreamPartitionOffsets) =>
               systemAdmins.getSystemAdmin(systemName).getOffsetsAfter(systemStreamPartitionOffsets.asJava).asScala
           }
@@ -404,6 +429,34 @@ class OffsetManager(
     }
   }
 
+  /**
+   * Allocate an empty last processed offset slot for every registered
+   * SystemStreamPartition that has no checkpointed offset.
+   */
+  private def allocateLastProcessedOffsets {
+    systemStreamPartitions.foreach {
+      case (taskName, systemStreamPartitionsSet) =>
+        systemStreamPartitionsSet.foreach(getOrCreateLastProcessedOffset(taskName, _))
+    }
+  }
+
+  private def getOrCreateLastProcessedOffset(taskName: TaskName, systemStreamPartition: SystemStreamPartition): LastProcessedOffset = {
+    var sspToOffsets = lastProcessedOffsets.get(taskName)
+    if (sspToOffsets == null) {
+      lastProcessedOffsets.putIfAbsent(taskName, new ConcurrentHashMap[SystemStreamPartition, LastProcessedOffset]())
+      sspToOffsets = lastProcessedOffsets.get(taskName)
+    }
+    var lastProcessedOffset = sspToOffsets.get(systemStreamPartition)
+    if (lastProcessedOffset == null) {
+      val newLastProcessedOffset = new LastProcessedOffset(null)
+      lastProcessedOffset = sspToOffsets.putIfAbsent(systemStreamPartition, newLastProcessedOffset)
+      if (lastProcessedOffset == null) {
+        lastProcessedOffset = newLastProcessedOffset
+      }
+    }
+    lastProcessedOffset
+  }
+
   /**
    * Use defaultOffsets to get a next offset for every SystemStreamPartition
    * that was registered, but has no offset.
@@ -453,3 +506,43 @@ class OffsetManager(
     }
   }
 }
+
+/**
+ * Holds the last processed offset of a single SystemStreamPartition. Numeric
+ * offsets are stored as a primitive and only converted to a String on read,
+ * which happens once per checkpoint rather than once per message.
+ *
+ * Updates for a SystemStreamPartition are applied by one thread at a time,
+ * while reads may come from the commit thread.
+ */
+class LastProcessedOffset(initialOffset: String) {
+  @volatile private var offset: String = initialOffset
+  @volatile private var numericOffset: Long = LastProcessedOffset.NoNumericOffset
+
+  def set(offset: String) {
+    this.offset = offset
+    numericOffset = LastProcessedOffset.NoNumericOffset
+  }
+
+  def set(offset: Long) {
+    numericOffset = offset
+  }
+
+  /**
+   * The last processed offset, or null if nothing has been processed yet.
+   */
+  def get: String = {
+    val currentNumericOffset = numericOffset
+    if (currentNumericOffset != LastProcessedOffset.NoNumericOffset) {
+      String.valueOf(currentNumericOffset)
+    } else {
+      offset
+    }
+  }
+
+  override def toString = String.valueOf(get)
+}
+
+object LastProcessedOffset {
+  private val NoNumericOffset = Long.MinValue
+}
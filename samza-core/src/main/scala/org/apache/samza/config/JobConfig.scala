@@ -49,6 +49,9 @@ object JobConfig {
   val JOB_CONTAINER_COUNT = "job.container.count"
   val JOB_CONTAINER_THREAD_POOL_SIZE = "job.container.thread.pool.size"
   val JOB_CONTAINER_SINGLE_THREAD_MODE = "job.container.single.thread.mode"
+  val JOB_CONTAINER_RESTORE_THREAD_POOL_SIZE = "job.container.restore.thread.pool.size"
+  val DEFAULT_JOB_CONTAINER_RESTORE_THREAD_POOL_SIZE = 1
+  val JOB_CONTAINER_OBJECT_CACHE_SIZE_BYTES = "job.container.object.cache.size.bytes"
   val JOB_INTERMEDIATE_STREAM_PARTITIONS = "job.intermediate.stream.partitions"
   val JOB_DEBOUNCE_TIME_MS = "job.debounce.time.ms"
   val DEFAULT_DEBOUNCE_TIME_MS = 20000
@@ -191,6 +194,13 @@ class JobConfig(config: Config) extends ScalaMapConfig(config) with Logging {
     case _ => 0
   }
 
+  def getRestoreThreadPoolSize = getOption(JobConfig.JOB_CONTAINER_RESTORE_THREAD_POOL_SIZE) match {
+    case Some(size) => size.toInt
+    case _ => JobConfig.DEFAULT_JOB_CONTAINER_RESTORE_THREAD_POOL_SIZE
+  }
+
+  def getObjectCacheSizeBytes = getOption(JobConfig.JOB_CONTAINER_OBJECT_CACHE_SIZE_BYTES).map(_.toLong)
+
   def getSingleThreadMode = getOption(JobConfig.JOB_CONTAINER_SINGLE_THREAD_MODE) match {
     case Some(mode) => mode.toBoolean
     case _ => false
@@ -34,6 +34,8 @@ object StorageConfig {
   val CHANGELOG_REPLICATION_FACTOR = "stores.%s.changelog.replication.factor"
   val CHANGELOG_DELETE_RETENTION_MS = "stores.%s.changelog.delete.retention.ms"
   val DEFAULT_CHANGELOG_DELETE_RETENTION_MS = TimeUnit.DAYS.toMillis(1)
+  val LOCAL_CHECKPOINTS_RETAINED = "stores.%s.local.checkpoints.retained"
+  val DEFAULT_LOCAL_CHECKPOINTS_RETAINED = 0
   val ACCESSLOG_STREAM_SUFFIX = "access-log"
   val ACCESSLOG_SAMPLING_RATIO = "stores.%s.accesslog.sampling.ratio"
   val ACCESSLOG_ENABLED = "stores.%s.accesslog.enabled"
@@ -96,6 +98,19 @@ class StorageConfig(config: Config) extends ScalaMapConfig(config) with Logging
     Map(getStoreNames map {storeName => (storeName, getChangeLogDeleteRetentionInMs(storeName))} : _*)
   }
 
+  def getNumLocalCheckpointsRetained(storeName: String): Int = {
+    getInt(LOCAL_CHECKPOINTS_RETAINED format storeName, DEFAULT_LOCAL_CHECKPOINTS_RETAINED)
+  }
+
+  /**
+    * Helper method to get the number of local checkpoints to retain for the stores that have local checkpoints enabled.
+    * @return a map from storeName to the number of local checkpoints retained for the store.
+    */
+  def getLocalCheckpointsRetained: Map[String, Int] = {
+    Map(getStoreNames map {storeName => (storeName, getNumLocalCheckpointsRetained(storeName))} : _*)
+      .filter { case (_, retained) => retained > 0 }
+  }
+
   /**
    * Helper method to check if a system has a changelog attached to it.
    */
@@ -45,12 +45,16 @@ object TaskConfig {
   val CALLBACK_TIMEOUT_MS = "task.callback.timeout.ms"  // timeout period for triggering a callback
   val ASYNC_COMMIT = "task.async.commit" // to enable async commit in a AsyncStreamTask
   val MAX_IDLE_MS = "task.max.idle.ms"  // maximum time to wait for a task worker to complete when there are no new messages to handle
+  val RUN_LOOP_BATCH_SIZE = "task.run.loop.batch.size" // max number of envelopes the AsyncRunLoop dispatches per iteration
+  val PROCESS_BATCH_SIZE = "task.process.batch.size" // max number of envelopes passed to a BatchStreamTask per call
 
   val DEFAULT_WINDOW_MS: Long = -1L
   val DEFAULT_COMMIT_MS = 60000L
   val DEFAULT_CALLBACK_TIMEOUT_MS: Long = -1L
   val DEFAULT_MAX_CONCURRENCY: Int = 1
   val DEFAULT_MAX_IDLE_MS: Long = 10
+  val DEFAULT_RUN_LOOP_BATCH_SIZE: Int = 1
+  val DEFAULT_PROCESS_BATCH_SIZE: Int = 1
 
   /**
    * Samza's container polls for more messages under two conditions. The first
@@ -158,4 +162,14 @@ class TaskConfig(config: Config) extends ScalaMapConfig(config) with Logging {
     case Some(ms) => ms.toLong
     case _ => TaskConfig.DEFAULT_MAX_IDLE_MS
   }
+
+  def getRunLoopBatchSize: Int = getOption(TaskConfig.RUN_LOOP_BATCH_SIZE) match {
+    case Some(batchSize) => batchSize.toInt
+    case _ => TaskConfig.DEFAULT_RUN_LOOP_BATCH_SIZE
+  }
+
+  def getProcessBatchSize: Int = getOption(TaskConfig.PROCESS_BATCH_SIZE) match {
+    case Some(batchSize) => batchSize.toInt
+    case _ => TaskConfig.DEFAULT_PROCESS_BATCH_SIZE
+  }
 }
@@ -112,14 +112,14 @@ class RunLoop (
    * process() method on the appropriate StreamTask to handle it.
    */
   private def process(envelope: IncomingMessageEnvelope) {
-    metrics.processes.inc
+    metrics.processes.increment
 
     activeNs += updateTimerAndGetDuration(metrics.processNs) ((currentTimeNs: Long) => {
       if (envelope != null) {
         val ssp = envelope.getSystemStreamPartition
 
         trace("Processing incoming message envelope for SSP %s." format ssp)
-        metrics.envelopes.inc
+        metrics.envelopes.increment
 
         val taskInstances = systemStreamPartitionToTaskInstances(ssp)
         taskInstances.foreach {
@@ -132,7 +132,7 @@ class RunLoop (
         }
       } else {
         trace("No incoming message envelope was available.")
-        metrics.nullEnvelopes.inc
+        metrics.nullEnvelopes.increment
       }
     })
   }
@@ -145,7 +145,7 @@ class RunLoop (
       if (windowMs >= 0 && lastWindowNs + windowMs * metricsMsOffset < currentTimeNs) {
         trace("Windowing stream tasks.")
         lastWindowNs = currentTimeNs
-        metrics.windows.inc
+        metrics.windows.increment
 
         taskInstances.foreach {
           case (taskName, task) =>
@@ -165,11 +165,11 @@ class RunLoop (
       if (commitMs >= 0 && lastCommitNs + commitMs * metricsMsOffset < currentTimeNs) {
         info("Committing task instances because the commit interval has elapsed.")
         lastCommitNs = currentTimeNs
-        metrics.commits.inc
+        metrics.commits.increment
         taskInstances.values.foreach(_.commit)
       } else if (!coordinatorRequests.commitRequests.isEmpty){
         trace("Committing due to explicit commit request.")
-        metrics.commits.inc
+        metrics.commits.increment
         coordinatorRequests.commitRequests.asScala.foreach(taskName => {
           taskInstances(taskName).commit
         })
@@ -27,7 +27,8 @@ import java.nio.file.Path
 import java.time.Duration
 import java.util
 import java.util.Base64
-import java.util.concurrent.{ExecutorService, Executors, ScheduledExecutorService, TimeUnit}
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.{Callable, ExecutionException, ExecutorService, Executors, ScheduledExecutorService, TimeUnit}
 
 import com.google.common.annotations.VisibleForTesting
 import com.google.common.util.concurrent.ThreadFactoryBuilder
@@ -621,7 +622,8 @@ object SamzaContainer extends Logging {
         partition = taskModel.getChangelogPartition,
         systemAdmins = systemAdmins,
         new StorageConfig(config).getChangeLogDeleteRetentionsInMs,
-        new SystemClock)
+        new SystemClock,
+        new StorageConfig(config).getLocalCheckpointsRetained)
 
       var sideInputStorageManager: TaskSideInputStorageManager = null
       if (sideInputStores.nonEmpty) {
@@ -1003,15 +1005,81 @@ class SamzaContainer(
   }
 
   def startStores {
-    taskInstances.values.foreach(taskInstance => {
-      val startTime = System.currentTimeMillis()
-      info("Starting stores in task instance %s" format taskInstance.taskName)
-      taskInstance.startStores
-      // Measuring the time to restore the stores
-      val timeToRestore = System.currentTimeMillis() - startTime
-      val taskGauge = metrics.taskStoreRestorationMetrics.asScala.getOrElse(taskInstance.taskName, null)
-      if (taskGauge != null) {
-        taskGauge.set(timeToRestore)
+    val restoreThreadPoolSize = config.getRestoreThreadPoolSize
+    if (restoreThreadPoolSize > 1) {
+      startStoresInParallel(restoreThreadPoolSize)
+    } else {
+      taskInstances.values.foreach(taskInstance => {
+        val startTime = System.currentTimeMillis()
+        info("Starting stores in task instance %s" format taskInstance.taskName)
+        taskInstance.startStores
+        // Measuring the time to restore the stores
+        val timeToRestore = System.currentTimeMillis() - startTime
+        val taskGauge = metrics.taskStoreRestorationMetrics.asScala.getOrElse(taskInstance.taskName, null)
+        if (taskGauge != null) {
+          taskGauge.set(timeToRestore)
+        }
+      })
+    }
+  }
+
+  /**
+    * Restores the stores of all task instances on a bounded thread pool. All task instances are first prepared
+    * concurrently, then every store of every task is restored as an independent unit of work, so that restore time
+    * is bound by disk and network bandwidth rather than by the number of tasks. The restore time of each store is
+    * reported in its own gauge.
+    */
+  private def startStoresInParallel(restoreThreadPoolSize: Int) {
+    info("Starting stores with restore thread pool size: %s" format restoreThreadPoolSize)
+
+    val restoreExecutor = Executors.newFixedThreadPool(restoreThreadPoolSize,
+      new ThreadFactoryBuilder().setNameFormat("Samza Restore Thread-%d").setDaemon(true).build())
+    try {
+      val storesToRestore = runInParallel(restoreExecutor, taskInstances.values.map(taskInstance => () => {
+        info("Preparing stores in task instance %s" format taskInstance.taskName)
+        (taskInstance, taskInstance.prepareStoresRestore)
+      }))
+
+      val pendingRestores = new AtomicInteger(storesToRestore.map(_._2.size).sum)
+      metrics.storeRestoresPending.set(pendingRestores.get)
+
+      runInParallel(restoreExecutor, storesToRestore.flatMap {
+        case (taskInstance, storeNames) => storeNames.map(storeName => () => {
+          val startTime = System.currentTimeMillis()
+          info("Restoring store %s in task instance %s" format (storeName, taskInstance.taskName))
+          taskInstance.restoreStore(storeName)
+          val timeToRestore = System.currentTimeMillis() - startTime
+          val storeGauges = metrics.storeRestorationMetrics.get(taskInstance.taskName)
+          if (storeGauges != null && storeGauges.containsKey(storeName)) {
+            storeGauges.get(storeName).set(timeToRestore)
+          }
+          metrics.storeRestoresPending.set(pendingRestores.decrementAndGet())
+        })
+      })
+
+      runInParallel(restoreExecutor, taskInstances.values.map(taskInstance => () => {
+        info("Completing store restoration in task instance %s" format taskInstance.taskName)
+        taskInstance.completeStoresRestore
+      }))
+    } finally {
+      restoreExecutor.shutdownNow()
+    }
+  }
+
+  /**
+    * Runs all functions on the executor and waits for them to complete, returning their results in order.
+    * The first failure is rethrown once all functions have been submitted.
+    */
+  private def runInParallel[T](executor: ExecutorService, fns: Iterable[() => T]): Seq[T] = {
+    val futures = fns.map(fn => executor.submit(new Callable[T] {
+      override def call(): T = fn()
+    })).toList
+
+    futures.map(future => {
+      try {
+        future.get()
+      } catch {
+        case e: ExecutionException => throw new SamzaException("Failed to restore stores.", e.getCause)
       }
     })
   }
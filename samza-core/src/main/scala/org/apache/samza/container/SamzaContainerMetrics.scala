@@ -40,6 +40,7 @@ class SamzaContainerMetrics(
   val processNs = newTimer("process-ns")
   val commitNs = newTimer("commit-ns")
   val blockNs = newTimer("block-ns")
+  val dispatchNs = newTimer("dispatch-ns")
   val containerStartupTime = newTimer("container-startup-time")
   val utilization = newGauge("event-loop-utilization", 0.0F)
   val diskUsageBytes = newGauge("disk-usage-bytes", 0L)
@@ -50,13 +51,23 @@ class SamzaContainerMetrics(
   val avgUtilization = newGauge("average-utilization", 0.0F)
   val serviceRate = newGauge("service-rate", 0.0F)
   val latency = newGauge("average-latency", 0.0F)
+  val envelopesPerIteration = newGauge("envelopes-per-iteration", 0.0)
+  val workerRuns = newCounter("task-worker-runs")
 
   val taskStoreRestorationMetrics: util.Map[TaskName, Gauge[Long]] = new util.HashMap[TaskName, Gauge[Long]]()
+  val storeRestorationMetrics: util.Map[TaskName, util.Map[String, Gauge[Long]]] =
+    new util.HashMap[TaskName, util.Map[String, Gauge[Long]]]()
+  val storeRestoresPending = newGauge("store-restores-pending", 0)
 
   val exceptions = newListGauge[DiagnosticsExceptionEvent]("exceptions")
 
   def addStoreRestorationGauge(taskName: TaskName, storeName: String) {
-    taskStoreRestorationMetrics.put(taskName, newGauge("%s-%s-restore-time" format(taskName.toString, storeName), -1L))
+    val gauge = newGauge("%s-%s-restore-time" format(taskName.toString, storeName), -1L)
+    taskStoreRestorationMetrics.put(taskName, gauge)
+    if (!storeRestorationMetrics.containsKey(taskName)) {
+      storeRestorationMetrics.put(taskName, new util.HashMap[String, Gauge[Long]]())
+    }
+    storeRestorationMetrics.get(taskName).put(storeName, gauge)
   }
 
 }
@@ -70,8 +70,10 @@ class TaskInstance(
   val isInitableTask = task.isInstanceOf[InitableTask]
   val isWindowableTask = task.isInstanceOf[WindowableTask]
   val isEndOfStreamListenerTask = task.isInstanceOf[EndOfStreamListenerTask]
+  val isCommitListenerTask = task.isInstanceOf[CommitListenerTask]
   val isClosableTask = task.isInstanceOf[ClosableTask]
   val isAsyncTask = task.isInstanceOf[AsyncStreamTask]
+  val isBatchTask = task.isInstanceOf[BatchStreamTask]
 
   val epochTimeScheduler: EpochTimeScheduler = EpochTimeScheduler.create(timerExecutor)
 
@@ -137,6 +139,39 @@ class TaskInstance(
     }
   }
 
+  /**
+    * Prepares the stores of this task for restoration and returns the names of the stores that need to be
+    * restored from their changelog. Each returned store must be restored with [[restoreStore]], after which
+    * [[completeStoresRestore]] must be called. This is the split-phase equivalent of [[startStores]].
+    */
+  def prepareStoresRestore: Set[String] = {
+    if (storageManager != null) {
+      debug("Preparing storage manager for taskName: %s" format taskName)
+      storageManager.prepareRestore()
+      storageManager.getStoresToRestore
+    } else {
+      debug("Skipping storage manager initialization for taskName: %s" format taskName)
+      Set()
+    }
+  }
+
+  def restoreStore(storeName: String) {
+    storageManager.restoreStore(storeName)
+  }
+
+  def completeStoresRestore {
+    if (storageManager != null) {
+      storageManager.completeRestore()
+    }
+
+    if (sideInputStorageManager != null) {
+      debug("Starting side input storage manager for taskName: %s" format taskName)
+      sideInputStorageManager.init()
+    } else {
+      debug("Skipping side input storage manager initialization for taskName: %s" format taskName)
+    }
+  }
+
   def startTableManager {
     if (tableManager != null) {
       debug("Starting table manager for taskName: %s" format taskName)
@@ -184,7 +219,7 @@ class TaskInstance(
 
   def process(envelope: IncomingMessageEnvelope, coordinator: ReadableCoordinator,
     callbackFactory: TaskCallbackFactory = null) {
-    metrics.processes.inc
+    metrics.processes.increment
 
     val incomingMessageSsp = envelope.getSystemStreamPartition
 
@@ -194,7 +229,7 @@ class TaskInstance(
     }
 
     if (ssp2CaughtupMapping(incomingMessageSsp)) {
-      metrics.messagesActuallyProcessed.inc
+      metrics.messagesActuallyProcessed.increment
 
       trace("Processing incoming message envelope for taskName and SSP: %s, %s"
         format (taskName, incomingMessageSsp))
@@ -215,7 +250,51 @@ class TaskInstance(
           trace("Updating offset map for taskName, SSP and offset: %s, %s, %s"
             format (taskName, incomingMessageSsp, envelope.getOffset))
 
-          offsetManager.update(taskName, incomingMessageSsp, envelope.getOffset)
+          if (envelope.hasNumericOffset) {
+            offsetManager.update(taskName, incomingMessageSsp, envelope.getNumericOffset)
+          } else {
+            offsetManager.update(taskName, incomingMessageSsp, envelope.getOffset)
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Processes a batch of contiguous envelopes of a single SystemStreamPartition with one call to
+   * [[BatchStreamTask.processBatch]] and one callback. Envelopes before the starting offset of the partition are
+   * skipped. The offset of the batch is updated by the run loop once the callback completes.
+   */
+  def processBatch(envelopes: java.util.List[IncomingMessageEnvelope], coordinator: ReadableCoordinator,
+    callbackFactory: TaskCallbackFactory) {
+    metrics.processes.increment(envelopes.size)
+    metrics.processBatches.increment
+
+    val incomingMessageSsp = envelopes.get(0).getSystemStreamPartition
+    val caughtUpMessages = new java.util.ArrayList[IncomingMessageEnvelope](envelopes.size)
+    for (envelope <- envelopes.asScala) {
+      if (!ssp2CaughtupMapping.getOrElse(incomingMessageSsp,
+        throw new SamzaException(incomingMessageSsp + " is not registered!"))) {
+        checkCaughtUp(envelope)
+      }
+
+      if (ssp2CaughtupMapping(incomingMessageSsp)) {
+        caughtUpMessages.add(envelope)
+      }
+    }
+
+    if (!caughtUpMessages.isEmpty) {
+      metrics.messagesActuallyProcessed.increment(caughtUpMessages.size)
+
+      trace("Processing batch of %d incoming message envelopes for taskName and SSP: %s, %s"
+        format (caughtUpMessages.size, taskName, incomingMessageSsp))
+
+      if (sideInputSSPs.contains(incomingMessageSsp)) {
+        caughtUpMessages.asScala.foreach(sideInputStorageManager.process)
+      } else {
+        exceptionHandler.maybeHandle {
+          val callback = callbackFactory.createCallback()
+          task.asInstanceOf[BatchStreamTask].processBatch(caughtUpMessages, collector, coordinator, callback)
         }
       }
     }
@@ -233,7 +312,7 @@ class TaskInstance(
     if (isWindowableTask) {
       trace("Windowing for taskName: %s" format taskName)
 
-      metrics.windows.inc
+      metrics.windows.increment
 
       exceptionHandler.maybeHandle {
         task.asInstanceOf[WindowableTask].window(collector, coordinator)
@@ -252,10 +331,17 @@ class TaskInstance(
   }
 
   def commit {
-    metrics.commits.inc
+    metrics.commits.increment
 
     val checkpoint = offsetManager.buildCheckpoint(taskName)
 
+    // after the snapshot, so that the state the task writes to its stores covers every offset in the checkpoint
+    if (isCommitListenerTask) {
+      trace("Notifying task of commit for taskName: %s" format taskName)
+
+      task.asInstanceOf[CommitListenerTask].onCommit
+    }
+
     trace("Flushing producers for taskName: %s" format taskName)
 
     collector.flush
@@ -73,10 +73,10 @@ class TaskInstanceExceptionHandler(
     debug("Counting exception " + className)
 
     counters.get(className) match {
-      case Some(counter) => counter.inc()
+      case Some(counter) => counter.increment()
       case _ => {
         val counter = metrics.newCounter("exception-ignored-" + className)
-        counter.inc()
+        counter.increment()
         counters += className -> counter
       }
     }
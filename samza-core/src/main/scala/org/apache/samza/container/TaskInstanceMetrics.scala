@@ -31,12 +31,14 @@ class TaskInstanceMetrics(
   val commits = newCounter("commit-calls")
   val windows = newCounter("window-calls")
   val processes = newCounter("process-calls")
+  val processBatches = newCounter("process-batch-calls")
   val messagesActuallyProcessed = newCounter("messages-actually-processed")
   val sends = newCounter("send-calls")
   val flushes = newCounter("flush-calls")
   val pendingMessages = newGauge("pending-messages", 0)
   val messagesInFlight = newGauge("messages-in-flight", 0)
   val asyncCallbackCompleted = newCounter("async-callback-complete-calls");
+  val asyncCallbackTimeouts = newCounter("async-callback-timeouts")
 
   def addOffsetGauge(systemStreamPartition: SystemStreamPartition, getValue: () => String) {
     newGauge("%s-%s-%d-offset" format (systemStreamPartition.getSystem, systemStreamPartition.getStream, systemStreamPartition.getPartition.getPartitionId), getValue)
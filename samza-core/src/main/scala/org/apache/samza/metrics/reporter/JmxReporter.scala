@@ -130,11 +130,41 @@ class JmxCounter(c: org.apache.samza.metrics.Counter, on: ObjectName) extends Jm
 
 trait JmxTimerMBean extends MetricMBean {
   def getAverageTime(): Double
+  def get50thPercentile(): Long
+  def get99thPercentile(): Long
+  def get999thPercentile(): Long
+  def getMax(): Long
+}
+
+object JmxTimer {
+  /**
+   * How long a snapshot is reused. JMX reads each attribute separately, so this lets the attributes read together
+   * share one snapshot instead of taking one each.
+   */
+  val SNAPSHOT_REUSE_MS = 1000L
 }
 
 class JmxTimer(t: org.apache.samza.metrics.Timer, on: ObjectName) extends JmxTimerMBean {
-  def getAverageTime() = t.getSnapshot().getAverage()
+  @volatile private var snapshot: (Long, Snapshot) = null
+
+  def getAverageTime() = getSnapshot().getAverage()
+  def get50thPercentile() = getSnapshot().getPercentile(50)
+  def get99thPercentile() = getSnapshot().getPercentile(99)
+  def get999thPercentile() = getSnapshot().getPercentile(99.9)
+  def getMax() = getSnapshot().getMax()
   def objectName = on
+
+  private def getSnapshot(): Snapshot = {
+    val now = System.currentTimeMillis()
+    val last = snapshot
+    if (last != null && now - last._1 < JmxTimer.SNAPSHOT_REUSE_MS) {
+      last._2
+    } else {
+      val taken = t.getSnapshot()
+      snapshot = (now, taken)
+      taken
+    }
+  }
 }
 
 class JmxReporterFactory extends MetricsReporterFactory with Logging {
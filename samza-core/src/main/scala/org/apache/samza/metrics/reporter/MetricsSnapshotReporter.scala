@@ -126,7 +126,14 @@ class MetricsSnapshotReporter(
                 def listGauge[T](listGauge: ListGauge[T]) = { groupMsg.put(name, listGauge.getValues) }
                 def counter(counter: Counter) = groupMsg.put(name, counter.getCount: java.lang.Long)
                 def gauge[T](gauge: Gauge[T]) = groupMsg.put(name, gauge.getValue.asInstanceOf[Object])
-                def timer(timer: Timer) = groupMsg.put(name, timer.getSnapshot().getAverage(): java.lang.Double)
+                def timer(timer: Timer) = {
+                  val snapshot = timer.getSnapshot()
+                  groupMsg.put(name, snapshot.getAverage(): java.lang.Double)
+                  groupMsg.put(name + "-p50", snapshot.getPercentile(50): java.lang.Long)
+                  groupMsg.put(name + "-p99", snapshot.getPercentile(99): java.lang.Long)
+                  groupMsg.put(name + "-p999", snapshot.getPercentile(99.9): java.lang.Long)
+                  groupMsg.put(name + "-max", snapshot.getMax(): java.lang.Long)
+                }
               })
             }
         }
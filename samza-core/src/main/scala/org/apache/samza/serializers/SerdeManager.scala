@@ -143,6 +143,14 @@ class SerdeManager(
 
     if ((key eq envelope.getKey) && (message eq envelope.getMessage)) {
       envelope
+    } else if (envelope.hasNumericOffset) {
+      new IncomingMessageEnvelope(
+        envelope.getSystemStreamPartition,
+        envelope.getNumericOffset,
+        key,
+        message,
+        0,
+        envelope.getTimestamp)
     } else {
       new IncomingMessageEnvelope(
         envelope.getSystemStreamPartition,
@@ -20,6 +20,7 @@
 package org.apache.samza.storage
 
 import java.io._
+import java.nio.file.{Files, StandardCopyOption}
 import java.util
 
 import org.apache.samza.config.StorageConfig
@@ -29,6 +30,11 @@ import org.apache.samza.system._
 import org.apache.samza.util.{Clock, FileUtil, Logging}
 
 object TaskStorageManager {
+  /**
+    * The file in a logged store partition directory that holds the newest changelog offset reflected in the store.
+    */
+  val OFFSET_FILE_NAME = "OFFSET"
+
   def getStoreDir(storeBaseDir: File, storeName: String) = {
     new File(storeBaseDir, storeName)
   }
@@ -37,6 +43,50 @@ object TaskStorageManager {
     // TODO: Sanitize, check and clean taskName string as a valid value for a file
     new File(storeBaseDir, (storeName + File.separator + taskName.toString).replace(' ', '_'))
   }
+
+  val CHECKPOINT_DIR_SEPARATOR = "-checkpoint-"
+
+  /**
+    * Local checkpoints of a store partition are kept next to the store partition directory, in directories
+    * named after the store partition directory and the id of the checkpoint.
+    */
+  def getCheckpointDir(storePartitionDir: File, checkpointId: Long) = {
+    new File(storePartitionDir.getParentFile, storePartitionDir.getName + CHECKPOINT_DIR_SEPARATOR + checkpointId)
+  }
+
+  /**
+    * Returns the local checkpoint directories of the store partition, newest first.
+    */
+  def getCheckpointDirs(storePartitionDir: File): Seq[File] = {
+    val prefix = storePartitionDir.getName + CHECKPOINT_DIR_SEPARATOR
+    val checkpointDirs = storePartitionDir.getParentFile.listFiles(new FileFilter {
+      override def accept(file: File): Boolean = {
+        file.isDirectory && file.getName.startsWith(prefix) && file.getName.substring(prefix.length).forall(_.isDigit)
+      }
+    })
+    if (checkpointDirs == null) {
+      Seq()
+    } else {
+      checkpointDirs.toSeq.sortBy(dir => -dir.getName.substring(prefix.length).toLong)
+    }
+  }
+
+  /**
+    * Replaces the contents of the store partition directory with those of the checkpoint. Immutable SST files are
+    * hard linked, all other files are copied since the store may modify them in place.
+    */
+  def restoreCheckpoint(checkpointDir: File, storePartitionDir: File) {
+    FileUtil.rm(storePartitionDir)
+    storePartitionDir.mkdirs()
+    checkpointDir.listFiles().filter(_.isFile).foreach(file => {
+      val target = new File(storePartitionDir, file.getName).toPath
+      if (file.getName.endsWith(".sst")) {
+        Files.createLink(target, file.toPath)
+      } else {
+        Files.copy(file.toPath, target, StandardCopyOption.COPY_ATTRIBUTES)
+      }
+    })
+  }
 }
 
 /**
@@ -55,7 +105,8 @@ class TaskStorageManager(
   partition: Partition,
   systemAdmins: SystemAdmins,
   changeLogDeleteRetentionsInMs: Map[String, Long],
-  clock: Clock) extends Logging {
+  clock: Clock,
+  localCheckpointsRetained: Map[String, Int] = Map()) extends Logging {
 
   var taskStoresToRestore = taskStores.filter{
     case (storeName, storageEngine) => storageEngine.getStoreProperties.isLoggedStore
@@ -66,16 +117,52 @@ class TaskStorageManager(
 
   var changeLogOldestOffsets: Map[SystemStream, String] = Map()
   val fileOffsets: util.Map[SystemStreamPartition, String] = new util.HashMap[SystemStreamPartition, String]()
-  val offsetFileName = "OFFSET"
+  val offsetFileName = TaskStorageManager.OFFSET_FILE_NAME
 
   def getStore(storeName: String): Option[StorageEngine] = taskStores.get(storeName)
 
   def init {
+    prepareRestore()
+    getStoresToRestore.foreach(restoreStore)
+    completeRestore()
+  }
+
+  /**
+    * Cleans up and sets up the store directories, validates the changelog streams and starts the changelog consumers.
+    * Must be called before any store is restored with [[restoreStore]].
+    */
+  def prepareRestore() {
     cleanBaseDirs()
     setupBaseDirs()
     validateChangelogStreams()
     startConsumers()
-    restoreStores()
+  }
+
+  /**
+    * Returns the names of the stores that need to be restored from their changelog.
+    * Only valid after [[prepareRestore]] has been called.
+    */
+  def getStoresToRestore: Set[String] = {
+    taskStoresToRestore.keySet.filter(changeLogSystemStreams.contains)
+  }
+
+  /**
+    * Restores a single store from its changelog. Each store is restored through its own changelog consumer,
+    * so different stores of this task may be restored concurrently from different threads.
+    */
+  def restoreStore(storeName: String) {
+    debug("Restoring store: %s for task: %s." format (storeName, taskName.getTaskName))
+
+    val store = taskStoresToRestore(storeName)
+    val systemStreamPartition = new SystemStreamPartition(changeLogSystemStreams(storeName), partition)
+    val systemConsumerIterator = new SystemStreamPartitionIterator(storeConsumers(storeName), systemStreamPartition)
+    store.restore(systemConsumerIterator)
+  }
+
+  /**
+    * Stops the changelog consumers once all stores have been restored.
+    */
+  def completeRestore() {
     stopConsumers()
   }
 
@@ -94,6 +181,10 @@ class TaskStorageManager(
       val loggedStorePartitionDir = TaskStorageManager.getStorePartitionDir(loggedStoreBaseDir, storeName, taskName)
       info("Got logged storage partition directory as %s" format loggedStorePartitionDir.toPath.toString)
 
+      if (localCheckpointsRetained.contains(storeName) && persistedStores.contains(storeName)) {
+        restoreFromLocalCheckpoint(storeName, loggedStorePartitionDir)
+      }
+
       // Delete the logged store if it is not valid.
       if (!isLoggedStoreValid(storeName, loggedStorePartitionDir)) {
         info("Deleting logged storage partition directory %s." format loggedStorePartitionDir.toPath.toString)
@@ -126,6 +217,54 @@ class TaskStorageManager(
       !StorageManagerUtil.isStaleStore(loggedStoreDir, offsetFileName, changeLogDeleteRetentionInMs, clock.currentTimeMillis())
   }
 
+  /**
+    * Replaces the logged store directory with the newest local checkpoint of the store that has a valid offset file
+    * and is not stale, if the logged store itself is missing or not valid, or if the checkpoint is at a newer
+    * changelog offset than the logged store. Checkpoints that are not valid are deleted.
+    */
+  private def restoreFromLocalCheckpoint(storeName: String, loggedStoreDir: File) {
+    val (validCheckpointDirs, invalidCheckpointDirs) = TaskStorageManager.getCheckpointDirs(loggedStoreDir)
+      .partition(checkpointDir => isLoggedStoreValid(storeName, checkpointDir))
+
+    invalidCheckpointDirs.foreach(checkpointDir => {
+      info("Deleting invalid local checkpoint %s for store %s." format (checkpointDir.toPath.toString, storeName))
+      FileUtil.rm(checkpointDir)
+    })
+
+    validCheckpointDirs.headOption match {
+      case Some(checkpointDir) if isNewerThanLoggedStore(storeName, checkpointDir, loggedStoreDir) =>
+        info("Restoring logged storage partition directory %s from local checkpoint %s." format
+          (loggedStoreDir.toPath.toString, checkpointDir.toPath.toString))
+        TaskStorageManager.restoreCheckpoint(checkpointDir, loggedStoreDir)
+      case Some(checkpointDir) =>
+        info("Keeping logged storage partition directory %s since it is not older than local checkpoint %s." format
+          (loggedStoreDir.toPath.toString, checkpointDir.toPath.toString))
+      case None =>
+        info("No valid local checkpoint found for store %s." format storeName)
+    }
+  }
+
+  /**
+    * A valid checkpoint is newer than the logged store if the logged store is not valid, or if the changelog offset
+    * of the checkpoint is newer than the one of the logged store. Offsets that can not be compared keep the logged
+    * store.
+    */
+  private def isNewerThanLoggedStore(storeName: String, checkpointDir: File, loggedStoreDir: File): Boolean = {
+    if (!isLoggedStoreValid(storeName, loggedStoreDir)) {
+      true
+    } else {
+      changeLogSystemStreams.get(storeName) match {
+        case Some(systemStream) =>
+          val checkpointOffset = StorageManagerUtil.readOffsetFile(checkpointDir, offsetFileName)
+          val loggedStoreOffset = StorageManagerUtil.readOffsetFile(loggedStoreDir, offsetFileName)
+          val comparison = systemAdmins.getSystemAdmin(systemStream.getSystem)
+            .offsetComparator(checkpointOffset, loggedStoreOffset)
+          comparison != null && comparison.intValue > 0
+        case None => false
+      }
+    }
+  }
+
   private def setupBaseDirs() {
     debug("Setting up base directories for stores.")
     taskStores.foreach {
@@ -202,20 +341,6 @@ class TaskStorageManager(
     StorageManagerUtil.getStartingOffset(systemStreamPartition, admin, fileOffset, oldestOffset)
   }
 
-  private def restoreStores() {
-    debug("Restoring stores for task: %s." format taskName.getTaskName)
-
-    for ((storeName, store) <- taskStoresToRestore) {
-      if (changeLogSystemStreams.contains(storeName)) {
-        val systemStream = changeLogSystemStreams(storeName)
-        val systemStreamPartition = new SystemStreamPartition(systemStream, partition)
-        val systemConsumer = storeConsumers(storeName)
-        val systemConsumerIterator = new SystemStreamPartitionIterator(systemConsumer, systemStreamPartition)
-        store.restore(systemConsumerIterator)
-      }
-    }
-  }
-
   private def stopConsumers() {
     debug("Stopping consumers for stores.")
 
@@ -226,7 +351,36 @@ class TaskStorageManager(
     debug("Flushing stores.")
 
     taskStores.values.foreach(_.flush)
-    flushChangelogOffsetFiles()
+    val newestOffsets = flushChangelogOffsetFiles()
+    checkpointStores(newestOffsets)
+  }
+
+  /**
+    * Creates a local checkpoint of each persisted store that has local checkpoints enabled, tagged with the
+    * changelog offset written to the store's offset file, and deletes the checkpoints beyond the configured number
+    * to retain. The offset file is written into the checkpoint last, so a checkpoint that was not completed is
+    * never used for restoring the store.
+    */
+  private def checkpointStores(newestOffsets: Map[String, String]) {
+    val checkpointId = clock.currentTimeMillis()
+
+    for ((storeName, retained) <- localCheckpointsRetained
+         if persistedStores.contains(storeName) && newestOffsets.contains(storeName)) {
+      try {
+        val loggedStorePartitionDir = TaskStorageManager.getStorePartitionDir(loggedStoreBaseDir, storeName, taskName)
+        val checkpointDir = TaskStorageManager.getCheckpointDir(loggedStorePartitionDir, checkpointId)
+        if (checkpointDir.exists()) {
+          debug("Local checkpoint %s already exists for store %s. Skipping." format (checkpointDir, storeName))
+        } else if (taskStores(storeName).checkpoint(checkpointDir)) {
+          FileUtil.writeWithChecksum(new File(checkpointDir, offsetFileName), newestOffsets(storeName))
+          debug("Created local checkpoint %s for store %s at offset %s" format (checkpointDir, storeName, newestOffsets(storeName)))
+
+          TaskStorageManager.getCheckpointDirs(loggedStorePartitionDir).drop(retained).foreach(FileUtil.rm)
+        }
+      } catch {
+        case e: Exception => error("Exception creating local checkpoint for store %s. Skipping." format storeName, e)
+      }
+    }
   }
 
   def stopStores() {
@@ -248,8 +402,9 @@ class TaskStorageManager(
     * e.g. This can happen if the job was run on this host, then another
     * host and back to this host.
     */
-  private def flushChangelogOffsetFiles() {
+  private def flushChangelogOffsetFiles(): Map[String, String] = {
     debug("Persisting logged key value stores")
+    var newestOffsets = Map[String, String]()
 
     for ((storeName, systemStream) <- changeLogSystemStreams.filterKeys(storeName => persistedStores.contains(storeName))) {
       debug("Fetching newest offset for store %s" format(storeName))
@@ -264,6 +419,7 @@ class TaskStorageManager(
         if (newestOffset != null) {
           debug("Storing offset for store in OFFSET file ")
           FileUtil.writeWithChecksum(offsetFile, newestOffset)
+          newestOffsets += storeName -> newestOffset
           debug("Successfully stored offset %s for store %s in OFFSET file " format(newestOffset, storeName))
         } else {
           //if newestOffset is null, then it means the store is (or has become) empty. No need to persist the offset file
@@ -279,6 +435,7 @@ class TaskStorageManager(
     }
 
     debug("Done persisting logged key value stores")
+    newestOffsets
   }
 
   /**
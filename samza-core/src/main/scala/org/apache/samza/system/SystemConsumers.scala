@@ -27,12 +27,11 @@ import org.apache.samza.serializers.SerdeManager
 import org.apache.samza.util.{Logging, TimerUtil}
 import org.apache.samza.system.chooser.MessageChooser
 import org.apache.samza.SamzaException
+import org.apache.samza.metrics.Counter
 import java.util.ArrayDeque
-import java.util.Collections
 import java.util.HashSet
 import java.util.HashMap
 import java.util.Queue
-import java.util.Set
 
 object SystemConsumers {
   val DEFAULT_POLL_INTERVAL_MS = 50
@@ -109,10 +108,13 @@ class SystemConsumers (
   val clock: () => Long = () => System.nanoTime()) extends Logging with TimerUtil {
 
   /**
-   * A buffer of incoming messages grouped by SystemStreamPartition. These
-   * messages are handed out to the MessageChooser as it needs them.
+   * The state of each registered SystemStreamPartition, which holds
+   * everything that choose, update and drainBuffered need for it, so they do
+   * a single lookup by SystemStreamPartition, whose hash code is
+   * precomputed. Polling doesn't look up states at all, since each
+   * SystemState holds the states of its SystemStreamPartitions in an array.
    */
-  private val unprocessedMessagesBySSP = new HashMap[SystemStreamPartition, Queue[IncomingMessageEnvelope]]()
+  private val sspStates = new HashMap[SystemStreamPartition, SystemStreamPartitionState]()
 
   /**
    * Set of SSPs that are currently at end-of-stream.
@@ -120,11 +122,11 @@ class SystemConsumers (
   private val endOfStreamSSPs = new HashSet[SystemStreamPartition]()
 
   /**
-   * A set of SystemStreamPartitions grouped by systemName. This is used as a
-   * cache to figure out which SystemStreamPartitions we need to poll from the
-   * underlying system consumer.
+   * The registered SystemStreamPartitions grouped by system. This is used to
+   * figure out which SystemStreamPartitions we need to poll from the
+   * underlying system consumer. Populated when SystemConsumers is started.
    */
-  private val emptySystemStreamPartitionsBySystem = new HashMap[String, Set[SystemStreamPartition]]()
+  private var systemStates = Array[SystemState]()
 
   /**
    * Default timeout to noNewMessagesTimeout. Every time SystemConsumers
@@ -148,27 +150,31 @@ class SystemConsumers (
   debug("Got no new message timeout: %s" format noNewMessagesTimeout)
 
   metrics.setTimeout(() => timeout)
-  metrics.setNeededByChooser(() => emptySystemStreamPartitionsBySystem.size)
+  metrics.setNeededByChooser(() => systemStates.count(_.systemStreamPartitionStates.nonEmpty))
   metrics.setUnprocessedMessages(() => totalUnprocessedMessages)
 
   def start {
     debug("Starting consumers.")
-    emptySystemStreamPartitionsBySystem.asScala ++= unprocessedMessagesBySSP
-      .keySet
-      .asScala
-      .groupBy(_.getSystem)
-      .mapValues(systemStreamPartitions => new util.HashSet(systemStreamPartitions.toSeq.asJava))
 
     consumers
       .keySet
       .foreach(metrics.registerSystem)
 
+    val sspStatesBySystem = sspStates.values.asScala.groupBy(_.systemStreamPartition.getSystem)
+    sspStates.values.asScala.foreach(_.needsMessages = true)
+    systemStates = consumers
+      .keys
+      .map(systemName => new SystemState(systemName, sspStatesBySystem.getOrElse(systemName, Seq()).toArray))
+      .toArray
+
     consumers
       .values
       .foreach(_.start)
 
     chooser.start
 
+    sspStates.values.asScala.foreach(state => state.drainable = chooser.isDrainable(state.systemStreamPartition))
+
     refresh
   }
 
@@ -191,7 +197,10 @@ class SystemConsumers (
     }
 
     metrics.registerSystemStreamPartition(systemStreamPartition)
-    unprocessedMessagesBySSP.put(systemStreamPartition, new ArrayDeque[IncomingMessageEnvelope]())
+    if (!sspStates.containsKey(systemStreamPartition)) {
+      sspStates.put(systemStreamPartition, new SystemStreamPartitionState(systemStreamPartition))
+    }
+    getState(systemStreamPartition).messagesChosen = metrics.systemStreamMessagesChosen(systemStreamPartition)
     chooser.register(systemStreamPartition, offset)
 
     try {
@@ -213,7 +222,7 @@ class SystemConsumers (
       if (envelopeFromChooser == null) {
         trace("Chooser returned null.")
 
-        metrics.choseNull.inc
+        metrics.choseNull.increment
 
         // Sleep for a while so we don't poll in a tight loop, but, don't do this when called from the AsyncRunLoop
         // code because in that case the chooser will not get updated with a new message for an SSP until after a
@@ -222,22 +231,24 @@ class SystemConsumers (
         timeout = if (updateChooser) noNewMessagesTimeout else 0
       } else {
         val systemStreamPartition = envelopeFromChooser.getSystemStreamPartition
+        val state = getState(systemStreamPartition)
 
         if (envelopeFromChooser.isEndOfStream) {
           info("End of stream reached for partition: %s" format systemStreamPartition)
           endOfStreamSSPs.add(systemStreamPartition)
+          state.endOfStream = true
         }
 
         trace("Chooser returned an incoming message envelope: %s" format envelopeFromChooser)
 
         // Ok to give the chooser a new message from this stream.
         timeout = 0
-        metrics.choseObject.inc
-        metrics.systemStreamMessagesChosen(envelopeFromChooser.getSystemStreamPartition).inc
+        metrics.choseObject.increment
+        state.messagesChosen.increment
 
         if (updateChooser) {
           trace("Update chooser for " + systemStreamPartition.getPartition)
-          tryUpdate(systemStreamPartition)
+          tryUpdate(state)
         }
       }
     }
@@ -255,35 +266,45 @@ class SystemConsumers (
    * Poll all SystemStreamPartitions for which there are currently no new
    * messages to process.
    */
-  private def poll(systemName: String) {
+  private def poll(systemState: SystemState) {
+    val systemName = systemState.systemName
+
     trace("Polling system consumer: %s" format systemName)
 
-    metrics.systemPolls(systemName).inc
+    systemState.polls.increment
 
     trace("Getting fetch map for system: %s" format systemName)
 
-    val systemFetchSet : util.Set[SystemStreamPartition] =
-      if (emptySystemStreamPartitionsBySystem.containsKey(systemName)) {
-        val sspToFetch = new util.HashSet(emptySystemStreamPartitionsBySystem.get(systemName))
-        sspToFetch.removeAll(endOfStreamSSPs)
-        sspToFetch
-      } else {
-        Collections.emptySet()
+    val states = systemState.systemStreamPartitionStates
+    var fetchCount = 0
+    var i = 0
+    while (i < states.length) {
+      if (states(i).needsMessages && !states(i).endOfStream) {
+        fetchCount += 1
       }
+      i += 1
+    }
 
     // Poll when at least one SSP in this system needs more messages.
 
-    if (systemFetchSet != null && systemFetchSet.size > 0) {
-      val consumer = consumers(systemName)
+    if (fetchCount > 0) {
+      val systemFetchSet = new util.HashSet[SystemStreamPartition](fetchCount * 2)
+      i = 0
+      while (i < states.length) {
+        if (states(i).needsMessages && !states(i).endOfStream) {
+          systemFetchSet.add(states(i).systemStreamPartition)
+        }
+        i += 1
+      }
 
       trace("Fetching: %s" format systemFetchSet)
 
-      metrics.systemStreamPartitionFetchesPerPoll(systemName).inc(systemFetchSet.size)
+      systemState.fetchesPerPoll.increment(fetchCount)
 
-      val systemStreamPartitionEnvelopes = consumer.poll(systemFetchSet, timeout)
+      val systemStreamPartitionEnvelopes = systemState.consumer.poll(systemFetchSet, timeout)
       trace("Got incoming message envelopes: %s" format systemStreamPartitionEnvelopes)
 
-      metrics.systemMessagesPerPoll(systemName).inc
+      systemState.messagesPerPoll.increment
 
       val sspAndEnvelopeIterator = systemStreamPartitionEnvelopes.entrySet.iterator
 
@@ -292,14 +313,16 @@ class SystemConsumers (
         val systemStreamPartition = sspAndEnvelope.getKey
         val envelopes = new ArrayDeque(sspAndEnvelope.getValue)
         val numEnvelopes = envelopes.size
-        totalUnprocessedMessages += numEnvelopes
+        val state = getState(systemStreamPartition)
 
-        if (numEnvelopes > 0) {
-          unprocessedMessagesBySSP.put(systemStreamPartition, envelopes)
+        if (numEnvelopes > 0 && state != null) {
+          totalUnprocessedMessages += numEnvelopes
+          state.unprocessedMessages = envelopes
 
           // Update the chooser if it needs a message for this SSP.
-          if (emptySystemStreamPartitionsBySystem.get(systemStreamPartition.getSystem).remove(systemStreamPartition)) {
-            tryUpdate(systemStreamPartition)
+          if (state.needsMessages) {
+            state.needsMessages = false
+            tryUpdate(state)
           }
         }
       }
@@ -309,15 +332,67 @@ class SystemConsumers (
   }
 
   def tryUpdate(ssp: SystemStreamPartition) {
+    tryUpdate(getState(ssp))
+  }
+
+  private def tryUpdate(state: SystemStreamPartitionState) {
     var updated = false
     try {
-      updated = update(ssp)
+      updated = update(state)
     } finally {
       if (!updated) {
-        // if failed to update the chooser, add the ssp back into the emptySystemStreamPartitionBySystem map to ensure that we will poll for the next message
-        emptySystemStreamPartitionsBySystem.get(ssp.getSystem).add(ssp)
+        // if failed to update the chooser, mark the ssp as needing messages again to ensure that we will poll for the next message
+        state.needsMessages = true
+      }
+    }
+  }
+
+  /**
+   * Removes up to maxEnvelopes envelopes that are already buffered for the SystemStreamPartition, and adds them to
+   * envelopes in offset order. This lets the AsyncRunLoop extend an envelope chosen for the partition into a
+   * contiguous batch. It must only be called between choose(false) returning an envelope for the partition and the
+   * following tryUpdate, while the chooser holds no envelope for the partition. The removed envelopes bypass the
+   * chooser, so nothing is removed for partitions whose envelopes the chooser needs to see, such as partitions of
+   * bootstrap streams, see [[MessageChooser.isDrainable]]. An end-of-stream envelope is left in the buffer, so that
+   * it is still chosen on its own.
+   *
+   * @return the number of envelopes added
+   */
+  def drainBuffered(systemStreamPartition: SystemStreamPartition, maxEnvelopes: Int,
+    envelopes: util.List[IncomingMessageEnvelope]): Int = {
+    val state = getState(systemStreamPartition)
+    val q = if (state != null && state.drainable) state.unprocessedMessages else null
+    var drained = 0
+
+    while (drained < maxEnvelopes && q != null && q.size > 0 && !q.peek.isEndOfStream) {
+      val rawEnvelope = q.remove
+      totalUnprocessedMessages -= 1
+
+      val deserializedEnvelope = try {
+        serdeManager.fromBytes(rawEnvelope)
+      } catch {
+        case e: Throwable if !dropDeserializationError =>
+          throw new SystemConsumersException(
+            "Cannot deserialize an incoming message for %s"
+              .format(systemStreamPartition.getSystemStream.toString), e)
+        case ex: Throwable =>
+          debug("Cannot deserialize an incoming message for %s. Dropping the error message."
+                .format(systemStreamPartition.getSystemStream.toString), ex)
+          metrics.deserializationError.increment
+          null
+      }
+
+      if (deserializedEnvelope != null) {
+        envelopes.add(deserializedEnvelope)
+        drained += 1
       }
     }
+
+    if (drained > 0) {
+      metrics.choseObject.increment(drained)
+      state.messagesChosen.increment(drained)
+    }
+    drained
   }
 
   private def refresh {
@@ -326,16 +401,21 @@ class SystemConsumers (
     // Update last poll time so we don't poll too frequently.
     lastPollNs = clock()
     // Poll every system for new messages.
-    consumers.keys.map(poll(_))
+    var i = 0
+    while (i < systemStates.length) {
+      poll(systemStates(i))
+      i += 1
+    }
   }
 
   /**
    * Tries to update the message chooser with an envelope from the supplied
    * SystemStreamPartition if an envelope is available.
    */
-  private def update(systemStreamPartition: SystemStreamPartition) = {
+  private def update(state: SystemStreamPartitionState) = {
+    val systemStreamPartition = state.systemStreamPartition
     var updated = false
-    val q = unprocessedMessagesBySSP.get(systemStreamPartition)
+    val q = state.unprocessedMessages
 
     while (q.size > 0 && !updated) {
       val rawEnvelope = q.remove
@@ -349,7 +429,7 @@ class SystemConsumers (
         case ex: Throwable =>
           debug("Cannot deserialize an incoming message for %s. Dropping the error message."
                 .format(systemStreamPartition.getSystemStream.toString), ex)
-          metrics.deserializationError.inc
+          metrics.deserializationError.increment
           None
       }
 
@@ -363,6 +443,48 @@ class SystemConsumers (
 
     updated
   }
+
+  private def getState(systemStreamPartition: SystemStreamPartition): SystemStreamPartitionState = {
+    sspStates.get(systemStreamPartition)
+  }
+
+  /**
+   * Everything SystemConsumers tracks for a single registered
+   * SystemStreamPartition.
+   */
+  private class SystemStreamPartitionState(val systemStreamPartition: SystemStreamPartition) {
+    /**
+     * Buffered messages that are handed out to the MessageChooser as it
+     * needs them.
+     */
+    var unprocessedMessages: Queue[IncomingMessageEnvelope] = new ArrayDeque[IncomingMessageEnvelope]()
+
+    /**
+     * True if the chooser holds no envelope for this SSP and the buffer is
+     * empty, so the SSP needs to be polled from the underlying consumer.
+     */
+    var needsMessages = false
+
+    var endOfStream = false
+
+    /**
+     * True if the chooser lets buffered envelopes of this SSP bypass it, see
+     * drainBuffered.
+     */
+    var drainable = false
+
+    var messagesChosen: Counter = null
+  }
+
+  /**
+   * The consumer, metrics and registered SystemStreamPartitions of a system.
+   */
+  private class SystemState(val systemName: String, val systemStreamPartitionStates: Array[SystemStreamPartitionState]) {
+    val consumer = consumers(systemName)
+    val polls = metrics.systemPolls(systemName)
+    val fetchesPerPoll = metrics.systemStreamPartitionFetchesPerPoll(systemName)
+    val messagesPerPoll = metrics.systemMessagesPerPoll(systemName)
+  }
 }
 
 /**
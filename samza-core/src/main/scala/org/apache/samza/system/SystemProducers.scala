@@ -58,8 +58,8 @@ class SystemProducers(
   def flush(source: String) {
     debug("Flushing source: %s" format source)
 
-    metrics.flushes.inc
-    metrics.sourceFlushes(source).inc
+    metrics.flushes.increment
+    metrics.sourceFlushes(source).increment
 
     producers.values.foreach(_.flush(source))
   }
@@ -67,8 +67,8 @@ class SystemProducers(
   def send(source: String, envelope: OutgoingMessageEnvelope) {
     trace("Sending message from source: %s, %s" format (envelope, source))
 
-    metrics.sends.inc
-    metrics.sourceSends(source).inc
+    metrics.sends.increment
+    metrics.sourceSends(source).increment
 
     val bytesEnvelope = try {
       Some(serdeManager.toBytes(envelope))
@@ -76,7 +76,7 @@ class SystemProducers(
       case e: Throwable if !dropSerializationError => throw new SamzaException("can not serialize the message", e)
       case ex: Throwable => {
         debug("Serialization fails: %s . Drop the error message" format ex)
-        metrics.serializationError.inc
+        metrics.serializationError.increment
         None
       }
     }
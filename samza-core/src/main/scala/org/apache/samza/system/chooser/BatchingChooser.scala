@@ -124,7 +124,7 @@ class BatchingChooser(
 
   private def resetBatch() {
     debug("Resetting batch due to max batch size limit of: %s" format batchSize)
-    metrics.batches.inc
+    metrics.batches.increment
     batchCount = 0
     preferredSystemStreamPartition = null
   }
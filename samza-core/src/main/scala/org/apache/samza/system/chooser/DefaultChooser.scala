@@ -298,4 +298,28 @@ class DefaultChooser(
   def stop = chooser.stop
 
   def register(systemStreamPartition: SystemStreamPartition, offset: String) = chooser.register(systemStreamPartition, offset)
+
+  /**
+   * Envelopes of bootstrap streams never bypass the chooser, since the
+   * bootstrapping chooser has to see the last one to know that a stream has
+   * caught up. Envelopes of a prioritized stream only bypass the chooser if
+   * no stream other than a bootstrap stream has a higher priority, since the
+   * wrapped choosers would have chosen envelopes of such a stream first.
+   */
+  override def isDrainable(systemStreamPartition: SystemStreamPartition) = {
+    val systemStream = systemStreamPartition.getSystemStream
+    if (bootstrapStreamMetadata.contains(systemStream)) {
+      false
+    } else if (prioritizedStreams.isEmpty) {
+      DefaultChooser != null && DefaultChooser.isDrainable(systemStreamPartition)
+    } else {
+      prioritizedStreams.get(systemStream) match {
+        case Some(priority) =>
+          prioritizedStreams.forall { case (otherStream, otherPriority) =>
+            otherPriority <= priority || bootstrapStreamMetadata.contains(otherStream)
+          } && prioritizedChoosers.get(priority).exists(_.isDrainable(systemStreamPartition))
+        case None => false
+      }
+    }
+  }
 }
@@ -57,6 +57,12 @@ class RoundRobinChooser(metrics: RoundRobinChooserMetrics = new RoundRobinChoose
   }
 
   def choose = q.poll
+
+  /**
+   * Round robin keeps no state about the envelopes it has chosen, so the
+   * envelopes of any SystemStreamPartition may bypass it.
+   */
+  override def isDrainable(systemStreamPartition: SystemStreamPartition) = true
 }
 
 class RoundRobinChooserMetrics(val registry: MetricsRegistry = new MetricsRegistryMap) extends MetricsHelper {
@@ -19,6 +19,8 @@
 
 package org.apache.samza.system.chooser
 
+import java.util.HashMap
+
 import scala.collection.immutable.TreeMap
 import org.apache.samza.SamzaException
 import org.apache.samza.system.SystemStream
@@ -97,9 +99,26 @@ class TieredPriorityChooser(
     .map(systemStreamPriority => (systemStreamPriority._1, choosers.getOrElse(systemStreamPriority._2, throw new SamzaException("Unable to setup priority chooser. No chooser found for priority: %s" format systemStreamPriority._2))))
     .toMap
 
+  /**
+   * The chooser for each registered SystemStreamPartition, resolved once at
+   * registration so that update doesn't need to build a SystemStream for
+   * every envelope.
+   */
+  private val choosersBySystemStreamPartition = new HashMap[SystemStreamPartition, MessageChooser]()
+
   def update(envelope: IncomingMessageEnvelope) {
-    val systemStream = envelope.getSystemStreamPartition.getSystemStream
-    val chooser = prioritizedStreams.get(systemStream) match {
+    val chooser = choosersBySystemStreamPartition.get(envelope.getSystemStreamPartition)
+
+    if (chooser != null) {
+      chooser.update(envelope)
+    } else {
+      getChooser(envelope.getSystemStreamPartition).update(envelope)
+    }
+  }
+
+  private def getChooser(systemStreamPartition: SystemStreamPartition) = {
+    val systemStream = systemStreamPartition.getSystemStream
+    prioritizedStreams.get(systemStream) match {
       case Some(chooser) =>
         trace("Got prioritized chooser for stream: %s" format systemStream)
 
@@ -110,11 +129,9 @@ class TieredPriorityChooser(
         if (default != null) {
           default
         } else {
-          throw new SamzaException("No default chooser defined, and no priority assigned to stream. Can't prioritize: %s" format envelope.getSystemStreamPartition)
+          throw new SamzaException("No default chooser defined, and no priority assigned to stream. Can't prioritize: %s" format systemStreamPartition)
         }
     }
-
-    chooser.update(envelope)
   }
 
   /**
@@ -166,5 +183,9 @@ class TieredPriorityChooser(
     }
 
     choosers.values.foreach(_.register(systemStreamPartition, offset))
+
+    if (default != null || prioritizedStreams.contains(systemStreamPartition.getSystemStream)) {
+      choosersBySystemStreamPartition.put(systemStreamPartition, getChooser(systemStreamPartition))
+    }
   }
 }
@@ -118,7 +118,7 @@ class FileReaderSystemConsumer(
                 val cha = file.read.toChar
                 if (cha == '\n') {
                   // put into the queue. offset is the beginning of this line
-                  put(ssp, new IncomingMessageEnvelope(ssp, offset.toString, null, line, System.currentTimeMillis()));
+                  put(ssp, new IncomingMessageEnvelope(ssp, offset, null, line, 0, System.currentTimeMillis()));
                   offset = i + 1 // the beginning of the newline
                   line = ""
                 } else {
@@ -56,7 +56,7 @@ class TaskInstanceCollector(
    */
   def send(envelope: OutgoingMessageEnvelope) {
     trace("Sending message from source: %s, %s" format (metrics.source, envelope))
-    metrics.sends.inc
+    metrics.sends.increment
     producerMultiplexer.send(metrics.source, envelope)
   }
 
@@ -65,7 +65,7 @@ class TaskInstanceCollector(
    */
   def flush {
     trace("Flushing messages from source: %s" format metrics.source)
-    metrics.flushes.inc
+    metrics.flushes.increment
     producerMultiplexer.flush(metrics.source)
   }
 }
\ No newline at end of file
@@ -32,6 +32,7 @@ import org.apache.samza.job.model.TaskModel;
 import org.apache.samza.metrics.MetricsRegistryMap;
 import org.apache.samza.operators.functions.JoinFunction;
 import org.apache.samza.operators.impl.store.TestInMemoryStore;
+import org.apache.samza.operators.impl.store.TimeSeriesKeySerde;
 import org.apache.samza.operators.impl.store.TimestampedValueSerde;
 import org.apache.samza.serializers.IntegerSerde;
 import org.apache.samza.serializers.KVSerde;
@@ -57,6 +58,7 @@ import java.util.Map;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
@@ -70,6 +72,7 @@ public class TestJoinOperator {
 
   private final TaskCoordinator taskCoordinator = mock(TaskCoordinator.class);
   private final Set<Integer> numbers = ImmutableSet.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+  private final Map<String, TestInMemoryStore> stores = new HashMap<>();
 
   @Test
   public void join() throws Exception {
@@ -297,6 +300,79 @@ public class TestJoinOperator {
     assertTrue(output.isEmpty());
   }
 
+  @Test
+  public void windowedJoinEmitsAllMatchesForKey() throws Exception {
+    StreamApplicationDescriptorImpl streamAppDesc = this.getTestWindowedJoinStreamGraph(new TestJoinFunction());
+    StreamOperatorTask sot = createStreamOperatorTask(new SystemClock(), streamAppDesc);
+    List<Integer> output = new ArrayList<>();
+    MessageCollector messageCollector = envelope -> output.add((Integer) envelope.getMessage());
+
+    // push two messages per key to first stream
+    numbers.forEach(n -> sot.process(new FirstStreamIME(n, n), messageCollector, taskCoordinator));
+    numbers.forEach(n -> sot.process(new FirstStreamIME(n, 2 * n), messageCollector, taskCoordinator));
+    // push two messages per key to second stream
+    numbers.forEach(n -> sot.process(new SecondStreamIME(n, n), messageCollector, taskCoordinator));
+    numbers.forEach(n -> sot.process(new SecondStreamIME(n, 2 * n), messageCollector, taskCoordinator));
+
+    assertEquals(40, output.size()); // every pair of messages for a key is joined
+    int outputSum = output.stream().reduce(0, (s, m) -> s + m);
+    assertEquals(660, outputSum);
+  }
+
+  @Test
+  public void windowedJoinNoMatch() throws Exception {
+    StreamApplicationDescriptorImpl streamAppDesc = this.getTestWindowedJoinStreamGraph(new TestJoinFunction());
+    StreamOperatorTask sot = createStreamOperatorTask(new SystemClock(), streamAppDesc);
+    List<Integer> output = new ArrayList<>();
+    MessageCollector messageCollector = envelope -> output.add((Integer) envelope.getMessage());
+
+    // push messages to first stream
+    numbers.forEach(n -> sot.process(new FirstStreamIME(n, n), messageCollector, taskCoordinator));
+    // push messages to second stream with different keys
+    numbers.forEach(n -> sot.process(new SecondStreamIME(n + 100, n), messageCollector, taskCoordinator));
+
+    assertTrue(output.isEmpty());
+  }
+
+  @Test
+  public void windowedJoinDoesNotJoinMessagesOutsideWindow() throws Exception {
+    TestClock testClock = new TestClock();
+    StreamApplicationDescriptorImpl streamAppDesc = this.getTestWindowedJoinStreamGraph(new TestJoinFunction());
+    StreamOperatorTask sot = createStreamOperatorTask(testClock, streamAppDesc);
+    List<Integer> output = new ArrayList<>();
+    MessageCollector messageCollector = envelope -> output.add((Integer) envelope.getMessage());
+
+    // push messages to first stream
+    numbers.forEach(n -> sot.process(new FirstStreamIME(n, n), messageCollector, taskCoordinator));
+
+    testClock.advanceTime(JOIN_TTL); // messages are no longer within the window, but have not been purged yet
+
+    // push messages to second stream with same key
+    numbers.forEach(n -> sot.process(new SecondStreamIME(n, n), messageCollector, taskCoordinator));
+
+    assertTrue(output.isEmpty());
+  }
+
+  @Test
+  public void windowedJoinPurgesExpiredMessages() throws Exception {
+    TestClock testClock = new TestClock();
+    StreamApplicationDescriptorImpl streamAppDesc = this.getTestWindowedJoinStreamGraph(new TestJoinFunction());
+    StreamOperatorTask sot = createStreamOperatorTask(testClock, streamAppDesc);
+    List<Integer> output = new ArrayList<>();
+    MessageCollector messageCollector = envelope -> output.add((Integer) envelope.getMessage());
+
+    // push messages to both streams
+    numbers.forEach(n -> sot.process(new FirstStreamIME(n, n), messageCollector, taskCoordinator));
+    numbers.forEach(n -> sot.process(new SecondStreamIME(n, n), messageCollector, taskCoordinator));
+    assertEquals(10, output.size());
+
+    testClock.advanceTime(JOIN_TTL.plus(Duration.ofMinutes(1))); // 1 minute after ttl
+    sot.window(messageCollector, taskCoordinator); // should purge messages in both streams
+
+    assertFalse(stores.get("jobName-jobId-join-j2-L").all().hasNext());
+    assertFalse(stores.get("jobName-jobId-join-j2-R").all().hasNext());
+  }
+
   private StreamOperatorTask createStreamOperatorTask(Clock clock, StreamApplicationDescriptorImpl graphSpec)
       throws Exception {
     Map<String, String> mapConfig = new HashMap<>();
@@ -318,6 +394,12 @@ public class TestJoinOperator {
         .thenReturn(new TestInMemoryStore(integerSerde, timestampedValueSerde));
     when(context.getTaskContext().getStore(eq("jobName-jobId-join-j1-R")))
         .thenReturn(new TestInMemoryStore(integerSerde, timestampedValueSerde));
+    // windowed join stores are keyed by time series keys
+    TimeSeriesKeySerde timeSeriesKeySerde = new TimeSeriesKeySerde(integerSerde);
+    KVSerde kvSerde = new KVSerde(integerSerde, integerSerde);
+    stores.put("jobName-jobId-join-j2-L", new TestInMemoryStore(timeSeriesKeySerde, kvSerde));
+    stores.put("jobName-jobId-join-j2-R", new TestInMemoryStore(timeSeriesKeySerde, kvSerde));
+    stores.forEach((storeName, store) -> when(context.getTaskContext().getStore(eq(storeName))).thenReturn(store));
 
     StreamOperatorTask sot = new StreamOperatorTask(graphSpec.getOperatorSpecGraph(), clock);
     sot.init(context);
@@ -351,6 +433,33 @@ public class TestJoinOperator {
       }, config);
   }
 
+  private StreamApplicationDescriptorImpl getTestWindowedJoinStreamGraph(TestJoinFunction joinFn) throws IOException {
+    Map<String, String> mapConfig = new HashMap<>();
+    mapConfig.put("job.name", "jobName");
+    mapConfig.put("job.id", "jobId");
+    StreamTestUtils.addStreamConfigs(mapConfig, "inStream", "insystem", "instream");
+    StreamTestUtils.addStreamConfigs(mapConfig, "inStream2", "insystem", "instream2");
+    Config config = new MapConfig(mapConfig);
+
+    return new StreamApplicationDescriptorImpl(appDesc -> {
+        IntegerSerde integerSerde = new IntegerSerde();
+        KVSerde<Integer, Integer> kvSerde = KVSerde.of(integerSerde, integerSerde);
+        GenericSystemDescriptor sd = new GenericSystemDescriptor("insystem", "mockFactoryClassName");
+        GenericInputDescriptor<KV<Integer, Integer>> inputDescriptor1 = sd.getInputDescriptor("inStream", kvSerde);
+        GenericInputDescriptor<KV<Integer, Integer>> inputDescriptor2 = sd.getInputDescriptor("inStream2", kvSerde);
+
+        MessageStream<KV<Integer, Integer>> inStream = appDesc.getInputStream(inputDescriptor1);
+        MessageStream<KV<Integer, Integer>> inStream2 = appDesc.getInputStream(inputDescriptor2);
+
+        inStream
+            .windowedJoin(inStream2, joinFn, integerSerde, kvSerde, kvSerde, JOIN_TTL, "j2")
+            .sink((message, messageCollector, taskCoordinator) -> {
+                SystemStream outputSystemStream = new SystemStream("outputSystem", "outputStream");
+                messageCollector.send(new OutgoingMessageEnvelope(outputSystemStream, message));
+              });
+      }, config);
+  }
+
   private static class TestJoinFunction
       implements JoinFunction<Integer, KV<Integer, Integer>, KV<Integer, Integer>, Integer> {
 
@@ -116,7 +116,7 @@ public class TestOperatorImpl {
     opImpl.onMessage(mock(Object.class), mockCollector, mockCoordinator);
 
     // verify that it updates message count and timer metrics
-    verify(mockCounter, times(1)).inc();
+    verify(mockCounter, times(1)).increment();
     verify(mockTimer, times(1)).update(anyLong());
   }
 
@@ -172,7 +172,7 @@ public class TestOperatorImpl {
     opImpl.onTimer(mockCollector, mockCoordinator);
 
     // verify that it updates metrics
-    verify(mockMessageCounter, times(0)).inc();
+    verify(mockMessageCounter, times(0)).increment();
     verify(mockTimer, times(1)).update(anyLong());
   }
 
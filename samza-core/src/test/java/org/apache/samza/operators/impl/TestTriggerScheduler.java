@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.operators.impl;
+
+import org.apache.samza.operators.impl.store.TestInMemoryStore;
+import org.apache.samza.operators.impl.store.TimeSeriesKey;
+import org.apache.samza.operators.impl.store.TimeSeriesKeySerde;
+import org.apache.samza.operators.triggers.Cancellable;
+import org.apache.samza.operators.triggers.FiringType;
+import org.apache.samza.serializers.LongSerde;
+import org.apache.samza.serializers.StringSerde;
+import org.apache.samza.storage.kv.KeyValueStore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestTriggerScheduler {
+
+  private long currentTimeMs = 0;
+
+  @Test
+  public void testRunPendingCallbacksInScheduledOrder() {
+    TriggerScheduler<String> scheduler = new TriggerScheduler<>(() -> currentTimeMs);
+    List<String> runs = new ArrayList<>();
+    scheduler.scheduleCallback(() -> runs.add("c"), 30, new TriggerKey<>(FiringType.DEFAULT, "c", 0));
+    scheduler.scheduleCallback(() -> runs.add("a"), 10, new TriggerKey<>(FiringType.DEFAULT, "a", 0));
+    scheduler.scheduleCallback(() -> runs.add("b1"), 20, new TriggerKey<>(FiringType.DEFAULT, "b1", 0));
+    scheduler.scheduleCallback(() -> runs.add("b2"), 20, new TriggerKey<>(FiringType.DEFAULT, "b2", 0));
+
+    currentTimeMs = 20;
+    List<TriggerKey<String>> keys = scheduler.runPendingCallbacks();
+    assertEquals(Arrays.asList("a", "b1", "b2"), runs);
+    assertEquals(3, keys.size());
+    assertEquals("b2", keys.get(2).getKey());
+    assertEquals(1, scheduler.getPendingCallbackCount());
+
+    currentTimeMs = 30;
+    scheduler.runPendingCallbacks();
+    assertEquals(Arrays.asList("a", "b1", "b2", "c"), runs);
+    assertEquals(0, scheduler.getPendingCallbackCount());
+  }
+
+  @Test
+  public void testCancelPendingCallbacks() {
+    TriggerScheduler<String> scheduler = new TriggerScheduler<>(() -> currentTimeMs);
+    List<Long> runs = new ArrayList<>();
+    List<Cancellable> cancellables = new ArrayList<>();
+    for (long i = 0; i < 100; i++) {
+      long scheduledTimeMs = (i * 37) % 100;
+      cancellables.add(scheduler.scheduleCallback(() -> runs.add(scheduledTimeMs), scheduledTimeMs,
+          new TriggerKey<>(FiringType.EARLY, "key", i)));
+    }
+    // cancel the callbacks for odd times
+    for (long i = 0; i < 100; i++) {
+      if ((i * 37) % 100 % 2 == 1) {
+        assertTrue(cancellables.get((int) i).cancel());
+      }
+    }
+    assertEquals(50, scheduler.getPendingCallbackCount());
+
+    currentTimeMs = 100;
+    scheduler.runPendingCallbacks();
+    assertEquals(50, runs.size());
+    for (int i = 0; i < runs.size(); i++) {
+      assertEquals(i * 2, (long) runs.get(i));
+    }
+
+    // callbacks that already ran or were cancelled can not be cancelled again
+    assertFalse(cancellables.get(0).cancel());
+    assertFalse(cancellables.get(1).cancel());
+  }
+
+  @Test
+  public void testPersistDeadlinesOfDefaultTriggers() {
+    KeyValueStore<TimeSeriesKey<String>, Long> store =
+        new TestInMemoryStore<>(new TimeSeriesKeySerde<>(new StringSerde("UTF-8")), new LongSerde());
+    TriggerScheduler<String> scheduler = new TriggerScheduler<>(() -> currentTimeMs, store);
+
+    Cancellable first = scheduler.scheduleCallback(() -> { }, 10, new TriggerKey<>(FiringType.DEFAULT, "first", 0));
+    scheduler.scheduleCallback(() -> { }, 20, new TriggerKey<>(FiringType.DEFAULT, "second", 5));
+    scheduler.scheduleCallback(() -> { }, 10, new TriggerKey<>(FiringType.EARLY, "first", 0));
+    assertEquals(10L, (long) store.get(new TimeSeriesKey<>("first", 0, 0)));
+    assertEquals(20L, (long) store.get(new TimeSeriesKey<>("second", 5, 0)));
+
+    // the deadlines of cancelled and fired triggers are removed
+    first.cancel();
+    assertNull(store.get(new TimeSeriesKey<>("first", 0, 0)));
+    currentTimeMs = 20;
+    scheduler.runPendingCallbacks();
+    assertNull(store.get(new TimeSeriesKey<>("second", 5, 0)));
+    assertFalse(store.all().hasNext());
+  }
+}
@@ -22,6 +22,7 @@ package org.apache.samza.operators.impl;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -29,11 +30,15 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.samza.Partition;
 import org.apache.samza.application.StreamApplication;
 import org.apache.samza.application.descriptors.StreamApplicationDescriptorImpl;
 import org.apache.samza.config.Config;
 import org.apache.samza.config.MapConfig;
+import org.apache.samza.config.TaskConfig;
+import org.apache.samza.config.TaskConfigJava;
 import org.apache.samza.container.TaskName;
 import org.apache.samza.context.Context;
 import org.apache.samza.context.MockContext;
@@ -47,6 +52,7 @@ import org.apache.samza.operators.MessageStream;
 import org.apache.samza.operators.OperatorSpecGraph;
 import org.apache.samza.operators.functions.MapFunction;
 import org.apache.samza.operators.impl.store.TestInMemoryStore;
+import org.apache.samza.operators.impl.store.TimeSeriesKey;
 import org.apache.samza.operators.impl.store.TimeSeriesKeySerde;
 import org.apache.samza.operators.triggers.FiringType;
 import org.apache.samza.operators.triggers.Trigger;
@@ -56,6 +62,7 @@ import org.apache.samza.operators.windows.WindowPane;
 import org.apache.samza.operators.windows.Windows;
 import org.apache.samza.serializers.IntegerSerde;
 import org.apache.samza.serializers.KVSerde;
+import org.apache.samza.serializers.LongSerde;
 import org.apache.samza.serializers.Serde;
 import org.apache.samza.system.IncomingMessageEnvelope;
 import org.apache.samza.system.OutgoingMessageEnvelope;
@@ -69,6 +76,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -186,6 +194,62 @@ public class TestWindowOperator {
     Assert.assertEquals(windowPanes.get(4).getMessage(), new Integer(1));
   }
 
+  @Test
+  public void testTumblingAggregatingWindowsWithAggregationBuffer() throws Exception {
+    Map<String, String> configMap = new HashMap<>(this.config);
+    configMap.put(TaskConfigJava.WINDOW_AGGREGATION_BUFFER_SIZE, "10");
+    this.config = new MapConfig(configMap);
+    when(this.context.getJobContext().getConfig()).thenReturn(this.config);
+    TestInMemoryStore store = new TestInMemoryStore<>(new TimeSeriesKeySerde(new IntegerSerde()), new IntegerSerde());
+    when(this.context.getTaskContext().getStore("jobName-jobId-window-w1")).thenReturn(store);
+
+    OperatorSpecGraph sgb = this.getAggregateTumblingWindowStreamGraph(AccumulationMode.DISCARDING,
+        Duration.ofSeconds(1), null).getOperatorSpecGraph();
+    List<WindowPane<Integer, Integer>> windowPanes = new ArrayList<>();
+
+    TestClock testClock = new TestClock();
+    StreamOperatorTask task = new StreamOperatorTask(sgb, testClock);
+    task.init(this.context);
+    MessageCollector messageCollector = envelope -> windowPanes.add((WindowPane<Integer, Integer>) envelope.getMessage());
+    integers.forEach(n -> task.process(new IntegerEnvelope(n), messageCollector, taskCoordinator));
+
+    // the window value is only written to the store on commit
+    Assert.assertFalse(store.all().hasNext());
+    task.onCommit();
+    Assert.assertEquals(store.get(new TimeSeriesKey<>(null, 0L, 0L)), new Integer(9));
+
+    task.process(new IntegerEnvelope(1), messageCollector, taskCoordinator);
+    Assert.assertEquals(store.get(new TimeSeriesKey<>(null, 0L, 0L)), new Integer(9));
+
+    testClock.advanceTime(Duration.ofSeconds(1));
+    task.window(messageCollector, taskCoordinator);
+    Assert.assertEquals(windowPanes.size(), 1);
+    Assert.assertEquals(windowPanes.get(0).getMessage(), new Integer(10));
+    Assert.assertFalse(store.all().hasNext());
+  }
+
+  @Test
+  public void testAggregationBufferIsNotUsedWithAsyncCommit() throws Exception {
+    Map<String, String> configMap = new HashMap<>(this.config);
+    configMap.put(TaskConfigJava.WINDOW_AGGREGATION_BUFFER_SIZE, "10");
+    configMap.put(TaskConfig.ASYNC_COMMIT(), "true");
+    this.config = new MapConfig(configMap);
+    when(this.context.getJobContext().getConfig()).thenReturn(this.config);
+    TestInMemoryStore store = new TestInMemoryStore<>(new TimeSeriesKeySerde(new IntegerSerde()), new IntegerSerde());
+    when(this.context.getTaskContext().getStore("jobName-jobId-window-w1")).thenReturn(store);
+
+    OperatorSpecGraph sgb = this.getAggregateTumblingWindowStreamGraph(AccumulationMode.DISCARDING,
+        Duration.ofSeconds(1), null).getOperatorSpecGraph();
+    TestClock testClock = new TestClock();
+    StreamOperatorTask task = new StreamOperatorTask(sgb, testClock);
+    task.init(this.context);
+    MessageCollector messageCollector = envelope -> { };
+    integers.forEach(n -> task.process(new IntegerEnvelope(n), messageCollector, taskCoordinator));
+
+    // a commit can run concurrently with process, so the window value is written to the store right away
+    Assert.assertEquals(store.get(new TimeSeriesKey<>(null, 0L, 0L)), new Integer(9));
+  }
+
   @Test
   public void testTumblingWindowsAccumulatingMode() throws Exception {
     OperatorSpecGraph sgb = this.getKeyedTumblingWindowStreamGraph(AccumulationMode.ACCUMULATING,
@@ -261,6 +325,47 @@ public class TestWindowOperator {
     Assert.assertEquals((windowPanes.get(3).getMessage()).size(), 2);
   }
 
+  @Test
+  public void testSessionWindowsRestoreTriggers() throws Exception {
+    TestInMemoryStore store = new TestInMemoryStore<>(new TimeSeriesKeySerde(new IntegerSerde()), new IntegerSerde());
+    TestInMemoryStore triggerStore = new TestInMemoryStore<>(new TimeSeriesKeySerde(new IntegerSerde()), new LongSerde());
+    when(this.context.getTaskContext().getStore("jobName-jobId-window-w1")).thenReturn(store);
+    when(this.context.getTaskContext().getStore("jobName-jobId-window-w1-triggers")).thenReturn(triggerStore);
+    OperatorSpecGraph sgb = this.getKeyedAggregateSessionWindowStreamGraph(Duration.ofMillis(500), true)
+        .getOperatorSpecGraph();
+    List<WindowPane<Integer, Integer>> windowPanes = new ArrayList<>();
+    MessageCollector messageCollector = envelope -> windowPanes.add((WindowPane<Integer, Integer>) envelope.getMessage());
+
+    StreamOperatorTask task = new StreamOperatorTask(sgb, new TestClock());
+    task.init(this.context);
+    task.process(new IntegerEnvelope(1), messageCollector, taskCoordinator);
+    task.process(new IntegerEnvelope(1), messageCollector, taskCoordinator);
+    task.process(new IntegerEnvelope(2), messageCollector, taskCoordinator);
+    Assert.assertEquals(triggerStore.get(new TimeSeriesKey<>(1, 1L, 0L)), 501L);
+    Assert.assertEquals(triggerStore.get(new TimeSeriesKey<>(2, 1L, 0L)), 501L);
+
+    // restart before the sessions expire. A new message extends the session of key 1, but not the one of key 2.
+    TestClock testClock = new TestClock();
+    testClock.advanceTime(300);
+    task = new StreamOperatorTask(sgb, testClock);
+    task.init(this.context);
+    task.process(new IntegerEnvelope(1), messageCollector, taskCoordinator);
+
+    testClock.advanceTime(300);
+    task.window(messageCollector, taskCoordinator);
+    Assert.assertEquals(windowPanes.size(), 1);
+    Assert.assertEquals(windowPanes.get(0).getKey().getKey(), new Integer(2));
+    Assert.assertEquals(windowPanes.get(0).getMessage(), new Integer(1));
+
+    testClock.advanceTime(300);
+    task.window(messageCollector, taskCoordinator);
+    Assert.assertEquals(windowPanes.size(), 2);
+    Assert.assertEquals(windowPanes.get(1).getKey().getKey(), new Integer(1));
+    Assert.assertEquals(windowPanes.get(1).getKey().getPaneId(), "1");
+    Assert.assertEquals(windowPanes.get(1).getMessage(), new Integer(3));
+    Assert.assertFalse(triggerStore.all().hasNext());
+  }
+
   @Test
   public void testSessionWindowsAccumulatingMode() throws Exception {
     OperatorSpecGraph sgb = this.getKeyedSessionWindowStreamGraph(AccumulationMode.DISCARDING,
@@ -547,6 +652,337 @@ public class TestWindowOperator {
     verify(taskCoordinator, times(1)).shutdown(TaskCoordinator.RequestScope.CURRENT_TASK);
   }
 
+  @Test
+  public void testEventTimeTumblingWindowsFireOnWatermark() throws Exception {
+    when(this.context.getTaskContext().getStore("jobName-jobId-window-w1"))
+        .thenReturn(new TestInMemoryStore<>(new TimeSeriesKeySerde(new IntegerSerde()), new IntegerSerde()));
+    AtomicLong watermark = mockWatermarkStates();
+
+    OperatorSpecGraph sgb = this.getKeyedEventTimeTumblingWindowStreamGraph(AccumulationMode.DISCARDING,
+        Duration.ofSeconds(1), Duration.ZERO).getOperatorSpecGraph();
+    List<WindowPane<Integer, Integer>> windowPanes = new ArrayList<>();
+
+    TestClock testClock = new TestClock();
+    StreamOperatorTask task = new StreamOperatorTask(sgb, testClock);
+    task.init(this.context);
+    MessageCollector messageCollector = envelope -> windowPanes.add((WindowPane<Integer, Integer>) envelope.getMessage());
+
+    // message values are their event times
+    task.process(new IntegerEnvelope(1, 100), messageCollector, taskCoordinator);
+    task.process(new IntegerEnvelope(1, 1500), messageCollector, taskCoordinator);
+    task.process(new IntegerEnvelope(2, 900), messageCollector, taskCoordinator);
+    task.process(new IntegerEnvelope(1, 500), messageCollector, taskCoordinator);
+
+    // processing time does not close event time windows
+    testClock.advanceTime(Duration.ofSeconds(10));
+    task.window(messageCollector, taskCoordinator);
+    Assert.assertEquals(windowPanes.size(), 0);
+
+    processWatermark(task, watermark, 999, messageCollector);
+    Assert.assertEquals(windowPanes.size(), 0);
+
+    processWatermark(task, watermark, 1000, messageCollector);
+    Assert.assertEquals(windowPanes.size(), 2);
+    windowPanes.sort((p1, p2) -> p1.getKey().getKey() - p2.getKey().getKey());
+    Assert.assertEquals(windowPanes.get(0).getKey().getKey(), new Integer(1));
+    Assert.assertEquals(windowPanes.get(0).getKey().getPaneId(), "0");
+    Assert.assertEquals(windowPanes.get(0).getMessage(), new Integer(2));
+    Assert.assertEquals(windowPanes.get(0).getFiringType(), FiringType.DEFAULT);
+    Assert.assertEquals(windowPanes.get(1).getKey().getKey(), new Integer(2));
+    Assert.assertEquals(windowPanes.get(1).getMessage(), new Integer(1));
+
+    processWatermark(task, watermark, 2000, messageCollector);
+    Assert.assertEquals(windowPanes.size(), 3);
+    Assert.assertEquals(windowPanes.get(2).getKey().getKey(), new Integer(1));
+    Assert.assertEquals(windowPanes.get(2).getKey().getPaneId(), "1000");
+    Assert.assertEquals(windowPanes.get(2).getMessage(), new Integer(1));
+  }
+
+  @Test
+  public void testEventTimeTumblingWindowsAllowedLateness() throws Exception {
+    TestInMemoryStore store = new TestInMemoryStore<>(new TimeSeriesKeySerde(new IntegerSerde()), new IntegerSerde());
+    when(this.context.getTaskContext().getStore("jobName-jobId-window-w1")).thenReturn(store);
+    AtomicLong watermark = mockWatermarkStates();
+
+    OperatorSpecGraph sgb = this.getKeyedEventTimeTumblingWindowStreamGraph(AccumulationMode.ACCUMULATING,
+        Duration.ofSeconds(1), Duration.ofSeconds(1)).getOperatorSpecGraph();
+    List<WindowPane<Integer, Integer>> windowPanes = new ArrayList<>();
+
+    StreamOperatorTask task = new StreamOperatorTask(sgb, new TestClock());
+    task.init(this.context);
+    MessageCollector messageCollector = envelope -> windowPanes.add((WindowPane<Integer, Integer>) envelope.getMessage());
+
+    task.process(new IntegerEnvelope(1, 100), messageCollector, taskCoordinator);
+    processWatermark(task, watermark, 1000, messageCollector);
+    Assert.assertEquals(windowPanes.size(), 1);
+    Assert.assertEquals(windowPanes.get(0).getMessage(), new Integer(1));
+    Assert.assertEquals(windowPanes.get(0).getFiringType(), FiringType.DEFAULT);
+
+    // a late message within the allowed lateness emits an updated pane right away
+    task.process(new IntegerEnvelope(1, 200), messageCollector, taskCoordinator);
+    Assert.assertEquals(windowPanes.size(), 2);
+    Assert.assertEquals(windowPanes.get(1).getMessage(), new Integer(2));
+    Assert.assertEquals(windowPanes.get(1).getFiringType(), FiringType.LATE);
+
+    // the window state is removed once the watermark passes the allowed lateness
+    processWatermark(task, watermark, 2000, messageCollector);
+    Assert.assertFalse(store.all().hasNext());
+
+    // and later messages for the window are dropped
+    task.process(new IntegerEnvelope(1, 300), messageCollector, taskCoordinator);
+    Assert.assertEquals(windowPanes.size(), 2);
+    Assert.assertFalse(store.all().hasNext());
+  }
+
+  @Test
+  public void testEventTimeTumblingWindowsRestoreFromStore() throws Exception {
+    TestInMemoryStore store = new TestInMemoryStore<>(new TimeSeriesKeySerde(new IntegerSerde()), new IntegerSerde());
+    // state for a window that was open before a restart
+    store.put(new TimeSeriesKey<>(1, 0L, 0L), 3);
+    when(this.context.getTaskContext().getStore("jobName-jobId-window-w1")).thenReturn(store);
+    AtomicLong watermark = mockWatermarkStates();
+
+    OperatorSpecGraph sgb = this.getKeyedEventTimeTumblingWindowStreamGraph(AccumulationMode.DISCARDING,
+        Duration.ofSeconds(1), Duration.ZERO).getOperatorSpecGraph();
+    List<WindowPane<Integer, Integer>> windowPanes = new ArrayList<>();
+
+    StreamOperatorTask task = new StreamOperatorTask(sgb, new TestClock());
+    task.init(this.context);
+    MessageCollector messageCollector = envelope -> windowPanes.add((WindowPane<Integer, Integer>) envelope.getMessage());
+
+    task.process(new IntegerEnvelope(1, 100), messageCollector, taskCoordinator);
+    processWatermark(task, watermark, 1000, messageCollector);
+    Assert.assertEquals(windowPanes.size(), 1);
+    Assert.assertEquals(windowPanes.get(0).getMessage(), new Integer(4));
+  }
+
+  @Test
+  public void testKeyedHoppingWindowsCombineSlices() throws Exception {
+    testKeyedHoppingWindows(false);
+  }
+
+  @Test
+  public void testKeyedHoppingWindowsWithSubtractFunction() throws Exception {
+    testKeyedHoppingWindows(true);
+  }
+
+  private void testKeyedHoppingWindows(boolean withSubtractFunction) throws Exception {
+    TestInMemoryStore store = new TestInMemoryStore<>(new TimeSeriesKeySerde(new IntegerSerde()), new IntegerSerde());
+    when(this.context.getTaskContext().getStore("jobName-jobId-window-w1")).thenReturn(store);
+
+    OperatorSpecGraph sgb = this.getKeyedHoppingWindowStreamGraph(Duration.ofSeconds(3), Duration.ofSeconds(1),
+        withSubtractFunction).getOperatorSpecGraph();
+    List<WindowPane<Integer, Integer>> windowPanes = new ArrayList<>();
+
+    TestClock testClock = new TestClock();
+    StreamOperatorTask task = new StreamOperatorTask(sgb, testClock);
+    task.init(this.context);
+    MessageCollector messageCollector = envelope -> windowPanes.add((WindowPane<Integer, Integer>) envelope.getMessage());
+
+    task.process(new IntegerEnvelope(1), messageCollector, taskCoordinator);
+    task.process(new IntegerEnvelope(1), messageCollector, taskCoordinator);
+    task.process(new IntegerEnvelope(2), messageCollector, taskCoordinator);
+    testClock.advanceTime(Duration.ofSeconds(1));
+    task.window(messageCollector, taskCoordinator);
+    Assert.assertEquals(windowPanes.size(), 2);
+    assertHoppingPane(windowPanes.get(0), 1, "-2000", 2);
+    assertHoppingPane(windowPanes.get(1), 2, "-2000", 1);
+
+    task.process(new IntegerEnvelope(1), messageCollector, taskCoordinator);
+    testClock.advanceTime(Duration.ofSeconds(1));
+    task.window(messageCollector, taskCoordinator);
+    Assert.assertEquals(windowPanes.size(), 4);
+    assertHoppingPane(windowPanes.get(2), 1, "-1000", 3);
+    assertHoppingPane(windowPanes.get(3), 2, "-1000", 1);
+
+    testClock.advanceTime(Duration.ofSeconds(1));
+    task.window(messageCollector, taskCoordinator);
+    Assert.assertEquals(windowPanes.size(), 6);
+    assertHoppingPane(windowPanes.get(4), 1, "0", 3);
+    assertHoppingPane(windowPanes.get(5), 2, "0", 1);
+
+    // the first slice has left the window
+    testClock.advanceTime(Duration.ofSeconds(1));
+    task.window(messageCollector, taskCoordinator);
+    Assert.assertEquals(windowPanes.size(), 7);
+    assertHoppingPane(windowPanes.get(6), 1, "1000", 1);
+
+    // all slices have left the window and are removed from the store
+    testClock.advanceTime(Duration.ofSeconds(1));
+    task.window(messageCollector, taskCoordinator);
+    Assert.assertEquals(windowPanes.size(), 7);
+    Assert.assertFalse(store.all().hasNext());
+  }
+
+  @Test
+  public void testKeyedHoppingWindowsWithMutatingCombiner() throws Exception {
+    // the store hands out the objects that were put into it, the way a CachedStore in front of it does
+    ObjectRetainingSerde<AtomicInteger> valueSerde = new ObjectRetainingSerde<>();
+    TestInMemoryStore store = new TestInMemoryStore<>(new TimeSeriesKeySerde(new IntegerSerde()), valueSerde);
+    when(this.context.getTaskContext().getStore("jobName-jobId-window-w1")).thenReturn(store);
+
+    StreamApplication userApp = appDesc -> {
+      KVSerde<Integer, Integer> kvSerde = KVSerde.of(new IntegerSerde(), new IntegerSerde());
+      GenericSystemDescriptor sd = new GenericSystemDescriptor("kafka", "mockFactoryClass");
+      GenericInputDescriptor<KV<Integer, Integer>> inputDescriptor = sd.getInputDescriptor("integers", kvSerde);
+      MessageStream<KV<Integer, Integer>> integers = appDesc.getInputStream(inputDescriptor);
+
+      integers
+          .window(Windows.<KV<Integer, Integer>, Integer, AtomicInteger>keyedHoppingWindow(KV::getKey,
+              Duration.ofSeconds(3), Duration.ofSeconds(1), AtomicInteger::new,
+              (m, c) -> {
+                c.incrementAndGet();
+                return c;
+              },
+              (c1, c2) -> {
+                c1.addAndGet(c2.get());
+                return c1;
+              },
+              new IntegerSerde(), valueSerde), "w1")
+          .sink((message, messageCollector, taskCoordinator) -> {
+              SystemStream outputSystemStream = new SystemStream("outputSystem", "outputStream");
+              messageCollector.send(new OutgoingMessageEnvelope(outputSystemStream, message));
+            });
+    };
+    OperatorSpecGraph sgb = new StreamApplicationDescriptorImpl(userApp, config).getOperatorSpecGraph();
+    List<WindowPane<Integer, AtomicInteger>> windowPanes = new ArrayList<>();
+
+    TestClock testClock = new TestClock();
+    StreamOperatorTask task = new StreamOperatorTask(sgb, testClock);
+    task.init(this.context);
+    MessageCollector messageCollector =
+        envelope -> windowPanes.add((WindowPane<Integer, AtomicInteger>) envelope.getMessage());
+
+    task.process(new IntegerEnvelope(1), messageCollector, taskCoordinator);
+    task.process(new IntegerEnvelope(1), messageCollector, taskCoordinator);
+    testClock.advanceTime(Duration.ofSeconds(1));
+    task.window(messageCollector, taskCoordinator);
+    task.process(new IntegerEnvelope(1), messageCollector, taskCoordinator);
+    testClock.advanceTime(Duration.ofSeconds(1));
+    task.window(messageCollector, taskCoordinator);
+    testClock.advanceTime(Duration.ofSeconds(1));
+    task.window(messageCollector, taskCoordinator);
+
+    // combining the slices of a window must change neither the stored slices nor the panes emitted before
+    Assert.assertEquals(windowPanes.size(), 3);
+    Assert.assertEquals(windowPanes.get(0).getMessage().get(), 2);
+    Assert.assertEquals(windowPanes.get(1).getMessage().get(), 3);
+    Assert.assertEquals(windowPanes.get(2).getMessage().get(), 3);
+  }
+
+  private void assertHoppingPane(WindowPane<Integer, Integer> pane, int key, String windowStart, int count) {
+    Assert.assertEquals(pane.getKey().getKey(), new Integer(key));
+    Assert.assertEquals(pane.getKey().getPaneId(), windowStart);
+    Assert.assertEquals(pane.getMessage(), new Integer(count));
+  }
+
+  @Test
+  public void testKeyedHoppingWindowsRestoreFromStore() throws Exception {
+    TestInMemoryStore store = new TestInMemoryStore<>(new TimeSeriesKeySerde(new IntegerSerde()), new IntegerSerde());
+    // slices that were aggregated before a restart. The first one is older than any window that is still emitted.
+    store.put(new TimeSeriesKey<>(1, 7000L, 0L), 5);
+    store.put(new TimeSeriesKey<>(1, 9000L, 0L), 2);
+    when(this.context.getTaskContext().getStore("jobName-jobId-window-w1")).thenReturn(store);
+
+    OperatorSpecGraph sgb = this.getKeyedHoppingWindowStreamGraph(Duration.ofSeconds(3), Duration.ofSeconds(1), true)
+        .getOperatorSpecGraph();
+    List<WindowPane<Integer, Integer>> windowPanes = new ArrayList<>();
+
+    TestClock testClock = new TestClock();
+    testClock.advanceTime(Duration.ofSeconds(10));
+    StreamOperatorTask task = new StreamOperatorTask(sgb, testClock);
+    task.init(this.context);
+    MessageCollector messageCollector = envelope -> windowPanes.add((WindowPane<Integer, Integer>) envelope.getMessage());
+
+    task.process(new IntegerEnvelope(1), messageCollector, taskCoordinator);
+    testClock.advanceTime(Duration.ofSeconds(1));
+    task.window(messageCollector, taskCoordinator);
+    Assert.assertEquals(windowPanes.size(), 1);
+    assertHoppingPane(windowPanes.get(0), 1, "8000", 3);
+    Assert.assertNull(store.get(new TimeSeriesKey<>(1, 7000L, 0L)));
+  }
+
+  /**
+   * A serde that deserializes a value to the very object it serialized, so a store using it keeps the objects that
+   * were put into it.
+   */
+  private static class ObjectRetainingSerde<T> implements Serde<T> {
+    private final List<T> values = new ArrayList<>();
+
+    @Override
+    public T fromBytes(byte[] bytes) {
+      return values.get(ByteBuffer.wrap(bytes).getInt());
+    }
+
+    @Override
+    public byte[] toBytes(T object) {
+      values.add(object);
+      return ByteBuffer.allocate(4).putInt(values.size() - 1).array();
+    }
+  }
+
+  private AtomicLong mockWatermarkStates() {
+    AtomicLong watermark = new AtomicLong(WatermarkStates.WATERMARK_NOT_EXIST);
+    WatermarkStates watermarkStates = mock(WatermarkStates.class);
+    when(watermarkStates.getWatermark(any(SystemStream.class))).thenAnswer(invocation -> watermark.get());
+    when(((TaskContextImpl) this.context.getTaskContext()).fetchObject(WatermarkStates.class.getName()))
+        .thenReturn(watermarkStates);
+    // the input must be consumed by this task for its watermark to be propagated
+    when(this.context.getTaskContext().getTaskModel().getSystemStreamPartitions())
+        .thenReturn(ImmutableSet.of(new SystemStreamPartition("kafka", "integers", new Partition(0))));
+    return watermark;
+  }
+
+  private void processWatermark(StreamOperatorTask task, AtomicLong watermark, long timestamp,
+      MessageCollector messageCollector) {
+    watermark.set(timestamp);
+    task.process(IncomingMessageEnvelope.buildWatermarkEnvelope(
+        new SystemStreamPartition("kafka", "integers", new Partition(0)), timestamp), messageCollector, taskCoordinator);
+  }
+
+  private StreamApplicationDescriptorImpl getKeyedEventTimeTumblingWindowStreamGraph(AccumulationMode mode,
+      Duration duration, Duration allowedLateness) throws IOException {
+    StreamApplication userApp = appDesc -> {
+      KVSerde<Integer, Integer> kvSerde = KVSerde.of(new IntegerSerde(), new IntegerSerde());
+      GenericSystemDescriptor sd = new GenericSystemDescriptor("kafka", "mockFactoryClass");
+      GenericInputDescriptor<KV<Integer, Integer>> inputDescriptor = sd.getInputDescriptor("integers", kvSerde);
+      MessageStream<KV<Integer, Integer>> integers = appDesc.getInputStream(inputDescriptor);
+
+      integers
+          .window(Windows.<KV<Integer, Integer>, Integer, Integer>keyedEventTimeTumblingWindow(KV::getKey,
+              kv -> kv.getValue().longValue(), duration, allowedLateness, () -> 0, (m, c) -> c + 1,
+              new IntegerSerde(), new IntegerSerde())
+              .setAccumulationMode(mode), "w1")
+          .sink((message, messageCollector, taskCoordinator) -> {
+              SystemStream outputSystemStream = new SystemStream("outputSystem", "outputStream");
+              messageCollector.send(new OutgoingMessageEnvelope(outputSystemStream, message));
+            });
+    };
+
+    return new StreamApplicationDescriptorImpl(userApp, config);
+  }
+
+  private StreamApplicationDescriptorImpl getKeyedHoppingWindowStreamGraph(Duration size, Duration hop,
+      boolean withSubtractFunction) throws IOException {
+    StreamApplication userApp = appDesc -> {
+      KVSerde<Integer, Integer> kvSerde = KVSerde.of(new IntegerSerde(), new IntegerSerde());
+      GenericSystemDescriptor sd = new GenericSystemDescriptor("kafka", "mockFactoryClass");
+      GenericInputDescriptor<KV<Integer, Integer>> inputDescriptor = sd.getInputDescriptor("integers", kvSerde);
+      MessageStream<KV<Integer, Integer>> integers = appDesc.getInputStream(inputDescriptor);
+
+      integers
+          .window(Windows.<KV<Integer, Integer>, Integer, Integer>keyedHoppingWindow(KV::getKey, size, hop, () -> 0,
+              (m, c) -> c + 1, (c1, c2) -> c1 + c2, withSubtractFunction ? (c1, c2) -> c1 - c2 : null,
+              new IntegerSerde(), new IntegerSerde()), "w1")
+          .sink((message, messageCollector, taskCoordinator) -> {
+              SystemStream outputSystemStream = new SystemStream("outputSystem", "outputStream");
+              messageCollector.send(new OutgoingMessageEnvelope(outputSystemStream, message));
+            });
+    };
+
+    return new StreamApplicationDescriptorImpl(userApp, config);
+  }
+
   private StreamApplicationDescriptorImpl getKeyedTumblingWindowStreamGraph(AccumulationMode mode,
       Duration duration, Trigger<KV<Integer, Integer>> earlyTrigger) throws IOException {
 
@@ -601,6 +1037,27 @@ public class TestWindowOperator {
     return new StreamApplicationDescriptorImpl(userApp, config);
   }
 
+  private StreamApplicationDescriptorImpl getKeyedAggregateSessionWindowStreamGraph(Duration duration,
+      boolean persistTriggers) throws IOException {
+    StreamApplication userApp = appDesc -> {
+      KVSerde<Integer, Integer> kvSerde = KVSerde.of(new IntegerSerde(), new IntegerSerde());
+      GenericSystemDescriptor sd = new GenericSystemDescriptor("kafka", "mockFactoryClass");
+      GenericInputDescriptor<KV<Integer, Integer>> inputDescriptor = sd.getInputDescriptor("integers", kvSerde);
+      MessageStream<KV<Integer, Integer>> integers = appDesc.getInputStream(inputDescriptor);
+
+      integers
+          .window(Windows.<KV<Integer, Integer>, Integer, Integer>keyedSessionWindow(KV::getKey, duration, () -> 0,
+              (m, c) -> c + 1, new IntegerSerde(), new IntegerSerde())
+              .setPersistTriggers(persistTriggers), "w1")
+          .sink((message, messageCollector, taskCoordinator) -> {
+              SystemStream outputSystemStream = new SystemStream("outputSystem", "outputStream");
+              messageCollector.send(new OutgoingMessageEnvelope(outputSystemStream, message));
+            });
+    };
+
+    return new StreamApplicationDescriptorImpl(userApp, config);
+  }
+
   private StreamApplicationDescriptorImpl getAggregateTumblingWindowStreamGraph(AccumulationMode mode, Duration timeDuration,
         Trigger<IntegerEnvelope> earlyTrigger) throws IOException {
     StreamApplication userApp = appDesc -> {
@@ -628,6 +1085,10 @@ public class TestWindowOperator {
     IntegerEnvelope(Integer key) {
       super(new SystemStreamPartition("kafka", "integers", new Partition(0)), null, key, key);
     }
+
+    IntegerEnvelope(Integer key, Integer value) {
+      super(new SystemStreamPartition("kafka", "integers", new Partition(0)), null, key, value);
+    }
   }
 
   private static class KVMapFunction implements MapFunction<KV<Integer, Integer>, IntegerEnvelope> {
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.samza.operators.impl.store;
+
+import org.apache.samza.serializers.IntegerSerde;
+import org.apache.samza.serializers.StringSerde;
+import org.apache.samza.storage.kv.ClosableIterator;
+import org.apache.samza.storage.kv.KeyValueStore;
+import org.apache.samza.util.TimestampedValue;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestBufferedTimeSeriesStore {
+
+  private TimeSeriesStore<String, Integer> store;
+
+  @Before
+  public void setup() {
+    KeyValueStore<TimeSeriesKey<String>, Integer> kvStore =
+        new TestInMemoryStore(new TimeSeriesKeySerde<>(new StringSerde("UTF-8")), new IntegerSerde());
+    store = new TimeSeriesStoreImpl<>(kvStore, false);
+  }
+
+  @Test
+  public void testPutIsBufferedUntilWriteBack() {
+    BufferedTimeSeriesStore<String, Integer> bufferedStore = new BufferedTimeSeriesStore<>(store, 10);
+
+    bufferedStore.put("hello", 1, 1L);
+    bufferedStore.put("hello", 2, 1L);
+    Assert.assertEquals(1, bufferedStore.getBufferedSize());
+    Assert.assertEquals(0, readStore(store, "hello", 1L).size());
+
+    // point lookups are served from the buffer
+    List<TimestampedValue<Integer>> values = readStore(bufferedStore, "hello", 1L);
+    Assert.assertEquals(1, values.size());
+    Assert.assertEquals(new Integer(2), values.get(0).getValue());
+    Assert.assertEquals(1L, values.get(0).getTimestamp());
+
+    bufferedStore.writeBack();
+    Assert.assertEquals(0, bufferedStore.getBufferedSize());
+    values = readStore(store, "hello", 1L);
+    Assert.assertEquals(1, values.size());
+    Assert.assertEquals(new Integer(2), values.get(0).getValue());
+
+    // values that are not buffered are read from the store
+    values = readStore(bufferedStore, "hello", 1L);
+    Assert.assertEquals(1, values.size());
+    Assert.assertEquals(new Integer(2), values.get(0).getValue());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedValueIsWrittenOnEviction() {
+    BufferedTimeSeriesStore<String, Integer> bufferedStore = new BufferedTimeSeriesStore<>(store, 2);
+
+    bufferedStore.put("hello", 1, 1L);
+    bufferedStore.put("hello", 2, 2L);
+    // reading the first value makes the second one the least recently used
+    readStore(bufferedStore, "hello", 1L);
+    bufferedStore.put("hello", 3, 3L);
+
+    Assert.assertEquals(2, bufferedStore.getBufferedSize());
+    Assert.assertEquals(0, readStore(store, "hello", 1L).size());
+    Assert.assertEquals(new Integer(2), readStore(store, "hello", 2L).get(0).getValue());
+    Assert.assertEquals(0, readStore(store, "hello", 3L).size());
+  }
+
+  @Test
+  public void testRangeReadWritesBackBufferedValues() {
+    BufferedTimeSeriesStore<String, Integer> bufferedStore = new BufferedTimeSeriesStore<>(store, 10);
+
+    bufferedStore.put("hello", 1, 1L);
+    bufferedStore.put("hello", 2, 2L);
+
+    List<TimestampedValue<Integer>> values = new ArrayList<>();
+    ClosableIterator<TimestampedValue<Integer>> iterator = bufferedStore.get("hello", 0L, 3L);
+    iterator.forEachRemaining(values::add);
+    iterator.close();
+
+    Assert.assertEquals(2, values.size());
+    Assert.assertEquals(0, bufferedStore.getBufferedSize());
+  }
+
+  @Test
+  public void testRemoveDropsBufferedValue() {
+    BufferedTimeSeriesStore<String, Integer> bufferedStore = new BufferedTimeSeriesStore<>(store, 10);
+
+    store.put("hello", 1, 1L);
+    bufferedStore.put("hello", 2, 1L);
+    bufferedStore.remove("hello", 1L);
+    bufferedStore.writeBack();
+
+    Assert.assertEquals(0, readStore(bufferedStore, "hello", 1L).size());
+    Assert.assertEquals(0, readStore(store, "hello", 1L).size());
+  }
+
+  private static <K, V> List<TimestampedValue<V>> readStore(TimeSeriesStore<K, V> store, K key, long timestamp) {
+    List<TimestampedValue<V>> list = new ArrayList<>();
+    ClosableIterator<TimestampedValue<V>> storeValuesIterator = store.get(key, timestamp);
+
+    while (storeValuesIterator.hasNext()) {
+      list.add(storeValuesIterator.next());
+    }
+
+    storeValuesIterator.close();
+    return list;
+  }
+}
@@ -169,6 +169,27 @@ public class TestTimeSeriesStoreImpl {
     Assert.assertEquals(0, values.size());
   }
 
+  @Test
+  public void testRemoveBefore() {
+    TimeSeriesStore<String, byte[]> timeSeriesStore = newTimeSeriesStore(new StringSerde("UTF-8"), true);
+
+    timeSeriesStore.put("hello", "world-1".getBytes(), 1L);
+    timeSeriesStore.put("hello", "world-2".getBytes(), 2L);
+    timeSeriesStore.put("hello", "world-3".getBytes(), 3L);
+    timeSeriesStore.put("world", "hello-1".getBytes(), 1L);
+    timeSeriesStore.put("world", "hello-3".getBytes(), 3L);
+
+    timeSeriesStore.removeBefore(3L);
+
+    List<TimestampedValue<byte[]>> values = readStore(timeSeriesStore, "hello", 0L, Long.MAX_VALUE);
+    Assert.assertEquals(1, values.size());
+    Assert.assertEquals("world-3", new String(values.get(0).getValue()));
+
+    values = readStore(timeSeriesStore, "world", 0L, Long.MAX_VALUE);
+    Assert.assertEquals(1, values.size());
+    Assert.assertEquals("hello-3", new String(values.get(0).getValue()));
+  }
+
   private static <K, V> List<TimestampedValue<V>> readStore(
       TimeSeriesStore<K, V> store, K key, long startTimestamp, long endTimestamp) {
     List<TimestampedValue<V>> list = new ArrayList<>();
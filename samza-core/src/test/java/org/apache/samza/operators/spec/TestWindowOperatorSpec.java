@@ -27,6 +27,7 @@ import org.apache.samza.operators.functions.SupplierFunction;
 import org.apache.samza.operators.functions.WatermarkFunction;
 import org.apache.samza.operators.triggers.Trigger;
 import org.apache.samza.operators.triggers.Triggers;
+import org.apache.samza.operators.windows.Windows;
 import org.apache.samza.operators.windows.internal.WindowInternal;
 import org.apache.samza.operators.windows.internal.WindowType;
 import org.apache.samza.serializers.Serde;
@@ -90,6 +91,46 @@ public class TestWindowOperatorSpec {
     assertEquals(spec.getDefaultTriggerMs(), 150);
   }
 
+  @Test
+  public void testTriggerIntervalWithHoppingWindow() {
+    WindowInternal<Object, Object, Integer> window = (WindowInternal<Object, Object, Integer>) Windows.keyedHoppingWindow(
+        keyFn, Duration.ofMinutes(10), Duration.ofSeconds(10), () -> 0, (m, c) -> c + 1, (c1, c2) -> c1 + c2,
+        mock(Serde.class), mock(Serde.class));
+    WindowOperatorSpec spec = new WindowOperatorSpec<>(window, "w0");
+    assertEquals(spec.getDefaultTriggerMs(), 10000);
+    assertEquals(window.getWindowSizeMs(), 600000);
+  }
+
+  @Test
+  public void testStoreDescriptorsWithPersistedTriggers() {
+    WindowInternal<Object, Object, Integer> window = (WindowInternal<Object, Object, Integer>) Windows.keyedTumblingWindow(
+        keyFn, Duration.ofSeconds(10), () -> 0, (m, c) -> c + 1, mock(Serde.class), mock(Serde.class));
+    WindowOperatorSpec spec = new WindowOperatorSpec<>(window, "w0");
+    assertEquals(spec.getStoreDescriptors().size(), 1);
+
+    window.setPersistTriggers(true);
+    Collection<StoreDescriptor> storeDescriptors = spec.getStoreDescriptors();
+    assertEquals(storeDescriptors.size(), 2);
+    Assert.assertTrue(storeDescriptors.stream().anyMatch(sd -> sd.getStoreName().equals("w0-triggers")));
+  }
+
+  @Test
+  public void testHoppingWindowDoesNotPersistTriggers() {
+    WindowInternal<Object, Object, Integer> window = (WindowInternal<Object, Object, Integer>) Windows.keyedHoppingWindow(
+        keyFn, Duration.ofMinutes(10), Duration.ofSeconds(10), () -> 0, (m, c) -> c + 1, (c1, c2) -> c1 + c2,
+        mock(Serde.class), mock(Serde.class));
+    window.setPersistTriggers(true);
+    WindowOperatorSpec spec = new WindowOperatorSpec<>(window, "w0");
+    Assert.assertFalse(spec.shouldPersistTriggers());
+    assertEquals(spec.getStoreDescriptors().size(), 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testIllegalHoppingWindowSize() {
+    Windows.keyedHoppingWindow(keyFn, Duration.ofSeconds(25), Duration.ofSeconds(10), () -> 0, (m, c) -> c + 1,
+        (c1, c2) -> c1 + c2, mock(Serde.class), mock(Serde.class));
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testIllegalScheduledFunctionAsInitializer() {
     class TimedSupplierFunction implements SupplierFunction<Collection>, ScheduledFunction<Object, Collection> {
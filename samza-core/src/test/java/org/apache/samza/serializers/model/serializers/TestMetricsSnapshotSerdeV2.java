@@ -52,6 +52,7 @@ public class TestMetricsSnapshotSerdeV2 {
     metricMessage.put(samzaContainerMetricsGroupName, new HashMap<>());
     metricMessage.get(samzaContainerMetricsGroupName).put("exceptions", listGauge.getValues());
     metricMessage.get(samzaContainerMetricsGroupName).put("commit-calls", 0);
+    metricMessage.get(samzaContainerMetricsGroupName).put("process-ns-p99", 1234567L);
 
     MetricsSnapshot metricsSnapshot = new MetricsSnapshot(metricsHeader, new Metrics(metricMessage));
 
@@ -52,6 +52,7 @@ import scala.Option;
 import scala.collection.JavaConverters;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.anyObject;
@@ -288,6 +289,134 @@ public class TestAsyncRunLoop {
     assertEquals(1L, t1.metrics().asyncCallbackCompleted().getCount());
   }
 
+  @Test
+  public void testProcessInBatches() throws Exception {
+    CountDownLatch task0ProcessedMessages = new CountDownLatch(2);
+    CountDownLatch task1ProcessedMessages = new CountDownLatch(1);
+    SystemConsumers consumerMultiplexer = mock(SystemConsumers.class);
+    when(consumerMultiplexer.pollIntervalMs()).thenReturn(10);
+    OffsetManager offsetManager = mock(OffsetManager.class);
+
+    TestTask task0 = new TestTask(true, true, false, task0ProcessedMessages);
+    TestTask task1 = new TestTask(true, false, false, task1ProcessedMessages);
+    TaskInstance t0 = createTaskInstance(task0, taskName0, ssp0, offsetManager, consumerMultiplexer);
+    TaskInstance t1 = createTaskInstance(task1, taskName1, ssp1, offsetManager, consumerMultiplexer);
+
+    Map<TaskName, TaskInstance> tasks = new HashMap<>();
+    tasks.put(taskName0, t0);
+    tasks.put(taskName1, t1);
+
+    int maxMessagesInFlight = 1;
+    int batchSize = 4;
+    AsyncRunLoop runLoop = new AsyncRunLoop(tasks, executor, consumerMultiplexer, maxMessagesInFlight, windowMs, commitMs,
+                                            callbackTimeoutMs, maxThrottlingDelayMs, maxIdleMs, batchSize, 1, containerMetrics,
+                                            () -> 0L, false);
+    when(consumerMultiplexer.choose(false)).thenReturn(envelope0).thenReturn(envelope1).thenReturn(null)
+        .thenReturn(envelope3).thenReturn(ssp0EndOfStream).thenReturn(ssp1EndOfStream).thenReturn(null);
+    runLoop.run();
+
+    task0ProcessedMessages.await();
+    task1ProcessedMessages.await();
+
+    assertEquals(2, task0.processed);
+    assertEquals(2, task0.completed.get());
+    assertEquals(1, task1.processed);
+    assertEquals(1, task1.completed.get());
+    assertEquals(5L, containerMetrics.envelopes().getCount());
+    assertEquals(3L, containerMetrics.processes().getCount());
+    verify(offsetManager).update(taskName0, ssp0, envelope0.getOffset());
+    verify(offsetManager).update(taskName0, ssp0, envelope3.getOffset());
+    verify(offsetManager).update(taskName1, ssp1, envelope1.getOffset());
+  }
+
+  @Test
+  public void testProcessInBatchesOnlyRunsSignalledTasks() throws Exception {
+    int taskCount = 10;
+    CountDownLatch task0ProcessedMessages = new CountDownLatch(2);
+    SystemConsumers consumerMultiplexer = mock(SystemConsumers.class);
+    when(consumerMultiplexer.pollIntervalMs()).thenReturn(10);
+    OffsetManager offsetManager = mock(OffsetManager.class);
+
+    TestTask task0 = new TestTask(true, false, false, task0ProcessedMessages);
+    Map<TaskName, TaskInstance> tasks = new HashMap<>();
+    tasks.put(taskName0, createTaskInstance(task0, taskName0, ssp0, offsetManager, consumerMultiplexer));
+    for (int i = 1; i < taskCount; i++) {
+      Partition partition = new Partition(i);
+      TaskName taskName = new TaskName(partition.toString());
+      SystemStreamPartition ssp = new SystemStreamPartition("testSystem", "testStream", partition);
+      tasks.put(taskName, createTaskInstance(new TestTask(true, false, false, null), taskName, ssp, offsetManager,
+          consumerMultiplexer));
+    }
+
+    int maxMessagesInFlight = 1;
+    int batchSize = 4;
+    AsyncRunLoop runLoop = new AsyncRunLoop(tasks, executor, consumerMultiplexer, maxMessagesInFlight, windowMs, commitMs,
+                                            callbackTimeoutMs, maxThrottlingDelayMs, maxIdleMs, batchSize, 1, containerMetrics,
+                                            () -> 0L, false);
+    when(consumerMultiplexer.choose(false)).thenReturn(envelope0).thenReturn(null).thenReturn(envelope3).thenReturn(null);
+    Thread runLoopThread = new Thread(runLoop);
+    runLoopThread.start();
+
+    task0ProcessedMessages.await();
+    // let the run loop handle the completed callbacks and idle for a few iterations
+    Thread.sleep(10 * maxIdleMs);
+    runLoop.shutdown();
+    runLoopThread.join();
+
+    assertEquals(2, task0.processed);
+    assertEquals(2L, containerMetrics.processes().getCount());
+    // All the tasks run in the first iteration. After that, a task only runs in an iteration after it received an
+    // envelope or its callback completed, and idle iterations run no task.
+    long workerRuns = containerMetrics.workerRuns().getCount();
+    assertTrue("task workers ran " + workerRuns + " times", workerRuns >= taskCount && workerRuns <= taskCount + 4);
+  }
+
+  @Test
+  public void testProcessBatchTask() throws Exception {
+    SystemConsumers consumerMultiplexer = mock(SystemConsumers.class);
+    when(consumerMultiplexer.pollIntervalMs()).thenReturn(10);
+    OffsetManager offsetManager = mock(OffsetManager.class);
+
+    List<List<IncomingMessageEnvelope>> batches = new ArrayList<>();
+    BatchStreamTask task0 = new BatchStreamTask() {
+      @Override
+      public void processBatch(List<IncomingMessageEnvelope> envelopes, MessageCollector collector,
+          TaskCoordinator coordinator, TaskCallback callback) {
+        batches.add(new ArrayList<>(envelopes));
+        coordinator.shutdown(TaskCoordinator.RequestScope.ALL_TASKS_IN_CONTAINER);
+        callback.complete();
+      }
+    };
+    TaskInstance t0 = createTaskInstance(task0, taskName0, ssp0, offsetManager, consumerMultiplexer);
+    Map<TaskName, TaskInstance> tasks = new HashMap<>();
+    tasks.put(taskName0, t0);
+
+    when(consumerMultiplexer.choose(false)).thenReturn(envelope0).thenReturn(null);
+    when(consumerMultiplexer.drainBuffered(eq(ssp0), eq(9), any())).thenAnswer(invocation -> {
+        ((List<IncomingMessageEnvelope>) invocation.getArguments()[2]).add(envelope3);
+        return 1;
+      });
+
+    int maxMessagesInFlight = 1;
+    int processBatchSize = 10;
+    AsyncRunLoop runLoop = new AsyncRunLoop(tasks, executor, consumerMultiplexer, maxMessagesInFlight, windowMs, commitMs,
+                                            callbackTimeoutMs, maxThrottlingDelayMs, maxIdleMs, 1, processBatchSize,
+                                            containerMetrics, () -> 0L, false);
+    runLoop.run();
+
+    assertEquals(1, batches.size());
+    assertEquals(2, batches.get(0).size());
+    assertEquals(envelope0, batches.get(0).get(0));
+    assertEquals(envelope3, batches.get(0).get(1));
+    assertEquals(2L, t0.metrics().processes().getCount());
+    assertEquals(1L, t0.metrics().processBatches().getCount());
+    // one callback and one offset update for the whole batch
+    assertEquals(1L, containerMetrics.processes().getCount());
+    verify(offsetManager).update(taskName0, ssp0, envelope3.getOffset());
+    verify(offsetManager, never()).update(taskName0, ssp0, envelope0.getOffset());
+    verify(consumerMultiplexer).tryUpdate(ssp0);
+  }
+
   private TestCode buildOutofOrderCallback(final TestTask task) {
     final CountDownLatch latch = new CountDownLatch(1);
     return new TestCode() {
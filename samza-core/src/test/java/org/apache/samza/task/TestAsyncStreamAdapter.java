@@ -19,6 +19,7 @@
 
 package org.apache.samza.task;
 
+import java.util.Arrays;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -27,6 +28,8 @@ import org.apache.samza.system.IncomingMessageEnvelope;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
@@ -56,6 +59,7 @@ public class TestAsyncStreamAdapter {
     boolean inited = false;
     boolean closed = false;
     boolean processed = false;
+    int processCount = 0;
     boolean windowed = false;
 
     @Override
@@ -71,6 +75,7 @@ public class TestAsyncStreamAdapter {
     @Override
     public void process(IncomingMessageEnvelope envelope, MessageCollector collector, TaskCoordinator coordinator) throws Exception {
       processed = true;
+      processCount++;
       if (e != null) {
         throw e;
       }
@@ -113,6 +118,24 @@ public class TestAsyncStreamAdapter {
     assertTrue(task.closed);
   }
 
+  @Test
+  public void testAdapterProcessBatch() throws Exception {
+    taskAdaptor = new AsyncStreamTaskAdapter(task, null);
+    TestCallbackListener listener = new TestCallbackListener();
+    TaskCallback callback = new TaskCallbackImpl(listener, null, envelope, null, 0L, 0L);
+
+    taskAdaptor.processBatch(Arrays.asList(envelope, envelope, envelope), null, null, callback);
+    assertEquals(3, task.processCount);
+    assertTrue(listener.callbackComplete);
+    assertFalse(listener.callbackFailure);
+
+    e = new Exception("dummy exception");
+    taskAdaptor.processBatch(Arrays.asList(envelope, envelope), null, null, callback);
+    // the batch fails on its first message
+    assertEquals(4, task.processCount);
+    assertTrue(listener.callbackFailure);
+  }
+
   @Test
   public void testAdapterWithThreadPool() throws Exception {
     TestCallbackListener listener1 = new TestCallbackListener();
@@ -19,10 +19,14 @@
 
 package org.apache.samza.task;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
 import org.apache.samza.Partition;
 import org.apache.samza.container.TaskInstanceMetrics;
 import org.apache.samza.container.TaskName;
+import org.apache.samza.metrics.Counter;
 import org.apache.samza.metrics.MetricsRegistryMap;
 import org.apache.samza.system.IncomingMessageEnvelope;
 import org.apache.samza.system.SystemStreamPartition;
@@ -31,6 +35,7 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
 
 public class TestTaskCallbackManager {
   TaskCallbackManager callbackManager = null;
@@ -59,6 +64,88 @@ public class TestTaskCallbackManager {
     assertTrue(callback.matchSeqNum(1));
   }
 
+  @Test
+  public void testCallbackTimeout() {
+    List<TaskCallback> failedCallbacks = new ArrayList<>();
+    List<TaskCallback> completedCallbacks = new ArrayList<>();
+    TaskCallbackListener timeoutListener = new TaskCallbackListener() {
+      @Override
+      public void onComplete(TaskCallback callback) {
+        completedCallbacks.add(callback);
+      }
+      @Override
+      public void onFailure(TaskCallback callback, Throwable t) {
+        failedCallbacks.add(callback);
+      }
+    };
+    Counter timedOutCallbacks = new Counter("timeouts");
+    // the timeouts are checked explicitly below instead of by the timer
+    TaskCallbackManager timeoutManager = new TaskCallbackManager(timeoutListener, mock(ScheduledExecutorService.class),
+        10, 2, () -> System.nanoTime(), timedOutCallbacks);
+
+    TaskName taskName = new TaskName("Partition 0");
+    SystemStreamPartition ssp = new SystemStreamPartition("kafka", "topic", new Partition(0));
+    TaskCallbackImpl callback0 = timeoutManager.createCallback(taskName,
+        new IncomingMessageEnvelope(ssp, "0", null, null), new ReadableCoordinator(taskName));
+    TaskCallbackImpl callback1 = timeoutManager.createCallback(taskName,
+        new IncomingMessageEnvelope(ssp, "1", null, null), new ReadableCoordinator(taskName));
+    callback1.complete();
+
+    timeoutManager.checkTimeouts(callback0.getDeadlineNs() - 1);
+    assertTrue(failedCallbacks.isEmpty());
+    assertEquals(0, timedOutCallbacks.getCount());
+
+    timeoutManager.checkTimeouts(callback1.getDeadlineNs());
+    assertEquals(1, failedCallbacks.size());
+    assertEquals(callback0, failedCallbacks.get(0));
+    assertEquals(1, completedCallbacks.size());
+    assertEquals(callback1, completedCallbacks.get(0));
+    assertEquals(1, timedOutCallbacks.getCount());
+
+    // the timed out and the completed callbacks are no longer tracked
+    timeoutManager.checkTimeouts(callback1.getDeadlineNs() + 1000000000L);
+    assertEquals(1, failedCallbacks.size());
+    assertEquals(1, timedOutCallbacks.getCount());
+  }
+
+  @Test
+  public void testConcurrentUpdatesAreCollectedInOrder() throws Exception {
+    int maxConcurrency = 4;
+    int numCallbacks = 10000;
+    TaskCallbackManager manager = new TaskCallbackManager(listener, null, -1, maxConcurrency, () -> System.nanoTime());
+    TaskName taskName = new TaskName("Partition 0");
+    ReadableCoordinator coordinator = new ReadableCoordinator(taskName);
+    List<Long> collected = new ArrayList<>();
+
+    for (int start = 0; start < numCallbacks; start += maxConcurrency) {
+      assertTrue(manager.hasCapacity());
+      List<TaskCallbackImpl> callbacks = new ArrayList<>();
+      for (int i = 0; i < maxConcurrency; i++) {
+        callbacks.add(manager.createCallback(taskName, null, coordinator));
+      }
+
+      // complete the callbacks concurrently, in reverse order of creation
+      CountDownLatch done = new CountDownLatch(maxConcurrency);
+      for (int i = maxConcurrency - 1; i >= 0; i--) {
+        TaskCallbackImpl callback = callbacks.get(i);
+        new Thread(() -> {
+            manager.updateCallback(callback, cb -> {
+                synchronized (collected) {
+                  collected.add(cb.getSeqNum());
+                }
+              });
+            done.countDown();
+          }).start();
+      }
+      done.await();
+    }
+
+    assertEquals(numCallbacks, collected.size());
+    for (int i = 0; i < numCallbacks; i++) {
+      assertEquals(i, collected.get(i).longValue());
+    }
+  }
+
   @Test
   public void testUpdateCallbackInOrder() {
     TaskName taskName = new TaskName("Partition 0");
@@ -337,6 +337,34 @@ class TestOffsetManager {
     assertEquals("47", offsetManager.offsetManagerMetrics.checkpointedOffsets.get(systemStreamPartition).getValue)
   }
 
+  @Test
+  def testNumericOffsetUpdates {
+    val taskName = new TaskName("c")
+    val systemStream = new SystemStream("test-system", "test-stream")
+    val partition = new Partition(0)
+    val systemStreamPartition = new SystemStreamPartition(systemStream, partition)
+    val testStreamMetadata = new SystemStreamMetadata(systemStream.getStream, Map(partition -> new SystemStreamPartitionMetadata("0", "1", "2")).asJava)
+    val systemStreamMetadata = Map(systemStream -> testStreamMetadata)
+    val checkpointManager = getCheckpointManager(systemStreamPartition, taskName)
+    val systemAdmins = mock(classOf[SystemAdmins])
+    when(systemAdmins.getSystemAdmin("test-system")).thenReturn(getSystemAdmin)
+    val offsetManager = OffsetManager(systemStreamMetadata, new MapConfig, checkpointManager, systemAdmins, Map(), new OffsetManagerMetrics)
+    offsetManager.register(taskName, Set(systemStreamPartition))
+    offsetManager.start
+
+    offsetManager.update(taskName, systemStreamPartition, 46L)
+    offsetManager.update(taskName, systemStreamPartition, 47L)
+    assertEquals(Some("47"), offsetManager.getLastProcessedOffset(taskName, systemStreamPartition))
+    checkpoint(offsetManager, taskName)
+    assertEquals(new Checkpoint(Map(systemStreamPartition -> "47").asJava), checkpointManager.readLastCheckpoint(taskName))
+
+    // A String offset after a numeric one should take over.
+    offsetManager.update(taskName, systemStreamPartition, "48")
+    assertEquals(Some("48"), offsetManager.getLastProcessedOffset(taskName, systemStreamPartition))
+    offsetManager.update(taskName, systemStreamPartition, 49L)
+    assertEquals(Some("49"), offsetManager.getLastProcessedOffset(taskName, systemStreamPartition))
+  }
+
   // Utility method to create and write checkpoint in one statement
   def checkpoint(offsetManager: OffsetManager, taskName: TaskName): Unit = {
     offsetManager.writeCheckpoint(taskName, offsetManager.buildCheckpoint(taskName))
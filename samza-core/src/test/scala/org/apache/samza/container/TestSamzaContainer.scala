@@ -22,14 +22,14 @@ package org.apache.samza.container
 import java.util
 import java.util.concurrent.atomic.AtomicReference
 
-import org.apache.samza.config.{Config, MapConfig}
+import org.apache.samza.config.{Config, JobConfig, MapConfig}
 import org.apache.samza.context.{ApplicationContainerContext, ContainerContext}
 import org.apache.samza.coordinator.JobModelManager
 import org.apache.samza.coordinator.server.{HttpServer, JobServlet}
 import org.apache.samza.job.model.{ContainerModel, JobModel, TaskModel}
 import org.apache.samza.metrics.{Gauge, Timer}
 import org.apache.samza.system._
-import org.apache.samza.{Partition, SamzaContainerStatus}
+import org.apache.samza.{Partition, SamzaContainerStatus, SamzaException}
 import org.junit.Assert._
 import org.junit.{Before, Test}
 import org.mockito.Matchers.{any, notNull}
@@ -169,6 +169,52 @@ class TestSamzaContainer extends AssertionsForJUnit with MockitoSugar {
     assertTrue(restoreGaugeValueCaptor.getValue >= 1)
   }
 
+  @Test
+  def testStartStoresInParallel() {
+    val taskName1 = new TaskName("taskName1")
+    val taskInstance1 = mock[TaskInstance]
+    when(this.taskInstance.taskName).thenReturn(TASK_NAME)
+    when(taskInstance1.taskName).thenReturn(taskName1)
+    when(this.taskInstance.prepareStoresRestore).thenReturn(Set("store0", "store1"))
+    when(taskInstance1.prepareStoresRestore).thenReturn(Set("store0"))
+    val store0Gauge = mock[Gauge[Long]]
+    val store1Gauge = mock[Gauge[Long]]
+    when(this.metrics.storeRestorationMetrics).thenReturn(
+      Map(TASK_NAME -> (Map("store0" -> store0Gauge, "store1" -> store1Gauge): util.Map[String, Gauge[Long]])))
+    val pendingRestores = new Gauge[Int]("store-restores-pending", 0)
+    when(this.metrics.storeRestoresPending).thenReturn(pendingRestores)
+
+    val samzaContainer = createSamzaContainerWithRestoreThreads(Map(TASK_NAME -> this.taskInstance, taskName1 -> taskInstance1))
+    samzaContainer.startStores
+
+    verify(this.taskInstance).restoreStore("store0")
+    verify(this.taskInstance).restoreStore("store1")
+    verify(taskInstance1).restoreStore("store0")
+    verify(this.taskInstance).completeStoresRestore
+    verify(taskInstance1).completeStoresRestore
+    verify(this.taskInstance, never()).startStores
+    verify(store0Gauge).set(any[Long]())
+    verify(store1Gauge).set(any[Long]())
+    assertEquals(0, pendingRestores.getValue)
+  }
+
+  @Test
+  def testStartStoresInParallelPropagatesRestoreFailure() {
+    when(this.taskInstance.taskName).thenReturn(TASK_NAME)
+    when(this.taskInstance.prepareStoresRestore).thenReturn(Set("store0"))
+    when(this.taskInstance.restoreStore("store0")).thenThrow(new RuntimeException("Restore failed."))
+    when(this.metrics.storeRestoresPending).thenReturn(new Gauge[Int]("store-restores-pending", 0))
+
+    val samzaContainer = createSamzaContainerWithRestoreThreads(Map(TASK_NAME -> this.taskInstance))
+    try {
+      samzaContainer.startStores
+      fail("Expected the restore failure to be propagated.")
+    } catch {
+      case e: SamzaException => assertEquals("Restore failed.", e.getCause.getMessage)
+    }
+    verify(this.taskInstance, never()).completeStoresRestore
+  }
+
   @Test
   def testApplicationContainerContext() {
     val orderVerifier = inOrder(this.applicationContainerContext, this.runLoop)
@@ -287,6 +333,19 @@ class TestSamzaContainer extends AssertionsForJUnit with MockitoSugar {
     this.samzaContainer.setContainerListener(this.samzaContainerListener)
   }
 
+  private def createSamzaContainerWithRestoreThreads(taskInstances: Map[TaskName, TaskInstance]): SamzaContainer = {
+    new SamzaContainer(
+      new MapConfig(Map(JobConfig.JOB_CONTAINER_RESTORE_THREAD_POOL_SIZE -> "4").asJava),
+      taskInstances,
+      this.runLoop,
+      this.systemAdmins,
+      this.consumerMultiplexer,
+      this.producerMultiplexer,
+      metrics,
+      containerContext = this.containerContext,
+      applicationContainerContextOption = None)
+  }
+
   class MockJobServlet(exceptionLimit: Int, jobModelRef: AtomicReference[JobModel]) extends JobServlet(jobModelRef) {
     var exceptionCount = 0
 
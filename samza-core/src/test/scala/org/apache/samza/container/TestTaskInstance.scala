@@ -105,8 +105,8 @@ class TestTaskInstance extends AssertionsForJUnit with MockitoSugar {
     this.taskInstance.process(envelope, coordinator)
     assertEquals(1, this.taskInstanceExceptionHandler.numTimesCalled)
     verify(this.task).process(envelope, this.collector, coordinator)
-    verify(processesCounter).inc()
-    verify(messagesActuallyProcessedCounter).inc()
+    verify(processesCounter).increment()
+    verify(messagesActuallyProcessedCounter).increment()
   }
 
   @Test
@@ -117,7 +117,7 @@ class TestTaskInstance extends AssertionsForJUnit with MockitoSugar {
     this.taskInstance.window(coordinator)
     assertEquals(1, this.taskInstanceExceptionHandler.numTimesCalled)
     verify(this.task).window(this.collector, coordinator)
-    verify(windowsCounter).inc()
+    verify(windowsCounter).increment()
   }
 
   @Test
@@ -173,8 +173,8 @@ class TestTaskInstance extends AssertionsForJUnit with MockitoSugar {
     verify(this.task).process(Matchers.eq(newEnvelope0), Matchers.eq(this.collector), any())
     verify(this.task).process(Matchers.eq(newEnvelope1), Matchers.eq(this.collector), any())
     verify(this.task, never()).process(Matchers.eq(oldEnvelope), any(), any())
-    verify(processesCounter, times(3)).inc()
-    verify(messagesActuallyProcessedCounter, times(2)).inc()
+    verify(processesCounter, times(3)).increment()
+    verify(messagesActuallyProcessedCounter, times(2)).increment()
   }
 
   @Test
@@ -186,10 +186,12 @@ class TestTaskInstance extends AssertionsForJUnit with MockitoSugar {
 
     taskInstance.commit
 
-    val mockOrder = inOrder(this.offsetManager, this.collector, this.taskStorageManager)
+    val mockOrder = inOrder(this.task, this.offsetManager, this.collector, this.taskStorageManager)
 
     // We must first get a snapshot of the checkpoint so it doesn't change while we flush. SAMZA-1384
     mockOrder.verify(this.offsetManager).buildCheckpoint(TASK_NAME)
+    // The task then writes any state it buffers in memory to its stores, so they cover the snapshotted offsets
+    mockOrder.verify(this.task).onCommit()
     // Producers must be flushed next and ideally the output would be flushed before the changelog
     // s.t. the changelog and checkpoints (state and inputs) are captured last
     mockOrder.verify(this.collector).flush
@@ -198,7 +200,7 @@ class TestTaskInstance extends AssertionsForJUnit with MockitoSugar {
     mockOrder.verify(this.taskStorageManager).flush()
     // Finally, checkpoint the inputs with the snapshotted checkpoint captured at the beginning of commit
     mockOrder.verify(offsetManager).writeCheckpoint(TASK_NAME, checkpoint)
-    verify(commitsCounter).inc()
+    verify(commitsCounter).increment()
   }
 
   /**
@@ -263,7 +265,7 @@ class TestTaskInstance extends AssertionsForJUnit with MockitoSugar {
   /**
     * Task type which has all task traits, which can be mocked.
     */
-  trait AllTask extends StreamTask with InitableTask with WindowableTask {}
+  trait AllTask extends StreamTask with InitableTask with WindowableTask with CommitListenerTask {}
 
   /**
     * Mock version of [TaskInstanceExceptionHandler] which just does a passthrough execution and keeps track of the
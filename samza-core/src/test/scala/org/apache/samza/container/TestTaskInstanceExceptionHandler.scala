@@ -86,10 +86,10 @@ class TestTaskInstanceExceptionHandler extends AssertionsForJUnit with MockitoSu
     handler.maybeHandle(() -> {
       throw new TroublesomeException()
     })
-    verify(this.troublesomeExceptionCounter, times(2)).inc()
+    verify(this.troublesomeExceptionCounter, times(2)).increment()
     // double check that the counter gets cached for multiple occurrences of the same exception type
     verify(this.metrics).newCounter("exception-ignored-" + classOf[TroublesomeException].getName)
-    verify(this.nonFatalExceptionCounter).inc()
+    verify(this.nonFatalExceptionCounter).increment()
     verifyZeroInteractions(this.fatalExceptionCounter)
   }
 
@@ -113,11 +113,11 @@ class TestTaskInstanceExceptionHandler extends AssertionsForJUnit with MockitoSu
       throw new FatalException()
     })
 
-    verify(this.troublesomeExceptionCounter, times(2)).inc()
+    verify(this.troublesomeExceptionCounter, times(2)).increment()
     // double check that the counter gets cached for multiple occurrences of the same exception type
     verify(this.metrics).newCounter("exception-ignored-" + classOf[TroublesomeException].getName)
-    verify(this.nonFatalExceptionCounter).inc()
-    verify(this.fatalExceptionCounter).inc()
+    verify(this.nonFatalExceptionCounter).increment()
+    verify(this.fatalExceptionCounter).increment()
   }
 
   private def build(config: Config): TaskInstanceExceptionHandler = {
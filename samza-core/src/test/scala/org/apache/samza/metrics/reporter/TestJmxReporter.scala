@@ -22,8 +22,10 @@ package org.apache.samza.metrics.reporter
 import javax.management.MBeanServer
 import javax.management.ObjectName
 import junit.framework.Assert.assertEquals
+import org.apache.samza.metrics.HistogramReservoir
 import org.apache.samza.metrics.JmxUtil
 import org.apache.samza.metrics.MetricsRegistryMap
+import org.apache.samza.metrics.Timer
 import org.junit.Test
 import org.mockito.Matchers
 import org.mockito.Mockito.mock
@@ -31,6 +33,7 @@ import org.mockito.Mockito.times
 import org.mockito.Mockito.verify
 import org.mockito.Mockito.when
 import org.mockito.Mockito.reset
+import org.mockito.Mockito.spy
 
 class TestJmxReporter {
 
@@ -65,4 +68,21 @@ class TestJmxReporter {
 
     reporter.stop
   }
+
+  @Test
+  def testJmxTimerAttributesShareSnapshot {
+    val reservoir = spy(new HistogramReservoir)
+    val timer = new Timer("timer", reservoir)
+    timer.update(1000L)
+    timer.update(3000L)
+
+    val jmxTimer = new JmxTimer(timer, JmxUtil.getObjectName("group", "timer", REPORTER_SOURCE))
+    assertEquals(2000.0, jmxTimer.getAverageTime())
+    assertEquals(3000L, jmxTimer.getMax())
+    jmxTimer.get50thPercentile()
+    jmxTimer.get99thPercentile()
+    jmxTimer.get999thPercentile()
+
+    verify(reservoir, times(1)).getSnapshot()
+  }
 }
@@ -140,6 +140,158 @@ class TestTaskStorageManager extends MockitoSugar {
     verify(mockSystemConsumer).register(ssp, "101")
   }
 
+  @Test
+  def testLocalCheckpointIsCreatedOnFlushAndUsedOnRestart(): Unit = {
+    val ss = new SystemStream("kafka", "testStream")
+    val partition = new Partition(0)
+    val ssp = new SystemStreamPartition(ss, partition)
+    val storeDirectory = TaskStorageManager.getStorePartitionDir(TaskStorageManagerBuilder.defaultLoggedStoreBaseDir, loggedStore, taskName)
+    val storeFile = new File(storeDirectory, "store.sst")
+    val offsetFile = new File(storeDirectory, "OFFSET")
+
+    val mockStorageEngine: StorageEngine = createMockStorageEngine(isLoggedStore = true, isPersistedStore = true, storeFile)
+    // Checkpointing copies the store file into the checkpoint directory
+    when(mockStorageEngine.checkpoint(any())).thenAnswer(new Answer[Boolean] {
+      override def answer(invocation: InvocationOnMock): Boolean = {
+        val checkpointDir = invocation.getArguments()(0).asInstanceOf[File]
+        checkpointDir.mkdirs()
+        new File(checkpointDir, storeFile.getName).createNewFile()
+      }
+    })
+
+    val mockStreamMetadataCache = mock[StreamMetadataCache]
+    val mockSSPMetadataCache = mock[SSPMetadataCache]
+    val mockSystemConsumer = mock[SystemConsumer]
+    val mockSystemAdmin = mock[SystemAdmin]
+
+    val sspMetadata = new SystemStreamPartitionMetadata("0", "50", "51")
+    val metadata = new SystemStreamMetadata("testStream", new java.util.HashMap[Partition, SystemStreamPartitionMetadata]() {
+      {
+        put(partition, sspMetadata)
+      }
+    })
+    when(mockStreamMetadataCache.getStreamMetadata(any(), any())).thenReturn(Map(ss -> metadata))
+    when(mockSSPMetadataCache.getMetadata(ssp)).thenReturn(sspMetadata)
+    when(mockSystemAdmin.getOffsetsAfter(Map(ssp -> "50").asJava)).thenReturn(Map(ssp -> "51").asJava)
+
+    val taskManager = new TaskStorageManagerBuilder()
+      .addStore(loggedStore, mockStorageEngine, mockSystemConsumer)
+      .setStreamMetadataCache(mockStreamMetadataCache)
+      .setSSPMetadataCache(mockSSPMetadataCache)
+      .setSystemAdmin("kafka", mockSystemAdmin)
+      .setLocalCheckpointsRetained(loggedStore, 1)
+      .build
+
+    taskManager.init
+    verify(mockSystemConsumer).register(ssp, "0")
+
+    // flush should checkpoint the store and write the offset into the checkpoint
+    taskManager.flush()
+    val checkpointDirs = TaskStorageManager.getCheckpointDirs(storeDirectory)
+    assertEquals(1, checkpointDirs.size)
+    assertTrue(new File(checkpointDirs.head, storeFile.getName).exists())
+    assertEquals("50", FileUtil.readWithChecksum(new File(checkpointDirs.head, "OFFSET")))
+
+    // Lose the live store; restarting should restore it from the local checkpoint
+    FileUtil.rm(storeDirectory)
+
+    taskManager.init
+
+    assertTrue(storeFile.exists())
+    assertEquals("50", FileUtil.readWithChecksum(offsetFile))
+    verify(mockSystemConsumer).register(ssp, "51")
+  }
+
+  @Test
+  def testInvalidLocalCheckpointsAreDeleted(): Unit = {
+    val storeDirectory = TaskStorageManager.getStorePartitionDir(TaskStorageManagerBuilder.defaultLoggedStoreBaseDir, loggedStore, taskName)
+    val validCheckpoint = TaskStorageManager.getCheckpointDir(storeDirectory, 1)
+    val invalidCheckpoint = TaskStorageManager.getCheckpointDir(storeDirectory, 2)
+    validCheckpoint.mkdirs()
+    invalidCheckpoint.mkdirs()
+    FileUtil.writeWithChecksum(new File(validCheckpoint, "OFFSET"), "100")
+    new File(validCheckpoint, "store.sst").createNewFile()
+    // The newer checkpoint was not completed and has no offset file
+    new File(invalidCheckpoint, "store.sst").createNewFile()
+
+    val taskStorageManager = new TaskStorageManagerBuilder()
+      .addLoggedStore(loggedStore, true)
+      .setLocalCheckpointsRetained(loggedStore, 2)
+      .build
+
+    val cleanDirMethod = taskStorageManager
+      .getClass
+      .getDeclaredMethod("cleanBaseDirs", new Array[java.lang.Class[_]](0): _*)
+    cleanDirMethod.setAccessible(true)
+    cleanDirMethod.invoke(taskStorageManager, new Array[Object](0): _*)
+
+    assertFalse(invalidCheckpoint.exists())
+    assertTrue(validCheckpoint.exists())
+    assertTrue(new File(storeDirectory, "store.sst").exists())
+    assertEquals("100", FileUtil.readWithChecksum(new File(storeDirectory, "OFFSET")))
+  }
+
+  @Test
+  def testValidLoggedStoreIsKeptOverOlderLocalCheckpoint(): Unit = {
+    val storeDirectory = setupLoggedStoreAndCheckpoint(loggedStoreOffset = "200", checkpointOffset = "100")
+
+    invokeCleanBaseDirs(new TaskStorageManagerBuilder()
+      .addLoggedStore(loggedStore, true)
+      .setSystemAdmin("kafka", createOffsetComparingSystemAdmin())
+      .setLocalCheckpointsRetained(loggedStore, 1)
+      .build)
+
+    assertTrue(new File(storeDirectory, "live.sst").exists())
+    assertFalse(new File(storeDirectory, "checkpoint.sst").exists())
+    assertEquals("200", FileUtil.readWithChecksum(new File(storeDirectory, "OFFSET")))
+  }
+
+  @Test
+  def testValidLoggedStoreIsReplacedByNewerLocalCheckpoint(): Unit = {
+    val storeDirectory = setupLoggedStoreAndCheckpoint(loggedStoreOffset = "100", checkpointOffset = "200")
+
+    invokeCleanBaseDirs(new TaskStorageManagerBuilder()
+      .addLoggedStore(loggedStore, true)
+      .setSystemAdmin("kafka", createOffsetComparingSystemAdmin())
+      .setLocalCheckpointsRetained(loggedStore, 1)
+      .build)
+
+    assertFalse(new File(storeDirectory, "live.sst").exists())
+    assertTrue(new File(storeDirectory, "checkpoint.sst").exists())
+    assertEquals("200", FileUtil.readWithChecksum(new File(storeDirectory, "OFFSET")))
+  }
+
+  private def setupLoggedStoreAndCheckpoint(loggedStoreOffset: String, checkpointOffset: String): File = {
+    val storeDirectory = TaskStorageManager.getStorePartitionDir(TaskStorageManagerBuilder.defaultLoggedStoreBaseDir, loggedStore, taskName)
+    val checkpoint = TaskStorageManager.getCheckpointDir(storeDirectory, 1)
+    storeDirectory.mkdirs()
+    checkpoint.mkdirs()
+    FileUtil.writeWithChecksum(new File(storeDirectory, "OFFSET"), loggedStoreOffset)
+    new File(storeDirectory, "live.sst").createNewFile()
+    FileUtil.writeWithChecksum(new File(checkpoint, "OFFSET"), checkpointOffset)
+    new File(checkpoint, "checkpoint.sst").createNewFile()
+    storeDirectory
+  }
+
+  private def createOffsetComparingSystemAdmin(): SystemAdmin = {
+    val systemAdmin = mock[SystemAdmin]
+    when(systemAdmin.offsetComparator(anyString(), anyString())).thenAnswer(new Answer[Integer] {
+      override def answer(invocation: InvocationOnMock): Integer = {
+        val offsets = invocation.getArguments
+        java.lang.Long.compare(offsets(0).toString.toLong, offsets(1).toString.toLong)
+      }
+    })
+    systemAdmin
+  }
+
+  private def invokeCleanBaseDirs(taskStorageManager: TaskStorageManager): Unit = {
+    val cleanDirMethod = taskStorageManager
+      .getClass
+      .getDeclaredMethod("cleanBaseDirs", new Array[java.lang.Class[_]](0): _*)
+    cleanDirMethod.setAccessible(true)
+    cleanDirMethod.invoke(taskStorageManager, new Array[Object](0): _*)
+  }
+
   /**
    * This tests the entire TaskStorageManager lifecycle for an InMemory Logged Store
    * For example, an InMemory KV store with changelog should not update the offset file on flush & stop
@@ -632,6 +784,7 @@ class TaskStorageManagerBuilder extends MockitoSugar {
   var storeBaseDir: File = TaskStorageManagerBuilder.defaultStoreBaseDir
   var loggedStoreBaseDir: File =  TaskStorageManagerBuilder.defaultLoggedStoreBaseDir
   var changeLogStreamPartitions: Int = 1
+  var localCheckpointsRetained: Map[String, Int] = Map()
 
   def addStore(storeName: String, storageEngine: StorageEngine, systemConsumer: SystemConsumer): TaskStorageManagerBuilder = {
     taskStores = taskStores ++ Map(storeName -> storageEngine)
@@ -684,6 +837,11 @@ class TaskStorageManagerBuilder extends MockitoSugar {
     this
   }
 
+  def setLocalCheckpointsRetained(storeName: String, retained: Int) = {
+    localCheckpointsRetained = localCheckpointsRetained ++ Map(storeName -> retained)
+    this
+  }
+
   def build: TaskStorageManager = {
     new TaskStorageManager(
       taskName = taskName,
@@ -698,7 +856,8 @@ class TaskStorageManagerBuilder extends MockitoSugar {
       partition = partition,
       systemAdmins = buildSystemAdmins(systemAdminsMap),
       new StorageConfig(new MapConfig()).getChangeLogDeleteRetentionsInMs,
-      SystemClock.instance
+      SystemClock.instance,
+      localCheckpointsRetained
     )
   }
 
@@ -24,11 +24,16 @@ import java.util.Collections
 
 import org.junit.Assert._
 import org.junit.Test
+import org.mockito.Mockito.{mock, when}
 import org.apache.samza.Partition
+import org.apache.samza.metrics.MetricsRegistryMap
 import org.apache.samza.serializers._
+import org.apache.samza.system.SystemStreamMetadata.SystemStreamPartitionMetadata
 import org.apache.samza.system.chooser.MessageChooser
 import org.apache.samza.system.chooser.DefaultChooser
 import org.apache.samza.system.chooser.MockMessageChooser
+import org.apache.samza.system.chooser.MockSystemAdmin
+import org.apache.samza.system.chooser.RoundRobinChooser
 import org.apache.samza.util.BlockingEnvelopeMap
 
 import scala.collection.JavaConverters._
@@ -339,6 +344,96 @@ class TestSystemConsumers {
     assertTrue(consumer.lastPoll.contains(systemStreamPartition1))
   }
 
+  @Test
+  def testDrainBufferedDoesNotBypassBootstrappingChooser {
+    val system = "test-system"
+    val bootstrapPartition = new SystemStreamPartition(system, "bootstrap-stream", new Partition(0))
+    val normalPartition = new SystemStreamPartition(system, "some-stream", new Partition(0))
+    val bootstrapEnvelopes = (0 until 3).map(i => new IncomingMessageEnvelope(bootstrapPartition, i.toString, "k", "v"))
+    val normalEnvelopes = (0 until 3).map(i => new IncomingMessageEnvelope(normalPartition, i.toString, "k", "v"))
+    val bootstrapMetadata = new SystemStreamMetadata("bootstrap-stream", Map(
+      new Partition(0) -> new SystemStreamPartitionMetadata("0", "2", "3")).asJava)
+    val systemAdmins = mock(classOf[SystemAdmins])
+    when(systemAdmins.getSystemAdmin(system)).thenReturn(new MockSystemAdmin)
+    val chooser = new DefaultChooser(
+      new RoundRobinChooser,
+      None,
+      Map(bootstrapPartition.getSystemStream -> Int.MaxValue, normalPartition.getSystemStream -> 0),
+      Map(Int.MaxValue -> new RoundRobinChooser, 0 -> new RoundRobinChooser),
+      Map(bootstrapPartition.getSystemStream -> bootstrapMetadata),
+      new MetricsRegistryMap,
+      systemAdmins)
+    val consumer = new CustomPollResponseSystemConsumer(bootstrapEnvelopes.head)
+    val consumers = new SystemConsumers(chooser, Map(system -> consumer),
+      new SerdeManager, new SystemConsumersMetrics,
+      SystemConsumers.DEFAULT_NO_NEW_MESSAGES_TIMEOUT,
+      SystemConsumers.DEFAULT_DROP_SERIALIZATION_ERROR,
+      SystemConsumers.DEFAULT_POLL_INTERVAL_MS, clock = () => 0)
+
+    consumers.register(bootstrapPartition, "0")
+    consumers.register(normalPartition, "0")
+    consumers.start
+
+    // Buffer all the envelopes of both partitions with a single poll.
+    consumer.setNextResponse(Map[SystemStreamPartition, java.util.List[IncomingMessageEnvelope]](
+      bootstrapPartition -> new util.ArrayList(bootstrapEnvelopes.asJava),
+      normalPartition -> new util.ArrayList(normalEnvelopes.asJava)))
+    assertNull(consumers.choose(false))
+    consumer.setNextResponse(Map())
+
+    // The bootstrapping chooser has to see every envelope of the bootstrap stream, including the last one, so
+    // none of them are drained.
+    val drained = new util.ArrayList[IncomingMessageEnvelope]()
+    bootstrapEnvelopes.foreach(envelope => {
+      assertEquals(envelope, consumers.choose(false))
+      assertEquals(0, consumers.drainBuffered(bootstrapPartition, 10, drained))
+      consumers.tryUpdate(bootstrapPartition)
+    })
+    assertTrue(drained.isEmpty)
+
+    // The bootstrap stream has caught up, so the normal stream is chosen, and its buffered envelopes are drained.
+    assertEquals(normalEnvelopes.head, consumers.choose(false))
+    assertEquals(2, consumers.drainBuffered(normalPartition, 10, drained))
+    assertEquals(normalEnvelopes.tail.asJava, drained)
+  }
+
+  @Test
+  def testStateIsLookedUpByEqualPartition {
+    val system = "test-system"
+    val systemStreamPartition = new SystemStreamPartition(system, "some-stream", new Partition(0))
+    val envelopePartition = new SystemStreamPartition(systemStreamPartition)
+    val envelope1 = new IncomingMessageEnvelope(envelopePartition, "1", "k", "v")
+    val envelope2 = new IncomingMessageEnvelope(envelopePartition, "2", "k", "v")
+    val consumer = new CustomPollResponseSystemConsumer(envelope1)
+    val chooser = new MockMessageChooser
+    val consumers = new SystemConsumers(chooser, Map(system -> consumer),
+      new SerdeManager, new SystemConsumersMetrics,
+      SystemConsumers.DEFAULT_NO_NEW_MESSAGES_TIMEOUT,
+      SystemConsumers.DEFAULT_DROP_SERIALIZATION_ERROR,
+      SystemConsumers.DEFAULT_POLL_INTERVAL_MS, clock = () => 0)
+
+    // registering an equal partition again keeps a single state for it
+    consumers.register(systemStreamPartition, "0")
+    consumers.register(new SystemStreamPartition(systemStreamPartition), "0")
+    consumers.start
+    assertEquals(1, consumer.lastPoll.size)
+
+    // envelopes of an equal partition instance are buffered in and chosen from the state of the registered one
+    consumer.setNextResponse(Map[SystemStreamPartition, java.util.List[IncomingMessageEnvelope]](
+      envelopePartition -> new util.ArrayList(util.Arrays.asList(envelope1, envelope2))))
+    assertNull(consumers.choose(false))
+    consumer.setNextResponse(Map())
+    assertEquals(envelope1, consumers.choose(false))
+    consumers.tryUpdate(systemStreamPartition)
+    assertEquals(envelope2, consumers.choose(false))
+    consumers.tryUpdate(envelopePartition)
+    assertNull(consumers.choose(false))
+
+    // the state's buffer is empty, so the partition is polled again
+    assertEquals(3, consumer.polls)
+    assertTrue(consumer.lastPoll.contains(systemStreamPartition))
+  }
+
   /**
    * A simple MockSystemConsumer that keeps track of what was polled, and lets
    * you define how many envelopes to return in the poll response. You can
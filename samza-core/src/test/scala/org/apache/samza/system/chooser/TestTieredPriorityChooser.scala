@@ -148,6 +148,30 @@ class TestTieredPriorityChooser(getChooser: (Map[SystemStream, Int], Map[Int, Me
     assertNull(chooser.choose)
   }
 
+  @Test
+  def testChooserLooksUpTierByEqualPartition {
+    val mock0 = new MockMessageChooser
+    val mock1 = new MockMessageChooser
+    val chooser = getChooser(
+      Map(envelope1.getSystemStreamPartition.getSystemStream -> 1),
+      Map(1 -> mock1),
+      mock0)
+
+    chooser.register(new SystemStreamPartition(envelope1.getSystemStreamPartition), null)
+    chooser.register(envelope2.getSystemStreamPartition, null)
+    chooser.start
+
+    // envelope4 is for a partition instance that is equal to the registered one
+    chooser.update(envelope4)
+    chooser.update(envelope2)
+    assertEquals(Queue(envelope4), mock1.getEnvelopes)
+    assertEquals(Queue(envelope2), mock0.getEnvelopes)
+
+    // envelope3 is for a partition that was not registered, so its tier is resolved from its stream
+    chooser.update(envelope3)
+    assertEquals(Queue(envelope2, envelope3), mock0.getEnvelopes)
+  }
+
   @Test
   def testChooserWithTwoStreamsOfEqualPriority {
     val mock = new MockMessageChooser
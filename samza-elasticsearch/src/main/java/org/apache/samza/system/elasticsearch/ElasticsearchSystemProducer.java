@@ -135,21 +135,21 @@ public class ElasticsearchSystemProducer implements SystemProducer {
         }
 
         private void updateSuccessMetrics(BulkResponse response) {
-          metrics.bulkSendSuccess.inc();
+          metrics.bulkSendSuccess.increment();
           int writes = 0;
           for (BulkItemResponse itemResp: response.getItems()) {
             if (itemResp.isFailed()) {
               if (itemResp.getFailure().getStatus().equals(RestStatus.CONFLICT)) {
-                metrics.conflicts.inc();
+                metrics.conflicts.increment();
               }
             } else {
               ActionResponse resp = itemResp.getResponse();
               if (resp instanceof IndexResponse) {
                 writes += 1;
                 if (((IndexResponse) resp).isCreated()) {
-                  metrics.inserts.inc();
+                  metrics.inserts.increment();
                 } else {
-                  metrics.updates.inc();
+                  metrics.updates.increment();
                 }
               } else {
                 LOGGER.error("Unexpected Elasticsearch action response type: " + resp.getClass().getSimpleName());
@@ -36,6 +36,7 @@ import org.apache.commons.lang.Validate;
 import org.apache.samza.Partition;
 import org.apache.samza.SamzaException;
 import org.apache.samza.config.Config;
+import org.apache.samza.config.JavaSystemConfig;
 import org.apache.samza.metrics.Counter;
 import org.apache.samza.metrics.MetricsRegistry;
 import org.apache.samza.system.IncomingMessageEnvelope;
@@ -118,7 +119,14 @@ public class HdfsSystemConsumer extends BlockingEnvelopeMap {
   private final HdfsConfig hdfsConfig;
 
   public HdfsSystemConsumer(String systemName, Config config, HdfsSystemConsumerMetrics consumerMetrics) {
-    super(consumerMetrics.getMetricsRegistry());
+    this(systemName, config, new JavaSystemConfig(config), consumerMetrics);
+  }
+
+  private HdfsSystemConsumer(String systemName, Config config, JavaSystemConfig systemConfig,
+      HdfsSystemConsumerMetrics consumerMetrics) {
+    super(consumerMetrics.getMetricsRegistry(), System::currentTimeMillis, null,
+        systemConfig.getConsumerBufferMaxBytesPerPartition(systemName),
+        systemConfig.getConsumerBufferMaxBytes(systemName));
     hdfsConfig = new HdfsConfig(config);
     readerType = HdfsReaderFactory.getType(hdfsConfig.getFileReaderType(systemName));
     stagingDirectory = hdfsConfig.getStagingDirectory(systemName);
@@ -222,6 +230,8 @@ public class HdfsSystemConsumer extends BlockingEnvelopeMap {
 
   private void offerMessage(SystemStreamPartition systemStreamPartition, IncomingMessageEnvelope envelope) {
     try {
+      // every ssp is read by a ReaderRunnable of its own, so waiting here only holds back this ssp.
+      awaitBufferSpace(systemStreamPartition);
       super.put(systemStreamPartition, envelope);
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
@@ -262,11 +272,11 @@ public class HdfsSystemConsumer extends BlockingEnvelopeMap {
       if (!numEventsCounterMap.containsKey(systemStreamPartition)) {
         registerSystemStreamPartition(systemStreamPartition);
       }
-      numEventsCounterMap.get(systemStreamPartition).inc();
+      numEventsCounterMap.get(systemStreamPartition).increment();
     }
 
     public void incTotalNumEvents() {
-      numTotalEventsCounter.inc();
+      numTotalEventsCounter.increment();
     }
 
     public MetricsRegistry getMetricsRegistry() {
@@ -62,7 +62,7 @@ class HdfsSystemProducer(
     debug("entering HdfsSystemProducer.flush(" + source + ") " +
       "call for system: " + systemName + ", client: " + clientId)
 
-    metrics.flushes.inc
+    metrics.flushes.increment
     lock.synchronized {
       try {
         updateTimer(metrics.flushMs) {
@@ -70,7 +70,7 @@ class HdfsSystemProducer(
         }
       } catch {
         case e: Exception => {
-          metrics.flushFailed.inc
+          metrics.flushFailed.increment
           warn("Exception thrown while client " + clientId + " flushed HDFS out stream, msg: " + e.getMessage)
           debug("Detailed message from exception thrown by client " + clientId + " in HDFS flush: ", e)
           writers.get(source).head.close
@@ -78,14 +78,14 @@ class HdfsSystemProducer(
         }
       }
     }
-    metrics.flushSuccess.inc
+    metrics.flushSuccess.increment
   }
 
   def send(source: String, ome: OutgoingMessageEnvelope) = {
     debug("entering HdfsSystemProducer.send(source = " + source + ", envelope) " +
       "call for system: " + systemName + ", client: " + clientId)
 
-    metrics.sends.inc
+    metrics.sends.increment
     lock.synchronized {
       try {
         updateTimer(metrics.sendMs) {
@@ -93,7 +93,7 @@ class HdfsSystemProducer(
         }
       } catch {
         case e: Exception => {
-          metrics.sendFailed.inc
+          metrics.sendFailed.increment
           warn("Exception thrown while client " + clientId + " wrote to HDFS, msg: " + e.getMessage)
           debug("Detailed message from exception thrown by client " + clientId + " in HDFS write: ", e)
           writers.get(source).head.close
@@ -101,6 +101,6 @@ class HdfsSystemProducer(
         }
       }
     }
-    metrics.sendSuccess.inc
+    metrics.sendSuccess.increment
   }
 }
\ No newline at end of file
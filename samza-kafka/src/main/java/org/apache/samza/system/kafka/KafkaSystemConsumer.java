@@ -34,6 +34,7 @@ import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.samza.SamzaException;
 import org.apache.samza.config.Config;
+import org.apache.samza.config.JavaSystemConfig;
 import org.apache.samza.config.KafkaConfig;
 import org.apache.samza.system.IncomingMessageEnvelope;
 import org.apache.samza.system.SystemConsumer;
@@ -86,8 +87,15 @@ public class KafkaSystemConsumer<K, V> extends BlockingEnvelopeMap implements Sy
    */
   public KafkaSystemConsumer(Consumer<K, V> kafkaConsumer, String systemName, Config config, String clientId,
       KafkaSystemConsumerMetrics metrics, Clock clock) {
+    this(kafkaConsumer, systemName, config, new JavaSystemConfig(config), clientId, metrics, clock);
+  }
+
+  private KafkaSystemConsumer(Consumer<K, V> kafkaConsumer, String systemName, Config config,
+      JavaSystemConfig systemConfig, String clientId, KafkaSystemConsumerMetrics metrics, Clock clock) {
 
-    super(metrics.registry(), clock, metrics.getClass().getName());
+    super(metrics.registry(), clock, metrics.getClass().getName(),
+        systemConfig.getConsumerBufferMaxBytesPerPartition(systemName),
+        systemConfig.getConsumerBufferMaxBytes(systemName));
 
     this.kafkaConsumer = kafkaConsumer;
     this.clientId = clientId;
@@ -341,6 +349,12 @@ public class KafkaSystemConsumer<K, V> extends BlockingEnvelopeMap implements Sy
           getMessagesSizeInQueue(ssp), perPartitionFetchThresholdBytes, getNumMessagesInQueue(ssp),
           perPartitionFetchThreshold);
 
+      // a partition whose buffer is out of space is skipped rather than blocking the fetch thread, which is
+      // shared by all the partitions of this consumer.
+      if (!hasBufferSpace(ssp)) {
+        return false;
+      }
+
       if (fetchThresholdBytesEnabled) {
         return getMessagesSizeInQueue(ssp) < perPartitionFetchThresholdBytes;
       } else {
@@ -312,7 +312,7 @@ class KafkaConsumerProxy<K, V> {
       K key = record.key();
       Object value = record.value();
       IncomingMessageEnvelope imEnvelope =
-          new IncomingMessageEnvelope(ssp, String.valueOf(record.offset()), key, value, getRecordSize(record), record.timestamp());
+          new IncomingMessageEnvelope(ssp, record.offset(), key, value, getRecordSize(record), record.timestamp());
       messages.add(imEnvelope);
     }
     if (LOG.isDebugEnabled()) {
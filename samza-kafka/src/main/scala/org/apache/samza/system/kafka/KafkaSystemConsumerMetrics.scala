@@ -69,23 +69,23 @@ class KafkaSystemConsumerMetrics(val systemName: String = "unknown", val registr
 
   // Counters
   def incClientReads(clientName: String) {
-    clientReads.get(clientName).inc
+    clientReads.get(clientName).increment
   }
 
   def incReads(topicAndPartition: TopicAndPartition) {
-    reads.get(topicAndPartition).inc;
+    reads.get(topicAndPartition).increment;
   }
 
   def incBytesReads(topicAndPartition: TopicAndPartition, inc: Long) {
-    bytesRead.get(topicAndPartition).inc(inc);
+    bytesRead.get(topicAndPartition).increment(inc);
   }
 
   def incClientBytesReads(clientName: String, incBytes: Long) {
-    clientBytesRead.get(clientName).inc(incBytes)
+    clientBytesRead.get(clientName).increment(incBytes)
   }
 
   def incClientSkippedFetchRequests(clientName: String) {
-    clientSkippedFetchRequests.get(clientName).inc()
+    clientSkippedFetchRequests.get(clientName).increment()
   }
 
   def setOffsets(topicAndPartition: TopicAndPartition, offset: Long) {
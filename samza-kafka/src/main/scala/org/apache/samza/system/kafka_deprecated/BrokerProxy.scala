@@ -126,7 +126,7 @@ class BrokerProxy(
         (new ExponentialSleepStrategy).run(
           loop => {
             if (reconnect) {
-              metrics.reconnects.get((host, port)).inc
+              metrics.reconnects.get((host, port)).increment
               simpleConsumer.close()
               simpleConsumer = createSimpleConsumer()
             }
@@ -168,7 +168,7 @@ class BrokerProxy(
     val topicAndPartitionsToFetch = nextOffsets.filterKeys(messageSink.needsMoreMessages(_)).toList
 
     if (topicAndPartitionsToFetch.size > 0) {
-      metrics.brokerReads.get((host, port)).inc
+      metrics.brokerReads.get((host, port)).increment
       val response: FetchResponse = simpleConsumer.defaultFetch(topicAndPartitionsToFetch: _*)
       firstCall = false
       firstCallBarrier.countDown()
@@ -184,7 +184,7 @@ class BrokerProxy(
 
       debug("No topic/partitions need to be fetched for %s:%s right now. Sleeping %sms." format (host, port, sleepMSWhileNoTopicPartitions))
 
-      metrics.brokerSkippedFetchRequests.get((host, port)).inc
+      metrics.brokerSkippedFetchRequests.get((host, port)).increment
 
       Thread.sleep(sleepMSWhileNoTopicPartitions)
     }
@@ -267,9 +267,9 @@ class BrokerProxy(
       nextOffset = message.nextOffset
 
       val bytesSize = message.message.payloadSize + message.message.keySize
-      metrics.reads.get(tp).inc
-      metrics.bytesRead.get(tp).inc(bytesSize)
-      metrics.brokerBytesRead.get((host, port)).inc(bytesSize)
+      metrics.reads.get(tp).increment
+      metrics.bytesRead.get(tp).increment(bytesSize)
+      metrics.brokerBytesRead.get((host, port)).increment(bytesSize)
       metrics.offsets.get(tp).set(nextOffset)
     }
 
@@ -271,7 +271,7 @@ private[kafka_deprecated] class KafkaSystemConsumer(
 
       val systemStreamPartition = toSystemStreamPartition(tp)
       val isAtHead = highWatermark == msg.offset
-      val offset = msg.offset.toString
+      val offset = msg.offset
       val key = if (msg.message.key != null) {
         keyDeserializer.fromBytes(Utils.readBytes(msg.message.key))
       } else {
@@ -287,7 +287,7 @@ private[kafka_deprecated] class KafkaSystemConsumer(
         val ime = new IncomingMessageEnvelope(systemStreamPartition, offset, key, message, getMessageSize(msg.message), msg.message.timestamp)
         put(systemStreamPartition, ime)
       } else {
-        val ime = new IncomingMessageEnvelope(systemStreamPartition, offset, key, message, msg.message.timestamp)
+        val ime = new IncomingMessageEnvelope(systemStreamPartition, offset, key, message, 0, msg.message.timestamp)
         put(systemStreamPartition, ime)
       }
 
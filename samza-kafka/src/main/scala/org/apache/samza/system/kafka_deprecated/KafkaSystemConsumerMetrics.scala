@@ -76,25 +76,25 @@ class KafkaSystemConsumerMetrics(val systemName: String = "unknown", val registr
 
   // Counters
   def incBrokerReads(host: String, port: Int) {
-    brokerReads.get((host,port)).inc
+    brokerReads.get((host,port)).increment
   }
   def incReads(topicAndPartition: TopicAndPartition) {
-    reads.get(topicAndPartition).inc;
+    reads.get(topicAndPartition).increment;
   }
   def incBytesReads(topicAndPartition: TopicAndPartition, inc: Long) {
-    bytesRead.get(topicAndPartition).inc(inc);
+    bytesRead.get(topicAndPartition).increment(inc);
   }
   def incBrokerBytesReads(host: String, port: Int, incBytes: Long) {
-    brokerBytesRead.get((host,port)).inc(incBytes)
+    brokerBytesRead.get((host,port)).increment(incBytes)
   }
   def incBrokerSkippedFetchRequests(host: String, port: Int) {
-    brokerSkippedFetchRequests.get((host,port)).inc()
+    brokerSkippedFetchRequests.get((host,port)).increment()
   }
   def setOffsets(topicAndPartition: TopicAndPartition, offset: Long) {
     offsets.get(topicAndPartition).set(offset)
   }
   def incReconnects(host: String, port: Int) {
-    reconnects.get((host,port)).inc()
+    reconnects.get((host,port)).increment()
   }
   override def getPrefix = systemName + "-"
 }
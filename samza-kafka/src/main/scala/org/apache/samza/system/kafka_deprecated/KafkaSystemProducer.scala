@@ -85,7 +85,7 @@ class KafkaSystemProducer(systemName: String,
 
     val globalProducerException = fatalException.get()
     if (globalProducerException != null) {
-      metrics.sendFailed.inc
+      metrics.sendFailed.increment
       throw new SystemProducerException("Producer was unable to recover from previous exception.", globalProducerException)
     }
 
@@ -104,7 +104,7 @@ class KafkaSystemProducer(systemName: String,
       currentProducer.send(record, new Callback {
         def onCompletion(metadata: RecordMetadata, exception: Exception): Unit = {
           if (exception == null) {
-            metrics.sendSuccess.inc
+            metrics.sendSuccess.increment
           } else {
             val producerException = new SystemProducerException("Failed to send message for Source: %s on System:%s Topic:%s Partition:%s"
               .format(source, systemName, topicName, partitionKey), exception)
@@ -113,13 +113,13 @@ class KafkaSystemProducer(systemName: String,
           }
         }
       })
-      metrics.sends.inc
+      metrics.sends.increment
     } catch {
       case originalException : Exception =>
         val producerException = new SystemProducerException("Failed to send message for Source: %s on System:%s Topic:%s Partition:%s"
           .format(source, systemName, topicName, partitionKey), originalException)
 
-        metrics.sendFailed.inc
+        metrics.sendFailed.increment
         error("Got a synchronous error from Kafka producer.", producerException)
         // Synchronous exceptions are always recoverable so propagate it up and let the user decide
         throw producerException
@@ -128,14 +128,14 @@ class KafkaSystemProducer(systemName: String,
 
   def flush(source: String) {
     updateTimer(metrics.flushNs) {
-      metrics.flushes.inc
+      metrics.flushes.increment
 
       val currentProducer = producerRef.get()
       if (currentProducer == null) {
         if (dropProducerExceptions) {
           // No producer to flush, but we're ignoring exceptions so just return.
           warn("Skipping flush because the Kafka producer is null.")
-          metrics.flushFailed.inc
+          metrics.flushFailed.increment
           return
         }
         throw new SystemProducerException("Kafka producer is null.")
@@ -155,7 +155,7 @@ class KafkaSystemProducer(systemName: String,
       // If there is an exception, we rethrow it here to prevent the checkpoint.
       val exception = fatalException.get()
       if (exception != null) {
-        metrics.flushFailed.inc
+        metrics.flushFailed.increment
         throw new SystemProducerException("Flush failed. One or more batches of messages were not sent!", exception)
       }
       trace("Flushed %s." format source)
@@ -171,7 +171,7 @@ class KafkaSystemProducer(systemName: String,
     * @param producerException the exception to handle.
     */
   private def handleFatalSendException(currentProducer: Producer[Array[Byte], Array[Byte]], producerException: SystemProducerException): Unit = {
-    metrics.sendFailed.inc
+    metrics.sendFailed.increment
     error(producerException)
     // The SystemProducer API is synchronous, so there's no way for us to guarantee that an exception will
     // be handled by the Task before we recreate the producer, and if it isn't handled, a concurrent send() from another
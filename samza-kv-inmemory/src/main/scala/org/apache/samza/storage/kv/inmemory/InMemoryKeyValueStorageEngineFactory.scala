@@ -34,9 +34,21 @@ class InMemoryKeyValueStorageEngineFactory[K, V] extends BaseKeyValueStorageEngi
     changeLogSystemStreamPartition: SystemStreamPartition,
     jobContext: JobContext,
     containerContext: ContainerContext): KeyValueStore[Array[Byte], Array[Byte]] = {
+    val storageConfig = jobContext.getConfig.subset("stores." + storeName + ".", true)
     val metrics = new KeyValueStoreMetrics(storeName, registry)
-    val inMemoryDb = new InMemoryKeyValueStore (metrics)
-    inMemoryDb
+    if (storageConfig.getBoolean(InMemoryKeyValueStorageEngineFactory.OFF_HEAP_ENABLED, false)) {
+      val arenaSize = storageConfig.getInt(InMemoryKeyValueStorageEngineFactory.OFF_HEAP_ARENA_SIZE_BYTES,
+        OffHeapKeyValueStore.DEFAULT_ARENA_SIZE_BYTES)
+      new OffHeapKeyValueStore(arenaSize, metrics)
+    } else {
+      val inMemoryDb = new InMemoryKeyValueStore (metrics)
+      inMemoryDb
+    }
   }
 
 }
+
+object InMemoryKeyValueStorageEngineFactory {
+  val OFF_HEAP_ENABLED = "inmemory.offheap.enabled"
+  val OFF_HEAP_ARENA_SIZE_BYTES = "inmemory.offheap.arena.size.bytes"
+}
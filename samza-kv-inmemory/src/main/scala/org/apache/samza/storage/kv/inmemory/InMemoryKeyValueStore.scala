@@ -37,7 +37,7 @@ class InMemoryKeyValueStore(val metrics: KeyValueStoreMetrics = new KeyValueStor
 
   override def flush(): Unit = {
     // No-op for In memory store.
-    metrics.flushes.inc
+    metrics.flushes.increment
   }
 
   override def close(): Unit = Unit
@@ -52,10 +52,10 @@ class InMemoryKeyValueStore(val metrics: KeyValueStoreMetrics = new KeyValueStor
     override def next(): Entry[Array[Byte], Array[Byte]] = {
       val n = iter.next()
       if (n != null && n.getKey != null) {
-        metrics.bytesRead.inc(n.getKey.size)
+        metrics.bytesRead.increment(n.getKey.size)
       }
       if (n != null && n.getValue != null) {
-        metrics.bytesRead.inc(n.getValue.size)
+        metrics.bytesRead.increment(n.getValue.size)
       }
       new Entry(n.getKey, n.getValue)
     }
@@ -64,20 +64,20 @@ class InMemoryKeyValueStore(val metrics: KeyValueStoreMetrics = new KeyValueStor
   }
 
   override def all(): KeyValueIterator[Array[Byte], Array[Byte]] = {
-    metrics.alls.inc
+    metrics.alls.increment
 
     new InMemoryIterator(underlying.entrySet().iterator())
   }
 
   override def range(from: Array[Byte], to: Array[Byte]): KeyValueIterator[Array[Byte], Array[Byte]] = {
-    metrics.ranges.inc
+    metrics.ranges.increment
     require(from != null && to != null, "Null bound not allowed.")
 
     new InMemoryIterator(underlying.subMap(from, to).entrySet().iterator())
   }
 
   override def delete(key: Array[Byte]): Unit = {
-    metrics.deletes.inc
+    metrics.deletes.increment
     put(key, null)
   }
 
@@ -92,23 +92,23 @@ class InMemoryKeyValueStore(val metrics: KeyValueStoreMetrics = new KeyValueStor
   }
 
   override def put(key: Array[Byte], value: Array[Byte]): Unit = {
-    metrics.puts.inc
+    metrics.puts.increment
     require(key != null, "Null key not allowed.")
     if (value == null) {
-      metrics.deletes.inc
+      metrics.deletes.increment
       underlying.remove(key)
     } else {
-      metrics.bytesWritten.inc(key.size + value.size)
+      metrics.bytesWritten.increment(key.size + value.size)
       underlying.put(key, value)
     }
   }
 
   override def get(key: Array[Byte]): Array[Byte] = {
-    metrics.gets.inc
+    metrics.gets.increment
     require(key != null, "Null key not allowed.")
     val found = underlying.get(key)
     if (found != null) {
-      metrics.bytesRead.inc(found.size)
+      metrics.bytesRead.increment(found.size)
     }
     found
   }
@@ -0,0 +1,403 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.storage.kv.inmemory
+
+import java.nio.ByteBuffer
+import java.util
+import java.util.concurrent.ConcurrentSkipListMap
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.StampedLock
+
+import com.google.common.primitives.UnsignedBytes
+import org.apache.samza.storage.kv._
+import org.apache.samza.util.Logging
+
+/**
+ * In memory implementation of a key value store that keeps its values off the JVM heap.
+ *
+ * Values are appended to direct byte buffer arenas, and a ConcurrentSkipListMap keeps the keys in order along with
+ * the location of their value, so the heap only holds the keys and a small index entry per key. The location of a
+ * key's value is updated in place when the key is overwritten. Space taken by overwritten and deleted values is
+ * reclaimed by compacting the live values into new arenas once it exceeds the space taken by the live values (and
+ * the size of an arena).
+ *
+ * Values are never overwritten in their arena, so reads don't lock: they read optimistically and only retry under
+ * the read lock if a compaction moved values in the meantime. Writes hold the read lock, compaction holds the write
+ * lock so that values don't move while they are written. Arenas replaced by a compaction are freed by the garbage
+ * collector once no reader can reach them any more.
+ *
+ * @param arenaSize The size of each arena in bytes. Values larger than an arena get an arena of their own.
+ * @param metrics A metrics instance to publish key-value store related statistics
+ */
+class OffHeapKeyValueStore(
+  val arenaSize: Int = OffHeapKeyValueStore.DEFAULT_ARENA_SIZE_BYTES,
+  val metrics: KeyValueStoreMetrics = new KeyValueStoreMetrics) extends KeyValueStore[Array[Byte], Array[Byte]] with Logging {
+
+  /**
+   * the keys in order, mapped to the location of their value in the arenas, or to REMOVED while the key is being
+   * deleted
+   */
+  private val index = new ConcurrentSkipListMap[Array[Byte], AtomicLong](UnsignedBytes.lexicographicalComparator())
+
+  private val lock = new StampedLock
+
+  /** the arenas holding the values. Only replaced, never modified, while holding the allocation lock */
+  @volatile private var arenas = new Array[ByteBuffer](0)
+
+  /** the bytes used by values still referenced from the index, per arena. Guarded by the allocation lock */
+  private var liveBytes = new Array[Long](0)
+
+  /** the lock guarding the allocation of space in the arenas */
+  private val allocationLock = new Object
+
+  @volatile private var allocatedBytes = 0L
+
+  @volatile private var totalLiveBytes = 0L
+
+  private val compactions = metrics.newCounter("offheap-compactions")
+  metrics.newGauge("offheap-allocated-bytes", () => allocatedBytes)
+  metrics.newGauge("offheap-live-bytes", () => totalLiveBytes)
+  metrics.newGauge("offheap-arenas", () => arenas.length)
+
+  override def flush(): Unit = {
+    // No-op for In memory store.
+    metrics.flushes.increment
+  }
+
+  override def close(): Unit = {
+    val stamp = lock.writeLock()
+    try {
+      index.clear()
+      allocationLock.synchronized {
+        arenas = new Array[ByteBuffer](0)
+        liveBytes = new Array[Long](0)
+        allocatedBytes = 0
+        totalLiveBytes = 0
+      }
+    } finally {
+      lock.unlockWrite(stamp)
+    }
+  }
+
+  /**
+   * Iterates over the keys, reading each value when the iterator advances to its key. Keys that are deleted while
+   * the iterator is open are skipped.
+   */
+  private class OffHeapIterator(val keys: util.Iterator[Array[Byte]])
+    extends KeyValueIterator[Array[Byte], Array[Byte]] {
+
+    private var nextEntry: Entry[Array[Byte], Array[Byte]] = null
+
+    override def close(): Unit = Unit
+
+    override def remove(): Unit = throw new UnsupportedOperationException("OffHeapKeyValueStore iterator doesn't support remove")
+
+    override def next(): Entry[Array[Byte], Array[Byte]] = {
+      if (!hasNext) {
+        throw new NoSuchElementException
+      }
+      val n = nextEntry
+      nextEntry = null
+      metrics.bytesRead.increment(n.getKey.length + n.getValue.length)
+      n
+    }
+
+    override def hasNext: Boolean = {
+      while (nextEntry == null && keys.hasNext) {
+        val key = keys.next()
+        // look the value up again rather than using a location read by the map's iterator, which may have been
+        // moved by a compaction since
+        val value = readValue(key)
+        if (value != null) {
+          nextEntry = new Entry(key, value)
+        }
+      }
+      nextEntry != null
+    }
+  }
+
+  override def all(): KeyValueIterator[Array[Byte], Array[Byte]] = {
+    metrics.alls.increment
+
+    new OffHeapIterator(index.keySet().iterator())
+  }
+
+  override def range(from: Array[Byte], to: Array[Byte]): KeyValueIterator[Array[Byte], Array[Byte]] = {
+    metrics.ranges.increment
+    require(from != null && to != null, "Null bound not allowed.")
+
+    new OffHeapIterator(index.subMap(from, to).keySet().iterator())
+  }
+
+  override def rangeKeys(from: Array[Byte], to: Array[Byte]): ClosableIterator[Array[Byte]] = {
+    metrics.ranges.increment
+    require(from != null && to != null, "Null bound not allowed.")
+
+    val iter = index.subMap(from, to).keySet().iterator()
+    new ClosableIterator[Array[Byte]] {
+      override def close(): Unit = Unit
+      override def hasNext: Boolean = iter.hasNext
+      override def next(): Array[Byte] = {
+        val key = iter.next()
+        metrics.bytesRead.increment(key.length)
+        key
+      }
+    }
+  }
+
+  override def delete(key: Array[Byte]): Unit = {
+    metrics.deletes.increment
+    put(key, null)
+  }
+
+  override def putAll(entries: util.List[Entry[Array[Byte], Array[Byte]]]): Unit = {
+    val iter = entries.iterator()
+    while(iter.hasNext) {
+      val next = iter.next()
+      put(next.getKey, next.getValue)
+    }
+  }
+
+  override def put(key: Array[Byte], value: Array[Byte]): Unit = {
+    metrics.puts.increment
+    require(key != null, "Null key not allowed.")
+    withReadLock {
+      if (value == null) {
+        metrics.deletes.increment
+        remove(key)
+      } else {
+        metrics.bytesWritten.increment(key.length + value.length)
+        update(key, write(value))
+      }
+    }
+    if (needsCompaction) {
+      compact()
+    }
+  }
+
+  override def get(key: Array[Byte]): Array[Byte] = {
+    metrics.gets.increment
+    require(key != null, "Null key not allowed.")
+    val found = readValue(key)
+    if (found != null) {
+      metrics.bytesRead.increment(found.length)
+    }
+    found
+  }
+
+  override def snapshot(from: Array[Byte], to: Array[Byte]): KeyValueSnapshot[Array[Byte], Array[Byte]] = {
+    // snapshot the underlying map
+    val keys = index.subMap(from, to).keySet()
+    new KeyValueSnapshot[Array[Byte], Array[Byte]] {
+      override def iterator(): KeyValueIterator[Array[Byte], Array[Byte]] = {
+        new OffHeapIterator(keys.iterator())
+      }
+
+      override def close() { }
+    }
+  }
+
+  def getAllocatedBytes = allocatedBytes
+
+  def getLiveBytes = totalLiveBytes
+
+  private def withReadLock[T](fn: => T): T = {
+    val stamp = lock.readLock()
+    try {
+      fn
+    } finally {
+      lock.unlockRead(stamp)
+    }
+  }
+
+  /**
+   * Reads the value of the key without locking. Only if a compaction may have moved the value while it was read is
+   * it read again while holding the read lock.
+   */
+  private def readValue(key: Array[Byte]): Array[Byte] = {
+    val stamp = lock.tryOptimisticRead()
+    val value = if (stamp != 0) readLocation(index.get(key)) else null
+    if (stamp != 0 && lock.validate(stamp)) {
+      value
+    } else {
+      withReadLock {
+        readLocation(index.get(key))
+      }
+    }
+  }
+
+  /**
+   * Points the key to the location of its new value and frees the space of its previous value. The read or write
+   * lock must be held.
+   */
+  private def update(key: Array[Byte], location: Long): Unit = {
+    var updated = false
+    while (!updated) {
+      val slot = index.get(key)
+      if (slot == null) {
+        updated = index.putIfAbsent(key, new AtomicLong(location)) == null
+      } else {
+        val previous = slot.get
+        if (previous == OffHeapKeyValueStore.REMOVED) {
+          // the key is being deleted concurrently, finish removing it so that a new slot can be added
+          index.remove(key, slot)
+        } else if (slot.compareAndSet(previous, location)) {
+          release(previous)
+          updated = true
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes the key and frees the space of its value. The read or write lock must be held.
+   */
+  private def remove(key: Array[Byte]): Unit = {
+    val slot = index.get(key)
+    if (slot != null) {
+      val previous = slot.getAndSet(OffHeapKeyValueStore.REMOVED)
+      index.remove(key, slot)
+      if (previous != OffHeapKeyValueStore.REMOVED) {
+        release(previous)
+      }
+    }
+  }
+
+  /**
+   * Copies the value into an arena and returns its location. The read or write lock must be held.
+   */
+  private def write(value: Array[Byte]): Long = allocationLock.synchronized {
+    val recordSize = OffHeapKeyValueStore.LENGTH_SIZE + value.length
+    var arenaIndex = arenas.length - 1
+    if (arenaIndex < 0 || arenas(arenaIndex).remaining < recordSize) {
+      val arena = ByteBuffer.allocateDirect(math.max(arenaSize, recordSize))
+      arenas = arenas :+ arena
+      liveBytes = liveBytes :+ 0L
+      allocatedBytes += arena.capacity
+      arenaIndex += 1
+    }
+    val arena = arenas(arenaIndex)
+    val offset = arena.position
+    arena.putInt(value.length)
+    arena.put(value)
+    liveBytes(arenaIndex) += recordSize
+    totalLiveBytes += recordSize
+    OffHeapKeyValueStore.toLocation(arenaIndex, offset)
+  }
+
+  /**
+   * Copies the value at the location of the slot out of its arena, or returns null if the slot is null or removed.
+   *
+   * Without a lock, a concurrent compaction may replace the arenas and the location independently, so the location
+   * is checked against the bounds of the arenas rather than trusted, and null is returned if it is out of bounds.
+   * Values are only written to an arena before their location is published, so any location within bounds reads
+   * a complete value.
+   */
+  private def readLocation(slot: AtomicLong): Array[Byte] = {
+    val location = if (slot == null) OffHeapKeyValueStore.REMOVED else slot.get
+    val currentArenas = arenas
+    val arenaIndex = OffHeapKeyValueStore.arenaIndex(location)
+    if (location == OffHeapKeyValueStore.REMOVED || arenaIndex >= currentArenas.length) {
+      null
+    } else {
+      // use a duplicate so that concurrent reads and writes don't share a position
+      val buffer = currentArenas(arenaIndex).duplicate()
+      val offset = OffHeapKeyValueStore.offset(location)
+      if (offset < 0 || offset > buffer.capacity - OffHeapKeyValueStore.LENGTH_SIZE) {
+        null
+      } else {
+        buffer.position(offset)
+        val length = buffer.getInt
+        if (length < 0 || length > buffer.remaining) {
+          null
+        } else {
+          val value = new Array[Byte](length)
+          buffer.get(value)
+          value
+        }
+      }
+    }
+  }
+
+  /**
+   * Marks the space of the value at the location as free. The read or write lock must be held.
+   */
+  private def release(location: Long): Unit = allocationLock.synchronized {
+    val arenaIndex = OffHeapKeyValueStore.arenaIndex(location)
+    val arena = arenas(arenaIndex)
+    val recordSize = OffHeapKeyValueStore.LENGTH_SIZE + arena.getInt(OffHeapKeyValueStore.offset(location))
+    liveBytes(arenaIndex) -= recordSize
+    totalLiveBytes -= recordSize
+  }
+
+  private def needsCompaction = {
+    val garbageBytes = allocatedBytes - totalLiveBytes
+    garbageBytes > arenaSize && garbageBytes > totalLiveBytes
+  }
+
+  /**
+   * Copies the live values into new arenas, dropping the space taken by overwritten and deleted values.
+   */
+  private def compact(): Unit = {
+    val stamp = lock.writeLock()
+    try {
+      if (needsCompaction) {
+        debug("Compacting %d live bytes out of %d allocated bytes." format (totalLiveBytes, allocatedBytes))
+        val oldArenas = allocationLock.synchronized {
+          val old = arenas
+          arenas = new Array[ByteBuffer](0)
+          liveBytes = new Array[Long](0)
+          allocatedBytes = 0
+          totalLiveBytes = 0
+          old
+        }
+        val iter = index.values().iterator()
+        while (iter.hasNext) {
+          val slot = iter.next()
+          val location = slot.get
+          val buffer = oldArenas(OffHeapKeyValueStore.arenaIndex(location)).duplicate()
+          buffer.position(OffHeapKeyValueStore.offset(location))
+          val value = new Array[Byte](buffer.getInt)
+          buffer.get(value)
+          slot.set(write(value))
+        }
+        compactions.increment
+      }
+    } finally {
+      lock.unlockWrite(stamp)
+    }
+  }
+}
+
+object OffHeapKeyValueStore {
+  val DEFAULT_ARENA_SIZE_BYTES = 16 * 1024 * 1024
+
+  /** the size of the length that precedes each value in an arena */
+  private val LENGTH_SIZE = 4
+
+  /** the location of a key that is being deleted */
+  private val REMOVED = -1L
+
+  private def toLocation(arenaIndex: Int, offset: Int): Long = (arenaIndex.toLong << 32) | (offset & 0xffffffffL)
+
+  private def arenaIndex(location: Long): Int = (location >>> 32).toInt
+
+  private def offset(location: Long): Int = location.toInt
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.storage.kv.inmemory;
+
+import com.google.common.primitives.Ints;
+import org.apache.samza.metrics.MetricsRegistryMap;
+import org.apache.samza.storage.kv.ClosableIterator;
+import org.apache.samza.storage.kv.Entry;
+import org.apache.samza.storage.kv.KeyValueIterator;
+import org.apache.samza.storage.kv.KeyValueStoreMetrics;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestOffHeapKeyValueStore {
+  private static final int ARENA_SIZE = 1024;
+
+  @Test
+  public void testPutGetDelete() {
+    OffHeapKeyValueStore store = new OffHeapKeyValueStore(ARENA_SIZE, newMetrics());
+    store.put(Ints.toByteArray(1), "one".getBytes());
+    store.put(Ints.toByteArray(2), "two".getBytes());
+    assertArrayEquals("one".getBytes(), store.get(Ints.toByteArray(1)));
+
+    store.put(Ints.toByteArray(1), "uno".getBytes());
+    assertArrayEquals("uno".getBytes(), store.get(Ints.toByteArray(1)));
+
+    store.delete(Ints.toByteArray(2));
+    assertNull(store.get(Ints.toByteArray(2)));
+    // only the live value takes up space: a 4 byte length and the value
+    assertEquals(7, store.getLiveBytes());
+    store.close();
+  }
+
+  @Test
+  public void testRangeAndRangeKeys() {
+    OffHeapKeyValueStore store = new OffHeapKeyValueStore(ARENA_SIZE, newMetrics());
+    for (int i = 0; i < 10; i++) {
+      store.put(Ints.toByteArray(i), Ints.toByteArray(i * 10));
+    }
+
+    List<Integer> values = new ArrayList<>();
+    KeyValueIterator<byte[], byte[]> iter = store.range(Ints.toByteArray(3), Ints.toByteArray(6));
+    while (iter.hasNext()) {
+      Entry<byte[], byte[]> entry = iter.next();
+      values.add(Ints.fromByteArray(entry.getValue()));
+    }
+    iter.close();
+    assertEquals(3, values.size());
+    assertEquals(Integer.valueOf(30), values.get(0));
+    assertEquals(Integer.valueOf(50), values.get(2));
+
+    ClosableIterator<byte[]> keys = store.rangeKeys(Ints.toByteArray(8), Ints.toByteArray(20));
+    assertEquals(8, Ints.fromByteArray(keys.next()));
+    assertEquals(9, Ints.fromByteArray(keys.next()));
+    assertFalse(keys.hasNext());
+    keys.close();
+    store.close();
+  }
+
+  @Test
+  public void testCompactionReclaimsSpace() {
+    OffHeapKeyValueStore store = new OffHeapKeyValueStore(ARENA_SIZE, newMetrics());
+    byte[] value = new byte[100];
+    for (int round = 0; round < 50; round++) {
+      for (int i = 0; i < 5; i++) {
+        value[0] = (byte) round;
+        store.put(Ints.toByteArray(i), value);
+      }
+    }
+
+    // 250 values of 104 bytes have been written, but only 5 are live
+    assertEquals(5 * 104, store.getLiveBytes());
+    assertTrue(store.getAllocatedBytes() <= 4 * ARENA_SIZE);
+    for (int i = 0; i < 5; i++) {
+      assertEquals(49, store.get(Ints.toByteArray(i))[0]);
+    }
+
+    KeyValueIterator<byte[], byte[]> iter = store.all();
+    int count = 0;
+    while (iter.hasNext()) {
+      assertEquals(49, iter.next().getValue()[0]);
+      count++;
+    }
+    iter.close();
+    assertEquals(5, count);
+    store.close();
+  }
+
+  @Test
+  public void testIteratorSkipsKeysDeletedWhileOpen() {
+    OffHeapKeyValueStore store = new OffHeapKeyValueStore(ARENA_SIZE, newMetrics());
+    for (int i = 0; i < 3; i++) {
+      store.put(Ints.toByteArray(i), Ints.toByteArray(i));
+    }
+
+    KeyValueIterator<byte[], byte[]> iter = store.all();
+    assertEquals(0, Ints.fromByteArray(iter.next().getKey()));
+    store.delete(Ints.toByteArray(1));
+    assertEquals(2, Ints.fromByteArray(iter.next().getKey()));
+    assertFalse(iter.hasNext());
+    iter.close();
+    store.close();
+  }
+
+  @Test
+  public void testConcurrentReadsDuringCompaction() throws Exception {
+    final OffHeapKeyValueStore store = new OffHeapKeyValueStore(ARENA_SIZE, newMetrics());
+    final int keys = 10;
+    for (int i = 0; i < keys; i++) {
+      store.put(Ints.toByteArray(i), Ints.toByteArray(i));
+    }
+
+    // each value starts with its key, so a read of a moved or torn value is detected
+    final AtomicBoolean done = new AtomicBoolean(false);
+    final AtomicReference<String> failure = new AtomicReference<>();
+    Thread reader = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        while (!done.get()) {
+          for (int i = 0; i < keys; i++) {
+            byte[] value = store.get(Ints.toByteArray(i));
+            if (value == null || Ints.fromByteArray(value) != i) {
+              failure.compareAndSet(null, "Unexpected value for key " + i);
+            }
+          }
+        }
+      }
+    });
+    reader.start();
+
+    byte[] value = new byte[100];
+    for (int round = 0; round < 2000; round++) {
+      int key = round % keys;
+      System.arraycopy(Ints.toByteArray(key), 0, value, 0, 4);
+      store.put(Ints.toByteArray(key), value);
+    }
+    done.set(true);
+    reader.join();
+
+    assertNull(failure.get());
+    assertTrue(store.getAllocatedBytes() <= 4 * ARENA_SIZE);
+    store.close();
+  }
+
+  private static KeyValueStoreMetrics newMetrics() {
+    return new KeyValueStoreMetrics("testOffHeap", new MetricsRegistryMap());
+  }
+}
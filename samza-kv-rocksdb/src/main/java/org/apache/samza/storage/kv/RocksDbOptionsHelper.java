@@ -23,6 +23,7 @@ import org.apache.samza.config.Config;
 import org.apache.samza.context.ContainerContext;
 import org.apache.samza.context.JobContext;
 import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
 import org.rocksdb.CompactionStyle;
 import org.rocksdb.CompressionType;
 import org.rocksdb.Options;
@@ -41,6 +42,8 @@ public class RocksDbOptionsHelper {
   private static final String ROCKSDB_NUM_WRITE_BUFFERS = "rocksdb.num.write.buffers";
   private static final String ROCKSDB_MAX_LOG_FILE_SIZE_BYTES = "rocksdb.max.log.file.size.bytes";
   private static final String ROCKSDB_KEEP_LOG_FILE_NUM = "rocksdb.keep.log.file.num";
+  private static final String ROCKSDB_PREFIX_LENGTH = "rocksdb.prefix.length";
+  private static final String ROCKSDB_BLOOM_FILTER_BITS_PER_KEY = "rocksdb.bloom.filter.bits.per.key";
 
   public static Options options(Config storeConfig, int numTasksForContainer) {
     Options options = new Options();
@@ -79,8 +82,22 @@ public class RocksDbOptionsHelper {
     int blockSize = storeConfig.getInt(ROCKSDB_BLOCK_SIZE_BYTES, 4096);
     BlockBasedTableConfig tableOptions = new BlockBasedTableConfig();
     tableOptions.setBlockCacheSize(blockCacheSize).setBlockSize(blockSize);
+    int bloomFilterBitsPerKey = storeConfig.getInt(ROCKSDB_BLOOM_FILTER_BITS_PER_KEY, 0);
+    if (bloomFilterBitsPerKey > 0) {
+      tableOptions.setFilter(new BloomFilter(bloomFilterBitsPerKey, false));
+    }
     options.setTableFormatConfig(tableOptions);
 
+    // A prefix extractor lets range scans within a prefix skip SST files and memtable entries
+    // that can't contain the prefix, using the bloom filters built on the prefixes.
+    int prefixLength = getPrefixLength(storeConfig);
+    if (prefixLength > 0) {
+      options.useCappedPrefixExtractor(prefixLength);
+      if (bloomFilterBitsPerKey > 0) {
+        options.setMemtablePrefixBloomSizeRatio(0.1);
+      }
+    }
+
     CompactionStyle compactionStyle = CompactionStyle.UNIVERSAL;
     String compactionStyleInConfig = storeConfig.get(ROCKSDB_COMPACTION_STYLE, "universal");
     switch (compactionStyleInConfig) {
@@ -109,6 +126,14 @@ public class RocksDbOptionsHelper {
     return options;
   }
 
+  /**
+   * Returns the length of the key prefixes the store is configured to extract, or 0 if it isn't configured
+   * with a prefix extractor.
+   */
+  public static int getPrefixLength(Config storeConfig) {
+    return storeConfig.getInt(ROCKSDB_PREFIX_LENGTH, 0);
+  }
+
   public static Long getBlockCacheSize(Config storeConfig, int numTasksForContainer) {
     long cacheSize = storeConfig.getLong("container.cache.size.bytes", 100 * 1024 * 1024L);
     return cacheSize / numTasksForContainer;
@@ -22,15 +22,18 @@ package org.apache.samza.storage.kv
 import java.io.File
 import java.util
 import java.util.Comparator
-import java.util.concurrent.TimeUnit
-import java.util.concurrent.locks.ReentrantReadWriteLock
+import java.util.concurrent.{ConcurrentLinkedQueue, TimeUnit}
 
 import org.apache.samza.SamzaException
 import org.apache.samza.config.Config
-import org.apache.samza.util.Logging
+import org.apache.samza.util.{FileUtil, Logging}
 import org.rocksdb.{TtlDB, _}
 
 object RocksDbKeyValueStore extends Logging {
+  val BULK_LOAD_ENABLED = "rocksdb.restore.bulk.load.enabled"
+  val BULK_LOAD_BATCH_SIZE_BYTES = "rocksdb.restore.bulk.load.batch.size.bytes"
+  val DEFAULT_BULK_LOAD_BATCH_SIZE_BYTES = 64 * 1024 * 1024L
+  val BULK_LOAD_DIR_NAME = "bulk-load"
 
   def openDB(dir: File, options: Options, storeConfig: Config, isLoggedStore: Boolean,
              storeName: String, metrics: KeyValueStoreMetrics): RocksDB = {
@@ -117,33 +120,58 @@ class RocksDbKeyValueStore(
   val storeName: String,
   val writeOptions: WriteOptions = new WriteOptions(),
   val flushOptions: FlushOptions = new FlushOptions(),
-  val metrics: KeyValueStoreMetrics = new KeyValueStoreMetrics) extends KeyValueStore[Array[Byte], Array[Byte]] with Logging {
+  val metrics: KeyValueStoreMetrics = new KeyValueStoreMetrics) extends BulkLoadableKeyValueStore with CheckpointableKeyValueStore with Logging {
 
   // lazy val here is important because the store directories do not exist yet, it can only be opened
   // after the directories are created, which happens much later from now.
   private lazy val db = RocksDbKeyValueStore.openDB(dir, options, storeConfig, isLoggedStore, storeName, metrics)
   private val lexicographic = new LexicographicComparator()
+  private val prefixLength = RocksDbOptionsHelper.getPrefixLength(storeConfig)
 
   /**
     * null while the store is open. Set to an Exception holding the stacktrace at the time of first close by #close.
-    * Reads and writes to this field must be guarded by stateChangeLock.
+    * Writes to this field must happen in #close while holding closeLock.
     * This is an Exception instead of an Array[StackTraceElement] for ease of logging.
     */
-  private var stackAtFirstClose: Exception = null
-  private val stateChangeLock = new ReentrantReadWriteLock()
+  @volatile private var stackAtFirstClose: Exception = null
+
+  /**
+    * Held by #close while it waits for in flight operations. It is not the store's monitor, which initializes the
+    * lazy db, so an in flight operation that opens the database can still complete.
+    */
+  private val closeLock = new Object
+
+  /**
+    * false once #close has been called. Operations check it after counting themselves as in flight, so that the only
+    * shared state an operation reads is this flag.
+    */
+  @volatile private var isOpen = true
+
+  /**
+    * The operations in flight on each thread that has accessed the store. A counter is only written by its own
+    * thread, so entering the store never contends with other threads. #close reads all of them.
+    */
+  private val inFlightCounters = new ConcurrentLinkedQueue[InFlightCounter]()
+  private val inFlight = new ThreadLocal[InFlightCounter] {
+    override def initialValue(): InFlightCounter = {
+      val counter = new InFlightCounter
+      inFlightCounters.add(counter)
+      counter
+    }
+  }
 
   def get(key: Array[Byte]): Array[Byte] = ifOpen {
-    metrics.gets.inc
+    metrics.gets.increment
     require(key != null, "Null key not allowed.")
     val found = db.get(key)
     if (found != null) {
-      metrics.bytesRead.inc(found.length)
+      metrics.bytesRead.increment(found.length)
     }
     found
   }
 
   override def getAll(keys: java.util.List[Array[Byte]]): java.util.Map[Array[Byte], Array[Byte]] = ifOpen {
-    metrics.getAlls.inc
+    metrics.getAlls.increment
     require(keys != null, "Null keys not allowed.")
     val map = db.multiGet(keys)
     if (map != null) {
@@ -155,7 +183,7 @@ class RocksDbKeyValueStore(
           bytesRead += value.length
         }
       }
-      metrics.bytesRead.inc(bytesRead)
+      metrics.bytesRead.increment(bytesRead)
     }
     map
   }
@@ -163,57 +191,128 @@ class RocksDbKeyValueStore(
   def put(key: Array[Byte], value: Array[Byte]): Unit = ifOpen {
     require(key != null, "Null key not allowed.")
     if (value == null) {
-      metrics.deletes.inc
+      metrics.deletes.increment
       db.delete(writeOptions, key)
     } else {
-      metrics.puts.inc
-      metrics.bytesWritten.inc(key.length + value.length)
+      metrics.puts.increment
+      metrics.bytesWritten.increment(key.length + value.length)
       db.put(writeOptions, key, value)
     }
   }
 
-  // Write batch from RocksDB API is not used currently because of: https://github.com/facebook/rocksdb/issues/262
+  /**
+    * Applies all entries in a single native call using a RocksDB [[WriteBatch]]. Entries with a null value are
+    * written as deletes. The batch is applied atomically, so either all entries are visible or none are.
+    */
   def putAll(entries: java.util.List[Entry[Array[Byte], Array[Byte]]]): Unit = ifOpen {
-    metrics.putAlls.inc()
+    metrics.putAlls.increment()
     val iter = entries.iterator
     var wrote = 0
     var deletes = 0
-    while (iter.hasNext) {
-      val curr = iter.next()
-      if (curr.getValue == null) {
-        deletes += 1
-        db.delete(writeOptions, curr.getKey)
-      } else {
-        wrote += 1
+    var bytesWritten = 0L
+    val writeBatch = new WriteBatch()
+    try {
+      while (iter.hasNext) {
+        val curr = iter.next()
         val key = curr.getKey
-        val value = curr.getValue
-        metrics.bytesWritten.inc(key.length + value.length)
-        db.put(writeOptions, key, value)
+        require(key != null, "Null key not allowed.")
+        if (curr.getValue == null) {
+          deletes += 1
+          writeBatch.remove(key)
+        } else {
+          wrote += 1
+          val value = curr.getValue
+          bytesWritten += key.length + value.length
+          writeBatch.put(key, value)
+        }
       }
+      db.write(writeOptions, writeBatch)
+    } finally {
+      writeBatch.close()
     }
-    metrics.puts.inc(wrote)
-    metrics.deletes.inc(deletes)
+    metrics.bytesWritten.increment(bytesWritten)
+    metrics.puts.increment(wrote)
+    metrics.deletes.increment(deletes)
   }
 
-  def delete(key: Array[Byte]): Unit = ifOpen {
+  def delete(key: Array[Byte]): Unit = {
     put(key, null)
   }
 
+  override def deleteAll(keys: java.util.List[Array[Byte]]): Unit = ifOpen {
+    require(keys != null, "Null keys not allowed.")
+    val writeBatch = new WriteBatch()
+    try {
+      val iter = keys.iterator
+      while (iter.hasNext) {
+        val key = iter.next()
+        require(key != null, "Null key not allowed.")
+        writeBatch.remove(key)
+      }
+      db.write(writeOptions, writeBatch)
+    } finally {
+      writeBatch.close()
+    }
+    metrics.deletes.increment(keys.size)
+  }
+
   def range(from: Array[Byte], to: Array[Byte]): KeyValueIterator[Array[Byte], Array[Byte]] = ifOpen {
-    metrics.ranges.inc
+    metrics.ranges.increment
+    require(from != null && to != null, "Null bound not allowed.")
+    val readOptions = newRangeReadOptions(from, to)
+    new RocksDbRangeIterator(db.newIterator(readOptions), from, to, readOptions)
+  }
+
+  override def rangeKeys(from: Array[Byte], to: Array[Byte]): ClosableIterator[Array[Byte]] = ifOpen {
+    metrics.ranges.increment
     require(from != null && to != null, "Null bound not allowed.")
-    new RocksDbRangeIterator(db.newIterator(), from, to)
+    val readOptions = newRangeReadOptions(from, to)
+    new RocksDbRangeKeyIterator(db.newIterator(readOptions), from, to, readOptions)
   }
 
   def all(): KeyValueIterator[Array[Byte], Array[Byte]] = ifOpen {
-    metrics.alls.inc
-    val iter = db.newIterator()
+    metrics.alls.increment
+    val readOptions = new ReadOptions()
+    if (prefixLength > 0) {
+      readOptions.setTotalOrderSeek(true)
+    }
+    val iter = db.newIterator(readOptions)
     iter.seekToFirst()
-    new RocksDbIterator(iter)
+    new RocksDbIterator(iter, readOptions)
   }
 
-  override def snapshot(from: Array[Byte], to: Array[Byte]): KeyValueSnapshot[Array[Byte], Array[Byte]] = {
+  /**
+    * Returns the read options for iterating over [from, to). If the store extracts key prefixes and both bounds
+    * share a prefix, the iterator only needs to visit keys with that prefix, which lets RocksDB use the prefix bloom
+    * filters. Otherwise the iterator must visit the keys in total order, since iterating across prefixes is
+    * undefined in prefix mode.
+    */
+  private def newRangeReadOptions(from: Array[Byte], to: Array[Byte]): ReadOptions = {
     val readOptions = new ReadOptions()
+    if (prefixLength > 0) {
+      if (sharesPrefix(from, to)) {
+        readOptions.setPrefixSameAsStart(true)
+      } else {
+        readOptions.setTotalOrderSeek(true)
+      }
+    }
+    readOptions
+  }
+
+  private def sharesPrefix(from: Array[Byte], to: Array[Byte]): Boolean = {
+    if (from.length < prefixLength || to.length < prefixLength) {
+      false
+    } else {
+      var i = 0
+      while (i < prefixLength && from(i) == to(i)) {
+        i += 1
+      }
+      i == prefixLength
+    }
+  }
+
+  override def snapshot(from: Array[Byte], to: Array[Byte]): KeyValueSnapshot[Array[Byte], Array[Byte]] = {
+    val readOptions = newRangeReadOptions(from, to)
     readOptions.setSnapshot(db.getSnapshot)
 
     new KeyValueSnapshot[Array[Byte], Array[Byte]] {
@@ -227,49 +326,200 @@ class RocksDbKeyValueStore(
     }
   }
 
+  /**
+    * Bulk loading writes entries into SST files and ingests them, bypassing the WAL and memtable.
+    * It is not supported for TTL stores since ingested values would not carry the TTL timestamp.
+    */
+  def isBulkLoadEnabled: Boolean = {
+    storeConfig.getBoolean(RocksDbKeyValueStore.BULK_LOAD_ENABLED, false) && !storeConfig.containsKey("rocksdb.ttl.ms")
+  }
+
+  /**
+    * Buffers entries sorted and de-duplicated by key until the configured batch size is reached, writes them to an
+    * SST file and ingests the file into the database. Files ingested later are assigned newer sequence numbers, so
+    * later entries for a key still supersede earlier ones, and null values are written as deletes.
+    * Automatic compactions are disabled for the duration of the load.
+    */
+  def bulkLoad(entries: java.util.Iterator[Entry[Array[Byte], Array[Byte]]]): Unit = ifOpen {
+    val batchSizeBytes = storeConfig.getLong(RocksDbKeyValueStore.BULK_LOAD_BATCH_SIZE_BYTES,
+      RocksDbKeyValueStore.DEFAULT_BULK_LOAD_BATCH_SIZE_BYTES)
+    val bulkLoadDir = new File(dir, RocksDbKeyValueStore.BULK_LOAD_DIR_NAME)
+    FileUtil.rm(bulkLoadDir)
+    bulkLoadDir.mkdirs()
+
+    setAutoCompactionsDisabled(true)
+    try {
+      val buffer = new util.TreeMap[Array[Byte], Array[Byte]](lexicographic)
+      var bufferedBytes = 0L
+      var fileCount = 0
+      while (entries.hasNext) {
+        val entry = entries.next()
+        val key = entry.getKey
+        require(key != null, "Null key not allowed.")
+        if (buffer.containsKey(key)) {
+          bufferedBytes -= entrySize(key, buffer.get(key))
+        }
+        buffer.put(key, entry.getValue)
+        bufferedBytes += entrySize(key, entry.getValue)
+
+        if (bufferedBytes >= batchSizeBytes) {
+          ingest(buffer, new File(bulkLoadDir, "%d.sst" format fileCount))
+          fileCount += 1
+          buffer.clear()
+          bufferedBytes = 0
+        }
+      }
+
+      if (!buffer.isEmpty) {
+        ingest(buffer, new File(bulkLoadDir, "%d.sst" format fileCount))
+        fileCount += 1
+      }
+      info("Bulk loaded %d SST files into store: %s" format (fileCount, storeName))
+    } finally {
+      setAutoCompactionsDisabled(false)
+      FileUtil.rm(bulkLoadDir)
+    }
+  }
+
+  private def entrySize(key: Array[Byte], value: Array[Byte]) = {
+    key.length + (if (value == null) 0 else value.length)
+  }
+
+  private def ingest(entries: util.SortedMap[Array[Byte], Array[Byte]], sstFile: File) {
+    var wrote = 0
+    var deletes = 0
+    var bytesWritten = 0L
+    val envOptions = new EnvOptions()
+    val writer = new SstFileWriter(envOptions, options)
+    try {
+      writer.open(sstFile.getAbsolutePath)
+      val iter = entries.entrySet.iterator
+      while (iter.hasNext) {
+        val entry = iter.next()
+        val key = new Slice(entry.getKey)
+        try {
+          if (entry.getValue == null) {
+            deletes += 1
+            writer.delete(key)
+          } else {
+            val value = new Slice(entry.getValue)
+            try {
+              wrote += 1
+              bytesWritten += entry.getKey.length + entry.getValue.length
+              writer.put(key, value)
+            } finally {
+              value.close()
+            }
+          }
+        } finally {
+          key.close()
+        }
+      }
+      writer.finish()
+    } finally {
+      writer.close()
+      envOptions.close()
+    }
+
+    val ingestOptions = new IngestExternalFileOptions()
+    try {
+      ingestOptions.setMoveFiles(true)
+      db.ingestExternalFile(util.Collections.singletonList(sstFile.getAbsolutePath), ingestOptions)
+    } finally {
+      ingestOptions.close()
+    }
+    metrics.bytesWritten.increment(bytesWritten)
+    metrics.puts.increment(wrote)
+    metrics.deletes.increment(deletes)
+  }
+
+  private def setAutoCompactionsDisabled(disabled: Boolean) {
+    trace("Setting disable_auto_compactions to %s for store: %s" format (disabled, storeName))
+    db.setOptions(db.getDefaultColumnFamily,
+      MutableColumnFamilyOptions.builder().setDisableAutoCompactions(disabled).build())
+  }
+
   def flush(): Unit = ifOpen {
-    metrics.flushes.inc
+    metrics.flushes.increment
     trace("Flushing store: %s" format storeName)
     db.flush(flushOptions)
     trace("Flushed store: %s" format storeName)
   }
 
-  def close(): Unit = {
-    stateChangeLock.writeLock().lock()
+  /**
+    * Creates a RocksDB checkpoint, which hard links the live SST files and copies the remaining metadata files.
+    */
+  def checkpoint(checkpointDir: File): Unit = ifOpen {
+    val checkpoint = Checkpoint.create(db)
     try {
-      trace("Closing.")
-      if (stackAtFirstClose == null) { // first close
-        stackAtFirstClose = new Exception()
-        db.close()
-      } else {
-        warn(new SamzaException("Close called again on a closed store: %s. Ignoring this close." +
-          "Stack at first close is under 'Caused By'." format storeName, stackAtFirstClose))
-      }
+      checkpoint.createCheckpoint(checkpointDir.getAbsolutePath)
     } finally {
-      stateChangeLock.writeLock().unlock()
+      checkpoint.close()
+    }
+  }
+
+  def close(): Unit = closeLock.synchronized {
+    trace("Closing.")
+    if (stackAtFirstClose == null) { // first close
+      stackAtFirstClose = new Exception()
+      isOpen = false
+      awaitInFlightOperations()
+      db.close()
+    } else {
+      warn(new SamzaException("Close called again on a closed store: %s. Ignoring this close." +
+        "Stack at first close is under 'Caused By'." format storeName, stackAtFirstClose))
     }
   }
 
+  /**
+    * Waits for the operations that entered the store before isOpen was cleared to complete. Operations that enter
+    * afterwards see isOpen cleared and fail without touching the database.
+    */
+  private def awaitInFlightOperations(): Unit = {
+    val counters = inFlightCounters.iterator()
+    while (counters.hasNext) {
+      val counter = counters.next()
+      while (counter.count != 0) {
+        Thread.`yield`()
+      }
+    }
+  }
+
+  /**
+    * Runs fn if the store is open. The operation is counted on its thread's counter before isOpen is read, and
+    * #close clears isOpen before reading the counters. Both are volatile, so either the operation sees the store
+    * closed, or #close sees the operation and waits for it. The database is never closed while fn is running.
+    */
   private def ifOpen[T](fn: => T): T = {
-    stateChangeLock.readLock().lock()
+    val counter = inFlight.get()
+    counter.count += 1
     try {
-      if (stackAtFirstClose == null) {
-        fn
-      } else {
-        throw new SamzaException("Attempted to access a closed store: %s. " +
-          "Stack at first close is under 'Caused By'." format storeName, stackAtFirstClose)
+      if (!isOpen) {
+        throwClosed()
       }
+      fn
     } finally {
-      stateChangeLock.readLock().unlock()
+      counter.count -= 1
     }
   }
 
-  class RocksDbIterator(iter: RocksIterator) extends KeyValueIterator[Array[Byte], Array[Byte]] {
+  private def throwClosed(): Nothing = {
+    throw new SamzaException("Attempted to access a closed store: %s. " +
+      "Stack at first close is under 'Caused By'." format storeName, stackAtFirstClose)
+  }
+
+  class RocksDbIterator(iter: RocksIterator, readOptions: ReadOptions = null) extends KeyValueIterator[Array[Byte], Array[Byte]] {
     private var open = true
 
+    /** the key the iterator is pointing to, if it has been read already */
+    private var currentKey: Array[Byte] = null
+
     override def close() = ifOpen {
       open = false
       iter.close()
+      if (readOptions != null) {
+        readOptions.close()
+      }
     }
 
     def isOpen() = ifOpen {
@@ -278,19 +528,33 @@ class RocksDbKeyValueStore(
 
     override def remove() = throw new UnsupportedOperationException("RocksDB iterator doesn't support remove")
 
-    override def hasNext() = ifOpen(iter.isValid)
+    override def hasNext() = ifOpen(isValid)
+
+    // The helpers below don't guard against a closed store themselves, so that an iterator step only enters the
+    // store once. They must only be called from within ifOpen.
 
-    // The iterator is already pointing to the next element
-    protected def peekKey() = ifOpen {
-      getEntry().getKey
+    /** Whether the iterator points to an element that should be returned by #next */
+    protected def isValid: Boolean = iter.isValid
+
+    // The iterator is already pointing to the next element. The key is only copied out of RocksDB once per element.
+    protected def peekKey() = {
+      if (currentKey == null) {
+        currentKey = iter.key
+      }
+      currentKey
     }
 
-    protected def getEntry() = ifOpen {
-      val key = iter.key
+    protected def getEntry() = {
+      val key = peekKey()
       val value = iter.value
       new Entry(key, value)
     }
 
+    protected def seekTo(key: Array[Byte]) = {
+      currentKey = null
+      iter.seek(key)
+    }
+
     // By virtue of how RocksdbIterator is implemented, the implementation of
     // our iterator is slightly different from standard java iterator next will
     // always point to the current element, when next is called, we return the
@@ -298,15 +562,16 @@ class RocksDbKeyValueStore(
     // location (The new location may or may not be valid - this will surface
     // when the next next() call is made, the isValid will fail)
     override def next(): Entry[Array[Byte], Array[Byte]] = ifOpen {
-      if (!hasNext()) {
+      if (!isValid) {
         throw new NoSuchElementException
       }
 
       val entry = getEntry()
       iter.next()
-      metrics.bytesRead.inc(entry.getKey.length)
+      currentKey = null
+      metrics.bytesRead.increment(entry.getKey.length)
       if (entry.getValue != null) {
-        metrics.bytesRead.inc(entry.getValue.length)
+        metrics.bytesRead.increment(entry.getValue.length)
       }
       entry
     }
@@ -319,19 +584,70 @@ class RocksDbKeyValueStore(
     }
   }
 
-  class RocksDbRangeIterator(iter: RocksIterator, from: Array[Byte], to: Array[Byte]) extends RocksDbIterator(iter) {
+  class RocksDbRangeIterator(iter: RocksIterator, from: Array[Byte], to: Array[Byte], readOptions: ReadOptions = null)
+    extends RocksDbIterator(iter, readOptions) {
     // RocksDB's JNI interface does not expose getters/setters that allow the
     // comparator to be pluggable, and the default is lexicographic, so it's
     // safe to just force lexicographic comparator here for now.
     val comparator: LexicographicComparator = lexicographic
+    ifOpen(seekTo(from))
+
+    override protected def isValid: Boolean = {
+      super.isValid && comparator.compare(peekKey(), to) < 0
+    }
+
+    def seek(key: Array[Byte]) = ifOpen {
+      seekTo(key)
+    }
+  }
+
+  /**
+    * Iterates over the keys of a range without reading their values from RocksDB.
+    */
+  class RocksDbRangeKeyIterator(iter: RocksIterator, from: Array[Byte], to: Array[Byte], readOptions: ReadOptions)
+    extends ClosableIterator[Array[Byte]] {
+    private var open = true
+
+    /** the key the iterator is pointing to, if it has been read already */
+    private var currentKey: Array[Byte] = null
+
     ifOpen(iter.seek(from))
 
-    override def hasNext() = ifOpen {
-      super.hasNext() && comparator.compare(peekKey(), to) < 0
+    override def close() = ifOpen {
+      open = false
+      iter.close()
+      readOptions.close()
     }
 
-    def seek(key: Array[Byte]) = {
-      iter.seek(key)
+    override def remove() = throw new UnsupportedOperationException("RocksDB iterator doesn't support remove")
+
+    override def hasNext() = ifOpen(isValid)
+
+    // Must only be called from within ifOpen.
+    private def isValid: Boolean = {
+      if (currentKey == null && iter.isValid) {
+        currentKey = iter.key
+      }
+      currentKey != null && lexicographic.compare(currentKey, to) < 0
+    }
+
+    override def next(): Array[Byte] = ifOpen {
+      if (!isValid) {
+        throw new NoSuchElementException
+      }
+
+      val key = currentKey
+      currentKey = null
+      iter.next()
+      metrics.bytesRead.increment(key.length)
+      key
+    }
+
+    override def finalize(): Unit = ifOpen {
+      if (open) {
+        trace("Leaked reference to RocksDB iterator, forcing close.")
+        close()
+      }
     }
   }
 
@@ -352,3 +668,11 @@ class RocksDbKeyValueStore(
     }
   }
 }
+
+/**
+  * The number of operations a single thread has in flight on a RocksDbKeyValueStore. Only the owning thread writes
+  * it, so the volatile write does not need an atomic update.
+  */
+private class InFlightCounter {
+  @volatile var count = 0
+}
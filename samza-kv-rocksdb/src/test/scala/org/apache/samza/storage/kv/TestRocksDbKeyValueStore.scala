@@ -22,11 +22,12 @@ package org.apache.samza.storage.kv
 
 import java.io.File
 import java.util
+import java.util.concurrent.{ConcurrentLinkedQueue, CountDownLatch, TimeUnit}
 
 import org.apache.samza.SamzaException
 import org.apache.samza.config.MapConfig
 import org.apache.samza.metrics.{Gauge, MetricsRegistryMap}
-import org.apache.samza.util.ExponentialSleepStrategy
+import org.apache.samza.util.{ExponentialSleepStrategy, FileUtil}
 import org.junit.{Assert, Test}
 import org.rocksdb.{FlushOptions, Options, RocksDB, RocksIterator}
 
@@ -123,6 +124,293 @@ class TestRocksDbKeyValueStore
     rocksDB.get(key)
   }
 
+  @Test(expected = classOf[SamzaException])
+  def testIteratorAfterCloseThrowsException(): Unit = {
+    val map = new util.HashMap[String, String]()
+    val config = new MapConfig(map)
+    val options = new Options()
+    options.setCreateIfMissing(true)
+
+    val dbDir = new File(System.getProperty("java.io.tmpdir"), "dbStore" + System.currentTimeMillis())
+    val rocksDB = new RocksDbKeyValueStore(dbDir, options, config, false, "dbStore")
+    rocksDB.put("k1".getBytes("UTF-8"), "v1".getBytes("UTF-8"))
+    rocksDB.put("k2".getBytes("UTF-8"), "v2".getBytes("UTF-8"))
+
+    val iter = rocksDB.range("k0".getBytes("UTF-8"), "k9".getBytes("UTF-8"))
+    Assert.assertEquals("k1", new String(iter.next().getKey, "UTF-8"))
+    rocksDB.close()
+    FileUtil.rm(dbDir)
+
+    iter.next()
+  }
+
+  @Test
+  def testCloseWaitsForActiveOperations(): Unit = {
+    val map = new util.HashMap[String, String]()
+    val config = new MapConfig(map)
+    val options = new Options()
+    options.setCreateIfMissing(true)
+
+    val dbDir = new File(System.getProperty("java.io.tmpdir"), "dbStore" + System.currentTimeMillis())
+    val rocksDB = new RocksDbKeyValueStore(dbDir, options, config, false, "dbStore")
+    val key = "key".getBytes("UTF-8")
+    val value = "val".getBytes("UTF-8")
+    rocksDB.put(key, value)
+
+    val reads = new java.util.concurrent.atomic.AtomicLong()
+    val failures = new java.util.concurrent.ConcurrentLinkedQueue[Throwable]()
+    val readers = (0 until 4).map(_ => new Thread(new Runnable {
+      override def run(): Unit = {
+        try {
+          while (true) {
+            Assert.assertArrayEquals(value, rocksDB.get(key))
+            reads.incrementAndGet()
+          }
+        } catch {
+          case e: SamzaException => // the store was closed
+          case e: Throwable => failures.add(e)
+        }
+      }
+    }))
+    readers.foreach(_.start())
+    while (reads.get() < 1000) {
+      Thread.sleep(1)
+    }
+
+    rocksDB.close()
+    readers.foreach(_.join(10000))
+
+    Assert.assertTrue(failures.isEmpty)
+    Assert.assertFalse(readers.exists(_.isAlive))
+    FileUtil.rm(dbDir)
+  }
+
+  @Test
+  def testCloseRacingInFlightOperationWaitsForIt(): Unit = {
+    val map = new util.HashMap[String, String]()
+    val config = new MapConfig(map)
+    val options = new Options()
+    options.setCreateIfMissing(true)
+
+    val dbDir = new File(System.getProperty("java.io.tmpdir"), "dbStore" + System.currentTimeMillis())
+    val rocksDB = new RocksDbKeyValueStore(dbDir, options, config, false, "dbStore")
+    val key = "key".getBytes("UTF-8")
+    val value = "val".getBytes("UTF-8")
+
+    // a putAll that stays in flight until released, while the database is open
+    val entered = new CountDownLatch(1)
+    val release = new CountDownLatch(1)
+    val entries = new util.ArrayList[Entry[Array[Byte], Array[Byte]]]() {
+      override def iterator(): util.Iterator[Entry[Array[Byte], Array[Byte]]] = {
+        entered.countDown()
+        release.await()
+        super.iterator()
+      }
+    }
+    entries.add(new Entry(key, value))
+    val failures = new ConcurrentLinkedQueue[Throwable]()
+    val writer = new Thread(new Runnable {
+      override def run(): Unit = try rocksDB.putAll(entries) catch { case e: Throwable => failures.add(e) }
+    })
+    val closer = new Thread(new Runnable {
+      override def run(): Unit = rocksDB.close()
+    })
+
+    writer.start()
+    Assert.assertTrue(entered.await(10, TimeUnit.SECONDS))
+    closer.start()
+    closer.join(200)
+    Assert.assertTrue("close must wait for the in flight putAll", closer.isAlive)
+
+    release.countDown()
+    writer.join(10000)
+    closer.join(10000)
+    Assert.assertFalse(closer.isAlive)
+    Assert.assertTrue(failures.isEmpty)
+
+    val reopened = new RocksDbKeyValueStore(dbDir, options, config, false, "dbStore")
+    Assert.assertArrayEquals(value, reopened.get(key))
+    reopened.close()
+    FileUtil.rm(dbDir)
+  }
+
+  @Test
+  def testPutAllAndDeleteAllUseWriteBatch(): Unit = {
+    val registry = new MetricsRegistryMap("registrymap")
+    val metrics = new KeyValueStoreMetrics("dbStore", registry)
+    val config = new MapConfig(new util.HashMap[String, String]())
+    val options = new Options()
+    options.setCreateIfMissing(true)
+
+    val dbDir = new File(System.getProperty("java.io.tmpdir"), "rocksdb-putall-test")
+    val rocksDB = new RocksDbKeyValueStore(dbDir, options, config, false, "dbStore", metrics = metrics)
+
+    val k1 = "k1".getBytes("UTF-8")
+    val k2 = "k2".getBytes("UTF-8")
+    val k3 = "k3".getBytes("UTF-8")
+    val value = "val".getBytes("UTF-8")
+
+    rocksDB.put(k3, value)
+    rocksDB.putAll(util.Arrays.asList(
+      new Entry(k1, value),
+      new Entry(k2, value),
+      new Entry[Array[Byte], Array[Byte]](k3, null)))
+
+    Assert.assertArrayEquals(value, rocksDB.get(k1))
+    Assert.assertArrayEquals(value, rocksDB.get(k2))
+    Assert.assertNull(rocksDB.get(k3))
+    Assert.assertEquals(1, metrics.putAlls.getCount)
+    Assert.assertEquals(3, metrics.puts.getCount)
+    Assert.assertEquals(1, metrics.deletes.getCount)
+
+    rocksDB.deleteAll(util.Arrays.asList(k1, k2))
+    Assert.assertNull(rocksDB.get(k1))
+    Assert.assertNull(rocksDB.get(k2))
+    Assert.assertEquals(3, metrics.deletes.getCount)
+
+    rocksDB.close()
+  }
+
+  @Test
+  def testBulkLoad(): Unit = {
+    val map = new util.HashMap[String, String]()
+    map.put(RocksDbKeyValueStore.BULK_LOAD_ENABLED, "true")
+    // small enough to ingest several SST files
+    map.put(RocksDbKeyValueStore.BULK_LOAD_BATCH_SIZE_BYTES, "8")
+    val config = new MapConfig(map)
+    val options = new Options()
+    options.setCreateIfMissing(true)
+
+    val dbDir = new File(System.getProperty("java.io.tmpdir"), "rocksdb-bulk-load-test")
+    FileUtil.rm(dbDir)
+    val rocksDB = new RocksDbKeyValueStore(dbDir, options, config, false, "dbStore")
+    Assert.assertTrue(rocksDB.isBulkLoadEnabled)
+
+    def bytes(s: String) = s.getBytes("UTF-8")
+    rocksDB.put(bytes("k0"), bytes("old"))
+    rocksDB.put(bytes("k4"), bytes("old"))
+
+    val entries = util.Arrays.asList(
+      new Entry(bytes("k1"), bytes("v1")),
+      new Entry(bytes("k2"), bytes("v2")),
+      new Entry(bytes("k1"), bytes("v1-updated")),
+      new Entry[Array[Byte], Array[Byte]](bytes("k0"), null),
+      new Entry(bytes("k3"), bytes("v3")),
+      new Entry[Array[Byte], Array[Byte]](bytes("k2"), null),
+      new Entry(bytes("k4"), bytes("v4")))
+    rocksDB.bulkLoad(entries.iterator)
+
+    Assert.assertNull(rocksDB.get(bytes("k0")))
+    Assert.assertArrayEquals(bytes("v1-updated"), rocksDB.get(bytes("k1")))
+    Assert.assertNull(rocksDB.get(bytes("k2")))
+    Assert.assertArrayEquals(bytes("v3"), rocksDB.get(bytes("k3")))
+    Assert.assertArrayEquals(bytes("v4"), rocksDB.get(bytes("k4")))
+    Assert.assertFalse(new File(dbDir, RocksDbKeyValueStore.BULK_LOAD_DIR_NAME).exists())
+
+    rocksDB.close()
+    FileUtil.rm(dbDir)
+  }
+
+  @Test
+  def testBulkLoadDisabledForTtlStores(): Unit = {
+    val map = new util.HashMap[String, String]()
+    map.put(RocksDbKeyValueStore.BULK_LOAD_ENABLED, "true")
+    map.put("rocksdb.ttl.ms", "1000")
+    val options = new Options()
+    options.setCreateIfMissing(true)
+
+    val dbDir = new File(System.getProperty("java.io.tmpdir"), "rocksdb-bulk-load-ttl-test")
+    FileUtil.rm(dbDir)
+    val rocksDB = new RocksDbKeyValueStore(dbDir, options, new MapConfig(map), false, "dbStore")
+    Assert.assertFalse(rocksDB.isBulkLoadEnabled)
+    rocksDB.close()
+    FileUtil.rm(dbDir)
+  }
+
+  @Test
+  def testCheckpoint(): Unit = {
+    val config = new MapConfig(new util.HashMap[String, String]())
+    val options = new Options()
+    options.setCreateIfMissing(true)
+
+    val dbDir = new File(System.getProperty("java.io.tmpdir"), "rocksdb-checkpoint-test")
+    val checkpointDir = new File(System.getProperty("java.io.tmpdir"), "rocksdb-checkpoint-test-checkpoint-1")
+    FileUtil.rm(checkpointDir)
+    val rocksDB = new RocksDbKeyValueStore(dbDir, options, config, false, "dbStore")
+
+    val key = "key".getBytes("UTF-8")
+    val value = "val".getBytes("UTF-8")
+    rocksDB.put(key, value)
+    rocksDB.checkpoint(checkpointDir)
+    // writes after the checkpoint are not visible in it
+    rocksDB.put(key, "val1".getBytes("UTF-8"))
+    rocksDB.close()
+
+    val rocksDBReadOnly = RocksDB.openReadOnly(options, checkpointDir.toString)
+    Assert.assertArrayEquals(value, rocksDBReadOnly.get(key))
+    rocksDBReadOnly.close()
+    FileUtil.rm(checkpointDir)
+  }
+
+  @Test
+  def testRangeKeys(): Unit = {
+    val config = new MapConfig(new util.HashMap[String, String]())
+    val options = new Options()
+    options.setCreateIfMissing(true)
+
+    val dbDir = new File(System.getProperty("java.io.tmpdir"), "rocksdb-range-keys-test")
+    val rocksDB = new RocksDbKeyValueStore(dbDir, options, config, false, "dbStore")
+
+    def bytes(s: String) = s.getBytes("UTF-8")
+    Seq("k0", "k1", "k2", "k3").foreach(k => rocksDB.put(bytes(k), bytes("val")))
+
+    val keys = rocksDB.rangeKeys(bytes("k1"), bytes("k3"))
+    Assert.assertTrue(keys.hasNext)
+    Assert.assertTrue(keys.hasNext)
+    Assert.assertArrayEquals(bytes("k1"), keys.next())
+    Assert.assertArrayEquals(bytes("k2"), keys.next())
+    Assert.assertFalse(keys.hasNext)
+    keys.close()
+
+    rocksDB.close()
+  }
+
+  @Test
+  def testRangeWithPrefixExtractor(): Unit = {
+    val map = new util.HashMap[String, String]()
+    map.put("rocksdb.prefix.length", "2")
+    map.put("rocksdb.bloom.filter.bits.per.key", "10")
+    val config = new MapConfig(map)
+    val options = RocksDbOptionsHelper.options(config, 1)
+
+    val dbDir = new File(System.getProperty("java.io.tmpdir"), "rocksdb-prefix-test")
+    FileUtil.rm(dbDir)
+    val rocksDB = new RocksDbKeyValueStore(dbDir, options, config, false, "dbStore")
+
+    def bytes(s: String) = s.getBytes("UTF-8")
+    def keys(iter: KeyValueIterator[Array[Byte], Array[Byte]]) = {
+      val keys = new util.ArrayList[String]()
+      while (iter.hasNext) {
+        keys.add(new String(iter.next().getKey, "UTF-8"))
+      }
+      iter.close()
+      keys
+    }
+
+    Seq("a1x", "a1y", "a2x", "b1x").foreach(k => rocksDB.put(bytes(k), bytes("val")))
+    rocksDB.flush()
+    rocksDB.put(bytes("a1z"), bytes("val"))
+
+    // bounds sharing a prefix only visit that prefix
+    Assert.assertEquals(util.Arrays.asList("a1x", "a1y", "a1z"), keys(rocksDB.range(bytes("a1a"), bytes("a1zz"))))
+    Assert.assertEquals(util.Arrays.asList("a1y"), keys(rocksDB.range(bytes("a1y"), bytes("a1z"))))
+    // bounds with different prefixes iterate in total order
+    Assert.assertEquals(util.Arrays.asList("a1x", "a1y", "a1z", "a2x"), keys(rocksDB.range(bytes("a1"), bytes("b"))))
+    Assert.assertEquals(util.Arrays.asList("a1x", "a1y", "a1z", "a2x", "b1x"), keys(rocksDB.all()))
+
+    rocksDB.close()
+  }
+
   @Test
   def testIteratorWithRemoval(): Unit = {
     val lock = new Object
@@ -57,7 +57,7 @@ public class LocalStoreBackedReadWriteTable<K, V> extends LocalStoreBackedReadab
   @Override
   public void put(K key, V value) {
     if (value != null) {
-      writeMetrics.numPuts.inc();
+      writeMetrics.numPuts.increment();
       long startNs = System.nanoTime();
       kvStore.put(key, value);
       writeMetrics.putNs.update(System.nanoTime() - startNs);
@@ -80,7 +80,7 @@ public class LocalStoreBackedReadWriteTable<K, V> extends LocalStoreBackedReadab
 
   @Override
   public void putAll(List<Entry<K, V>> entries) {
-    writeMetrics.numPutAlls.inc();
+    writeMetrics.numPutAlls.increment();
     long startNs = System.nanoTime();
     kvStore.putAll(entries);
     writeMetrics.putAllNs.update(System.nanoTime() - startNs);
@@ -100,7 +100,7 @@ public class LocalStoreBackedReadWriteTable<K, V> extends LocalStoreBackedReadab
 
   @Override
   public void delete(K key) {
-    writeMetrics.numDeletes.inc();
+    writeMetrics.numDeletes.increment();
     long startNs = System.nanoTime();
     kvStore.delete(key);
     writeMetrics.deleteNs.update(System.nanoTime() - startNs);
@@ -120,7 +120,7 @@ public class LocalStoreBackedReadWriteTable<K, V> extends LocalStoreBackedReadab
 
   @Override
   public void deleteAll(List<K> keys) {
-    writeMetrics.numDeleteAlls.inc();
+    writeMetrics.numDeleteAlls.increment();
     long startNs = System.nanoTime();
     kvStore.deleteAll(keys);
     writeMetrics.deleteAllNs.update(System.nanoTime() - startNs);
@@ -140,7 +140,7 @@ public class LocalStoreBackedReadWriteTable<K, V> extends LocalStoreBackedReadab
 
   @Override
   public void flush() {
-    writeMetrics.numFlushes.inc();
+    writeMetrics.numFlushes.increment();
     long startNs = System.nanoTime();
     kvStore.flush();
     writeMetrics.flushNs.update(System.nanoTime() - startNs);
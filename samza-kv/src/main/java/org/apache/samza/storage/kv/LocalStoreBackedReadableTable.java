@@ -62,7 +62,7 @@ public class LocalStoreBackedReadableTable<K, V> implements ReadableTable<K, V>
 
   @Override
   public V get(K key) {
-    readMetrics.numGets.inc();
+    readMetrics.numGets.increment();
     long startNs = System.nanoTime();
     V result = kvStore.get(key);
     readMetrics.getNs.update(System.nanoTime() - startNs);
@@ -82,7 +82,7 @@ public class LocalStoreBackedReadableTable<K, V> implements ReadableTable<K, V>
 
   @Override
   public Map<K, V> getAll(List<K> keys) {
-    readMetrics.numGetAlls.inc();
+    readMetrics.numGetAlls.increment();
     long startNs = System.nanoTime();
     Map<K, V> result = kvStore.getAll(keys);
     readMetrics.getAllNs.update(System.nanoTime() - startNs);
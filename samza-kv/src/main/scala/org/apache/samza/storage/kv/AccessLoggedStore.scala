@@ -88,6 +88,13 @@ class AccessLoggedStore[K, V](
     logAccess(DBOperation.RANGE, serializeKeys(list), store.range(from, to))
   }
 
+  override def rangeKeys(from: K, to: K): ClosableIterator[K] = {
+    val list : util.ArrayList[K] = new util.ArrayList[K]()
+    list.add(from)
+    list.add(to)
+    logAccess(DBOperation.RANGE, serializeKeys(list), store.rangeKeys(from, to))
+  }
+
   def all(): KeyValueIterator[K, V] = {
     store.all()
   }
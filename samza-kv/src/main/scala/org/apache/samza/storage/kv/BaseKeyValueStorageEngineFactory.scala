@@ -22,6 +22,7 @@ package org.apache.samza.storage.kv
 import java.io.File
 
 import org.apache.samza.SamzaException
+import org.apache.samza.config.JobConfig.Config2Job
 import org.apache.samza.config.MetricsConfig.Config2Metrics
 import org.apache.samza.context.{ContainerContext, JobContext}
 import org.apache.samza.metrics.MetricsRegistry
@@ -127,7 +128,16 @@ trait BaseKeyValueStorageEngineFactory[K, V] extends StorageEngineFactory[K, V]
     // maybe wrap with caching
     val maybeCachedStore = if (enableCache) {
       val cachedStoreMetrics = new CachedStoreMetrics(storeName, registry)
-      new CachedStore(serialized, cacheSize, batchSize, cachedStoreMetrics)
+      // bound the cache by the serialized size of its entries if the store or the container has a memory budget
+      val budget = Option(storageConfig.get("object.cache.size.bytes")).map(bytes => new ObjectCacheMemoryBudget(bytes.toLong))
+        .orElse(jobContext.getConfig.getObjectCacheSizeBytes.map(bytes =>
+          ObjectCacheMemoryBudget.getContainerBudget(containerContext, bytes)))
+      budget match {
+        case Some(memoryBudget) =>
+          new CachedStore(serialized, cacheSize, batchSize, cachedStoreMetrics, memoryBudget, serialized.estimatedSize)
+        case None =>
+          new CachedStore(serialized, cacheSize, batchSize, cachedStoreMetrics)
+      }
     } else {
       serialized
     }
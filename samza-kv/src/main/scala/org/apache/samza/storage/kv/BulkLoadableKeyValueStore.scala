@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.storage.kv
+
+/**
+ * A raw key-value store that can be restored in bulk, bypassing its regular write path.
+ *
+ * [[KeyValueStorageEngine]] uses [[bulkLoad]] instead of batched putAll calls when restoring the store from its
+ * changelog, if [[isBulkLoadEnabled]] returns true.
+ */
+trait BulkLoadableKeyValueStore extends KeyValueStore[Array[Byte], Array[Byte]] {
+
+  /**
+   * @return true if restores should go through [[bulkLoad]].
+   */
+  def isBulkLoadEnabled: Boolean
+
+  /**
+   * Loads all the entries from the iterator into the store. Entries must be applied in iteration order:
+   * a later entry for a key supersedes an earlier one, and an entry with a null value deletes the key.
+   *
+   * @param entries the entries to load, in changelog order.
+   */
+  def bulkLoad(entries: java.util.Iterator[Entry[Array[Byte], Array[Byte]]])
+}
@@ -19,9 +19,11 @@
 
 package org.apache.samza.storage.kv
 
-import org.apache.samza.util.Logging
-import scala.collection._
 import java.util.Arrays
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.ReentrantLock
+
+import org.apache.samza.util.Logging
 
 /**
  * A write-behind caching layer around the rocksdb store. The purpose of this cache is three-fold:
@@ -33,9 +35,19 @@ import java.util.Arrays
  * 1. Items in the cache have pass-by-reference semantics but items in rocksdb have pass-by-value semantics. Modifying items after a put is a bad idea.
  * 2. Range queries require flushing the cache (as the ordering comes from rocksdb)
  *
- * In implementation this cache is just an LRU hash map that discards the oldest entry when full. There is an accompanying "dirty list" that references keys
- * that have not yet been written to disk. All writes go to the dirty list and when the list is long enough we call putAll on all those values at once. Dirty items
- * that time out of the cache before being written will also trigger a putAll of the dirty list.
+ * In implementation this cache is a set of LRU hash maps (segments) that each discard their oldest entry when full. Keys are assigned to
+ * segments by hash, and each segment has its own lock, so reads and writes of keys in different segments do not contend with each other.
+ * Small caches use a single segment, which makes the eviction order exactly LRU. Each segment has an accompanying "dirty list" that
+ * references its entries that have not yet been written to disk. All writes go to the dirty list of their segment and when a list is
+ * long enough we call putAll on the values of all the dirty lists at once. Dirty items that time out of the cache before being written
+ * will also trigger a putAll of the dirty lists, and are served from the dirty lists until then.
+ *
+ * The dirty list of a segment is taken under the segment lock, but written to the store under a separate flush lock of the segment, so
+ * puts never wait for the store. A flush lock is never acquired while holding a segment lock.
+ *
+ * The cache can also be bounded by the (estimated) serialized size of its entries instead of their number, by giving it a memory budget
+ * and a weigher. The budget may be shared with the caches of other stores, see [[ObjectCacheMemoryBudget]]. When a budget is given, the
+ * cache size only determines the number of segments.
  *
  * This class is thread safe.
  *
@@ -43,65 +55,112 @@ import java.util.Arrays
  * @param cacheSize The number of entries to hold in the in memory-cache
  * @param writeBatchSize The number of entries to batch together before forcing a write
  * @param metrics The metrics recording object for this cached store
+ * @param budget The memory budget bounding the cache, or null to bound the cache by its number of entries
+ * @param weigher Returns the serialized size of an entry. Required if a budget is given. It is called without holding
+ *                any of the cache locks, so it may be expensive.
  */
 class CachedStore[K, V](
   val store: KeyValueStore[K, V],
   val cacheSize: Int,
   val writeBatchSize: Int,
-  val metrics: CachedStoreMetrics = new CachedStoreMetrics) extends KeyValueStore[K, V] with Logging {
-
-  /** the number of items in the dirty list */
-  @volatile private var dirtyCount = 0
-
-  /** the number of items currently in the cache */
-  @volatile private var cacheCount = 0
-
-  /** the list of items to be written out on flush from newest to oldest */
-  private var dirty = new mutable.DoubleLinkedList[K]()
-
-  /** the synchronization lock to protect access to the store from multiple threads **/
-  private val lock = new Object
-
-  /** an lru cache of values that holds cacheEntries and calls putAll() on dirty entries if necessary when discarding */
-  private val cache = new java.util.LinkedHashMap[K, CacheEntry[K, V]]((cacheSize * 1.2).toInt, 1.0f, true) {
-    override def removeEldestEntry(eldest: java.util.Map.Entry[K, CacheEntry[K, V]]): Boolean = {
-      val evict = super.size > cacheSize
-      if (evict) {
-        val entry = eldest.getValue
-        // if this entry hasn't been written out yet, flush it and all other dirty keys
-        if (entry.dirty != null) {
-          debug("Found a dirty entry. Calling putAll() on all dirty entries.")
-          putAllDirtyEntries()
-        }
-      }
-      evict
-    }
+  val metrics: CachedStoreMetrics = new CachedStoreMetrics,
+  val budget: ObjectCacheMemoryBudget = null,
+  val weigher: (K, V) => Int = null) extends KeyValueStore[K, V] with Logging {
+
+  /** whether the cache is bounded by the memory budget rather than by its number of entries */
+  private val isByteBounded = budget != null
+
+  /** the cache segments, each holding an lru cache of its share of the keys */
+  private val segments = {
+    val segmentCount = CachedStore.getSegmentCount(cacheSize)
+    val segmentSize = if (isByteBounded) Int.MaxValue else (cacheSize + segmentCount - 1) / segmentCount
+    Array.fill(segmentCount)(new CacheSegment(segmentSize))
   }
 
+  /** the serialized size of the entries currently in the cache, if it is bounded by a budget */
+  private val cachedBytes = new AtomicLong
+
+  if (isByteBounded) {
+    require(weigher != null, "A weigher is required for a cache bounded by a memory budget.")
+    budget.register()
+    metrics.setCacheSizeBytes(() => cachedBytes.get)
+  }
+
+  /** the number of dirty entries of a segment that triggers writing out the dirty lists of all segments */
+  private val segmentWriteBatchSize = math.max(1, writeBatchSize / segments.length)
+
   /** tracks whether an array has been used as a key. since this is dangerous with LinkedHashMap, we want to warn on it. **/
   @volatile private var containsArrayKeys = false
 
   // Use counters here, rather than directly accessing variables using .size
-  // since metrics can be accessed in other threads, and cache.size is not
-  // thread safe since we're using a LinkedHashMap, and dirty.size is slow
-  // since it requires a full traversal of the linked list.
-  metrics.setDirtyCount(() => dirtyCount)
-  metrics.setCacheSize(() => cacheCount)
-
-  override def get(key: K) = lock.synchronized({
-    metrics.gets.inc
-
-    val c = cache.get(key)
-    if (c != null) {
-      metrics.cacheHits.inc
-      c.value
+  // since metrics can be accessed in other threads, and the segments and
+  // dirty lists are not thread safe since they're LinkedHashMaps.
+  metrics.setDirtyCount(() => segments.map(_.dirtyCount).sum)
+  metrics.setCacheSize(() => segments.map(_.count).sum)
+
+  override def get(key: K) = {
+    metrics.gets.increment
+
+    val segment = segmentFor(key)
+    if (isByteBounded) {
+      getWeighed(key, segment)
     } else {
-      val v = store.get(key)
-      cache.put(key, new CacheEntry(v, null))
-      cacheCount = cache.size
+      val v = withLock(segment.lock) {
+        val c = segment.entries.get(key)
+        if (c != null) {
+          metrics.cacheHits.increment
+          c.value
+        } else {
+          val unwritten = segment.getUnwritten(key)
+          if (unwritten != null) {
+            segment.put(key, unwritten)
+            unwritten.value
+          } else {
+            val v = store.get(key)
+            segment.put(key, new CacheEntry(v))
+            v
+          }
+        }
+      }
+      putAllDirtyEntriesIfEvicted(segment)
       v
     }
-  })
+  }
+
+  /**
+   * Reads a key of a byte-bounded cache. The value of a cache miss is read from the store while holding the segment
+   * lock, but weighed outside of it, since the weigher may have to serialize it.
+   */
+  private def getWeighed(key: K, segment: CacheSegment): V = {
+    var miss = false
+    var version = 0L
+    val v = withLock(segment.lock) {
+      val c = segment.entries.get(key)
+      if (c != null) {
+        metrics.cacheHits.increment
+        c.value
+      } else {
+        val unwritten = segment.getUnwritten(key)
+        if (unwritten != null) {
+          // an evicted dirty entry has been weighed already
+          segment.put(key, unwritten, unwritten.weight)
+          unwritten.value
+        } else {
+          miss = true
+          version = segment.version
+          store.get(key)
+        }
+      }
+    }
+    if (miss) {
+      val weight = weigher(key, v)
+      withLock(segment.lock) {
+        segment.putIfUnchanged(key, v, weight, version)
+      }
+    }
+    putAllDirtyEntriesIfEvicted(segment)
+    v
+  }
 
   private class CachedStoreIterator(val iter: KeyValueIterator[K, V])
     extends KeyValueIterator[K, V] {
@@ -120,132 +179,142 @@ class CachedStore[K, V](
     override def hasNext: Boolean = iter.hasNext
   }
 
-  override def range(from: K, to: K): KeyValueIterator[K, V] = lock.synchronized({
-    metrics.ranges.inc
+  override def range(from: K, to: K): KeyValueIterator[K, V] = {
+    metrics.ranges.increment
     putAllDirtyEntries()
 
     new CachedStoreIterator(store.range(from, to))
-  })
+  }
 
-  override def all(): KeyValueIterator[K, V] = lock.synchronized({
-    metrics.alls.inc
+  override def rangeKeys(from: K, to: K): ClosableIterator[K] = {
+    metrics.ranges.increment
     putAllDirtyEntries()
 
-    new CachedStoreIterator(store.all())
-  })
+    store.rangeKeys(from, to)
+  }
 
-  override def put(key: K, value: V) {
-    lock.synchronized({
-      metrics.puts.inc
+  override def all(): KeyValueIterator[K, V] = {
+    metrics.alls.increment
+    putAllDirtyEntries()
 
-      checkKeyIsArray(key)
+    new CachedStoreIterator(store.all())
+  }
 
-      // Add the key to the front of the dirty list (and remove any prior
-      // occurrences to dedupe).
-      val found = cache.get(key)
-      if (found == null || found.dirty == null) {
-        this.dirtyCount += 1
-      } else {
-        // If we are removing the head of the list, move the head to the next
-        // element. See SAMZA-45 for details.
-        if (found.dirty.prev == null) {
-          this.dirty = found.dirty.next
-          this.dirty.prev = null
-        } else {
-          found.dirty.remove()
-        }
+  override def put(key: K, value: V) {
+    metrics.puts.increment
+
+    checkKeyIsArray(key)
+
+    // weigh the value before taking the segment lock, since the weigher may have to serialize it
+    val weight = if (isByteBounded) weigher(key, value) else 0
+    val segment = segmentFor(key)
+    val dirtyCount = withLock(segment.lock) {
+      // Update the cache entry in place if we already have one. Otherwise, mark the new
+      // entry dirty before adding it to the cache.
+      val found = segment.entries.get(key)
+      val entry = if (found == null) new CacheEntry(value) else found
+      entry.value = value
+      if (found != null && isByteBounded) {
+        segment.reweigh(entry, weight)
       }
-      this.dirty = new mutable.DoubleLinkedList(key, this.dirty)
 
-      // Add the key to the cache (but don't allocate a new cache entry if we
-      // already have one).
-      if (found == null) {
-        cache.put(key, new CacheEntry(value, this.dirty))
-        cacheCount = cache.size
-      } else {
-        found.value = value
-        found.dirty = this.dirty
-      }
+      segment.markDirty(key, entry)
 
-      // putAll() dirty values if the write list is full.
-      val purgeNeeded = if (dirtyCount >= writeBatchSize) {
-        debug("Dirty count %s >= write batch size %s. Calling putAll() on all dirty entries." format (dirtyCount, writeBatchSize))
-        true
-      } else if (hasArrayKeys) {
-        // Flush every time to support the following legacy behavior:
-        // If array keys are used with a cached store, get() will always miss the cache because of array equality semantics
-        // However, it will fall back to the underlying store which does support arrays.
-        true
-      } else {
-        false
+      if (found == null) {
+        segment.put(key, entry, weight)
       }
+      segment.dirtyCount
+    }
 
-      if (purgeNeeded) {
-        putAllDirtyEntries()
-      }
-    })
+    // putAll() dirty values if the write list is full, or if a dirty entry was evicted.
+    if (dirtyCount >= segmentWriteBatchSize) {
+      debug("Dirty count %s >= write batch size %s. Calling putAll() on all dirty entries." format (dirtyCount, segmentWriteBatchSize))
+      putAllDirtyEntries()
+    } else if (hasArrayKeys) {
+      // Flush every time to support the following legacy behavior:
+      // If array keys are used with a cached store, get() will always miss the cache because of array equality semantics
+      // However, it will fall back to the underlying store which does support arrays.
+      putAllDirtyEntries()
+    } else {
+      putAllDirtyEntriesIfEvicted(segment)
+    }
   }
 
   override def flush() {
     trace("Purging dirty entries from CachedStore.")
-    lock.synchronized({
-      metrics.flushes.inc
-      putAllDirtyEntries()
-      store.flush()
-    })
+    metrics.flushes.increment
+    putAllDirtyEntries()
+    store.flush()
+    // give memory back to the budget even if this store is idle
+    if (isByteBounded) {
+      segments.foreach(segment => withLock(segment.lock) { segment.trim() })
+      segments.foreach(putAllDirtyEntriesIfEvicted)
+    }
     trace("Flushed store.")
   }
 
   /**
-   * The synchronization lock must be held before calling this method.
+   * Writes out the dirty lists of all the segments. Must not be called while holding a segment lock.
    */
   private def putAllDirtyEntries() {
     trace("Calling putAll() on dirty entries.")
-    // write out the contents of the dirty list oldest first
-    val batch = new Array[Entry[K, V]](this.dirtyCount)
-    var pos : Int = this.dirtyCount - 1
-    for (k <- this.dirty) {
-      val entry = this.cache.get(k)
-      entry.dirty = null // not dirty any more
-      batch(pos) = new Entry(k, entry.value)
-      pos -= 1
+    segments.foreach(segment => withLock(segment.flushLock) {
+      // take the dirty list of the segment, oldest first, and write it to the store without blocking puts
+      val batch = withLock(segment.lock) {
+        segment.takeDirty()
+      }
+      if (batch != null) {
+        var written = false
+        try {
+          store.putAll(Arrays.asList(batch : _*))
+          metrics.putAllDirtyEntriesBatchSize.increment(batch.length)
+          written = true
+        } finally {
+          withLock(segment.lock) {
+            segment.clearFlushing(written)
+          }
+        }
+      }
+    })
+  }
+
+  /**
+   * Writes out the dirty lists if a dirty entry was evicted from the segment. Must not be called while holding a
+   * segment lock.
+   */
+  private def putAllDirtyEntriesIfEvicted(segment: CacheSegment) {
+    if (segment.evictedDirty) {
+      putAllDirtyEntries()
     }
-    store.putAll(Arrays.asList(batch : _*))
-    metrics.putAllDirtyEntriesBatchSize.inc(batch.size)
-    // reset the dirty list
-    this.dirty = new mutable.DoubleLinkedList[K]()
-    this.dirtyCount = 0
   }
 
   override def putAll(entries: java.util.List[Entry[K, V]]) {
-    lock.synchronized({
-      val iter = entries.iterator
-      while (iter.hasNext) {
-        val curr = iter.next
-        put(curr.getKey, curr.getValue)
-      }
-    })
+    val iter = entries.iterator
+    while (iter.hasNext) {
+      val curr = iter.next
+      put(curr.getKey, curr.getValue)
+    }
   }
 
   override def delete(key: K) {
-    lock.synchronized({
-      metrics.deletes.inc
-      put(key, null.asInstanceOf[V])
-    })
+    metrics.deletes.increment
+    put(key, null.asInstanceOf[V])
   }
 
   override def close() {
-    lock.synchronized({
-      trace("Closing.")
-      flush()
+    trace("Closing.")
+    flush()
+    if (isByteBounded) {
+      budget.add(-cachedBytes.getAndSet(0))
+      budget.unregister()
+    }
+    // wait for any write of the dirty lists that is still in progress
+    segments.foreach(segment => acquire(segment.flushLock))
+    try {
       store.close()
-    })
-  }
-
-  override def deleteAll(keys: java.util.List[K]) = {
-    lock.synchronized({
-      super.deleteAll(keys)
-    })
+    } finally {
+      segments.foreach(_.flushLock.unlock())
+    }
   }
 
   private def checkKeyIsArray(key: K) {
@@ -257,19 +326,38 @@ class CachedStore[K, V](
   }
 
   override def getAll(keys: java.util.List[K]): java.util.Map[K, V] = {
-    lock.synchronized({
-      metrics.gets.inc(keys.size)
+    metrics.gets.increment(keys.size)
+    // lock the segments of all the keys, in order, so that the values read from the store for
+    // cache misses can't be older than values written to the cache concurrently
+    val segmentIndexes = new java.util.TreeSet[Integer]()
+    val indexIterator = keys.iterator
+    while (indexIterator.hasNext) {
+      segmentIndexes.add(segmentIndexFor(indexIterator.next))
+    }
+    val lockedSegments = segmentIndexes.toArray(new Array[Integer](0)).map(i => segments(i))
+    lockedSegments.foreach(segment => acquire(segment.lock))
+    // the values of byte-bounded cache misses are weighed and cached after the segments are unlocked
+    val weighedMisses = if (isByteBounded) new java.util.ArrayList[Entry[K, V]] else null
+    val versions = if (isByteBounded) lockedSegments.map(_.version) else null
+    val returnValue = try {
       val returnValue = new java.util.HashMap[K, V](keys.size)
       val misses = new java.util.ArrayList[K]
       val keysIterator = keys.iterator
       while (keysIterator.hasNext) {
         val key = keysIterator.next
-        val cached = cache.get(key)
+        val segment = segmentFor(key)
+        val cached = segment.entries.get(key)
         if (cached != null) {
-          metrics.cacheHits.inc
+          metrics.cacheHits.increment
           returnValue.put(key, cached.value)
         } else {
-          misses.add(key)
+          val unwritten = segment.getUnwritten(key)
+          if (unwritten != null) {
+            segment.put(key, unwritten, unwritten.weight)
+            returnValue.put(key, unwritten.value)
+          } else {
+            misses.add(key)
+          }
         }
       }
       if (!misses.isEmpty) {
@@ -277,12 +365,33 @@ class CachedStore[K, V](
         while (entryIterator.hasNext) {
           val entry = entryIterator.next
           returnValue.put(entry.getKey, entry.getValue)
-          cache.put(entry.getKey, new CacheEntry(entry.getValue, null))
+          if (isByteBounded) {
+            weighedMisses.add(new Entry(entry.getKey, entry.getValue))
+          } else {
+            segmentFor(entry.getKey).put(entry.getKey, new CacheEntry(entry.getValue))
+          }
         }
-        cacheCount = cache.size // update outside the loop since it's used for metrics and not for time-sensitive logic
       }
       returnValue
-    })
+    } finally {
+      lockedSegments.reverse.foreach(_.lock.unlock())
+    }
+    if (isByteBounded) {
+      val missIterator = weighedMisses.iterator
+      while (missIterator.hasNext) {
+        val miss = missIterator.next
+        val weight = weigher(miss.getKey, miss.getValue)
+        val segment = segmentFor(miss.getKey)
+        val index = lockedSegments.indexOf(segment)
+        withLock(segment.lock) {
+          if (segment.putIfUnchanged(miss.getKey, miss.getValue, weight, versions(index))) {
+            versions(index) = segment.version
+          }
+        }
+      }
+    }
+    lockedSegments.foreach(putAllDirtyEntriesIfEvicted)
+    returnValue
   }
 
   def hasArrayKeys = containsArrayKeys
@@ -290,6 +399,235 @@ class CachedStore[K, V](
   override def snapshot(from: K, to: K): KeyValueSnapshot[K, V] = {
     store.snapshot(from, to)
   }
+
+  private def segmentFor(key: K): CacheSegment = segments(segmentIndexFor(key))
+
+  private def segmentIndexFor(key: K): Int = {
+    if (segments.length == 1) {
+      0
+    } else {
+      // spread the hash so that keys with similar low bits don't pile up in one segment
+      val h = key.hashCode
+      ((h ^ (h >>> 16)) & Int.MaxValue) % segments.length
+    }
+  }
+
+  /**
+   * Acquires the lock, counting the acquisitions that had to wait for another thread.
+   */
+  private def acquire(lock: ReentrantLock) {
+    if (!lock.tryLock()) {
+      metrics.lockContentions.increment
+      lock.lock()
+    }
+  }
+
+  private def withLock[T](lock: ReentrantLock)(fn: => T): T = {
+    acquire(lock)
+    try {
+      fn
+    } finally {
+      lock.unlock()
+    }
+  }
+
+  /**
+   * An lru cache of values that holds cacheEntries, and the dirty list of its entries that have not been written yet.
+   * The segment lock must be held when accessing the entries or the dirty list.
+   */
+  private class CacheSegment(segmentSize: Int) {
+    val lock = new ReentrantLock
+
+    /** the lock held while writing the dirty list of the segment to the store, so its writes stay in order */
+    val flushLock = new ReentrantLock
+
+    /** the number of items currently in the segment */
+    @volatile var count = 0
+
+    /** the entries of the segment to be written out on flush from oldest to newest */
+    private var dirty = new java.util.LinkedHashMap[K, CacheEntry[V]]()
+
+    /** the entries of the segment that are being written out, or null */
+    private var flushing: java.util.LinkedHashMap[K, CacheEntry[V]] = null
+
+    /** the number of items in the dirty list */
+    @volatile var dirtyCount = 0
+
+    /** whether a dirty entry has been evicted since the dirty list was last taken */
+    @volatile var evictedDirty = false
+
+    /** the number of entries added to the segment so far */
+    var version = 0L
+
+    val entries = new java.util.LinkedHashMap[K, CacheEntry[V]]((math.min(segmentSize, CachedStore.MinSegmentSize) * 1.2).toInt, 1.0f, true) {
+      override def removeEldestEntry(eldest: java.util.Map.Entry[K, CacheEntry[V]]): Boolean = {
+        val evict = super.size > segmentSize
+        if (evict) {
+          metrics.evictions.increment
+          onEvict(eldest.getKey, eldest.getValue)
+        }
+        evict
+      }
+    }
+
+    def put(key: K, entry: CacheEntry[V], weight: Int = 0) {
+      if (isByteBounded) {
+        entry.weight = weight
+        addBytes(weight)
+      }
+      version += 1
+      entries.put(key, entry)
+      count = entries.size
+      if (isByteBounded) {
+        trim()
+      }
+    }
+
+    /**
+     * If an evicted entry hasn't been written out yet, flags it so that it and all other dirty keys are written once
+     * the segment lock is released. An entry that is already being written out needs no other write.
+     */
+    private def onEvict(key: K, entry: CacheEntry[V]) {
+      if (entry.dirty) {
+        debug("Found a dirty entry. Calling putAll() on all dirty entries.")
+        metrics.dirtyEvictions.increment
+        if (dirty.containsKey(key)) {
+          evictedDirty = true
+        }
+      }
+    }
+
+    /**
+     * Moves the key to the end of the dirty list, removing any prior occurrence to dedupe.
+     */
+    def markDirty(key: K, entry: CacheEntry[V]) {
+      dirty.remove(key)
+      entry.dirty = true
+      dirty.put(key, entry)
+      dirtyCount = dirty.size
+    }
+
+    /**
+     * Returns the entry of a key that is not cached but has not been written to the store yet, or null.
+     */
+    def getUnwritten(key: K): CacheEntry[V] = {
+      val entry = dirty.get(key)
+      if (entry != null || flushing == null) entry else flushing.get(key)
+    }
+
+    /**
+     * Takes the dirty list to be written out, oldest first, or returns null if it is empty. Its entries stay dirty,
+     * and readable with [[getUnwritten]], until [[clearFlushing]] is called after they have been written.
+     */
+    def takeDirty(): Array[Entry[K, V]] = {
+      evictedDirty = false
+      if (dirty.isEmpty) {
+        return null
+      }
+      val batch = new Array[Entry[K, V]](dirty.size)
+      var pos = 0
+      val iter = dirty.entrySet.iterator
+      while (iter.hasNext) {
+        val dirtyEntry = iter.next
+        batch(pos) = new Entry(dirtyEntry.getKey, dirtyEntry.getValue.value)
+        pos += 1
+      }
+      flushing = dirty
+      dirty = new java.util.LinkedHashMap[K, CacheEntry[V]]()
+      dirtyCount = 0
+      batch
+    }
+
+    /**
+     * Marks the entries taken with [[takeDirty]] as written, unless they have been updated again since. If they could
+     * not be written, puts them back at the head of the dirty list instead.
+     */
+    def clearFlushing(written: Boolean) {
+      if (written) {
+        // the entries are not dirty any more once they have been written, so they can be evicted
+        val iter = flushing.entrySet.iterator
+        while (iter.hasNext) {
+          val flushed = iter.next
+          if (dirty.get(flushed.getKey) ne flushed.getValue) {
+            flushed.getValue.dirty = false
+          }
+        }
+      } else {
+        val iter = dirty.entrySet.iterator
+        while (iter.hasNext) {
+          val updated = iter.next
+          flushing.remove(updated.getKey)
+          flushing.put(updated.getKey, updated.getValue)
+        }
+        dirty = flushing
+        dirtyCount = dirty.size
+      }
+      flushing = null
+    }
+
+    /**
+     * Caches a value read from the store for a key missing from the segment, unless an entry has been added to the
+     * segment since the given version. Such an entry may have been for the same key, and may even have been evicted
+     * again already, so the value read may be outdated. Returns whether the value was cached.
+     */
+    def putIfUnchanged(key: K, value: V, weight: Int, readVersion: Long): Boolean = {
+      val unchanged = version == readVersion
+      if (unchanged) {
+        put(key, new CacheEntry(value), weight)
+      }
+      unchanged
+    }
+
+    /**
+     * Updates the weight of an entry whose value has changed.
+     */
+    def reweigh(entry: CacheEntry[V], weight: Int) {
+      addBytes(weight - entry.weight)
+      entry.weight = weight
+      trim()
+    }
+
+    /**
+     * Evicts the least recently used entries of the segment while the cache holds more than its share of an exhausted
+     * budget. The most recently used entry is always kept.
+     */
+    def trim() {
+      val iter = entries.entrySet.iterator
+      while (isOverBudget && entries.size > 1 && iter.hasNext) {
+        val evicted = iter.next
+        val entry = evicted.getValue
+        metrics.evictions.increment
+        onEvict(evicted.getKey, entry)
+        iter.remove()
+        addBytes(-entry.weight)
+      }
+      count = entries.size
+    }
+  }
+
+  private def addBytes(bytes: Long) {
+    cachedBytes.addAndGet(bytes)
+    budget.add(bytes)
+  }
+
+  private def isOverBudget = budget.isExhausted && cachedBytes.get > budget.getFairShare
 }
 
-private case class CacheEntry[K, V](var value: V, var dirty: mutable.DoubleLinkedList[K])
+object CachedStore {
+  /** the number of threads expected to access a cache concurrently, which is the number of segments of a large cache */
+  val ConcurrencyLevel = 16
+
+  /** the smallest number of entries in a segment, so that eviction stays close to LRU for the cache as a whole */
+  val MinSegmentSize = 64
+
+  /**
+   * Splits a cache into as many segments as its concurrency level, as long as each segment holds at least
+   * [[MinSegmentSize]] entries. The default cache of 1000 entries gets 15 segments.
+   */
+  def getSegmentCount(cacheSize: Int) = math.max(1, math.min(ConcurrencyLevel, cacheSize / MinSegmentSize))
+}
+
+/**
+ * A cached value. The dirty flag and the weight are only modified while holding the lock of the entry's segment.
+ */
+private class CacheEntry[V](@volatile var value: V, @volatile var dirty: Boolean = false, var weight: Int = 0)
@@ -35,6 +35,9 @@ class CachedStoreMetrics(
   val deletes = newCounter("deletes")
   val flushes = newCounter("flushes")
   val putAllDirtyEntriesBatchSize = newCounter("put-all-dirty-entries-batch-size")
+  val evictions = newCounter("evictions")
+  val dirtyEvictions = newCounter("dirty-evictions")
+  val lockContentions = newCounter("lock-contentions")
 
   def setDirtyCount(getValue: () => Int) {
     newGauge("dirty-count", getValue)
@@ -43,6 +46,10 @@ class CachedStoreMetrics(
   def setCacheSize(getValue: () => Int) {
     newGauge("cache-size", getValue)
   }
+
+  def setCacheSizeBytes(getValue: () => Long) {
+    newGauge("cache-size-bytes", getValue)
+  }
   
   override def getPrefix = storeName + "-"
 }
@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.storage.kv
+
+import java.io.File
+
+/**
+ * A raw key-value store that can create point-in-time checkpoints of its contents on local disk.
+ *
+ * [[KeyValueStorageEngine]] flushes the store and delegates to [[checkpoint]] when the storage engine is checkpointed.
+ */
+trait CheckpointableKeyValueStore extends KeyValueStore[Array[Byte], Array[Byte]] {
+
+  /**
+   * Creates a checkpoint of the current contents of the store.
+   *
+   * @param checkpointDir the directory to create the checkpoint in. It must not exist yet.
+   */
+  def checkpoint(checkpointDir: File)
+}
@@ -22,12 +22,10 @@ package org.apache.samza.storage.kv
 import java.io.File
 
 import org.apache.samza.util.Logging
-import org.apache.samza.storage.{StorageEngine, StoreProperties}
+import org.apache.samza.storage.{StorageEngine, StorageManagerUtil, StoreProperties, TaskStorageManager}
 import org.apache.samza.system.IncomingMessageEnvelope
 import org.apache.samza.util.TimerUtil
 
-import scala.collection.JavaConverters._
-
 /**
  * A key value store.
  *
@@ -48,7 +46,7 @@ class KeyValueStorageEngine[K, V](
   /* delegate to underlying store */
   def get(key: K): V = {
     updateTimer(metrics.getNs) {
-      metrics.gets.inc
+      metrics.gets.increment
 
       //update the duration and return the fetched value
       wrapperStore.get(key)
@@ -57,15 +55,15 @@ class KeyValueStorageEngine[K, V](
 
   override def getAll(keys: java.util.List[K]): java.util.Map[K, V] = {
     updateTimer(metrics.getAllNs) {
-      metrics.getAlls.inc()
-      metrics.gets.inc(keys.size)
+      metrics.getAlls.increment()
+      metrics.gets.increment(keys.size)
       wrapperStore.getAll(keys)
     }
   }
 
   def put(key: K, value: V) = {
     updateTimer(metrics.putNs) {
-      metrics.puts.inc
+      metrics.puts.increment
       wrapperStore.put(key, value)
     }
   }
@@ -76,29 +74,36 @@ class KeyValueStorageEngine[K, V](
 
   def delete(key: K) = {
     updateTimer(metrics.deleteNs) {
-      metrics.deletes.inc
+      metrics.deletes.increment
       wrapperStore.delete(key)
     }
   }
 
   override def deleteAll(keys: java.util.List[K]) = {
     updateTimer(metrics.deleteAllNs) {
-      metrics.deleteAlls.inc()
-      metrics.deletes.inc(keys.size)
+      metrics.deleteAlls.increment()
+      metrics.deletes.increment(keys.size)
       wrapperStore.deleteAll(keys)
     }
   }
 
   def range(from: K, to: K) = {
     updateTimer(metrics.rangeNs) {
-      metrics.ranges.inc
+      metrics.ranges.increment
       wrapperStore.range(from, to)
     }
   }
 
+  override def rangeKeys(from: K, to: K) = {
+    updateTimer(metrics.rangeNs) {
+      metrics.ranges.increment
+      wrapperStore.rangeKeys(from, to)
+    }
+  }
+
   def all() = {
     updateTimer(metrics.allNs) {
-      metrics.alls.inc
+      metrics.alls.increment
       wrapperStore.all()
     }
   }
@@ -106,55 +111,86 @@ class KeyValueStorageEngine[K, V](
   /**
    * Restore the contents of this key/value store from the change log,
    * batching updates to underlying raw store to notAValidEvent wrapping functions for efficiency.
+   * If the raw store supports bulk loading and has it enabled, and the store is restored from scratch, the whole
+   * change log is handed to it instead. A store with a valid offset file already holds most of its state, so only
+   * the tail of the change log is restored into it with regular writes.
    */
   def restore(envelopes: java.util.Iterator[IncomingMessageEnvelope]) {
     info("Restoring entries for store: " + storeName + " in directory: " + storeDir.toString)
 
-    val batch = new java.util.ArrayList[Entry[Array[Byte], Array[Byte]]](batchSize)
+    val isColdRestore = !StorageManagerUtil.isOffsetFileValid(storeDir, TaskStorageManager.OFFSET_FILE_NAME)
 
-    for (envelope <- envelopes.asScala) {
-      val keyBytes = envelope.getKey.asInstanceOf[Array[Byte]]
-      val valBytes = envelope.getMessage.asInstanceOf[Array[Byte]]
+    val entries = new java.util.Iterator[Entry[Array[Byte], Array[Byte]]] {
+      override def hasNext: Boolean = envelopes.hasNext
 
-      batch.add(new Entry(keyBytes, valBytes))
+      override def next(): Entry[Array[Byte], Array[Byte]] = {
+        val envelope = envelopes.next()
+        val keyBytes = envelope.getKey.asInstanceOf[Array[Byte]]
+        val valBytes = envelope.getMessage.asInstanceOf[Array[Byte]]
 
-      if (batch.size >= batchSize) {
-        doPutAll(rawStore, batch)
-        batch.clear()
-      }
+        if (valBytes != null) {
+          metrics.restoredBytes.increment(valBytes.length)
+          metrics.restoredBytesGauge.set(metrics.restoredBytesGauge.getValue + valBytes.length)
+        }
 
-      if (valBytes != null) {
-        metrics.restoredBytes.inc(valBytes.length)
-        metrics.restoredBytesGauge.set(metrics.restoredBytesGauge.getValue + valBytes.length)
-      }
+        metrics.restoredBytes.increment(keyBytes.length)
+        metrics.restoredBytesGauge.set(metrics.restoredBytesGauge.getValue + keyBytes.length)
 
-      metrics.restoredBytes.inc(keyBytes.length)
-      metrics.restoredBytesGauge.set(metrics.restoredBytesGauge.getValue + keyBytes.length)
+        metrics.restoredMessages.increment()
+        metrics.restoredMessagesGauge.set(metrics.restoredMessagesGauge.getValue + 1)
+        count += 1
 
-      metrics.restoredMessages.inc()
-      metrics.restoredMessagesGauge.set(metrics.restoredMessagesGauge.getValue + 1)
-      count += 1
+        if (count % 1000000 == 0) {
+          info(count + " entries restored for store: " + storeName + " in directory: " + storeDir.toString + "...")
+        }
 
-      if (count % 1000000 == 0) {
-        info(count + " entries restored for store: " + storeName + " in directory: " + storeDir.toString + "...")
+        new Entry(keyBytes, valBytes)
       }
     }
 
-    info(count + " total entries restored for store: " + storeName + " in directory: " + storeDir.toString + ".")
-
-    if (batch.size > 0) {
-      doPutAll(rawStore, batch)
+    rawStore match {
+      case bulkLoadableStore: BulkLoadableKeyValueStore if bulkLoadableStore.isBulkLoadEnabled && isColdRestore =>
+        info("Bulk loading entries for store: " + storeName + " in directory: " + storeDir.toString)
+        bulkLoadableStore.bulkLoad(entries)
+      case _ =>
+        val batch = new java.util.ArrayList[Entry[Array[Byte], Array[Byte]]](batchSize)
+
+        while (entries.hasNext) {
+          batch.add(entries.next())
+
+          if (batch.size >= batchSize) {
+            doPutAll(rawStore, batch)
+            batch.clear()
+          }
+        }
+
+        if (batch.size > 0) {
+          doPutAll(rawStore, batch)
+        }
     }
+
+    info(count + " total entries restored for store: " + storeName + " in directory: " + storeDir.toString + ".")
   }
 
   def flush() = {
     updateTimer(metrics.flushNs) {
       trace("Flushing.")
-      metrics.flushes.inc
+      metrics.flushes.increment
       wrapperStore.flush()
     }
   }
 
+  override def checkpoint(checkpointDir: File): Boolean = {
+    rawStore match {
+      case checkpointableStore: CheckpointableKeyValueStore =>
+        flush()
+        trace("Checkpointing to: %s" format checkpointDir)
+        checkpointableStore.checkpoint(checkpointDir)
+        true
+      case _ => false
+    }
+  }
+
   def stop() = {
     trace("Stopping.")
 
@@ -170,8 +206,8 @@ class KeyValueStorageEngine[K, V](
 
   private def doPutAll[Key, Value](store: KeyValueStore[Key, Value], entries: java.util.List[Entry[Key, Value]]) = {
     updateTimer(metrics.putAllNs) {
-      metrics.putAlls.inc()
-      metrics.puts.inc(entries.size)
+      metrics.putAlls.increment()
+      metrics.puts.increment(entries.size)
       store.putAll(entries)
     }
   }
@@ -180,7 +216,7 @@ class KeyValueStorageEngine[K, V](
 
   override def snapshot(from: K, to: K): KeyValueSnapshot[K, V] = {
     updateTimer(metrics.snapshotNs) {
-      metrics.snapshots.inc
+      metrics.snapshots.increment
       wrapperStore.snapshot(from, to)
     }
   }
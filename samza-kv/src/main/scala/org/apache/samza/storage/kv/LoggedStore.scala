@@ -37,22 +37,27 @@ class LoggedStore[K, V](
 
   /* pass through methods */
   def get(key: K) = {
-    metrics.gets.inc
+    metrics.gets.increment
     store.get(key)
   }
 
   override def getAll(keys: java.util.List[K]): java.util.Map[K, V] = {
-    metrics.gets.inc(keys.size)
+    metrics.gets.increment(keys.size)
     store.getAll(keys)
   }
 
   def range(from: K, to: K) = {
-    metrics.ranges.inc
+    metrics.ranges.increment
     store.range(from, to)
   }
 
+  override def rangeKeys(from: K, to: K) = {
+    metrics.ranges.increment
+    store.rangeKeys(from, to)
+  }
+
   def all() = {
-    metrics.alls.inc
+    metrics.alls.increment
     store.all()
   }
 
@@ -60,7 +65,7 @@ class LoggedStore[K, V](
    * Perform the local update and log it out to the changelog
    */
   def put(key: K, value: V) {
-    metrics.puts.inc
+    metrics.puts.increment
     collector.send(new OutgoingMessageEnvelope(systemStream, partitionId, key, value))
     store.put(key, value)
   }
@@ -69,7 +74,7 @@ class LoggedStore[K, V](
    * Perform multiple local updates and log out all changes to the changelog
    */
   def putAll(entries: java.util.List[Entry[K, V]]) {
-    metrics.puts.inc(entries.size)
+    metrics.puts.increment(entries.size)
     val iter = entries.iterator
     while (iter.hasNext) {
       val curr = iter.next
@@ -82,7 +87,7 @@ class LoggedStore[K, V](
    * Perform the local delete and log it out to the changelog
    */
   def delete(key: K) {
-    metrics.deletes.inc
+    metrics.deletes.increment
     collector.send(new OutgoingMessageEnvelope(systemStream, partitionId, key, null))
     store.delete(key)
   }
@@ -91,7 +96,7 @@ class LoggedStore[K, V](
    * Perform the local deletes and log them out to the changelog
    */
   override def deleteAll(keys: java.util.List[K]) = {
-    metrics.deletes.inc(keys.size)
+    metrics.deletes.increment(keys.size)
     val keysIterator = keys.iterator
     while (keysIterator.hasNext) {
       collector.send(new OutgoingMessageEnvelope(systemStream, partitionId, keysIterator.next, null))
@@ -102,7 +107,7 @@ class LoggedStore[K, V](
   def flush {
     trace("Flushing store.")
 
-    metrics.flushes.inc
+    metrics.flushes.increment
 
     store.flush
     trace("Flushed store.")
@@ -72,6 +72,12 @@ class NullSafeKeyValueStore[K, V](store: KeyValueStore[K, V]) extends KeyValueSt
     store.range(from, to)
   }
 
+  override def rangeKeys(from: K, to: K): ClosableIterator[K] = {
+    notNull(from, NullKeyErrorMessage)
+    notNull(to, NullKeyErrorMessage)
+    store.rangeKeys(from, to)
+  }
+
   def all(): KeyValueIterator[K, V] = {
     store.all
   }
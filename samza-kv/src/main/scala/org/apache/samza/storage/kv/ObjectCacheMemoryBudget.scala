@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.storage.kv
+
+import java.util.concurrent.atomic.{AtomicInteger, AtomicLong}
+
+import org.apache.samza.context.ContainerContext
+
+/**
+ * A memory budget for the byte-bounded object caches of one or more stores.
+ *
+ * Each store's cache may grow beyond its fair share (the budget split evenly across the stores using it) as long as
+ * the budget as a whole is not exhausted. Once it is exhausted, caches holding more than their fair share evict
+ * their least recently used entries, so hot stores can use the memory that idle stores are not using.
+ *
+ * This class is thread safe.
+ *
+ * @param maxBytes The number of bytes of serialized keys and values the caches may hold in total
+ */
+class ObjectCacheMemoryBudget(val maxBytes: Long) {
+  private val usedBytes = new AtomicLong
+
+  private val storeCount = new AtomicInteger
+
+  def register(): Unit = storeCount.incrementAndGet()
+
+  def unregister(): Unit = storeCount.decrementAndGet()
+
+  def add(bytes: Long): Unit = usedBytes.addAndGet(bytes)
+
+  def getUsedBytes = usedBytes.get
+
+  def isExhausted = usedBytes.get > maxBytes
+
+  def getFairShare = maxBytes / math.max(1, storeCount.get)
+}
+
+object ObjectCacheMemoryBudget {
+  /** the budgets shared by all the stores in a container */
+  private val containerBudgets = new java.util.WeakHashMap[ContainerContext, ObjectCacheMemoryBudget]
+
+  /**
+   * Returns the budget shared by the stores of the container, creating it if necessary.
+   */
+  def getContainerBudget(containerContext: ContainerContext, maxBytes: Long): ObjectCacheMemoryBudget = {
+    if (containerContext == null) {
+      new ObjectCacheMemoryBudget(maxBytes)
+    } else {
+      containerBudgets.synchronized {
+        var budget = containerBudgets.get(containerContext)
+        if (budget == null) {
+          budget = new ObjectCacheMemoryBudget(maxBytes)
+          containerBudgets.put(containerContext, budget)
+        }
+        budget
+      }
+    }
+  }
+}
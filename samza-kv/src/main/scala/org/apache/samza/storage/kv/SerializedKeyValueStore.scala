@@ -31,21 +31,28 @@ class SerializedKeyValueStore[K, V](
   msgSerde: Serde[V],
   metrics: SerializedKeyValueStoreMetrics = new SerializedKeyValueStoreMetrics) extends KeyValueStore[K, V] with Logging {
 
+  // Moving averages of the serialized sizes of the keys and values this store has written and read. Updates from
+  // concurrent threads may be lost, which only makes the averages move a bit slower.
+  private var averageKeySize = 0
+  private var averageValueSize = 0
+
   def get(key: K): V = {
     val keyBytes = toBytesOrNull(key, keySerde)
     val found = store.get(keyBytes)
-    metrics.gets.inc
+    metrics.gets.increment
+    recordSizes(keyBytes, found)
     fromBytesOrNull(found, msgSerde)
   }
 
   override def getAll(keys: java.util.List[K]): java.util.Map[K, V] = {
-    metrics.gets.inc(keys.size)
+    metrics.gets.increment(keys.size)
     val mapBytes = store.getAll(serializeKeys(keys))
     if (mapBytes != null) {
       val map = new java.util.HashMap[K, V](mapBytes.size)
       val entryIterator = mapBytes.entrySet.iterator
       while (entryIterator.hasNext) {
         val entry = entryIterator.next
+        recordSizes(entry.getKey, entry.getValue)
         map.put(fromBytesOrNull(entry.getKey, keySerde), fromBytesOrNull(entry.getValue, msgSerde))
       }
       map
@@ -55,9 +62,10 @@ class SerializedKeyValueStore[K, V](
   }
 
   def put(key: K, value: V) {
-    metrics.puts.inc
+    metrics.puts.increment
     val keyBytes = toBytesOrNull(key, keySerde)
     val valBytes = toBytesOrNull(value, msgSerde)
+    recordSizes(keyBytes, valBytes)
     store.put(keyBytes, valBytes)
   }
 
@@ -68,32 +76,46 @@ class SerializedKeyValueStore[K, V](
       val curr = iter.next
       val keyBytes = toBytesOrNull(curr.getKey, keySerde)
       val valBytes = toBytesOrNull(curr.getValue, msgSerde)
+      recordSizes(keyBytes, valBytes)
       list.add(new Entry(keyBytes, valBytes))
     }
     store.putAll(list)
-    metrics.puts.inc(list.size)
+    metrics.puts.increment(list.size)
   }
 
   def delete(key: K) {
-    metrics.deletes.inc
+    metrics.deletes.increment
     val keyBytes = toBytesOrNull(key, keySerde)
     store.delete(keyBytes)
   }
 
   override def deleteAll(keys: java.util.List[K]) = {
-    metrics.deletes.inc(keys.size)
+    metrics.deletes.increment(keys.size)
     store.deleteAll(serializeKeys(keys))
   }
 
   def range(from: K, to: K): KeyValueIterator[K, V] = {
-    metrics.ranges.inc
+    metrics.ranges.increment
     val fromBytes = toBytesOrNull(from, keySerde)
     val toBytes = toBytesOrNull(to, keySerde)
     new DeserializingIterator(store.range(fromBytes, toBytes))
   }
 
+  override def rangeKeys(from: K, to: K): ClosableIterator[K] = {
+    metrics.ranges.increment
+    val fromBytes = toBytesOrNull(from, keySerde)
+    val toBytes = toBytesOrNull(to, keySerde)
+    val iter = store.rangeKeys(fromBytes, toBytes)
+    new ClosableIterator[K] {
+      override def hasNext() = iter.hasNext()
+      override def remove() = iter.remove()
+      override def close() = iter.close()
+      override def next(): K = fromBytesOrNull(iter.next(), keySerde)
+    }
+  }
+
   def all(): KeyValueIterator[K, V] = {
-    metrics.alls.inc
+    metrics.alls.increment
     new DeserializingIterator(store.all)
   }
 
@@ -103,16 +125,41 @@ class SerializedKeyValueStore[K, V](
     override def close() = iter.close()
     override def next(): Entry[K, V] = {
       val nxt = iter.next()
-      val key = fromBytesOrNull(nxt.getKey, keySerde)
-      val value = fromBytesOrNull(nxt.getValue, msgSerde)
-      new Entry(key, value)
+      new LazyEntry(nxt.getKey, nxt.getValue)
+    }
+  }
+
+  /**
+   * An entry that deserializes its key and value the first time they are accessed, so that scans don't pay
+   * for deserializing values (or keys) they never look at. Not thread safe.
+   */
+  private class LazyEntry(keyBytes: Array[Byte], valueBytes: Array[Byte]) extends Entry[K, V](null.asInstanceOf[K], null.asInstanceOf[V]) {
+    private var key: K = _
+    private var keyDeserialized = false
+    private var value: V = _
+    private var valueDeserialized = false
+
+    override def getKey: K = {
+      if (!keyDeserialized) {
+        key = fromBytesOrNull(keyBytes, keySerde)
+        keyDeserialized = true
+      }
+      key
+    }
+
+    override def getValue: V = {
+      if (!valueDeserialized) {
+        value = fromBytesOrNull(valueBytes, msgSerde)
+        valueDeserialized = true
+      }
+      value
     }
   }
 
   def flush {
     trace("Flushing store.")
 
-    metrics.flushes.inc
+    metrics.flushes.increment
 
     store.flush
     trace("Flushed store.")
@@ -124,11 +171,34 @@ class SerializedKeyValueStore[K, V](
     store.close
   }
 
+  /**
+   * Estimates the number of bytes the key and value take up once serialized, without serializing them. Byte arrays
+   * are weighed by their length, other keys and values by the average size of those this store has written and read.
+   */
+  def estimatedSize(key: K, value: V): Int = estimatedSize(key, averageKeySize) + estimatedSize(value, averageValueSize)
+
+  private def estimatedSize(obj: Any, averageSize: Int): Int = obj match {
+    case null => 0
+    case bytes: Array[Byte] => bytes.length
+    case _ => averageSize
+  }
+
+  private def recordSizes(keyBytes: Array[Byte], valueBytes: Array[Byte]) {
+    if (keyBytes != null) {
+      averageKeySize = movingAverage(averageKeySize, keyBytes.length)
+    }
+    if (valueBytes != null) {
+      averageValueSize = movingAverage(averageValueSize, valueBytes.length)
+    }
+  }
+
+  private def movingAverage(average: Int, size: Int) = if (average == 0) size else average + (size - average) / 16
+
   private def toBytesOrNull[T](t: T, serde: Serde[T]): Array[Byte] = if (t == null) {
     null
   } else {
     val bytes = serde.toBytes(t)
-    metrics.bytesSerialized.inc(bytes.size)
+    metrics.bytesSerialized.increment(bytes.size)
     bytes
   }
 
@@ -136,7 +206,7 @@ class SerializedKeyValueStore[K, V](
     null.asInstanceOf[T]
   } else {
     val obj = serde.fromBytes(bytes)
-    metrics.bytesDeserialized.inc(bytes.size)
+    metrics.bytesDeserialized.increment(bytes.size)
     obj
   }
 
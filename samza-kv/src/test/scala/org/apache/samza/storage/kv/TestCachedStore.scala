@@ -21,7 +21,9 @@ package org.apache.samza.storage.kv
 
 import java.util
 import java.util.Arrays
+import java.util.concurrent.{CountDownLatch, Executors, TimeUnit}
 
+import org.apache.samza.metrics.{Gauge, MetricsRegistryMap}
 import org.junit.Assert._
 import org.junit.Test
 import org.mockito.ArgumentCaptor
@@ -159,4 +161,203 @@ class TestCachedStore {
     assertEquals(dirtyEntries map (_.getKey), Seq("test1-key", "test2-key", "test3-key", "test4-key"))
     assertEquals(dirtyEntries map (_.getValue), Seq("test1-value", "test2-value", "test3-value", "test4-value"))
   }
+
+  @Test
+  def testEvictionMetrics() {
+    val kv = new MockKeyValueStore()
+    val metrics = new CachedStoreMetrics
+    val store = new CachedStore[String, String](kv, 2, 2, metrics)
+
+    store.put("test1-key", "test1-value")
+    store.put("test2-key", "test2-value")
+    store.put("test3-key", "test3-value")
+    assertEquals(1, metrics.evictions.getCount)
+    assertEquals(0, metrics.dirtyEvictions.getCount)
+
+    // test2-key is the eldest entry and is clean, test3-key is dirty
+    store.get("test2-key")
+    store.put("test4-key", "test4-value")
+    assertEquals(2, metrics.evictions.getCount)
+    assertEquals(1, metrics.dirtyEvictions.getCount)
+    assertEquals("test3-value", kv.get("test3-key"))
+  }
+
+  @Test
+  def testDefaultCacheIsSegmented() {
+    val defaultCacheSize = 1000
+    val segmentCount = CachedStore.getSegmentCount(defaultCacheSize)
+    assertTrue(segmentCount > 1)
+    assertTrue(segmentCount <= CachedStore.ConcurrencyLevel)
+    assertTrue(defaultCacheSize / segmentCount >= CachedStore.MinSegmentSize)
+    assertEquals(1, CachedStore.getSegmentCount(CachedStore.MinSegmentSize - 1))
+    assertEquals(CachedStore.ConcurrencyLevel, CachedStore.getSegmentCount(Int.MaxValue))
+  }
+
+  @Test
+  def testConcurrentAccessToSegmentedCache() {
+    val kv = new MockKeyValueStore {
+      override def get(key: String) = synchronized { super.get(key) }
+      override def putAll(entries: java.util.List[Entry[String, String]]) = synchronized { super.putAll(entries) }
+    }
+    val cacheSize = 4 * CachedStore.MinSegmentSize
+    assertEquals(4, CachedStore.getSegmentCount(cacheSize))
+    val store = new CachedStore[String, String](kv, cacheSize, 100)
+
+    val threads = 4
+    val keysPerThread = 2000
+    val executor = Executors.newFixedThreadPool(threads)
+    val futures = (0 until threads).map(t => executor.submit(new Runnable {
+      override def run() {
+        for (i <- 0 until keysPerThread) {
+          val key = "key-%d-%d" format (t, i)
+          store.put(key, "value-" + i)
+          assertEquals("value-" + i, store.get(key))
+        }
+      }
+    }))
+    futures.foreach(_.get(30, TimeUnit.SECONDS))
+    executor.shutdown()
+    store.flush()
+
+    for (t <- 0 until threads; i <- 0 until keysPerThread) {
+      assertEquals("value-" + i, kv.get("key-%d-%d" format (t, i)))
+      assertEquals("value-" + i, store.get("key-%d-%d" format (t, i)))
+    }
+  }
+
+  @Test
+  def testByteBoundedCacheEviction() {
+    val kv = new MockKeyValueStore()
+    val metrics = new CachedStoreMetrics
+    val budget = new ObjectCacheMemoryBudget(30)
+    val weigher = (key: String, value: String) => key.length + (if (value == null) 0 else value.length)
+    val store = new CachedStore[String, String](kv, 100, 100, metrics, budget, weigher)
+
+    // each entry weighs 10 bytes
+    store.put("key1", "value1")
+    store.put("key2", "value2")
+    store.put("key3", "value3")
+    assertEquals(30, budget.getUsedBytes)
+    assertEquals(0, metrics.evictions.getCount)
+
+    // exceeding the budget evicts the least recently used entry, writing out the dirty entries first
+    store.get("key1")
+    store.put("key4", "value4")
+    assertEquals(30, budget.getUsedBytes)
+    assertEquals(1, metrics.evictions.getCount)
+    assertEquals(1, metrics.dirtyEvictions.getCount)
+    assertEquals("value2", kv.get("key2"))
+    assertEquals("value2", store.get("key2"))
+
+    // updating a value re-weighs its entry
+    store.put("key2", "value2-updated")
+    assertTrue(budget.getUsedBytes <= 30)
+
+    store.close()
+    assertEquals(0, budget.getUsedBytes)
+  }
+
+  @Test
+  def testSharedBudgetLetsBusyStoreGrow() {
+    val budget = new ObjectCacheMemoryBudget(40)
+    val weigher = (key: String, value: String) => key.length + value.length
+    val busyMetrics = new CachedStoreMetrics
+    val idleMetrics = new CachedStoreMetrics
+    val busy = new CachedStore[String, String](new MockKeyValueStore(), 100, 100, busyMetrics, budget, weigher)
+    val idle = new CachedStore[String, String](new MockKeyValueStore(), 100, 100, idleMetrics, budget, weigher)
+    assertEquals(20, budget.getFairShare)
+
+    // the busy store may use more than its fair share while the idle store is not using its share
+    busy.put("key1", "value1")
+    busy.put("key2", "value2")
+    busy.put("key3", "value3")
+    busy.put("key4", "value4")
+    assertEquals(40, budget.getUsedBytes)
+    assertEquals(40, getCacheSizeBytes(busyMetrics))
+    assertEquals(0, getCacheSizeBytes(idleMetrics))
+    assertEquals("value1", busy.get("key1"))
+    assertEquals(0, busyMetrics.evictions.getCount)
+
+    // once the budget is exhausted, the store over its fair share shrinks to give memory back
+    idle.put("key5", "value5")
+    busy.flush()
+    assertEquals(30, getCacheSizeBytes(busyMetrics))
+    assertEquals(10, getCacheSizeBytes(idleMetrics))
+    assertEquals(40, budget.getUsedBytes)
+    assertEquals(1, busyMetrics.evictions.getCount)
+    assertEquals(0, idleMetrics.evictions.getCount)
+    assertEquals("value5", idle.get("key5"))
+  }
+
+  @Test
+  def testByteBoundedCacheWeighsOutsideOfLock() {
+    val kv = new MockKeyValueStore()
+    kv.put("key1", "value1")
+    kv.put("key2", "value2")
+    val budget = new ObjectCacheMemoryBudget(100)
+    var store: CachedStore[String, String] = null
+    val weigher = (key: String, value: String) => {
+      // a concurrent put to the same key while the value of a cache miss is weighed, which would block if the
+      // segment lock was held
+      if (key == "key1" && value == "value1") {
+        val writer = new Thread(new Runnable {
+          override def run() = store.put("key1", "newValue1")
+        })
+        writer.start()
+        writer.join(10000)
+        assertFalse(writer.isAlive)
+      }
+      key.length + (if (value == null) 0 else value.length)
+    }
+    store = new CachedStore[String, String](kv, 100, 100, budget = budget, weigher = weigher)
+
+    // the value read before the concurrent put is returned, but not cached
+    assertEquals("value1", store.get("key1"))
+    assertEquals("newValue1", store.get("key1"))
+    assertEquals("value2", store.getAll(Arrays.asList("key2")).get("key2"))
+    assertEquals(4 + 9 + 4 + 6, budget.getUsedBytes)
+  }
+
+  @Test
+  def testPutsDoNotWaitForDirtyEntriesToBeWritten() {
+    val writing = new CountDownLatch(1)
+    val written = new CountDownLatch(1)
+    val kv = new MockKeyValueStore {
+      override def putAll(entries: java.util.List[Entry[String, String]]) {
+        writing.countDown()
+        assertTrue(written.await(10, TimeUnit.SECONDS))
+        super.putAll(entries)
+      }
+    }
+    val store = new CachedStore[String, String](kv, 2, 100)
+    store.put("key1", "value1")
+    store.put("key2", "value2")
+
+    val flusher = new Thread(new Runnable {
+      override def run() = store.flush()
+    })
+    flusher.start()
+    assertTrue(writing.await(10, TimeUnit.SECONDS))
+
+    // while the dirty entries are written, puts go ahead, and an entry evicted before it is written is still read
+    store.put("key3", "value3")
+    assertEquals("value1", store.get("key1"))
+    assertNull(kv.get("key1"))
+
+    written.countDown()
+    flusher.join(10000)
+    assertFalse(flusher.isAlive)
+    assertEquals("value1", kv.get("key1"))
+    assertEquals("value2", kv.get("key2"))
+    assertNull(kv.get("key3"))
+    assertEquals("value3", store.get("key3"))
+  }
+
+  private def getCacheSizeBytes(metrics: CachedStoreMetrics) = {
+    metrics.registry.asInstanceOf[MetricsRegistryMap]
+      .getGroup(classOf[CachedStoreMetrics].getName)
+      .get(metrics.storeName + "-cache-size-bytes")
+      .asInstanceOf[Gauge[Long]]
+      .getValue
+  }
 }
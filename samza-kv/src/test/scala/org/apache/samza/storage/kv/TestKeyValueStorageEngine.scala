@@ -24,10 +24,12 @@ import java.util.Arrays
 
 import org.apache.samza.Partition
 import org.apache.samza.container.TaskName
-import org.apache.samza.storage.StoreProperties
+import org.apache.samza.storage.{StoreProperties, TaskStorageManager}
 import org.apache.samza.system.{IncomingMessageEnvelope, SystemStreamPartition}
+import org.apache.samza.util.FileUtil
 import org.junit.Assert._
 import org.junit.{After, Before, Test}
+import org.mockito.Matchers.any
 import org.mockito.Mockito._
 
 class TestKeyValueStorageEngine {
@@ -149,6 +151,48 @@ class TestKeyValueStorageEngine {
     assertEquals(15, metrics.restoredBytesGauge.getValue) // 3 keys * 2 bytes/key +  3 msgs * 3 bytes/msg
   }
 
+  @Test
+  def testRestoreBulkLoadsStoreWithoutOffsetFile(): Unit = {
+    val storeDir = new File(System.getProperty("java.io.tmpdir"), "kv-engine-cold-restore-test")
+    FileUtil.rm(storeDir)
+    storeDir.mkdirs()
+    val rawKv = mock(classOf[BulkLoadableKeyValueStore])
+    when(rawKv.isBulkLoadEnabled).thenReturn(true)
+    val engine = new KeyValueStorageEngine[String, String]("test-storeName", storeDir, mock(classOf[StoreProperties]),
+      new MockKeyValueStore(), rawKv)
+
+    engine.restore(getChangelogEntries.iterator())
+
+    verify(rawKv).bulkLoad(any())
+    verify(rawKv, never()).putAll(any())
+    FileUtil.rm(storeDir)
+  }
+
+  @Test
+  def testRestoreDoesNotBulkLoadStoreWithValidOffsetFile(): Unit = {
+    val storeDir = new File(System.getProperty("java.io.tmpdir"), "kv-engine-warm-restore-test")
+    FileUtil.rm(storeDir)
+    storeDir.mkdirs()
+    FileUtil.writeWithChecksum(new File(storeDir, TaskStorageManager.OFFSET_FILE_NAME), "100")
+    val rawKv = mock(classOf[BulkLoadableKeyValueStore])
+    when(rawKv.isBulkLoadEnabled).thenReturn(true)
+    val engine = new KeyValueStorageEngine[String, String]("test-storeName", storeDir, mock(classOf[StoreProperties]),
+      new MockKeyValueStore(), rawKv)
+
+    engine.restore(getChangelogEntries.iterator())
+
+    verify(rawKv, never()).bulkLoad(any())
+    verify(rawKv).putAll(any())
+    FileUtil.rm(storeDir)
+  }
+
+  private def getChangelogEntries = {
+    val changelogSSP = new SystemStreamPartition("TestSystem", "TestStream", new Partition(0))
+    java.util.Arrays.asList(
+      new IncomingMessageEnvelope(changelogSSP, "0", Array[Byte](1, 2), Array[Byte](3, 4, 5)),
+      new IncomingMessageEnvelope(changelogSSP, "1", Array[Byte](2, 3), Array[Byte](4, 5, 6)))
+  }
+
   def getNextTimestamp(): Long = {
     now += 1
     now
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.samza.storage.kv
+
+import java.util
+
+import org.apache.samza.serializers.{ByteSerde, Serde, StringSerde}
+import org.junit.Assert._
+import org.junit.Test
+import org.mockito.Mockito._
+
+class TestSerializedKeyValueStore {
+
+  /**
+   * A serde that counts the values it serializes and deserializes.
+   */
+  class CountingSerde extends Serde[String] {
+    val serde = new StringSerde("UTF-8")
+    var serialized = 0
+    var deserialized = 0
+
+    override def fromBytes(bytes: Array[Byte]): String = {
+      deserialized += 1
+      serde.fromBytes(bytes)
+    }
+
+    override def toBytes(obj: String): Array[Byte] = {
+      serialized += 1
+      serde.toBytes(obj)
+    }
+  }
+
+  private def bytes(s: String) = s.getBytes("UTF-8")
+
+  private def iteratorOf(entries: Entry[Array[Byte], Array[Byte]]*): KeyValueIterator[Array[Byte], Array[Byte]] = {
+    val iter = util.Arrays.asList(entries: _*).iterator
+    new KeyValueIterator[Array[Byte], Array[Byte]] {
+      override def hasNext = iter.hasNext
+      override def next() = iter.next()
+      override def remove() = iter.remove()
+      override def close() {}
+    }
+  }
+
+  @Test
+  def testIteratorDeserializesValuesLazily() {
+    val kv = mock(classOf[KeyValueStore[Array[Byte], Array[Byte]]])
+    when(kv.all()).thenReturn(iteratorOf(new Entry(bytes("k1"), bytes("v1")), new Entry(bytes("k2"), bytes("v2"))))
+    val msgSerde = new CountingSerde
+    val store = new SerializedKeyValueStore[String, String](kv, new StringSerde("UTF-8"), msgSerde)
+
+    val iter = store.all()
+    assertEquals("k1", iter.next().getKey)
+    val entry = iter.next()
+    assertEquals("k2", entry.getKey)
+    assertEquals(0, msgSerde.deserialized)
+
+    assertEquals("v2", entry.getValue)
+    assertEquals("v2", entry.getValue)
+    assertEquals(1, msgSerde.deserialized)
+    iter.close()
+  }
+
+  @Test
+  def testRangeKeysDoesNotReadValues() {
+    val kv = mock(classOf[KeyValueStore[Array[Byte], Array[Byte]]])
+    val keys = util.Arrays.asList(bytes("k1"), bytes("k2")).iterator
+    when(kv.rangeKeys(bytes("k0"), bytes("k3"))).thenReturn(new ClosableIterator[Array[Byte]] {
+      override def hasNext = keys.hasNext
+      override def next() = keys.next()
+      override def close() {}
+    })
+    val msgSerde = new CountingSerde
+    val store = new SerializedKeyValueStore[String, String](kv, new StringSerde("UTF-8"), msgSerde)
+
+    val iter = store.rangeKeys("k0", "k3")
+    assertEquals("k1", iter.next())
+    assertEquals("k2", iter.next())
+    assertFalse(iter.hasNext)
+    iter.close()
+    verify(kv, never()).range(org.mockito.Matchers.any(), org.mockito.Matchers.any())
+    assertEquals(0, msgSerde.deserialized)
+  }
+
+  @Test
+  def testEstimatedSizeDoesNotSerialize() {
+    val kv = mock(classOf[KeyValueStore[Array[Byte], Array[Byte]]])
+    when(kv.get(bytes("k1"))).thenReturn(bytes("value-1"))
+    val keySerde = new CountingSerde
+    val msgSerde = new CountingSerde
+    val store = new SerializedKeyValueStore[String, String](kv, keySerde, msgSerde)
+    assertEquals(0, store.estimatedSize("k1", "value-1"))
+
+    // the sizes come from the bytes the store reads and writes anyway
+    store.get("k1")
+    store.put("k2", "value-2")
+    assertEquals(2, keySerde.serialized)
+    assertEquals(1, msgSerde.serialized)
+    assertEquals(2 + 7, store.estimatedSize("k3", "v"))
+    assertEquals(2, store.estimatedSize("k3", null))
+    assertEquals(2, keySerde.serialized)
+    assertEquals(1, msgSerde.serialized)
+
+    val bytesStore = new SerializedKeyValueStore[Array[Byte], Array[Byte]](kv, new ByteSerde, new ByteSerde)
+    assertEquals(2 + 3, bytesStore.estimatedSize(bytes("k1"), bytes("abc")))
+  }
+}
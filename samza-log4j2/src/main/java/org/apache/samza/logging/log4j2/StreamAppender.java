@@ -209,7 +209,7 @@ public class StreamAppender extends AbstractAppender {
                 messagesDropped));
 
             // Emit a metric which can be monitored to ensure it doesn't happen often.
-            metrics.logMessagesDropped.inc(messagesDropped);
+            metrics.logMessagesDropped.increment(messagesDropped);
           }
           metrics.bufferFillPct.set(Math.round(100f * logQueue.size() / DEFAULT_QUEUE_SIZE));
         }
@@ -220,7 +220,7 @@ public class StreamAppender extends AbstractAppender {
         recursiveCall.set(false);
       }
     } else if (metrics != null) { // setupSystem() may not have been invoked yet so metrics can be null here.
-      metrics.recursiveCalls.inc();
+      metrics.recursiveCalls.increment();
     }
   }
 